@@ -0,0 +1,117 @@
+package org.purl.wf4ever.rosrs.client.benchmarks;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.purl.wf4ever.rosrs.client.Annotation;
+import org.purl.wf4ever.rosrs.client.AnnotationTriple;
+import org.purl.wf4ever.rosrs.client.ResearchObject;
+import org.purl.wf4ever.rosrs.client.exception.ROException;
+import org.purl.wf4ever.rosrs.client.exception.ROSRSException;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.vocabulary.RDFS;
+
+/**
+ * Reading the statements of an annotation body and looking up property values in it.
+ *
+ * @author piotrekhol
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnnotationBenchmark {
+
+    /** Number of triples in the annotation body. */
+    @Param({ "10", "100", "1000" })
+    public int triples;
+
+    /** The RO, the annotation target. */
+    private ResearchObject researchObject;
+
+    /** The annotation, loaded. */
+    private Annotation annotation;
+
+    /** The annotation body. */
+    private Model body;
+
+    /** The property looked up. */
+    private URI property;
+
+
+    /**
+     * Generate an RO with one annotation about it and load the annotation.
+     *
+     * @throws ROSRSException
+     *             never thrown by the in-memory ROSRS
+     * @throws ROException
+     *             the synthetic manifest is incorrect
+     */
+    @Setup
+    public void setUp()
+            throws ROSRSException, ROException {
+        SyntheticResearchObject synthetic = new SyntheticResearchObject(1, 1, 1, triples);
+        researchObject = new ResearchObject(SyntheticResearchObject.RO, synthetic.createService());
+        researchObject.loadManifest();
+        annotation = researchObject.getAnnotations().iterator().next();
+        body = synthetic.getBody(0);
+        annotation.load(body);
+        property = URI.create(RDFS.comment.getURI());
+    }
+
+
+    /**
+     * Read the annotation body.
+     *
+     * @return the annotation
+     */
+    @Benchmark
+    public Annotation load() {
+        annotation.load(body);
+        return annotation;
+    }
+
+
+    /**
+     * Find the values of one property of the RO.
+     *
+     * @return the values
+     * @throws ROSRSException
+     *             never thrown, the annotation is loaded
+     */
+    @Benchmark
+    public List<String> getPropertyValues()
+            throws ROSRSException {
+        return annotation.getPropertyValues(researchObject, property);
+    }
+
+
+    /**
+     * Find all property values of the RO.
+     *
+     * @return the values
+     * @throws ROSRSException
+     *             never thrown, the annotation is loaded
+     */
+    @Benchmark
+    public List<AnnotationTriple> getAllPropertyValues()
+            throws ROSRSException {
+        return annotation.getPropertyValues(researchObject);
+    }
+}
@@ -0,0 +1,77 @@
+package org.purl.wf4ever.rosrs.client.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.purl.wf4ever.rosrs.client.Folder;
+import org.purl.wf4ever.rosrs.client.ResearchObject;
+import org.purl.wf4ever.rosrs.client.exception.ROException;
+import org.purl.wf4ever.rosrs.client.exception.ROSRSException;
+
+import com.hp.hpl.jena.rdf.model.Model;
+
+/**
+ * Reading the entries of a folder from its resource map.
+ *
+ * @author piotrekhol
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FolderBenchmark {
+
+    /** Number of folder entries. */
+    @Param({ "10", "100", "1000" })
+    public int entries;
+
+    /** The folder, its RO manifest loaded. */
+    private Folder folder;
+
+    /** The resource map of the folder. */
+    private Model resourceMap;
+
+
+    /**
+     * Generate an RO with one folder containing all resources and load its manifest.
+     *
+     * @throws ROSRSException
+     *             never thrown by the in-memory ROSRS
+     * @throws ROException
+     *             the synthetic manifest is incorrect
+     */
+    @Setup
+    public void setUp()
+            throws ROSRSException, ROException {
+        SyntheticResearchObject synthetic = new SyntheticResearchObject(entries, 1, 1, 1);
+        ResearchObject researchObject = new ResearchObject(SyntheticResearchObject.RO, synthetic.createService());
+        researchObject.loadManifest();
+        folder = researchObject.getFolders().values().iterator().next();
+        resourceMap = synthetic.getResourceMap(0);
+    }
+
+
+    /**
+     * Load the folder entries.
+     *
+     * @return the folder
+     */
+    @Benchmark
+    public Folder load() {
+        folder.load(resourceMap);
+        return folder;
+    }
+}
@@ -0,0 +1,121 @@
+package org.purl.wf4ever.rosrs.client.benchmarks;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.purl.wf4ever.rosrs.client.Utils;
+
+import com.google.common.collect.Multimap;
+
+/**
+ * Parsing the Link headers returned by ROSRS, with all links in one header, with one header per link, and with extra
+ * parameters whose quoted values contain separators.
+ *
+ * @author piotrekhol
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LinkHeaderBenchmark {
+
+    /** Link relations used by ROSRS. */
+    private static final String[] RELATIONS = { "http://www.openarchives.org/ore/terms/proxyFor",
+            "http://purl.org/ao/body", "http://www.openarchives.org/ore/terms/isDescribedBy",
+            "http://purl.org/wf4ever/ro#annotatesAggregatedResource" };
+
+    /** Number of links. */
+    @Param({ "1", "10", "100" })
+    public int links;
+
+    /** All links in one header value. */
+    private List<String> combined;
+
+    /** One header value per link. */
+    private List<String> separate;
+
+    /** All links in one header value, with titles and types. */
+    private List<String> parameters;
+
+
+    /**
+     * Generate the headers.
+     */
+    @Setup
+    public void setUp() {
+        separate = new ArrayList<>();
+        for (int i = 0; i < links; i++) {
+            separate.add("<" + SyntheticResearchObject.RO.resolve("res" + i + ".txt") + ">; rel=\""
+                    + RELATIONS[i % RELATIONS.length] + "\"");
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String link : separate) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(link);
+        }
+        combined = new ArrayList<>();
+        combined.add(sb.toString());
+        sb.setLength(0);
+        for (int i = 0; i < links; i++) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append('<').append(SyntheticResearchObject.RO.resolve("res" + i + ";v=1,2.txt")).append(">; title=\"")
+                    .append("Resource ").append(i).append(", \\\"draft\\\"; v1\"; type=\"text/plain\"; rel=\"")
+                    .append(RELATIONS[i % RELATIONS.length]).append('"');
+        }
+        parameters = new ArrayList<>();
+        parameters.add(sb.toString());
+    }
+
+
+    /**
+     * Parse one header with all links.
+     *
+     * @return the links by relation
+     */
+    @Benchmark
+    public Multimap<String, URI> combined() {
+        return Utils.getLinkHeaders(combined);
+    }
+
+
+    /**
+     * Parse one header per link.
+     *
+     * @return the links by relation
+     */
+    @Benchmark
+    public Multimap<String, URI> separate() {
+        return Utils.getLinkHeaders(separate);
+    }
+
+
+    /**
+     * Parse one header with all links and additional parameters.
+     *
+     * @return the links by relation
+     */
+    @Benchmark
+    public Multimap<String, URI> parameters() {
+        return Utils.getLinkHeaders(parameters);
+    }
+}
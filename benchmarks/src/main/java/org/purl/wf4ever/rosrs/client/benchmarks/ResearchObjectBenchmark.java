@@ -0,0 +1,88 @@
+package org.purl.wf4ever.rosrs.client.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.purl.wf4ever.rosrs.client.ROSRService;
+import org.purl.wf4ever.rosrs.client.ResearchObject;
+import org.purl.wf4ever.rosrs.client.exception.ROException;
+import org.purl.wf4ever.rosrs.client.exception.ROSRSException;
+
+/**
+ * Loading a whole research object and its manifest only, for manifests of several sizes. There is one folder and one
+ * annotation for every 10 resources.
+ *
+ * @author piotrekhol
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResearchObjectBenchmark {
+
+    /** Number of resources. */
+    @Param({ "10", "100", "1000" })
+    public int resources;
+
+    /** ROSRS serving the synthetic RO. */
+    private ROSRService rosrs;
+
+
+    /**
+     * Generate the RO.
+     */
+    @Setup
+    public void setUp() {
+        int others = Math.max(1, resources / 10);
+        rosrs = new SyntheticResearchObject(resources, others, others, 5).createService();
+    }
+
+
+    /**
+     * Load the manifest, folders and annotations from the TriG dataset.
+     *
+     * @return the RO
+     * @throws ROSRSException
+     *             never thrown by the in-memory ROSRS
+     * @throws ROException
+     *             the synthetic manifest is incorrect
+     */
+    @Benchmark
+    public ResearchObject load()
+            throws ROSRSException, ROException {
+        ResearchObject researchObject = new ResearchObject(SyntheticResearchObject.RO, rosrs);
+        researchObject.load();
+        return researchObject;
+    }
+
+
+    /**
+     * Load the RDF/XML manifest only.
+     *
+     * @return the RO
+     * @throws ROSRSException
+     *             never thrown by the in-memory ROSRS
+     * @throws ROException
+     *             the synthetic manifest is incorrect
+     */
+    @Benchmark
+    public ResearchObject loadManifest()
+            throws ROSRSException, ROException {
+        ResearchObject researchObject = new ResearchObject(SyntheticResearchObject.RO, rosrs);
+        researchObject.loadManifest();
+        return researchObject;
+    }
+}
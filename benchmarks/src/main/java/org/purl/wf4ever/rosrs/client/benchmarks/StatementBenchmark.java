@@ -0,0 +1,66 @@
+package org.purl.wf4ever.rosrs.client.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.purl.wf4ever.rosrs.client.Statement;
+
+import com.hp.hpl.jena.rdf.model.Model;
+
+/**
+ * Converting Jena statements of an annotation body to the client's statements.
+ *
+ * @author piotrekhol
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatementBenchmark {
+
+    /** Jena statements: literals, resources and blank nodes. */
+    private List<com.hp.hpl.jena.rdf.model.Statement> statements;
+
+
+    /**
+     * Generate an annotation body of 1000 literal statements and 100 with resources and blank nodes as objects.
+     */
+    @Setup
+    public void setUp() {
+        Model model = new SyntheticResearchObject(1, 1, 1, 1000).getBody(0);
+        for (int i = 0; i < 100; i++) {
+            model.add(model.createResource(SyntheticResearchObject.RO.toString()),
+                model.createProperty("http://purl.org/dc/terms/", "relation"),
+                i % 2 == 0 ? model.createResource() : model.createResource(SyntheticResearchObject.RO + "res" + i));
+        }
+        statements = model.listStatements().toList();
+    }
+
+
+    /**
+     * Convert all statements.
+     *
+     * @param blackhole
+     *            consumes the statements
+     */
+    @Benchmark
+    public void create(Blackhole blackhole) {
+        for (com.hp.hpl.jena.rdf.model.Statement statement : statements) {
+            blackhole.consume(Statement.create(statement));
+        }
+    }
+}
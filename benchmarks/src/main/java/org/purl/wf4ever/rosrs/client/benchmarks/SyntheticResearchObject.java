@@ -0,0 +1,144 @@
+package org.purl.wf4ever.rosrs.client.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.purl.wf4ever.rosrs.client.ROSRService;
+import org.purl.wf4ever.rosrs.client.synthetic.SyntheticDataset;
+
+import com.hp.hpl.jena.query.Dataset;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.core.header.InBoundHeaders;
+
+/**
+ * A research object generated by {@link SyntheticDataset}, served by an in-memory ROSRS so that the benchmarks don't
+ * depend on the network.
+ *
+ * @author piotrekhol
+ *
+ */
+public class SyntheticResearchObject {
+
+    /** RO URI. */
+    public static final URI RO = URI.create("http://example.org/ROs/synthetic/");
+
+    /** The manifest, resource maps and annotation bodies in TriG. */
+    private final byte[] trig;
+
+    /** The manifest in RDF/XML. */
+    private final byte[] manifest;
+
+    /** The generated dataset. */
+    private final Dataset dataset;
+
+
+    /**
+     * Constructor, generates the RO.
+     *
+     * @param resources
+     *            number of resources
+     * @param folders
+     *            number of folders, at least 1
+     * @param annotations
+     *            number of annotations, at least 1
+     * @param bodyTriples
+     *            number of triples in each annotation body, at least 1
+     */
+    public SyntheticResearchObject(int resources, int folders, int annotations, int bodyTriples) {
+        this.dataset = SyntheticDataset.generate(RO, resources, folders, annotations, bodyTriples);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RDFDataMgr.write(out, dataset, Lang.TRIG);
+        this.trig = out.toByteArray();
+        out = new ByteArrayOutputStream();
+        dataset.getNamedModel(SyntheticDataset.manifest(RO)).write(out, "RDF/XML");
+        this.manifest = out.toByteArray();
+    }
+
+
+    /**
+     * Create a ROSRS client serving this RO from memory.
+     *
+     * @return a ROSRS client that doesn't connect to any server
+     */
+    public ROSRService createService() {
+        Map<String, byte[]> bodies = new HashMap<>();
+        bodies.put("application/x-trig", trig);
+        bodies.put("application/rdf+xml", manifest);
+        return new InMemoryROSRService(bodies);
+    }
+
+
+    /**
+     * Get the resource map of a folder.
+     *
+     * @param folder
+     *            folder number
+     * @return the resource map model
+     */
+    public Model getResourceMap(int folder) {
+        return dataset.getNamedModel(SyntheticDataset.resourceMap(RO, folder));
+    }
+
+
+    /**
+     * Get an annotation body.
+     *
+     * @param annotation
+     *            annotation number
+     * @return the body model
+     */
+    public Model getBody(int annotation) {
+        return dataset.getNamedModel(SyntheticDataset.body(RO, annotation));
+    }
+
+
+    public byte[] getTrig() {
+        return trig;
+    }
+
+
+    /**
+     * A ROSRS client returning the synthetic RO without connecting to a server.
+     *
+     * @author piotrekhol
+     *
+     */
+    private static final class InMemoryROSRService extends ROSRService {
+
+        /** id. */
+        private static final long serialVersionUID = 1L;
+
+        /** RO representations by MIME type. */
+        private final Map<String, byte[]> bodies;
+
+
+        /**
+         * Constructor.
+         *
+         * @param bodies
+         *            RO representations by MIME type
+         */
+        InMemoryROSRService(Map<String, byte[]> bodies) {
+            super(URI.create("http://example.org/ROs/"), null);
+            this.bodies = bodies;
+        }
+
+
+        @Override
+        public ClientResponse getResource(URI resourceURI, String accept) {
+            byte[] body = bodies.get(accept);
+            if (!RO.equals(resourceURI) || body == null) {
+                throw new IllegalArgumentException("No synthetic representation of " + resourceURI + " as " + accept);
+            }
+            InBoundHeaders headers = new InBoundHeaders();
+            headers.putSingle("Content-Type", accept);
+            return new ClientResponse(200, headers, new ByteArrayInputStream(body), null);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package org.purl.wf4ever.rosrs.client.search;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.util.NamedList;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.purl.wf4ever.rosrs.client.search.dataclasses.FoundRO;
+import org.purl.wf4ever.rosrs.client.search.dataclasses.SearchResult;
+
+/**
+ * Mapping a Solr response, with the documents and facets requested by {@link SolrSearchServer}, to a search result.
+ * The response is built in memory, in this package to reach the package-private mapping method.
+ *
+ * @author piotrekhol
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolrMappingBenchmark {
+
+    /** Beginning of the creation date facet. */
+    private static final DateTime START = new DateTime(2012, 1, 1, 0, 0, DateTimeZone.UTC);
+
+    /** Number of documents in the response. */
+    @Param({ "10", "100", "1000" })
+    public int documents;
+
+    /** The server, not connected. */
+    private SolrSearchServer server;
+
+    /** The response. */
+    private QueryResponse response;
+
+
+    /**
+     * Build the response.
+     */
+    @Setup
+    public void setUp() {
+        server = new SolrSearchServer(URI.create("http://example.org/solr/"));
+        SolrDocumentList list = new SolrDocumentList();
+        list.setNumFound(documents * 10L);
+        for (int i = 0; i < documents; i++) {
+            SolrDocument document = new SolrDocument();
+            document.setField("ro_uri", "http://example.org/ROs/ro" + i + "/");
+            document.setField("created", START.plusDays(i).toDate());
+            document.setField("creator", Arrays.asList("User " + i % 10, "User " + (i + 1) % 10));
+            document.setField("resources_size", i % 200);
+            document.setField("annotations_size", i % 100);
+            document.setField("evo_type", i % 2 == 0 ? "LIVE" : "SNAPSHOT");
+            list.add(document);
+        }
+
+        NamedList<Object> evoTypes = new NamedList<>();
+        evoTypes.add("LIVE", documents * 5);
+        evoTypes.add("SNAPSHOT", documents * 5);
+        NamedList<Object> creators = new NamedList<>();
+        for (int i = 0; i < 10; i++) {
+            creators.add("User " + i, documents * 2);
+        }
+        NamedList<Object> fields = new NamedList<>();
+        fields.add("evo_type", evoTypes);
+        fields.add("creator", creators);
+
+        NamedList<Object> ranges = new NamedList<>();
+        ranges.add("annotations_size", numericRange(0, 100, 10));
+        ranges.add("resources_size", numericRange(0, 200, 20));
+        NamedList<Object> createdCounts = new NamedList<>();
+        for (int i = 0; i < 8; i++) {
+            createdCounts.add(START.plusMonths(3 * i).toString("yyyy-MM-dd'T'HH:mm:ss'Z'"), documents);
+        }
+        NamedList<Object> created = new NamedList<>();
+        created.add("counts", createdCounts);
+        created.add("gap", "+3MONTH");
+        created.add("start", START.toDate());
+        created.add("end", START.plusYears(2).toDate());
+        ranges.add("created", created);
+
+        NamedList<Object> facets = new NamedList<>();
+        facets.add("facet_queries", new NamedList<Object>());
+        facets.add("facet_fields", fields);
+        facets.add("facet_dates", new NamedList<Object>());
+        facets.add("facet_ranges", ranges);
+
+        NamedList<Object> body = new NamedList<>();
+        body.add("response", list);
+        body.add("facet_counts", facets);
+        response = new QueryResponse(body, null);
+    }
+
+
+    /**
+     * Map the response.
+     *
+     * @return the search result
+     */
+    @Benchmark
+    public SearchResult prepareSearchResult() {
+        return server.prepareSearchResult(response);
+    }
+
+
+    /**
+     * Map the response and create the RO of every hit, as callers that need the ROs do.
+     *
+     * @param blackhole
+     *            consumes the ROs
+     * @return the search result
+     */
+    @Benchmark
+    public SearchResult prepareSearchResultWithResearchObjects(Blackhole blackhole) {
+        SearchResult result = server.prepareSearchResult(response);
+        for (FoundRO hit : result.getROsList()) {
+            blackhole.consume(hit.getResearchObject());
+        }
+        return result;
+    }
+
+
+    /**
+     * Create a numeric range facet.
+     *
+     * @param start
+     *            range start
+     * @param end
+     *            range end
+     * @param gap
+     *            range gap
+     * @return the facet as returned by Solr
+     */
+    private NamedList<Object> numericRange(int start, int end, int gap) {
+        NamedList<Object> counts = new NamedList<>();
+        for (int value = start; value < end; value += gap) {
+            counts.add(Integer.toString(value), documents / 2);
+        }
+        NamedList<Object> range = new NamedList<>();
+        range.add("counts", counts);
+        range.add("gap", gap);
+        range.add("start", start);
+        range.add("end", end);
+        return range;
+    }
+}
@@ -4,6 +4,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Serializable;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -12,6 +13,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import javax.ws.rs.core.HttpHeaders;
+
 import org.apache.commons.io.IOUtils;
 import org.apache.http.HttpStatus;
 import org.apache.log4j.Logger;
@@ -53,17 +56,14 @@ public class Annotation extends Thing {
     /** annotation body, may be aggregated or not, may be a ro:Resource (rarely) or not. */
     private URI body;
 
-    /** annotated resources, must be RO/aggregated resources/proxies. */
-    private Set<URI> targets;
-
-    /** has the annotation body been loaded. */
-    private boolean loaded;
-
-    /** annotation body serialized as string. */
-    private String bodySerializedAsString;
+    /**
+     * annotated resources, must be RO/aggregated resources/proxies. Unmodifiable, because the annotation is shared by
+     * research object snapshots, see {@link #withoutTarget(URI)}.
+     */
+    private final Set<URI> targets;
 
-    /** statements in the annotation body. */
-    private Set<Statement> statements;
+    /** the loaded annotation body, null if it hasn't been loaded, replaced after each change. */
+    private volatile Body loadedBody;
 
 
     /**
@@ -87,8 +87,23 @@ public class Annotation extends Thing {
         super(uri, creator, created);
         this.researchObject = researchObject;
         this.body = body;
-        this.targets = new HashSet<>(targets);
-        this.loaded = false;
+        this.targets = Collections.unmodifiableSet(new HashSet<>(targets));
+    }
+
+
+    /**
+     * Create a copy of this annotation that no longer annotates a resource, with the same body.
+     * 
+     * @param target
+     *            the resource that is no longer annotated
+     * @return a new annotation
+     */
+    Annotation withoutTarget(URI target) {
+        Set<URI> newTargets = new HashSet<>(targets);
+        newTargets.remove(target);
+        Annotation copy = new Annotation(researchObject, uri, body, newTargets, creator, created);
+        copy.loadedBody = loadedBody;
+        return copy;
     }
 
 
@@ -182,7 +197,7 @@ public class Annotation extends Thing {
     public void delete()
             throws ROSRSException {
         researchObject.getRosrs().deleteAnnotationAndBody(uri);
-        loaded = false;
+        loadedBody = null;
         researchObject.removeAnnotation(this);
     }
 
@@ -195,8 +210,48 @@ public class Annotation extends Thing {
      */
     public void load()
             throws ROSRSException {
+        download(null);
+    }
+
+
+    /**
+     * Load the annotation body again if it has changed since it was loaded. If the body was loaded with an ETag, the
+     * request is conditional and nothing is downloaded when the body hasn't changed.
+     * 
+     * @return true if the body has changed
+     * @throws ROSRSException
+     *             unexpected server response when downloading the body
+     */
+    boolean reloadIfModified()
+            throws ROSRSException {
+        Body old = loadedBody;
+        if (!download(old != null ? old.etag : null)) {
+            return false;
+        }
+        if (old == null) {
+            return true;
+        }
+        return !read(old).isIsomorphicWith(getBodyAsModel());
+    }
+
+
+    /**
+     * Download and load the annotation body.
+     * 
+     * @param etag
+     *            ETag of the loaded body, to download it only if it has changed, or null
+     * @return true if the body has been loaded, false if it hasn't changed
+     * @throws ROSRSException
+     *             unexpected server response when downloading the body
+     */
+    private boolean download(String etag)
+            throws ROSRSException {
         OntModel model = ModelFactory.createOntologyModel(OntModelSpec.OWL_MEM);
-        ClientResponse response = researchObject.getRosrs().getResource(body, "application/rdf+xml");
+        ClientResponse response = researchObject.getRosrs().getResourceIfModified(body, "application/rdf+xml", etag,
+            "annotationBody");
+        if (response == null) {
+            return false;
+        }
         try {
             model.read(response.getEntityInputStream(), body.toString());
         } catch (JenaException e) {
@@ -208,7 +263,8 @@ public class Annotation extends Thing {
                 LOG.warn("Failed to close the annotation body input stream", e);
             }
         }
-        load(model);
+        load(model, response.getHeaders().getFirst(HttpHeaders.ETAG));
+        return true;
     }
 
 
@@ -219,18 +275,68 @@ public class Annotation extends Thing {
      *            Jena model with the annotation body
      */
     public void load(Model model) {
-        //first, extract statements
-        this.statements = extractStatements(model);
-
-        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-            try (ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray())) {
-                model.write(out, "RDF/XML");
-                bodySerializedAsString = out.toString();
-                loaded = true;
-            }
+        load(model, null);
+    }
+
+
+    /**
+     * Load the annotation body from the provided model.
+     * 
+     * @param model
+     *            Jena model with the annotation body
+     * @param etag
+     *            ETag of the body, null if unknown
+     */
+    private void load(Model model, String etag) {
+        this.loadedBody = new Body(extractStatements(model), serialize(model), etag);
+    }
+
+
+    /**
+     * Replace the statements of the loaded annotation body. The body is serialized again and its ETag is forgotten,
+     * since it no longer is the body stored in ROSRS.
+     * 
+     * @param newStatements
+     *            the new statements
+     */
+    private void edit(Set<Statement> newStatements) {
+        Model model = ModelFactory.createDefaultModel();
+        for (Statement statement : newStatements) {
+            model.add(statement.createJenaStatement());
+        }
+        this.loadedBody = new Body(newStatements, serialize(model), null);
+    }
+
+
+    /**
+     * Serialize a model as RDF/XML.
+     * 
+     * @param model
+     *            Jena model
+     * @return RDF/XML
+     */
+    private static String serialize(Model model) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        model.write(out, "RDF/XML");
+        return out.toString();
+    }
+
+
+    /**
+     * Read a serialized annotation body to a Jena model.
+     * 
+     * @param loaded
+     *            the loaded body
+     * @return a new model with the annotation body
+     */
+    private Model read(Body loaded) {
+        Model model = ModelFactory.createDefaultModel();
+        try (InputStream in = IOUtils.toInputStream(loaded.serialized)) {
+            model.read(in, body.toString());
         } catch (IOException e) {
-            LOG.error("Could not close streams", e);
+            LOG.error("Can't close input stream", e);
         }
+        return model;
     }
 
 
@@ -284,12 +390,18 @@ public class Annotation extends Thing {
 
 
     public boolean isLoaded() {
-        return loaded;
+        return loadedBody != null;
     }
 
 
+    /**
+     * Return the annotation body serialized as RDF/XML.
+     * 
+     * @return the serialized body or null if it hasn't been loaded
+     */
     public String getBodySerializedAsString() {
-        return bodySerializedAsString;
+        Body loaded = loadedBody;
+        return loaded != null ? loaded.serialized : null;
     }
 
 
@@ -297,20 +409,18 @@ public class Annotation extends Thing {
      * Read the serialized body to a Jena model.
      * 
      * @return a new model with the annotation body
+     * @throws ObjectNotLoadedException
+     *             if the annotation body wasn't loaded
      */
-    public Model getBodyAsModel() {
-        Model model = ModelFactory.createDefaultModel();
-        try (InputStream in = IOUtils.toInputStream(bodySerializedAsString)) {
-            model.read(in, body.toString());
-        } catch (IOException e) {
-            LOG.error("Can't close input stream", e);
-        }
-        return model;
+    public Model getBodyAsModel()
+            throws ObjectNotLoadedException {
+        return read(requireBody());
     }
 
 
     /**
-     * Get a list of statements in the annotation body.
+     * Get a list of statements in the annotation body. The set can't be modified, use
+     * {@link #addStatement(Statement)} and {@link #removeStatement(Statement)} instead.
      * 
      * @return a list of statements
      * @throws ObjectNotLoadedException
@@ -318,10 +428,69 @@ public class Annotation extends Thing {
      */
     public Set<Statement> getStatements()
             throws ObjectNotLoadedException {
-        if (!loaded) {
+        return requireBody().statements;
+    }
+
+
+    /**
+     * Return the loaded annotation body, to be captured by a research object snapshot.
+     * 
+     * @return the body or null if it hasn't been loaded
+     */
+    Body getLoadedBody() {
+        return loadedBody;
+    }
+
+
+    /**
+     * Return the loaded annotation body.
+     * 
+     * @return the body
+     * @throws ObjectNotLoadedException
+     *             if the annotation body wasn't loaded
+     */
+    private Body requireBody()
+            throws ObjectNotLoadedException {
+        Body loaded = loadedBody;
+        if (loaded == null) {
             throw new ObjectNotLoadedException("the annotation wasn't loaded: " + uri);
         }
-        return statements;
+        return loaded;
+    }
+
+
+    /**
+     * Add a statement to the loaded annotation body. Only the local copy is changed, use {@link #update()} to store it.
+     * 
+     * @param statement
+     *            the statement
+     * @throws ObjectNotLoadedException
+     *             if the annotation body wasn't loaded
+     */
+    public synchronized void addStatement(Statement statement)
+            throws ObjectNotLoadedException {
+        Set<Statement> newStatements = new HashSet<>(getStatements());
+        if (newStatements.add(statement)) {
+            edit(newStatements);
+        }
+    }
+
+
+    /**
+     * Remove a statement from the loaded annotation body. Only the local copy is changed, use {@link #update()} to
+     * store it.
+     * 
+     * @param statement
+     *            the statement
+     * @throws ObjectNotLoadedException
+     *             if the annotation body wasn't loaded
+     */
+    public synchronized void removeStatement(Statement statement)
+            throws ObjectNotLoadedException {
+        Set<Statement> newStatements = new HashSet<>(getStatements());
+        if (newStatements.remove(statement)) {
+            edit(newStatements);
+        }
     }
 
 
@@ -385,12 +554,17 @@ public class Annotation extends Thing {
      * @param value
      *            object
      */
-    public void deletePropertyValues(Annotable resource, URI property, String value) {
-        for (Statement statement : new ArrayList<>(getStatements())) {
+    public synchronized void deletePropertyValues(Annotable resource, URI property, String value) {
+        Set<Statement> oldStatements = getStatements();
+        Set<Statement> newStatements = new HashSet<>(oldStatements);
+        for (Statement statement : oldStatements) {
             if (statement.matches(resource.getUri(), property, value)) {
-                statements.remove(statement);
+                newStatements.remove(statement);
             }
         }
+        if (newStatements.size() < oldStatements.size()) {
+            edit(newStatements);
+        }
     }
 
 
@@ -469,4 +643,50 @@ public class Annotation extends Thing {
         researchObject.getRosrs().updateResource(getBody(), bodyContent, RDFFormat.RDFXML.getDefaultMIMEType());
     }
 
+
+    /**
+     * A loaded annotation body: its statements, its serialization and its ETag. The body is never modified but
+     * replaced as a whole, so that readers never see the statements of one version with the serialization of another.
+     */
+    static final class Body implements Serializable {
+
+        /** id. */
+        private static final long serialVersionUID = -5526059281384412735L;
+
+        /** statements in the annotation body. */
+        private final Set<Statement> statements;
+
+        /** annotation body serialized as RDF/XML. */
+        private final String serialized;
+
+        /** ETag of the annotation body, null if unknown. */
+        private final String etag;
+
+
+        /**
+         * Constructor. The statements must not be modified later.
+         * 
+         * @param statements
+         *            statements in the annotation body
+         * @param serialized
+         *            annotation body serialized as RDF/XML
+         * @param etag
+         *            ETag of the annotation body, null if unknown
+         */
+        Body(Set<Statement> statements, String serialized, String etag) {
+            this.statements = Collections.unmodifiableSet(statements);
+            this.serialized = serialized;
+            this.etag = etag;
+        }
+
+
+        Set<Statement> getStatements() {
+            return statements;
+        }
+
+
+        String getSerialized() {
+            return serialized;
+        }
+    }
 }
@@ -172,7 +172,7 @@ public class AnnotationTriple implements Serializable {
         annotation.deletePropertyValues(subject, property, merge ? null : value);
         property = newProperty;
         value = newValue;
-        annotation.getStatements().add(new Statement(subject.getUri(), property, value));
+        annotation.addStatement(new Statement(subject.getUri(), property, value));
         annotation.update();
     }
 
@@ -236,7 +236,7 @@ public class AnnotationTriple implements Serializable {
         Set<Annotation> modifiedAnnotations = new HashSet<>();
         for (AnnotationTriple triple : triplesToRemove) {
             Annotation annotation = triple.getAnnotation();
-            annotation.getStatements().remove(triple.asStatement());
+            annotation.removeStatement(triple.asStatement());
             modifiedAnnotations.add(annotation);
         }
         for (Annotation annotation : modifiedAnnotations) {
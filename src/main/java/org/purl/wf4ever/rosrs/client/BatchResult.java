@@ -0,0 +1,72 @@
+package org.purl.wf4ever.rosrs.client;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.purl.wf4ever.rosrs.client.exception.ROSRSException;
+
+/**
+ * Results of an operation done on many items at once, where each item may succeed or fail independently.
+ *
+ * @author piotrekhol
+ *
+ * @param <K>
+ *            item type
+ * @param <V>
+ *            result type
+ */
+public class BatchResult<K, V> {
+
+    /** Results of the items that succeeded, in the order of the items. */
+    private final Map<K, V> results = new LinkedHashMap<>();
+
+    /** Causes of failure of the items that failed, in the order of the items. */
+    private final Map<K, ROSRSException> failures = new LinkedHashMap<>();
+
+
+    /**
+     * Record a success.
+     *
+     * @param item
+     *            the item
+     * @param result
+     *            its result
+     */
+    void addResult(K item, V result) {
+        results.put(item, result);
+    }
+
+
+    /**
+     * Record a failure.
+     *
+     * @param item
+     *            the item
+     * @param cause
+     *            the cause
+     */
+    void addFailure(K item, ROSRSException cause) {
+        failures.put(item, cause);
+    }
+
+
+    public Map<K, V> getResults() {
+        return Collections.unmodifiableMap(results);
+    }
+
+
+    public Map<K, ROSRSException> getFailures() {
+        return Collections.unmodifiableMap(failures);
+    }
+
+
+    /**
+     * Check if all items succeeded.
+     *
+     * @return true if there are no failures
+     */
+    public boolean isSuccessful() {
+        return failures.isEmpty();
+    }
+}
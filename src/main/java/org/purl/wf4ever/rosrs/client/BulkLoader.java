@@ -0,0 +1,358 @@
+package org.purl.wf4ever.rosrs.client;
+
+import java.io.Closeable;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.purl.wf4ever.rosrs.client.exception.ROException;
+import org.purl.wf4ever.rosrs.client.exception.ROSRSException;
+
+/**
+ * Loads many research objects at the same time, for example all research objects returned by a search. The research
+ * objects share the HTTP client of one {@link ROSRService} and the persons found in their metadata, and are returned in
+ * the order in which they are loaded.
+ *
+ * A loader uses a fixed number of threads and should be closed when no longer needed. Closing it cancels the loadings
+ * that haven't finished.
+ *
+ * @author piotrekhol
+ *
+ */
+public class BulkLoader implements Closeable {
+
+    /** Logger. */
+    private static final Logger LOG = Logger.getLogger(BulkLoader.class);
+
+    /** ROSRS client shared by all research objects. */
+    private final ROSRService rosrs;
+
+    /** Threads loading the research objects. */
+    private final ExecutorService executor;
+
+    /** Was the executor created by this loader. */
+    private final boolean ownExecutor;
+
+    /** Loadings that may still return results, cancelled when the loader is closed. */
+    private final Set<Loading> open = Collections.newSetFromMap(new ConcurrentHashMap<Loading, Boolean>());
+
+    /** Has the loader been closed. */
+    private boolean closed;
+
+
+    /**
+     * Constructor.
+     *
+     * @param rosrs
+     *            ROSRS client shared by all research objects
+     * @param parallelism
+     *            the maximum number of research objects loaded at the same time
+     */
+    public BulkLoader(ROSRService rosrs, int parallelism) {
+        this.rosrs = rosrs;
+        this.executor = Executors.newFixedThreadPool(Math.max(1, parallelism), new LoaderThreadFactory());
+        this.ownExecutor = true;
+    }
+
+
+    /**
+     * Constructor.
+     *
+     * @param rosrs
+     *            ROSRS client shared by all research objects
+     * @param executor
+     *            executor running the loading tasks, its size limits the number of research objects loaded at the
+     *            same time. It is not shut down when the loader is closed.
+     */
+    public BulkLoader(ROSRService rosrs, ExecutorService executor) {
+        this.rosrs = rosrs;
+        this.executor = executor;
+        this.ownExecutor = false;
+    }
+
+
+    /**
+     * Start loading research objects.
+     *
+     * @param uris
+     *            research object URIs
+     * @return the results, available as soon as each research object is loaded
+     */
+    public Loading load(Collection<URI> uris) {
+        return load(uris, LoadLevel.FULL);
+    }
+
+
+    /**
+     * Start loading research objects up to a load level, for example only their manifests.
+     *
+     * @param uris
+     *            research object URIs
+     * @param level
+     *            how much of each research object to load
+     * @return the results, available as soon as each research object is loaded
+     * @throws IllegalStateException
+     *             the loader has been closed
+     */
+    public synchronized Loading load(Collection<URI> uris, LoadLevel level) {
+        if (closed) {
+            throw new IllegalStateException("The loader has been closed");
+        }
+        Loading loading = new Loading(uris, level);
+        if (loading.hasNext()) {
+            open.add(loading);
+        }
+        return loading;
+    }
+
+
+    /**
+     * Cancel the research objects that are being loaded, so that nobody waits for them, and stop the threads if they
+     * have been created by this loader.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        for (Loading loading : new ArrayList<>(open)) {
+            loading.cancel();
+        }
+        if (ownExecutor) {
+            executor.shutdownNow();
+        }
+    }
+
+
+    /**
+     * Research objects being loaded. Iterating over them returns the results in the order in which the research
+     * objects are loaded, waiting for the next one if necessary.
+     *
+     * @author piotrekhol
+     *
+     */
+    public final class Loading implements Iterator<Result>, Closeable {
+
+        /** Results in the order in which they are ready. */
+        private final CompletionService<Result> completionService;
+
+        /** All tasks, used for cancelling. */
+        private final List<Future<Result>> futures;
+
+        /** Number of results returned. */
+        private int returned;
+
+        /** Has the loading been cancelled. */
+        private volatile boolean cancelled;
+
+
+        /**
+         * Constructor, submits the tasks.
+         *
+         * @param uris
+         *            research object URIs
+         * @param level
+         *            how much of each research object to load
+         */
+        private Loading(Collection<URI> uris, final LoadLevel level) {
+            this.completionService = new ExecutorCompletionService<>(executor);
+            this.futures = new ArrayList<>(uris.size());
+            for (final URI uri : uris) {
+                futures.add(completionService.submit(new Callable<Result>() {
+
+                    @Override
+                    public Result call() {
+                        ResearchObject researchObject = new ResearchObject(uri, rosrs);
+                        try {
+                            researchObject.load(level);
+                            return new Result(uri, researchObject, null);
+                        } catch (ROSRSException | ROException | RuntimeException e) {
+                            LOG.warn("Failed to load " + uri, e);
+                            return new Result(uri, null, e);
+                        }
+                    }
+                }));
+            }
+        }
+
+
+        @Override
+        public boolean hasNext() {
+            return !cancelled && returned < futures.size();
+        }
+
+
+        /**
+         * {@inheritDoc}
+         *
+         * @throws NoSuchElementException
+         *             there are no more results, also when the loading is cancelled while waiting
+         * @throws IllegalStateException
+         *             the thread has been interrupted while waiting
+         */
+        @Override
+        public Result next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            try {
+                Future<Result> future = completionService.take();
+                if (cancelled) {
+                    throw new NoSuchElementException("The loading has been cancelled");
+                }
+                if (++returned == futures.size()) {
+                    open.remove(this);
+                }
+                return future.get();
+            } catch (CancellationException e) {
+                throw new NoSuchElementException("The loading has been cancelled");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted when waiting for research objects", e);
+            } catch (ExecutionException e) {
+                throw Utils.unchecked(e);
+            }
+        }
+
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Results can't be removed");
+        }
+
+
+        /**
+         * Wait for all remaining results.
+         *
+         * @return the results not returned yet
+         */
+        public List<Result> getAll() {
+            List<Result> results = new ArrayList<>();
+            while (hasNext()) {
+                results.add(next());
+            }
+            return results;
+        }
+
+
+        /**
+         * Stop loading the research objects that haven't been loaded yet. No more results are returned, and a thread
+         * waiting for the next one gets a {@link NoSuchElementException}.
+         */
+        public void cancel() {
+            cancelled = true;
+            open.remove(this);
+            for (Future<Result> future : futures) {
+                future.cancel(true);
+            }
+        }
+
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+
+        /**
+         * Cancel the research objects that haven't been loaded yet.
+         */
+        @Override
+        public void close() {
+            if (hasNext()) {
+                cancel();
+            }
+        }
+    }
+
+
+    /**
+     * A research object loaded or the reason why it couldn't be loaded.
+     *
+     * @author piotrekhol
+     *
+     */
+    public static final class Result {
+
+        /** Research object URI. */
+        private final URI uri;
+
+        /** The loaded research object, null if loading failed. */
+        private final ResearchObject researchObject;
+
+        /** Why the research object couldn't be loaded, null if it's been loaded. */
+        private final Exception exception;
+
+
+        /**
+         * Constructor.
+         *
+         * @param uri
+         *            research object URI
+         * @param researchObject
+         *            the loaded research object or null
+         * @param exception
+         *            the reason of failure or null
+         */
+        Result(URI uri, ResearchObject researchObject, Exception exception) {
+            this.uri = uri;
+            this.researchObject = researchObject;
+            this.exception = exception;
+        }
+
+
+        public URI getUri() {
+            return uri;
+        }
+
+
+        public ResearchObject getResearchObject() {
+            return researchObject;
+        }
+
+
+        public Exception getException() {
+            return exception;
+        }
+
+
+        public boolean isSuccessful() {
+            return exception == null;
+        }
+    }
+
+
+    /**
+     * Creates daemon threads with recognizable names, so that a forgotten loader doesn't stop the JVM from exiting.
+     *
+     * @author piotrekhol
+     *
+     */
+    private static final class LoaderThreadFactory implements ThreadFactory {
+
+        /** Number of threads created by all loaders. */
+        private static final AtomicInteger COUNT = new AtomicInteger();
+
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "ro-bulk-loader-" + COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
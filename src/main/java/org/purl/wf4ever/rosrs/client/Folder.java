@@ -1,14 +1,24 @@
 package org.purl.wf4ever.rosrs.client;
 
 import java.io.IOException;
+import java.io.Serializable;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.UriBuilder;
 
 import org.apache.log4j.Logger;
@@ -22,20 +32,19 @@ import pl.psnc.dl.wf4ever.vocabulary.ORE;
 import pl.psnc.dl.wf4ever.vocabulary.RO;
 
 import com.google.common.collect.Multimap;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.NodeFactory;
+import com.hp.hpl.jena.graph.Triple;
 import com.hp.hpl.jena.ontology.Individual;
 import com.hp.hpl.jena.ontology.OntModel;
 import com.hp.hpl.jena.ontology.OntModelSpec;
-import com.hp.hpl.jena.query.Query;
-import com.hp.hpl.jena.query.QueryExecution;
-import com.hp.hpl.jena.query.QueryExecutionFactory;
-import com.hp.hpl.jena.query.QueryFactory;
-import com.hp.hpl.jena.query.QuerySolution;
-import com.hp.hpl.jena.query.ResultSet;
 import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.rdf.model.ModelFactory;
 import com.hp.hpl.jena.rdf.model.RDFNode;
 import com.hp.hpl.jena.util.FileManager;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
 import com.hp.hpl.jena.vocabulary.DCTerms;
+import com.hp.hpl.jena.vocabulary.RDF;
 import com.sun.jersey.api.client.ClientResponse;
 
 /**
@@ -56,19 +65,16 @@ public class Folder extends Resource {
     private URI resourceMap;
 
     /** has the resource map been loaded. */
-    private boolean loaded;
+    private volatile boolean loaded;
 
     /** is the folder a root folder in the RO. */
     private boolean rootFolder;
 
-    /** folder entries (folder content). */
-    private Map<URI, FolderEntry> folderEntries;
-
-    /** subfolders sorted by name. */
-    private List<Folder> subfolders;
+    /** folder contents, replaced after each change. */
+    private volatile Contents contents;
 
-    /** aggregated resources sorted by name. */
-    private List<Resource> resources;
+    /** ETag of the loaded resource map, null if unknown. */
+    private volatile String resourceMapEtag;
 
 
     /**
@@ -141,14 +147,37 @@ public class Folder extends Resource {
      */
     public void load()
             throws ROSRSException {
+        load(fetchResourceMap(null));
+    }
+
+
+    /**
+     * Download the resource map without changing the folder, so that many resource maps can be downloaded at once.
+     * 
+     * @param etag
+     *            ETag of the loaded resource map, to download it only if it has changed, or null
+     * @return the resource map or null if it hasn't changed
+     * @throws ROSRSException
+     *             unexpected service response
+     */
+    ResourceMap fetchResourceMap(String etag)
+            throws ROSRSException {
         OntModel model = ModelFactory.createOntologyModel(OntModelSpec.OWL_MEM);
         RDFFormat syntax = RDFFormat.forFileName(resourceMap.toString(), RDFFormat.RDFXML);
+        String newEtag = null;
         if (!FileManager.get().mapURI(resourceMap.toString()).startsWith("http")) {
             FileManager.get().readModel(model, resourceMap.toString(), resourceMap.toString(),
                 syntax.getName().toUpperCase());
-            model.write(System.out);
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Read the resource map of " + uri + ":\n" + Utils.toRdfXml(model));
+            }
         } else {
-            ClientResponse response = researchObject.getRosrs().getResource(resourceMap, "application/rdf+xml");
+            ClientResponse response = researchObject.getRosrs().getResourceIfModified(resourceMap,
+                "application/rdf+xml", etag, "resourceMap");
+            if (response == null) {
+                return null;
+            }
+            newEtag = response.getHeaders().getFirst(HttpHeaders.ETAG);
             try {
                 model.read(response.getEntityInputStream(), resourceMap.toString());
             } finally {
@@ -159,7 +188,7 @@ public class Folder extends Resource {
                 }
             }
         }
-        load(model);
+        return new ResourceMap(model, newEtag);
     }
 
 
@@ -170,61 +199,177 @@ public class Folder extends Resource {
      *            Jena model of the resource map
      */
     public void load(Model model) {
-        this.folderEntries = extractFolderEntries(model);
-        subfolders = new ArrayList<>();
-        resources = new ArrayList<>();
-        Comparator<Resource> c = new ResourceByNameComparator();
-        if (researchObject.isLoaded()) {
-            for (FolderEntry entry : folderEntries.values()) {
-                if (researchObject.getResources().containsKey(entry.getResourceUri())) {
-                    resources.add(researchObject.getResource(entry.getResourceUri()));
-                } else if (researchObject.getFolders().containsKey(entry.getResourceUri())) {
-                    subfolders.add(researchObject.getFolder(entry.getResourceUri()));
-                }
-            }
-            Collections.sort(subfolders, c);
-            Collections.sort(resources, c);
-        }
+        load(new ResourceMap(model, null));
+    }
+
+
+    /**
+     * Load folder from a downloaded resource map.
+     * 
+     * @param map
+     *            the resource map
+     */
+    synchronized void load(ResourceMap map) {
+        resolveEntries(extractFolderEntries(map.model));
+        this.resourceMapEtag = map.etag;
         this.loaded = true;
     }
 
 
+    String getResourceMapEtag() {
+        return resourceMapEtag;
+    }
+
+
+    /**
+     * Find the resources and subfolders of the folder entries again, after the research object has been refreshed.
+     */
+    synchronized void resolveEntries() {
+        resolveEntries(new HashMap<>(getFolderEntries()));
+    }
+
+
     /**
-     * Identify all the folder entries aggregated by the folder.
+     * Set the folder entries and find the resources and subfolders they point to in the research object.
+     * 
+     * @param newFolderEntries
+     *            folder entries
+     */
+    private void resolveEntries(Map<URI, FolderEntry> newFolderEntries) {
+        Map<URI, Resource> roResources = researchObject.getResources();
+        Map<URI, Folder> roFolders = researchObject.getFolders();
+        SortedMap<String, FolderEntry> entriesByName = new TreeMap<>();
+        Map<URI, FolderEntry> entriesByResource = new HashMap<>();
+        List<Folder> newSubfolders = new ArrayList<>();
+        List<Resource> newResources = new ArrayList<>();
+        for (FolderEntry entry : newFolderEntries.values()) {
+            index(entry, entriesByName, entriesByResource);
+            resolve(entry, roResources, roFolders, newResources, newSubfolders);
+        }
+        Comparator<Resource> c = new ResourceByNameComparator();
+        Collections.sort(newSubfolders, c);
+        Collections.sort(newResources, c);
+        this.contents = new Contents(newFolderEntries, entriesByName, entriesByResource, newResources, newSubfolders);
+    }
+
+
+    /**
+     * Identify all the folder entries aggregated by the folder. The model is read in a single pass over its triples,
+     * which for big folders is much faster than a SPARQL query joining them.
      * 
      * @param model
      *            resource map model
      * @return a set of folder entries
      */
     private Map<URI, FolderEntry> extractFolderEntries(Model model) {
-        Map<URI, FolderEntry> folderEntries2 = new HashMap<>();
-        String queryString = String
-                .format(
-                    "PREFIX ore: <%s> PREFIX ro: <%s> SELECT ?entry ?resource ?name WHERE { <%s> ore:aggregates ?resource . ?entry a ro:FolderEntry ; ore:proxyIn <%<s> ; ore:proxyFor ?resource . OPTIONAL { ?entry ro:entryName ?name . } }",
-                    ORE.NAMESPACE, RO.NAMESPACE, uri.toString());
-
-        Query query = QueryFactory.create(queryString);
-        QueryExecution qe = QueryExecutionFactory.create(query, model);
+        Node folderNode = NodeFactory.createURI(uri.toString());
+        Node aggregates = NodeFactory.createURI(ORE.NAMESPACE + "aggregates");
+        Node proxyIn = NodeFactory.createURI(ORE.NAMESPACE + "proxyIn");
+        Node proxyFor = NodeFactory.createURI(ORE.NAMESPACE + "proxyFor");
+        Node entryName = NodeFactory.createURI(RO.NAMESPACE + "entryName");
+        Node type = RDF.type.asNode();
+        Node folderEntry = NodeFactory.createURI(RO.NAMESPACE + "FolderEntry");
+
+        Set<Node> aggregated = new HashSet<>();
+        Set<Node> entries = new HashSet<>();
+        Set<Node> entriesInFolder = new HashSet<>();
+        Map<Node, Node> proxiedResources = new HashMap<>();
+        Map<Node, String> names = new HashMap<>();
+        ExtendedIterator<Triple> triples = model.getGraph().find(Node.ANY, Node.ANY, Node.ANY);
         try {
-            ResultSet results = qe.execSelect();
-            while (results.hasNext()) {
-                QuerySolution solution = results.next();
-                RDFNode e = solution.get("entry");
-                URI eURI = URI.create(e.asResource().getURI());
-                RDFNode r = solution.get("resource");
-                URI rURI = URI.create(r.asResource().getURI());
-                RDFNode n = solution.get("name");
-                String name = n != null ? n.asLiteral().getString() : null;
-                folderEntries2.put(eURI, new FolderEntry(this, eURI, rURI, name));
+            while (triples.hasNext()) {
+                Triple triple = triples.next();
+                Node p = triple.getPredicate();
+                Node o = triple.getObject();
+                if (p.equals(aggregates)) {
+                    if (triple.getSubject().equals(folderNode) && o.isURI()) {
+                        aggregated.add(o);
+                    }
+                } else if (p.equals(type)) {
+                    if (o.equals(folderEntry)) {
+                        entries.add(triple.getSubject());
+                    }
+                } else if (p.equals(proxyIn)) {
+                    if (o.equals(folderNode)) {
+                        entriesInFolder.add(triple.getSubject());
+                    }
+                } else if (p.equals(proxyFor)) {
+                    if (o.isURI()) {
+                        proxiedResources.put(triple.getSubject(), o);
+                    }
+                } else if (p.equals(entryName)) {
+                    if (o.isLiteral()) {
+                        names.put(triple.getSubject(), o.getLiteralLexicalForm());
+                    }
+                }
             }
         } finally {
-            qe.close();
+            triples.close();
         }
 
+        Map<URI, FolderEntry> folderEntries2 = new HashMap<>();
+        for (Map.Entry<Node, Node> proxied : proxiedResources.entrySet()) {
+            Node entry = proxied.getKey();
+            if (entry.isURI() && entries.contains(entry) && entriesInFolder.contains(entry)
+                    && aggregated.contains(proxied.getValue())) {
+                URI eURI = URI.create(entry.getURI());
+                URI rURI = URI.create(proxied.getValue().getURI());
+                folderEntries2.put(eURI, new FolderEntry(this, eURI, rURI, names.get(entry)));
+            }
+        }
         return folderEntries2;
     }
 
 
+    /**
+     * Add a folder entry to the indexes of folder entries.
+     * 
+     * @param entry
+     *            folder entry
+     * @param entriesByName
+     *            folder entries by name
+     * @param entriesByResource
+     *            folder entries by resource URI
+     */
+    private static void index(FolderEntry entry, Map<String, FolderEntry> entriesByName,
+            Map<URI, FolderEntry> entriesByResource) {
+        if (entry.getName() != null) {
+            entriesByName.put(entry.getName(), entry);
+        }
+        if (entry.getResourceUri() != null) {
+            entriesByResource.put(entry.getResourceUri(), entry);
+        }
+    }
+
+
+    /**
+     * Find the resource or subfolder that a folder entry points to.
+     * 
+     * @param entry
+     *            folder entry
+     * @param roResources
+     *            resources of the research object
+     * @param roFolders
+     *            folders of the research object
+     * @param newResources
+     *            aggregated resources, to which the resource is added
+     * @param newSubfolders
+     *            subfolders, to which the subfolder is added
+     */
+    private static void resolve(FolderEntry entry, Map<URI, Resource> roResources, Map<URI, Folder> roFolders,
+            List<Resource> newResources, List<Folder> newSubfolders) {
+        Resource resource = roResources.get(entry.getResourceUri());
+        if (resource != null) {
+            newResources.add(resource);
+        } else {
+            Folder folder = roFolders.get(entry.getResourceUri());
+            if (folder != null) {
+                newSubfolders.add(folder);
+            }
+        }
+    }
+
+
     /**
      * Add a new folder entry to this folder.
      * 
@@ -240,32 +385,124 @@ public class Folder extends Resource {
      */
     public FolderEntry addEntry(Resource resource, String entryName)
             throws ROSRSException, ROException {
+        FolderEntry entry = createEntry(resource, entryName);
+        addLoadedEntries(Collections.singletonList(entry));
+        return entry;
+    }
+
+
+    /**
+     * Add many folder entries to this folder. The entries are created in ROSRS at the same time and the folder and
+     * the research object are updated once, after all of them have been created.
+     * 
+     * @param entries
+     *            resources to aggregate, with entry names (or nulls)
+     * @param parallelism
+     *            the maximum number of entries created at the same time
+     * @return the new folder entries and the resources for which the entries could not be created
+     */
+    public BatchResult<Resource, FolderEntry> addEntries(final Map<Resource, String> entries, int parallelism) {
+        List<Resource> batch = new ArrayList<>(entries.keySet());
+        List<Callable<FolderEntry>> tasks = new ArrayList<>();
+        for (final Resource resource : batch) {
+            tasks.add(new Callable<FolderEntry>() {
+
+                @Override
+                public FolderEntry call()
+                        throws ROSRSException {
+                    return createEntry(resource, entries.get(resource));
+                }
+            });
+        }
+        List<Future<FolderEntry>> created = Utils.invokeAll(tasks, parallelism);
+        BatchResult<Resource, FolderEntry> result = new BatchResult<>();
+        for (int i = 0; i < batch.size(); i++) {
+            try {
+                result.addResult(batch.get(i), created.get(i).get());
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof ROSRSException) {
+                    result.addFailure(batch.get(i), (ROSRSException) e.getCause());
+                } else {
+                    throw Utils.unchecked(e);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted when adding folder entries", e);
+            }
+        }
+        if (!result.getResults().isEmpty()) {
+            addLoadedEntries(result.getResults().values());
+        }
+        return result;
+    }
+
+
+    /**
+     * Create a new folder entry in ROSRS.
+     * 
+     * @param resource
+     *            the resource to aggregate
+     * @param entryName
+     *            entry name or null
+     * @return the new folder entry, not added to the folder yet
+     * @throws ROSRSException
+     *             unexpected response from the server
+     */
+    private FolderEntry createEntry(Resource resource, String entryName)
+            throws ROSRSException {
         ClientResponse response = this.researchObject.getRosrs().addFolderEntry(uri, resource.getUri(), entryName);
-        Multimap<String, URI> headers = Utils.getLinkHeaders(response.getHeaders().get("Link"));
-        URI resourceUri = headers.get(ORE.proxyFor.getURI()).isEmpty() ? null : headers.get(ORE.proxyFor.getURI())
-                .iterator().next();
-        //FIXME this is not returned by RODL
-        //        OntModel model = ModelFactory.createOntologyModel(OntModelSpec.OWL_LITE_MEM);
-        //        model.read(response.getEntityInputStream(), response.getLocation().toString());
-        //        List<Individual> entries = model.listIndividuals(RO.FolderEntry).toList();
-        //        if (entries.isEmpty()) {
-        //            throw new ROException("The create folder entry response contains no folder entries",
-        //                    researchObject.getUri());
-        //        }
-        //        String name = entries.get(0).getPropertyValue(RO.entryName).asLiteral().getString();
-        FolderEntry entry = new FolderEntry(this, response.getLocation(), resourceUri, entryName);
-        this.getFolderEntries().put(entry.getUri(), entry);
-        if (researchObject.isLoaded()) {
-            if (resources != null && researchObject.getResources().containsKey(entry.getResourceUri())) {
-                resources.add(researchObject.getResource(entry.getResourceUri()));
-                Collections.sort(resources, new ResourceByNameComparator());
-            } else if (subfolders != null && researchObject.getFolders().containsKey(entry.getResourceUri())) {
-                subfolders.add(researchObject.getFolder(entry.getResourceUri()));
-                Collections.sort(subfolders, new ResourceByNameComparator());
+        try {
+            Multimap<String, URI> headers = Utils.getLinkHeaders(response.getHeaders().get("Link"));
+            URI resourceUri = headers.get(ORE.proxyFor.getURI()).isEmpty() ? null : headers
+                    .get(ORE.proxyFor.getURI()).iterator().next();
+            //FIXME this is not returned by RODL
+            //        OntModel model = ModelFactory.createOntologyModel(OntModelSpec.OWL_LITE_MEM);
+            //        model.read(response.getEntityInputStream(), response.getLocation().toString());
+            //        List<Individual> entries = model.listIndividuals(RO.FolderEntry).toList();
+            //        if (entries.isEmpty()) {
+            //            throw new ROException("The create folder entry response contains no folder entries",
+            //                    researchObject.getUri());
+            //        }
+            //        String name = entries.get(0).getPropertyValue(RO.entryName).asLiteral().getString();
+            return new FolderEntry(this, response.getLocation(), resourceUri, entryName);
+        } finally {
+            response.close();
+        }
+    }
+
+
+    /**
+     * Update the folder contents with folder entries that have been created in ROSRS.
+     * 
+     * @param entries
+     *            the new folder entries
+     */
+    private void addLoadedEntries(Collection<FolderEntry> entries) {
+        synchronized (this) {
+            Contents old = getContents();
+            Map<URI, FolderEntry> newFolderEntries = new HashMap<>(old.entries);
+            SortedMap<String, FolderEntry> entriesByName = new TreeMap<>(old.entriesByName);
+            Map<URI, FolderEntry> entriesByResource = new HashMap<>(old.entriesByResource);
+            List<Resource> newResources = new ArrayList<>(old.resources);
+            List<Folder> newSubfolders = new ArrayList<>(old.subfolders);
+            Map<URI, Resource> roResources = researchObject.getResources();
+            Map<URI, Folder> roFolders = researchObject.getFolders();
+            for (FolderEntry entry : entries) {
+                newFolderEntries.put(entry.getUri(), entry);
+                index(entry, entriesByName, entriesByResource);
+                resolve(entry, roResources, roFolders, newResources, newSubfolders);
+            }
+            if (newResources.size() > old.resources.size()) {
+                Collections.sort(newResources, new ResourceByNameComparator());
+            }
+            if (newSubfolders.size() > old.subfolders.size()) {
+                Collections.sort(newSubfolders, new ResourceByNameComparator());
             }
-            researchObject.addFolderEntry(entry);
+            this.contents = new Contents(newFolderEntries, entriesByName, entriesByResource, newResources,
+                    newSubfolders);
         }
-        return entry;
+        // the research object is updated outside of the folder lock, because it may load folders holding its own
+        researchObject.addFolderEntries(entries);
     }
 
 
@@ -295,10 +532,35 @@ public class Folder extends Resource {
      * @param entry
      *            the folder entry
      */
-    void removeFolderEntry(FolderEntry entry) {
-        getFolderEntries().remove(entry);
-        getResources().remove(entry.getResource());
-        getSubfolders().remove(entry.getResource());
+    synchronized void removeFolderEntry(FolderEntry entry) {
+        Contents old = getContents();
+        Map<URI, FolderEntry> newFolderEntries = new HashMap<>(old.entries);
+        newFolderEntries.remove(entry.getUri());
+        SortedMap<String, FolderEntry> entriesByName = new TreeMap<>(old.entriesByName);
+        if (entry.getName() != null && entry.getUri().equals(uriOf(entriesByName.get(entry.getName())))) {
+            entriesByName.remove(entry.getName());
+        }
+        Map<URI, FolderEntry> entriesByResource = new HashMap<>(old.entriesByResource);
+        if (entry.getUri().equals(uriOf(entriesByResource.get(entry.getResourceUri())))) {
+            entriesByResource.remove(entry.getResourceUri());
+        }
+        List<Resource> newResources = new ArrayList<>(old.resources);
+        newResources.remove(entry.getResource());
+        List<Folder> newSubfolders = new ArrayList<>(old.subfolders);
+        newSubfolders.remove(entry.getResource());
+        this.contents = new Contents(newFolderEntries, entriesByName, entriesByResource, newResources, newSubfolders);
+    }
+
+
+    /**
+     * Return the URI of a folder entry.
+     * 
+     * @param entry
+     *            folder entry or null
+     * @return its URI or null
+     */
+    private static URI uriOf(FolderEntry entry) {
+        return entry != null ? entry.getUri() : null;
     }
 
 
@@ -339,10 +601,50 @@ public class Folder extends Resource {
      */
     public Map<URI, FolderEntry> getFolderEntries()
             throws ObjectNotLoadedException {
-        if (!loaded) {
-            throw new ObjectNotLoadedException("the folder hasn't been loaded: " + uri);
-        }
-        return folderEntries;
+        return getContents().entries;
+    }
+
+
+    /**
+     * Return the folder entries that have names, sorted by name.
+     * 
+     * @return the named folder entries by name
+     * @throws ObjectNotLoadedException
+     *             the folder hasn't been loaded
+     */
+    public SortedMap<String, FolderEntry> getFolderEntriesByName()
+            throws ObjectNotLoadedException {
+        return getContents().entriesByName;
+    }
+
+
+    /**
+     * Find a folder entry by name.
+     * 
+     * @param name
+     *            entry name
+     * @return the folder entry or null if there is none
+     * @throws ObjectNotLoadedException
+     *             the folder hasn't been loaded
+     */
+    public FolderEntry getFolderEntryByName(String name)
+            throws ObjectNotLoadedException {
+        return getContents().entriesByName.get(name);
+    }
+
+
+    /**
+     * Find the folder entry of a resource.
+     * 
+     * @param resourceUri
+     *            URI of the resource the entry points to
+     * @return the folder entry or null if the resource isn't in this folder
+     * @throws ObjectNotLoadedException
+     *             the folder hasn't been loaded
+     */
+    public FolderEntry getFolderEntryByResource(URI resourceUri)
+            throws ObjectNotLoadedException {
+        return getContents().entriesByResource.get(resourceUri);
     }
 
 
@@ -352,10 +654,7 @@ public class Folder extends Resource {
      * @return a list of resources
      */
     public List<Resource> getResources() {
-        if (!loaded) {
-            throw new ObjectNotLoadedException("the folder hasn't been loaded: " + uri);
-        }
-        return resources;
+        return getContents().resources;
     }
 
 
@@ -365,10 +664,33 @@ public class Folder extends Resource {
      * @return a list of resources
      */
     public List<Folder> getSubfolders() {
+        return getContents().subfolders;
+    }
+
+
+    /**
+     * Return the current contents of the folder, to be captured by a research object snapshot.
+     * 
+     * @return the contents or null if the folder hasn't been loaded
+     */
+    Contents getLoadedContents() {
+        return loaded ? contents : null;
+    }
+
+
+    /**
+     * Return the current contents of the folder.
+     * 
+     * @return the contents
+     * @throws ObjectNotLoadedException
+     *             the folder hasn't been loaded
+     */
+    private Contents getContents()
+            throws ObjectNotLoadedException {
         if (!loaded) {
             throw new ObjectNotLoadedException("the folder hasn't been loaded: " + uri);
         }
-        return subfolders;
+        return contents;
     }
 
 
@@ -439,4 +761,100 @@ public class Folder extends Resource {
         return true;
     }
 
+
+    /**
+     * A downloaded resource map with the ETag it was returned with.
+     */
+    static final class ResourceMap {
+
+        /** resource map model. */
+        private final Model model;
+
+        /** ETag of the resource map, null if unknown. */
+        private final String etag;
+
+
+        /**
+         * Constructor.
+         * 
+         * @param model
+         *            resource map model
+         * @param etag
+         *            ETag of the resource map, null if unknown
+         */
+        ResourceMap(Model model, String etag) {
+            this.model = model;
+            this.etag = etag;
+        }
+    }
+
+
+    /**
+     * Folder entries, their indexes and the resources and subfolders they point to. The contents are never modified
+     * but replaced as a whole, so that readers always see a consistent folder.
+     */
+    static final class Contents implements Serializable {
+
+        /** id. */
+        private static final long serialVersionUID = -1526423893405736458L;
+
+        /** folder entries by URI. */
+        private final Map<URI, FolderEntry> entries;
+
+        /** named folder entries sorted by name. */
+        private final SortedMap<String, FolderEntry> entriesByName;
+
+        /** folder entries by the URI of the resource they point to. */
+        private final Map<URI, FolderEntry> entriesByResource;
+
+        /** aggregated resources sorted by name. */
+        private final List<Resource> resources;
+
+        /** subfolders sorted by name. */
+        private final List<Folder> subfolders;
+
+
+        /**
+         * Constructor. The arguments must not be modified later.
+         * 
+         * @param entries
+         *            folder entries by URI
+         * @param entriesByName
+         *            named folder entries sorted by name
+         * @param entriesByResource
+         *            folder entries by the URI of the resource they point to
+         * @param resources
+         *            aggregated resources sorted by name
+         * @param subfolders
+         *            subfolders sorted by name
+         */
+        Contents(Map<URI, FolderEntry> entries, SortedMap<String, FolderEntry> entriesByName,
+                Map<URI, FolderEntry> entriesByResource, List<Resource> resources, List<Folder> subfolders) {
+            this.entries = Collections.unmodifiableMap(entries);
+            this.entriesByName = Collections.unmodifiableSortedMap(entriesByName);
+            this.entriesByResource = Collections.unmodifiableMap(entriesByResource);
+            this.resources = Collections.unmodifiableList(resources);
+            this.subfolders = Collections.unmodifiableList(subfolders);
+        }
+
+
+        Map<URI, FolderEntry> getEntries() {
+            return entries;
+        }
+
+
+        SortedMap<String, FolderEntry> getEntriesByName() {
+            return entriesByName;
+        }
+
+
+        List<Resource> getResources() {
+            return resources;
+        }
+
+
+        List<Folder> getSubfolders() {
+            return subfolders;
+        }
+    }
 }
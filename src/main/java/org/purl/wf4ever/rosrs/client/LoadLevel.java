@@ -0,0 +1,38 @@
+package org.purl.wf4ever.rosrs.client;
+
+/**
+ * How much of a research object has been loaded. Each level includes the previous ones.
+ *
+ * @author piotrekhol
+ *
+ */
+public enum LoadLevel {
+
+    /** Nothing has been loaded. */
+    NONE,
+
+    /**
+     * The manifest only: the creator, creation date, evolution type if present in the manifest, and the descriptions
+     * of the resources, folders and annotations, without the folder contents or annotation bodies. Enough for
+     * listings and search results.
+     */
+    SUMMARY,
+
+    /** The manifest and the contents of all folders, including the resources and folders that aren't in any folder. */
+    STRUCTURE,
+
+    /** Everything that {@link ResearchObject#load()} loads, including the bodies of the annotations about the RO. */
+    FULL;
+
+
+    /**
+     * Check if this level includes another one.
+     *
+     * @param level
+     *            another level
+     * @return true if everything loaded at the other level is loaded at this one
+     */
+    public boolean includes(LoadLevel level) {
+        return compareTo(level) >= 0;
+    }
+}
@@ -0,0 +1,20 @@
+package org.purl.wf4ever.rosrs.client;
+
+/**
+ * Notified when a research object has been loaded, for example to log or alert on slow loads. Listeners are called on
+ * the loading thread, while the research object is locked, so they should return quickly.
+ *
+ * @see ResearchObject#addLoadListener(LoadListener)
+ * @author piotrekhol
+ *
+ */
+public interface LoadListener {
+
+    /**
+     * A research object has been loaded or failed to load.
+     *
+     * @param trace
+     *            the time spent in each phase of loading and what has been loaded
+     */
+    void loaded(LoadTrace trace);
+}
@@ -0,0 +1,250 @@
+package org.purl.wf4ever.rosrs.client;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The phases of loading a research object, such as downloading, parsing and extracting the manifest, with their
+ * durations and counts of what has been processed, such as the triples parsed, the manifest triples copied from a
+ * dataset, SPARQL queries, the resources, folders and annotations found in the manifest, and the resource maps and
+ * annotation bodies loaded. Every counter has one meaning in all phases, so it can be summed over the whole trace.
+ *
+ * @author piotrekhol
+ *
+ */
+public class LoadTrace {
+
+    /** Research object URI. */
+    private final URI uri;
+
+    /** Loading method, such as load or refresh. */
+    private final String operation;
+
+    /** Start time in nanoseconds. */
+    private final long start = System.nanoTime();
+
+    /** Phases in the order in which they started. */
+    private final List<Phase> phases = new ArrayList<>();
+
+    /** The phase in progress. */
+    private Phase current;
+
+    /** Start of the phase in progress in nanoseconds. */
+    private long currentStart;
+
+    /** Total duration in nanoseconds, -1 until finished. */
+    private long totalNanos = -1;
+
+    /** Has the research object been loaded. */
+    private boolean successful;
+
+
+    /**
+     * Constructor.
+     *
+     * @param uri
+     *            research object URI
+     * @param operation
+     *            loading method, such as load or refresh
+     */
+    LoadTrace(URI uri, String operation) {
+        this.uri = uri;
+        this.operation = operation;
+    }
+
+
+    /**
+     * End the phase in progress, if any, and start a new one.
+     *
+     * @param name
+     *            phase name
+     */
+    void begin(String name) {
+        long now = System.nanoTime();
+        end(now);
+        current = new Phase(name);
+        currentStart = now;
+        phases.add(current);
+    }
+
+
+    /**
+     * Add to a counter of the phase in progress.
+     *
+     * @param counter
+     *            counter name, such as triples
+     * @param value
+     *            value to add
+     */
+    void count(String counter, long value) {
+        Long previous = current.counts.get(counter);
+        current.counts.put(counter, previous != null ? previous + value : value);
+    }
+
+
+    /**
+     * End the last phase.
+     *
+     * @param success
+     *            has the research object been loaded
+     */
+    void finish(boolean success) {
+        long now = System.nanoTime();
+        end(now);
+        current = null;
+        totalNanos = now - start;
+        successful = success;
+    }
+
+
+    /**
+     * Set the duration of the phase in progress.
+     *
+     * @param now
+     *            current time in nanoseconds
+     */
+    private void end(long now) {
+        if (current != null) {
+            current.nanos = now - currentStart;
+        }
+    }
+
+
+    public URI getUri() {
+        return uri;
+    }
+
+
+    public String getOperation() {
+        return operation;
+    }
+
+
+    public List<Phase> getPhases() {
+        return Collections.unmodifiableList(phases);
+    }
+
+
+    /**
+     * Find a phase.
+     *
+     * @param name
+     *            phase name
+     * @return the phase or null if it hasn't been started
+     */
+    public Phase getPhase(String name) {
+        for (Phase phase : phases) {
+            if (phase.name.equals(name)) {
+                return phase;
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * Sum a counter over all phases.
+     *
+     * @param counter
+     *            counter name
+     * @return the sum, 0 if not counted
+     */
+    public long getCount(String counter) {
+        long sum = 0;
+        for (Phase phase : phases) {
+            sum += phase.getCount(counter);
+        }
+        return sum;
+    }
+
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+
+    public boolean isSuccessful() {
+        return successful;
+    }
+
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(operation).append(' ').append(uri).append(successful ? " in " : " failed after ")
+                .append(TimeUnit.NANOSECONDS.toMillis(totalNanos)).append("ms:");
+        for (Phase phase : phases) {
+            sb.append(' ').append(phase);
+        }
+        return sb.toString();
+    }
+
+
+    /**
+     * One phase of loading.
+     *
+     * @author piotrekhol
+     *
+     */
+    public static final class Phase {
+
+        /** Phase name. */
+        private final String name;
+
+        /** Duration in nanoseconds. */
+        private long nanos;
+
+        /** Counters in the order of adding. */
+        private final Map<String, Long> counts = new LinkedHashMap<>();
+
+
+        /**
+         * Constructor.
+         *
+         * @param name
+         *            phase name
+         */
+        private Phase(String name) {
+            this.name = name;
+        }
+
+
+        public String getName() {
+            return name;
+        }
+
+
+        public long getNanos() {
+            return nanos;
+        }
+
+
+        public Map<String, Long> getCounts() {
+            return Collections.unmodifiableMap(counts);
+        }
+
+
+        /**
+         * Get a counter.
+         *
+         * @param counter
+         *            counter name
+         * @return the value, 0 if not counted
+         */
+        public long getCount(String counter) {
+            Long value = counts.get(counter);
+            return value != null ? value : 0;
+        }
+
+
+        @Override
+        public String toString() {
+            return name + "=" + TimeUnit.NANOSECONDS.toMillis(nanos) + "ms" + (counts.isEmpty() ? "" : counts);
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package org.purl.wf4ever.rosrs.client;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+/**
+ * Resources and folders of a research object indexed by their paths, relative to the RO URI. Apart from the paths of
+ * the resources themselves, the paths of named folder entries (the folder path followed by the entry name) are
+ * indexed too.
+ *
+ * The index is sorted, so that all paths with a common prefix can be found without scanning the whole research
+ * object. It can be read by many threads while the research object updates it. The paths of every resource are kept
+ * too, so that a resource can be removed without scanning the index.
+ *
+ * @author piotrekhol
+ *
+ */
+public class PathIndex implements Serializable {
+
+    /** id. */
+    private static final long serialVersionUID = -3511420918386219876L;
+
+    /** Resources and folders by path. */
+    private final ConcurrentSkipListMap<String, Resource> paths = new ConcurrentSkipListMap<>();
+
+    /** Paths by resource or folder, guarded by this index. */
+    private final Map<Resource, Set<String>> pathsByResource = new HashMap<>();
+
+
+    /**
+     * Find a resource or folder by path.
+     *
+     * @param path
+     *            path relative to the RO URI, folder paths end with a slash
+     * @return the resource or folder or null if there is none
+     */
+    public Resource get(String path) {
+        return paths.get(path);
+    }
+
+
+    /**
+     * Find resources and folders with paths starting with a prefix, such as all contents of a folder.
+     *
+     * @param prefix
+     *            path prefix
+     * @return matching resources and folders, sorted by path
+     */
+    public SortedMap<String, Resource> getByPrefix(String prefix) {
+        SortedMap<String, Resource> result = new TreeMap<>();
+        // the paths starting with the prefix are next to each other, right after it
+        for (Map.Entry<String, Resource> entry : paths.tailMap(prefix).entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            result.put(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+
+    /**
+     * Find resources and folders with paths matching a glob pattern. <code>?</code> matches any character except a
+     * slash, <code>*</code> matches any number of characters except a slash and <code>**</code> matches any number of
+     * any characters.
+     *
+     * @param glob
+     *            glob pattern
+     * @return matching resources and folders, sorted by path
+     */
+    public SortedMap<String, Resource> getByGlob(String glob) {
+        int wildcard = indexOfWildcard(glob);
+        if (wildcard < 0) {
+            Resource resource = paths.get(glob);
+            return resource != null ? new TreeMap<>(Collections.singletonMap(glob, resource))
+                    : new TreeMap<String, Resource>();
+        }
+        Pattern pattern = toPattern(glob);
+        SortedMap<String, Resource> result = new TreeMap<>();
+        for (Map.Entry<String, Resource> entry : getByPrefix(glob.substring(0, wildcard)).entrySet()) {
+            if (pattern.matcher(entry.getKey()).matches()) {
+                result.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * Return the number of indexed paths.
+     *
+     * @return number of paths
+     */
+    public int size() {
+        return paths.size();
+    }
+
+
+    /**
+     * Index a resource or a folder.
+     *
+     * @param path
+     *            path
+     * @param resource
+     *            resource or folder
+     */
+    synchronized void put(String path, Resource resource) {
+        Resource old = paths.put(path, resource);
+        if (old != null) {
+            forget(old, path);
+        }
+        remember(resource, path);
+    }
+
+
+    /**
+     * Remove a path if it leads to a resource or a folder.
+     *
+     * @param path
+     *            path
+     * @param resource
+     *            resource or folder
+     */
+    synchronized void remove(String path, Resource resource) {
+        if (paths.remove(path, resource)) {
+            forget(resource, path);
+        }
+    }
+
+
+    /**
+     * Remove all paths of a resource or a folder.
+     *
+     * @param resource
+     *            resource or folder
+     */
+    synchronized void removeAll(Resource resource) {
+        Set<String> resourcePaths = pathsByResource.remove(resource);
+        if (resourcePaths != null) {
+            for (String path : resourcePaths) {
+                paths.remove(path, resource);
+            }
+        }
+    }
+
+
+    /**
+     * Replace the contents of the index. The paths that stay are never missing from the index, even for a moment.
+     *
+     * @param newPaths
+     *            the new contents
+     */
+    synchronized void replace(Map<String, Resource> newPaths) {
+        paths.putAll(newPaths);
+        paths.keySet().retainAll(newPaths.keySet());
+        pathsByResource.clear();
+        for (Map.Entry<String, Resource> entry : newPaths.entrySet()) {
+            remember(entry.getValue(), entry.getKey());
+        }
+    }
+
+
+    /**
+     * Remember that a path leads to a resource or a folder.
+     *
+     * @param resource
+     *            resource or folder
+     * @param path
+     *            path
+     */
+    private void remember(Resource resource, String path) {
+        Set<String> resourcePaths = pathsByResource.get(resource);
+        if (resourcePaths == null) {
+            resourcePaths = new HashSet<>();
+            pathsByResource.put(resource, resourcePaths);
+        }
+        resourcePaths.add(path);
+    }
+
+
+    /**
+     * Forget that a path led to a resource or a folder.
+     *
+     * @param resource
+     *            resource or folder
+     * @param path
+     *            path
+     */
+    private void forget(Resource resource, String path) {
+        Set<String> resourcePaths = pathsByResource.get(resource);
+        if (resourcePaths != null) {
+            resourcePaths.remove(path);
+            if (resourcePaths.isEmpty()) {
+                pathsByResource.remove(resource);
+            }
+        }
+    }
+
+
+    /**
+     * Find the first wildcard in a glob pattern.
+     *
+     * @param glob
+     *            glob pattern
+     * @return position of the first wildcard or -1 if there are none
+     */
+    private static int indexOfWildcard(String glob) {
+        for (int i = 0; i < glob.length(); i++) {
+            if (glob.charAt(i) == '*' || glob.charAt(i) == '?') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+
+    /**
+     * Convert a glob pattern to a regular expression.
+     *
+     * @param glob
+     *            glob pattern
+     * @return a regular expression pattern
+     */
+    private static Pattern toPattern(String glob) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*' || c == '?') {
+                if (literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                if (c == '?') {
+                    regex.append("[^/]");
+                } else if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                    regex.append(".*");
+                    i++;
+                } else {
+                    regex.append("[^/]*");
+                }
+            } else {
+                literal.append(c);
+            }
+        }
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+}
@@ -2,9 +2,13 @@ package org.purl.wf4ever.rosrs.client;
 
 import java.io.Serializable;
 import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
 
 import pl.psnc.dl.wf4ever.vocabulary.FOAF;
 
+import com.google.common.cache.CacheBuilder;
 import com.hp.hpl.jena.rdf.model.RDFNode;
 import com.hp.hpl.jena.rdf.model.Statement;
 
@@ -19,6 +23,13 @@ public class Person implements Serializable {
     /** id. */
     private static final long serialVersionUID = -6956273744325435068L;
 
+    /**
+     * Persons read from metadata by URI and name, so that the same person appearing in many resources and research
+     * objects is kept in memory once. Persons no longer used anywhere else are removed.
+     */
+    private static final ConcurrentMap<List<Object>, Person> INTERNED = CacheBuilder.newBuilder().weakValues()
+            .<List<Object>, Person> build().asMap();
+
     /** URI used in metadata. */
     private final URI uri;
 
@@ -80,10 +91,33 @@ public class Person implements Serializable {
             return null;
         }
         if (nameNode != null && nameNode.isLiteral()) {
-            return new Person(URI.create(resource.asResource().getURI()), nameNode.asLiteral().getString());
+            return intern(URI.create(resource.asResource().getURI()), nameNode.asLiteral().getString());
         } else {
-            return new Person(URI.create(resource.asResource().getURI()), "Unknown");
+            return intern(URI.create(resource.asResource().getURI()), "Unknown");
+        }
+    }
+
+
+    /**
+     * Return a shared instance of a person.
+     * 
+     * @param uri
+     *            URI used in metadata
+     * @param name
+     *            human-friendly name
+     * @return a person with this URI and name
+     */
+    static Person intern(URI uri, String name) {
+        List<Object> key = Arrays.<Object> asList(uri, name);
+        Person person = INTERNED.get(key);
+        if (person == null) {
+            Person created = new Person(uri, name);
+            person = INTERNED.putIfAbsent(key, created);
+            if (person == null) {
+                person = created;
+            }
         }
+        return person;
     }
 
 
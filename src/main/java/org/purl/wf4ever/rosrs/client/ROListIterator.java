@@ -0,0 +1,133 @@
+package org.purl.wf4ever.rosrs.client;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.log4j.Logger;
+
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientResponse;
+
+/**
+ * An iterator over the URIs of a list of research objects returned by ROSRS, one URI per line. The response is read
+ * line by line while iterating, so the memory used doesn't depend on the number of research objects. The response is
+ * closed when the last URI or the limit has been reached; an iteration stopped earlier should be closed explicitly.
+ *
+ * @author piotrekhol
+ *
+ */
+public class ROListIterator implements Iterator<URI>, Closeable {
+
+    /** Logger. */
+    private static final Logger LOG = Logger.getLogger(ROListIterator.class);
+
+    /** The response with the list. */
+    private final ClientResponse response;
+
+    /** The response body reader. */
+    private final BufferedReader reader;
+
+    /** How many more URIs can be returned. */
+    private long remaining;
+
+    /** The URI to return next, if it has been read already. */
+    private URI next;
+
+    /** Has the response been closed. */
+    private boolean closed;
+
+
+    /**
+     * Constructor.
+     *
+     * @param response
+     *            a 2xx response with the list of URIs
+     * @param limit
+     *            the maximum number of URIs to return
+     */
+    ROListIterator(ClientResponse response, long limit) {
+        this.response = response;
+        this.reader = new BufferedReader(new InputStreamReader(response.getEntityInputStream(),
+                Charset.forName("UTF-8")));
+        this.remaining = limit;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalArgumentException
+     *             a line in the list is not a correct URI
+     * @throws ClientHandlerException
+     *             the list can't be read
+     */
+    @Override
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        if (closed) {
+            return false;
+        }
+        if (remaining <= 0) {
+            close();
+            return false;
+        }
+        try {
+            String line;
+            do {
+                line = reader.readLine();
+            } while (line != null && line.trim().isEmpty());
+            if (line == null) {
+                close();
+                return false;
+            }
+            next = URI.create(line.trim());
+            remaining--;
+            return true;
+        } catch (IOException e) {
+            close();
+            throw new ClientHandlerException("Can't read the list of research objects", e);
+        }
+    }
+
+
+    @Override
+    public URI next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        URI uri = next;
+        next = null;
+        return uri;
+    }
+
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("The list of research objects is read-only");
+    }
+
+
+    /**
+     * Stop reading the list and release the connection.
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            try {
+                reader.close();
+            } catch (IOException e) {
+                LOG.warn("Failed to close the list of research objects", e);
+            }
+            response.close();
+        }
+    }
+}
@@ -8,28 +8,45 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response.Status.Family;
+
+import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.http.HttpStatus;
 import org.apache.log4j.Logger;
-import org.joda.time.DateTime;
+import org.purl.wf4ever.rosrs.client.cache.DiskCache;
+import org.purl.wf4ever.rosrs.client.cache.DiskCacheFilter;
 import org.purl.wf4ever.rosrs.client.exception.ROSRSException;
+import org.purl.wf4ever.rosrs.client.metrics.MetricsFilter;
+import org.purl.wf4ever.rosrs.client.resilience.ResiliencePolicy;
+import org.purl.wf4ever.rosrs.client.resilience.ResilientClientFactory;
 
 import pl.psnc.dl.wf4ever.vocabulary.AO;
 import pl.psnc.dl.wf4ever.vocabulary.ORE;
 import pl.psnc.dl.wf4ever.vocabulary.RO;
 
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
 import com.hp.hpl.jena.ontology.Individual;
 import com.hp.hpl.jena.ontology.OntModel;
 import com.hp.hpl.jena.ontology.OntModelSpec;
 import com.hp.hpl.jena.rdf.model.ModelFactory;
 import com.hp.hpl.jena.rdf.model.Resource;
 import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientHandlerException;
 import com.sun.jersey.api.client.ClientResponse;
-import com.sun.jersey.api.client.UniformInterfaceException;
 import com.sun.jersey.api.client.WebResource;
 import com.sun.jersey.api.client.WebResource.Builder;
+import com.sun.jersey.api.client.config.ClientConfig;
 
 /**
  * A client of ROSR 6 API.
@@ -57,6 +74,9 @@ public class ROSRService implements Serializable {
 	/** ro:FolderEntry MIME type. */
 	public static final String FOLDER_ENTRY_MIME_TYPE = "application/vnd.wf4ever.folderentry";
 
+	/** Default number of concurrent requests in bulk operations. */
+	public static final int DEFAULT_BULK_PARALLELISM = 4;
+
 	/** ROSRS URI. */
 	private URI rosrsURI;
 
@@ -66,6 +86,9 @@ public class ROSRService implements Serializable {
 	/** web client. */
 	private transient Client client;
 
+	/** persistent cache of GET responses, optional. */
+	private transient DiskCache cache;
+
 	/**
 	 * Constructor.
 	 * 
@@ -84,13 +107,32 @@ public class ROSRService implements Serializable {
 	 * 
 	 * @return an HTTP client
 	 */
-	private Client getClient() {
+	private synchronized Client getClient() {
 		if (client == null) {
-			client = Client.create();
+			client = ResilientClientFactory.createClient("rosrs");
+			if (cache != null) {
+				client.addFilter(new DiskCacheFilter(cache));
+			}
 		}
 		return client;
 	}
 
+	/**
+	 * Use a persistent cache for resources downloaded from ROSRS, such as manifests, resource maps and annotation
+	 * bodies. Cached resources are revalidated using their ETags.
+	 * 
+	 * @param cache
+	 *            the cache or null to stop using it
+	 */
+	public synchronized void setCache(DiskCache cache) {
+		this.cache = cache;
+		this.client = null;
+	}
+
+	public synchronized DiskCache getCache() {
+		return cache;
+	}
+
 	public URI getRosrsURI() {
 		return rosrsURI;
 	}
@@ -153,15 +195,32 @@ public class ROSRService implements Serializable {
 	 *             when the response code is not 2xx
 	 */
 	public ClientResponse getResource(URI resourceURI, String accept) throws ROSRSException {
-		WebResource webResource = getClient().resource(resourceURI.toString());
-		LOG.debug("Start loading " + resourceURI + " time: " + DateTime.now());
+		return getResource(resourceURI, accept, null);
+	}
+
+	/**
+	 * Get a web resource, recording the request as a logical operation.
+	 * 
+	 * @param resourceURI
+	 *            resource URI
+	 * @param accept
+	 *            acceptable MIME type or null
+	 * @param operation
+	 *            operation name used in the request metrics, such as
+	 *            manifest, or null to use the HTTP method
+	 * @return a resource input stream, remember to close it after use
+	 * @throws ROSRSException
+	 *             when the response code is not 2xx
+	 * @see MetricsFilter#tag(WebResource, String)
+	 */
+	public ClientResponse getResource(URI resourceURI, String accept, String operation) throws ROSRSException {
+		WebResource webResource = MetricsFilter.tag(getClient().resource(resourceURI.toString()), operation);
 		ClientResponse response;
 		if (token != null) {
 			response = webResource.header("Authorization", "Bearer " + token).accept(accept).get(ClientResponse.class);
 		} else {
 			response = webResource.accept(accept).get(ClientResponse.class);
 		}
-		LOG.debug("Ended loading " + resourceURI + " time: " + DateTime.now());
 		if (response.getStatus() == HttpStatus.SC_OK) {
 			return response;
 		} else {
@@ -169,6 +228,66 @@ public class ROSRService implements Serializable {
 		}
 	}
 
+	/**
+	 * Get a web resource unless it hasn't changed since it was downloaded
+	 * with a given ETag.
+	 * 
+	 * @param resourceURI
+	 *            resource URI
+	 * @param accept
+	 *            acceptable MIME type or null
+	 * @param etag
+	 *            ETag of the version that has been downloaded before, or null
+	 *            to download it unconditionally
+	 * @return a resource input stream, remember to close it after use, or
+	 *         null if the resource hasn't been modified
+	 * @throws ROSRSException
+	 *             when the response code is neither 2xx nor 304
+	 */
+	public ClientResponse getResourceIfModified(URI resourceURI, String accept, String etag) throws ROSRSException {
+		return getResourceIfModified(resourceURI, accept, etag, null);
+	}
+
+	/**
+	 * Get a web resource unless it hasn't changed since it was downloaded
+	 * with a given ETag, recording the request as a logical operation.
+	 * 
+	 * @param resourceURI
+	 *            resource URI
+	 * @param accept
+	 *            acceptable MIME type or null
+	 * @param etag
+	 *            ETag of the version that has been downloaded before, or null
+	 *            to download it unconditionally
+	 * @param operation
+	 *            operation name used in the request metrics, such as
+	 *            resourceMap, or null to use the HTTP method
+	 * @return a resource input stream, remember to close it after use, or
+	 *         null if the resource hasn't been modified
+	 * @throws ROSRSException
+	 *             when the response code is neither 2xx nor 304
+	 * @see MetricsFilter#tag(WebResource, String)
+	 */
+	public ClientResponse getResourceIfModified(URI resourceURI, String accept, String etag, String operation)
+			throws ROSRSException {
+		Builder builder = MetricsFilter.tag(getClient().resource(resourceURI.toString()), operation).accept(accept);
+		if (token != null) {
+			builder = builder.header("Authorization", "Bearer " + token);
+		}
+		if (etag != null) {
+			builder = builder.header(HttpHeaders.IF_NONE_MATCH, etag);
+		}
+		ClientResponse response = builder.get(ClientResponse.class);
+		if (response.getStatus() == HttpStatus.SC_OK) {
+			return response;
+		} else if (response.getStatus() == HttpStatus.SC_NOT_MODIFIED) {
+			response.close();
+			return null;
+		} else {
+			throw new ROSRSException("Getting the resource failed", response);
+		}
+	}
+
 	/**
 	 * Get a HEAD response to an RODL resource asking for RDF/XML.
 	 * 
@@ -193,6 +312,72 @@ public class ROSRService implements Serializable {
 		}
 	}
 
+	/**
+	 * Send HEAD requests to many resources at the same time, to find out if
+	 * they are available and what their sizes, content types and ETags are,
+	 * without downloading them. A failed request doesn't stop the others.
+	 * 
+	 * @param resources
+	 *            resource URIs
+	 * @param parallelism
+	 *            the maximum number of requests sent at the same time
+	 * @return probe results by resource URI, in the order of the resources
+	 */
+	public Map<URI, ResourceProbe> probeResources(Collection<URI> resources, int parallelism) {
+		List<Callable<ResourceProbe>> tasks = new ArrayList<>();
+		for (final URI resource : new LinkedHashSet<>(resources)) {
+			tasks.add(new Callable<ResourceProbe>() {
+
+				@Override
+				public ResourceProbe call() {
+					return probeResource(resource);
+				}
+			});
+		}
+		Map<URI, ResourceProbe> probes = new LinkedHashMap<>();
+		for (ResourceProbe probe : getAll(Utils.invokeAll(tasks, parallelism))) {
+			probes.put(probe.getUri(), probe);
+		}
+		return probes;
+	}
+
+	/**
+	 * Send a HEAD request to a resource, accepting any content type.
+	 * 
+	 * @param resource
+	 *            resource URI
+	 * @return the probe result, with status -1 if there was no response
+	 */
+	private ResourceProbe probeResource(URI resource) {
+		WebResource webResource = getClient().resource(resource.toString());
+		ClientResponse response;
+		try {
+			if (token != null) {
+				response = webResource.header("Authorization", "Bearer " + token).head();
+			} else {
+				response = webResource.head();
+			}
+		} catch (ClientHandlerException e) {
+			LOG.warn("Can't send a HEAD request to " + resource, e);
+			return new ResourceProbe(resource, -1, -1, null, null);
+		}
+		try {
+			long size = -1;
+			String length = response.getHeaders().getFirst(HttpHeaders.CONTENT_LENGTH);
+			if (length != null) {
+				try {
+					size = Long.parseLong(length.trim());
+				} catch (NumberFormatException e) {
+					LOG.warn("Incorrect content length of " + resource + ": " + length);
+				}
+			}
+			return new ResourceProbe(resource, response.getStatus(), size, response.getHeaders().getFirst(
+				HttpHeaders.CONTENT_TYPE), response.getHeaders().getFirst(HttpHeaders.ETAG));
+		} finally {
+			response.close();
+		}
+	}
+
 	/**
 	 * Create a new resource in RODL.
 	 * 
@@ -210,7 +395,8 @@ public class ROSRService implements Serializable {
 	 */
 	public ClientResponse aggregateInternalResource(URI researchObject, String resourcePath,
 			InputStream content, String contentType) throws ROSRSException {
-		WebResource webResource = getClient().resource(researchObject.toString());
+		WebResource webResource = MetricsFilter.tag(getClient().resource(researchObject.toString()),
+				ResiliencePolicy.UPLOAD_OPERATION);
 		if (!contentType.equals(PROXY_MIME_TYPE)) {
 			ClientResponse response = webResource.header("Authorization", "Bearer " + token)
 					.header("Slug", resourcePath).type(contentType)
@@ -274,7 +460,8 @@ public class ROSRService implements Serializable {
 	 */
 	public ClientResponse updateResource(URI resourceURI, InputStream content, String contentType)
 			throws ROSRSException {
-		WebResource webResource = getClient().resource(resourceURI.toString());
+		WebResource webResource = MetricsFilter.tag(getClient().resource(resourceURI.toString()),
+				ResiliencePolicy.UPLOAD_OPERATION);
 		ClientResponse response = webResource.header("Authorization", "Bearer " + token)
 				.type(contentType).put(ClientResponse.class, content);
 		if (response.getStatus() == HttpStatus.SC_OK) {
@@ -318,26 +505,49 @@ public class ROSRService implements Serializable {
 	 *             when the response code is not 2xx
 	 */
 	public List<URI> getROList(boolean all) throws URISyntaxException, ROSRSException {
-		WebResource webResource = getClient().resource(rosrsURI.toString());
-		String response;
-		try {
-			if (all) {
-				response = webResource.get(String.class);
-			} else {
-				response = webResource.header("Authorization", "Bearer " + token).get(String.class);
-			}
-		} catch (UniformInterfaceException e) {
-			throw new ROSRSException(e.getLocalizedMessage(), e.getResponse());
-		}
 		List<URI> uris = new ArrayList<URI>();
-		for (String s : response.split("[\\r\\n]+")) {
-			if (!s.isEmpty()) {
-				uris.add(new URI(s));
+		try (ROListIterator it = iterateROList(all, Long.MAX_VALUE)) {
+			while (it.hasNext()) {
+				uris.add(it.next());
 			}
+		} catch (IllegalArgumentException e) {
+			if (e.getCause() instanceof URISyntaxException) {
+				throw (URISyntaxException) e.getCause();
+			}
+			throw e;
 		}
 		return uris;
 	}
 
+	/**
+	 * Iterate over a list of ROs, either the ROs belonging to the access token
+	 * owner or all ROs. The list is read from the connection while iterating,
+	 * so that long lists don't have to be kept in memory. RODL doesn't page
+	 * the list, so the iterator should be closed if the iteration is stopped
+	 * before the end or the limit, to release the connection.
+	 * 
+	 * @param all
+	 *            include all ROs
+	 * @param limit
+	 *            the maximum number of RO URIs to read
+	 * @return an iterator over RO URIs
+	 * @throws ROSRSException
+	 *             when the response code is not 2xx
+	 */
+	public ROListIterator iterateROList(boolean all, long limit) throws ROSRSException {
+		WebResource webResource = MetricsFilter.tag(getClient().resource(rosrsURI.toString()), "list");
+		ClientResponse response;
+		if (all) {
+			response = webResource.get(ClientResponse.class);
+		} else {
+			response = webResource.header("Authorization", "Bearer " + token).get(ClientResponse.class);
+		}
+		if (response.getClientResponseStatus().getFamily() != Family.SUCCESSFUL) {
+			throw new ROSRSException("Listing the research objects failed", response);
+		}
+		return new ROListIterator(response, limit);
+	}
+
 	/**
 	 * Create an annotation in RODL using an existing resource as the annotation
 	 * body.
@@ -422,6 +632,53 @@ public class ROSRService implements Serializable {
 		}
 	}
 
+	/**
+	 * Find the annotation body an annotation redirects to. Only this request is
+	 * configured not to follow redirections, the shared web client is not
+	 * modified, so it is safe to call concurrently.
+	 * 
+	 * @param annURI
+	 *            annotation URI
+	 * @return the annotation body URI or null if the annotation does not
+	 *         redirect to any
+	 */
+	public URI getAnnotationBody(URI annURI) {
+		ClientResponse response = getAnnotationRedirect(annURI, true);
+		if (response.getStatus() == HttpStatus.SC_METHOD_NOT_ALLOWED) {
+			response.close();
+			response = getAnnotationRedirect(annURI, false);
+		}
+		try {
+			if (response.getStatus() == HttpStatus.SC_SEE_OTHER) {
+				return response.getLocation();
+			}
+			return null;
+		} finally {
+			response.close();
+		}
+	}
+
+	/**
+	 * Send a HEAD or GET request to an annotation that does not follow the
+	 * redirection to the annotation body.
+	 * 
+	 * @param annURI
+	 *            annotation URI
+	 * @param head
+	 *            send a HEAD request if true, GET otherwise
+	 * @return RODL response, remember to close it after use
+	 */
+	private ClientResponse getAnnotationRedirect(URI annURI, boolean head) {
+		WebResource webResource = getClient().resource(annURI.toString());
+		webResource.setProperty(ClientConfig.PROPERTY_FOLLOW_REDIRECTS, false);
+		Builder builder = webResource.getRequestBuilder();
+		if (token != null) {
+			builder = builder.header("Authorization", "Bearer " + token);
+		}
+		// Builder.head() skips the web resource properties, method() doesn't
+		return builder.method(head ? "HEAD" : "GET", ClientResponse.class);
+	}
+
 	/**
 	 * Delete an annotation and its annotation body, if exists.
 	 * 
@@ -432,33 +689,204 @@ public class ROSRService implements Serializable {
 	 *             when the response code is not 204 or 404
 	 */
 	public ClientResponse deleteAnnotationAndBody(URI annURI) throws ROSRSException {
-		getClient().setFollowRedirects(false);
-		ClientResponse bodyResponse = null;
-		try {
-			ClientResponse response = getClient().resource(annURI.toString()).get(
-					ClientResponse.class);
-			if (response.getClientResponseStatus().getStatusCode() == HttpStatus.SC_SEE_OTHER) {
-				bodyResponse = response;
+		URI bodyURI = getAnnotationBody(annURI);
+		ClientResponse response = getClient().resource(annURI).header("Authorization", "Bearer " + token)
+				.delete(ClientResponse.class);
+		if (response.getStatus() != HttpStatus.SC_NO_CONTENT
+				&& response.getStatus() != HttpStatus.SC_NOT_FOUND) {
+			throw new ROSRSException("Deleting the annotation failed", response);
+		}
+		if (bodyURI != null) {
+			deleteAnnotationBody(bodyURI);
+		}
+		return response;
+	}
+
+	/**
+	 * Delete many annotations and their annotation bodies. The bodies are
+	 * resolved and the annotations are deleted concurrently. A body is deleted
+	 * only after all the annotations using it have been deleted, and only once.
+	 * An annotation whose body can't be resolved is not deleted. Failures to
+	 * delete a body are only logged.
+	 * 
+	 * @param annURIs
+	 *            annotation URIs
+	 * @param parallelism
+	 *            the maximum number of concurrent requests
+	 * @return the annotations that could not be deleted with the cause, an
+	 *         empty map if all were deleted. Requests that got no response,
+	 *         for example because of a connection failure, are reported with
+	 *         a status of -1.
+	 */
+	public Map<URI, ROSRSException> deleteAnnotationsAndBodies(Collection<URI> annURIs, int parallelism) {
+		List<URI> annotations = new ArrayList<>(new LinkedHashSet<>(annURIs));
+		List<Callable<URI>> resolveTasks = new ArrayList<>();
+		for (final URI annURI : annotations) {
+			resolveTasks.add(new Callable<URI>() {
+
+				@Override
+				public URI call() {
+					return getAnnotationBody(annURI);
+				}
+			});
+		}
+		List<Future<URI>> resolutions = Utils.invokeAll(resolveTasks, parallelism);
+
+		Map<URI, ROSRSException> failures = new LinkedHashMap<>();
+		Map<URI, URI> bodies = new LinkedHashMap<>();
+		for (int i = 0; i < annotations.size(); i++) {
+			try {
+				bodies.put(annotations.get(i), resolutions.get(i).get());
+			} catch (ExecutionException e) {
+				failures.put(annotations.get(i), failure("Resolving the annotation body failed", e.getCause()));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted when deleting annotations", e);
 			}
-			response = getClient().resource(annURI).header("Authorization", "Bearer " + token)
-					.delete(ClientResponse.class);
-			if (bodyResponse != null) {
-				bodyResponse = getClient().resource(bodyResponse.getLocation())
-						.header("Authorization", "Bearer " + token).delete(ClientResponse.class);
-				if (bodyResponse.getStatus() != HttpStatus.SC_NO_CONTENT) {
-					LOG.warn("Unexpected response when deleting the annotation body: "
-							+ bodyResponse.toString());
+		}
+
+		List<URI> resolved = new ArrayList<>(bodies.keySet());
+		List<Callable<Void>> deleteTasks = new ArrayList<>();
+		for (final URI annURI : resolved) {
+			deleteTasks.add(new Callable<Void>() {
+
+				@Override
+				public Void call() throws ROSRSException {
+					ClientResponse response = getClient().resource(annURI).header("Authorization", "Bearer " + token)
+							.delete(ClientResponse.class);
+					try {
+						if (response.getStatus() != HttpStatus.SC_NO_CONTENT
+								&& response.getStatus() != HttpStatus.SC_NOT_FOUND) {
+							throw new ROSRSException("Deleting the annotation failed", response);
+						}
+						return null;
+					} finally {
+						response.close();
+					}
 				}
+			});
+		}
+		List<Future<Void>> deletions = Utils.invokeAll(deleteTasks, parallelism);
+
+		Multimap<URI, URI> annotationsByBody = HashMultimap.create();
+		for (int i = 0; i < resolved.size(); i++) {
+			URI annURI = resolved.get(i);
+			if (bodies.get(annURI) != null) {
+				annotationsByBody.put(bodies.get(annURI), annURI);
 			}
-			if (response.getStatus() == HttpStatus.SC_NO_CONTENT
-					|| response.getStatus() == HttpStatus.SC_NOT_FOUND) {
-				return response;
-			} else {
-				throw new ROSRSException("Deleting the annotation failed", response);
+			try {
+				deletions.get(i).get();
+			} catch (ExecutionException e) {
+				failures.put(annURI, failure("Deleting the annotation failed", e.getCause()));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted when deleting annotations", e);
+			}
+		}
+
+		List<URI> bodiesToDelete = new ArrayList<>();
+		List<Callable<Void>> bodyTasks = new ArrayList<>();
+		for (final URI bodyURI : annotationsByBody.keySet()) {
+			if (!containsAny(failures.keySet(), annotationsByBody.get(bodyURI))) {
+				bodiesToDelete.add(bodyURI);
+				bodyTasks.add(new Callable<Void>() {
+
+					@Override
+					public Void call() {
+						deleteAnnotationBody(bodyURI);
+						return null;
+					}
+				});
+			}
+		}
+		List<Future<Void>> bodyDeletions = Utils.invokeAll(bodyTasks, parallelism);
+		for (int i = 0; i < bodiesToDelete.size(); i++) {
+			try {
+				bodyDeletions.get(i).get();
+			} catch (ExecutionException e) {
+				LOG.warn("Could not delete the annotation body " + bodiesToDelete.get(i), e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted when deleting annotation bodies", e);
+			}
+		}
+		return failures;
+	}
+
+	/**
+	 * Turn the cause of a failed request into a per-item failure.
+	 * 
+	 * @param message
+	 *            context message used if the request got no response
+	 * @param cause
+	 *            the exception thrown by the request
+	 * @return the exception to report
+	 */
+	private static ROSRSException failure(String message, Throwable cause) {
+		if (cause instanceof ROSRSException) {
+			return (ROSRSException) cause;
+		}
+		if (cause instanceof Error) {
+			throw (Error) cause;
+		}
+		return new ROSRSException(message, cause);
+	}
+
+	/**
+	 * Delete an annotation body, only logging unexpected responses.
+	 * 
+	 * @param bodyURI
+	 *            annotation body URI
+	 */
+	private void deleteAnnotationBody(URI bodyURI) {
+		ClientResponse bodyResponse = getClient().resource(bodyURI).header("Authorization", "Bearer " + token)
+				.delete(ClientResponse.class);
+		if (bodyResponse.getStatus() != HttpStatus.SC_NO_CONTENT) {
+			LOG.warn("Unexpected response when deleting the annotation body: " + bodyResponse.toString());
+		}
+		bodyResponse.close();
+	}
+
+	/**
+	 * Check if any of the values is in the collection.
+	 * 
+	 * @param collection
+	 *            the collection to search in
+	 * @param values
+	 *            values to look for
+	 * @return true if at least one value is found
+	 */
+	private static boolean containsAny(Collection<URI> collection, Collection<URI> values) {
+		for (URI value : values) {
+			if (collection.contains(value)) {
+				return true;
 			}
-		} finally {
-			getClient().setFollowRedirects(true);
 		}
+		return false;
+	}
+
+	/**
+	 * Wait for all tasks, failing if any of them failed.
+	 * 
+	 * @param futures
+	 *            task results
+	 * @param <T>
+	 *            result type
+	 * @return results in the same order
+	 */
+	private static <T> List<T> getAll(List<Future<T>> futures) {
+		List<T> results = new ArrayList<>();
+		for (Future<T> future : futures) {
+			try {
+				results.add(future.get());
+			} catch (ExecutionException e) {
+				throw Utils.unchecked(e);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted when waiting for a request", e);
+			}
+		}
+		return results;
 	}
 
 	/**
@@ -505,19 +933,21 @@ public class ROSRService implements Serializable {
 	 */
 	public ClientResponse addFolderEntry(URI folder, URI resource, String name)
 			throws ROSRSException {
-		OntModel model = ModelFactory.createOntologyModel(OntModelSpec.OWL_LITE_MEM);
-		Individual entry = model.createIndividual(RO.FolderEntry);
-		entry.addProperty(ORE.proxyFor, model.createResource(resource.toString()));
+		// the description is written directly, because creating an ontology model per entry is costly when many
+		// entries are created
+		StringBuilder description = new StringBuilder();
+		description.append("<rdf:RDF xmlns:rdf=\"http://www.w3.org/1999/02/22-rdf-syntax-ns#\" xmlns:ro=\"")
+				.append(RO.NAMESPACE).append("\" xmlns:ore=\"").append(ORE.NAMESPACE).append("\">");
+		description.append("<ro:FolderEntry><ore:proxyFor rdf:resource=\"")
+				.append(StringEscapeUtils.escapeXml(resource.toString())).append("\"/>");
 		if (name != null) {
-			entry.addProperty(RO.entryName, model.createLiteral(name));
+			description.append("<ro:entryName>").append(StringEscapeUtils.escapeXml(name)).append("</ro:entryName>");
 		}
-		ByteArrayOutputStream out = new ByteArrayOutputStream();
-		model.write(out, "RDF/XML");
-		ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+		description.append("</ro:FolderEntry></rdf:RDF>");
 
 		WebResource webResource = getClient().resource(folder.toString());
 		ClientResponse response = webResource.header("Authorization", "Bearer " + token)
-				.type(FOLDER_ENTRY_MIME_TYPE).post(ClientResponse.class, in);
+				.type(FOLDER_ENTRY_MIME_TYPE).post(ClientResponse.class, description.toString());
 		if (response.getStatus() == HttpStatus.SC_CREATED
 				|| response.getStatus() == HttpStatus.SC_CONFLICT) {
 			return response;
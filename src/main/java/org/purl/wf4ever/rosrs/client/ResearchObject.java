@@ -3,14 +3,22 @@ package org.purl.wf4ever.rosrs.client;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
@@ -38,7 +46,9 @@ import pl.psnc.dl.wf4ever.vocabulary.RO;
 import pl.psnc.dl.wf4ever.vocabulary.ROEVO;
 
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.SetMultimap;
 import com.hp.hpl.jena.datatypes.xsd.impl.XSDBaseNumericType;
 import com.hp.hpl.jena.ontology.Individual;
 import com.hp.hpl.jena.ontology.OntModel;
@@ -62,6 +72,11 @@ import com.sun.jersey.api.client.ClientResponse;
 /**
  * ro:ResearchObject.
  * 
+ * The aggregated resources, folders and annotations are kept in an immutable {@link ResearchObjectSnapshot} that is
+ * replaced as a whole after each change, together with the folder contents and the annotation bodies it captures.
+ * Many threads can read a research object while one of them modifies it, the readers never block and never see a
+ * partially updated snapshot. Changes are serialized on the research object instance.
+ * 
  * @author piotrekhol
  * 
  */
@@ -73,56 +88,50 @@ public class ResearchObject extends Thing implements Annotable {
     /** Logger. */
     private static final Logger LOG = Logger.getLogger(ResearchObject.class);
 
+    /** Notified about every load of any RO. */
+    private static final List<LoadListener> LOAD_LISTENERS = new CopyOnWriteArrayList<>();
+
     /** ROSRS client. */
     private final ROSRService rosrs;
 
     /** ROEVO client. */
     private final ROEVOService roevo;
 
-    /** has the entire RO been loaded from ROSRS. */
-    private boolean loaded = false;
-
     /** has the RO manifest been loaded from ROSRS. */
-    private boolean manifestLoaded = false;
-
-    /** aggregated ro:Resources, excluding ro:Folders. */
-    private Map<URI, Resource> resources = new HashMap<>();
+    private volatile boolean manifestLoaded = false;
 
-    /** aggregated ro:Folders. */
-    private Map<URI, Folder> folders = new HashMap<>();
+    /** how much of the RO has been loaded. */
+    private volatile LoadLevel loadLevel = LoadLevel.NONE;
 
-    /** aggregated annotations, grouped based on ao:annotatesResource. */
-    private Multimap<URI, Annotation> annotations = HashMultimap.<URI, Annotation> create();;
+    /** aggregated resources, folders and annotations, replaced after each change. */
+    private volatile ResearchObjectSnapshot state;
 
-    /** root folders of the RO, sorted by name. */
-    private List<Folder> rootFolders;
+    /** the snapshot being built by the thread that holds the lock on this RO, used only by that thread. */
+    private transient ResearchObjectSnapshot building;
 
-    /** all folders of the RO, sorted by name. */
-    private List<Folder> allFolders;
-
-    /** resources not in any folder. */
-    private List<Resource> rootResources;
+    /** resources and folders by path, updated before each new state is published. */
+    private final PathIndex pathIndex = new PathIndex();
 
     /** RO evolution class from annotations (any one in case of many). */
-    private EvoType evoType;
+    private volatile EvoType evoType;
 
     /** All snapshots of this RO. */
-    private Set<URI> snapshots = new HashSet<>();
+    private volatile Set<URI> snapshots = Collections.emptySet();
 
     /** All archives of this RO. */
-    private Set<URI> archives = new HashSet<>();
+    private volatile Set<URI> archives = Collections.emptySet();
 
     /** Any live RO that this RO comes from. */
-    private ResearchObject liveRO;
+    private volatile ResearchObject liveRO;
 
     /** A previous snapshot of this RO. */
-    private URI previousSnapshot;
+    private volatile URI previousSnapshot;
 
     /** Has the evolution information been loaded. */
-    private boolean evolutionInformationLoaded;
+    private volatile boolean evolutionInformationLoaded;
 
     /** URI of an RO that aggregates this RO, if this is a nested RO. */
-    private URI aggregatingRO;
+    private volatile URI aggregatingRO;
 
 
     /**
@@ -136,6 +145,7 @@ public class ResearchObject extends Thing implements Annotable {
     public ResearchObject(URI uri, ROSRService rosrs) {
         super(uri, null, null);
         this.rosrs = rosrs;
+        this.state = ResearchObjectSnapshot.empty(uri);
         //HACK
         this.roevo = rosrs != null ? new ROEVOService(rosrs.getRosrsURI().resolve(".."), rosrs.getToken()) : null;
     }
@@ -166,7 +176,98 @@ public class ResearchObject extends Thing implements Annotable {
 
 
     public boolean isLoaded() {
-        return loaded;
+        return current().isLoaded();
+    }
+
+
+    /**
+     * Return a point-in-time view of the resources, folders and annotations of this RO. The snapshot does not change
+     * when the RO is changed later.
+     * 
+     * @return the last published snapshot
+     */
+    public ResearchObjectSnapshot getSnapshot() {
+        return state;
+    }
+
+
+    /**
+     * Return the index of resources and folders by path. Named folder entries are indexed by the folder path followed
+     * by the entry name. The index is updated when the RO changes, just before the new snapshot is published.
+     * 
+     * @return the path index
+     */
+    public PathIndex getPathIndex() {
+        return pathIndex;
+    }
+
+
+    /**
+     * Rebuild the path index after the RO has been loaded or folders have changed, before the new snapshot is
+     * published.
+     * 
+     * @param current
+     *            the snapshot that is about to be published
+     */
+    private void reindex(ResearchObjectSnapshot current) {
+        Map<String, Resource> paths = new HashMap<>();
+        for (Resource resource : current.getResources().values()) {
+            paths.put(resource.getPath(), resource);
+        }
+        for (Folder folder : current.getFolders().values()) {
+            paths.put(folder.getPath(), folder);
+        }
+        for (Folder folder : current.getFolders().values()) {
+            if (current.isLoaded(folder)) {
+                for (FolderEntry entry : current.getFolderEntries(folder).values()) {
+                    String entryPath = getEntryPath(current, entry);
+                    Resource resource = current.getResource(entry.getResourceUri());
+                    if (resource == null) {
+                        resource = current.getFolder(entry.getResourceUri());
+                    }
+                    if (entryPath != null && resource != null) {
+                        paths.put(entryPath, resource);
+                    }
+                }
+            }
+        }
+        pathIndex.replace(paths);
+    }
+
+
+    /**
+     * Calculate the path of a folder entry, i.e. the folder path followed by the entry name.
+     * 
+     * @param current
+     *            the snapshot in which the entry is indexed
+     * @param entry
+     *            folder entry
+     * @return the path or null if the entry has no name
+     */
+    private static String getEntryPath(ResearchObjectSnapshot current, FolderEntry entry) {
+        if (entry.getName() == null) {
+            return null;
+        }
+        String path = entry.getFolder().getPath() + entry.getName();
+        if (current.getFolders().containsKey(entry.getResourceUri()) && !path.endsWith("/")) {
+            path += "/";
+        }
+        return path;
+    }
+
+
+    /**
+     * Return the snapshot visible to the current thread. The thread that is changing the RO sees the snapshot it is
+     * building, all other threads see the last published one.
+     * 
+     * @return the current snapshot
+     */
+    private ResearchObjectSnapshot current() {
+        ResearchObjectSnapshot inProgress = building;
+        if (inProgress != null && Thread.holdsLock(this)) {
+            return inProgress;
+        }
+        return state;
     }
 
 
@@ -175,18 +276,250 @@ public class ResearchObject extends Thing implements Annotable {
     }
 
 
+    public LoadLevel getLoadLevel() {
+        return loadLevel;
+    }
+
+
+    /**
+     * Raise the load level, unless a higher one has been reached already.
+     * 
+     * @param level
+     *            the level that has been reached
+     */
+    private void reached(LoadLevel level) {
+        if (!loadLevel.includes(level)) {
+            loadLevel = level;
+        }
+    }
+
+
+    /**
+     * Register a listener notified after every load, refresh or manifest load of any RO, successful or not.
+     * 
+     * @param listener
+     *            the listener
+     */
+    public static void addLoadListener(LoadListener listener) {
+        LOAD_LISTENERS.add(listener);
+    }
+
+
+    /**
+     * Unregister a listener.
+     * 
+     * @param listener
+     *            the listener
+     */
+    public static void removeLoadListener(LoadListener listener) {
+        LOAD_LISTENERS.remove(listener);
+    }
+
+
+    /**
+     * End a trace, log it and notify the listeners.
+     * 
+     * @param trace
+     *            the trace
+     * @param successful
+     *            has the RO been loaded
+     */
+    private static void finished(LoadTrace trace, boolean successful) {
+        trace.finish(successful);
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(trace);
+        }
+        for (LoadListener listener : LOAD_LISTENERS) {
+            try {
+                listener.loaded(trace);
+            } catch (RuntimeException e) {
+                LOG.warn("Load listener failed", e);
+            }
+        }
+    }
+
+
+    /**
+     * Load as much of the RO as needed for a load level. Only what hasn't been loaded yet is downloaded, so a RO loaded
+     * at a lower level can be upgraded later. If the RO hasn't been loaded at all, the {@link LoadLevel#FULL} level is
+     * loaded with {@link #load()}, in one request.
+     * 
+     * @param level
+     *            the required load level
+     * @throws ROSRSException
+     *             could not download the manifest, a resource map or an annotation body
+     * @throws ROException
+     *             the manifest is incorrect
+     */
+    public synchronized void load(LoadLevel level)
+            throws ROSRSException, ROException {
+        if (loadLevel.includes(level)) {
+            return;
+        }
+        LoadTrace trace = new LoadTrace(uri, "load(" + level + ")");
+        boolean successful = false;
+        try {
+            if (level == LoadLevel.FULL && loadLevel == LoadLevel.NONE) {
+                loadDataset(trace);
+            } else {
+                if (!loadLevel.includes(LoadLevel.SUMMARY)) {
+                    loadManifest(trace);
+                }
+                if (level.includes(LoadLevel.STRUCTURE) && !loadLevel.includes(LoadLevel.STRUCTURE)) {
+                    loadFolderTree(ROSRService.DEFAULT_BULK_PARALLELISM, trace);
+                }
+                if (level.includes(LoadLevel.FULL)) {
+                    loadAnnotationBodies(ROSRService.DEFAULT_BULK_PARALLELISM, trace);
+                }
+            }
+            successful = true;
+        } finally {
+            finished(trace, successful);
+        }
+    }
+
+
+    /**
+     * Load the bodies of the annotations about the RO, which have not been loaded with the manifest, and finish
+     * loading the RO. The folders must have been loaded.
+     * 
+     * @param parallelism
+     *            the maximum number of annotation bodies downloaded at the same time
+     * @param trace
+     *            where to record the phases
+     * @throws ROSRSException
+     *             could not download an annotation body
+     */
+    private void loadAnnotationBodies(int parallelism, LoadTrace trace)
+            throws ROSRSException {
+        trace.begin("annotations");
+        List<Annotation> annotations = new ArrayList<>(current().getAnnotations(uri));
+        List<Annotation> missing = new ArrayList<>();
+        for (Annotation annotation : annotations) {
+            if (!annotation.isLoaded()) {
+                missing.add(annotation);
+            }
+        }
+        loadBodies(missing, parallelism);
+        trace.count("annotationBodies", missing.size());
+        trace.begin("finish");
+        OntModel allAnnotations = ModelFactory.createOntologyModel(OntModelSpec.OWL_MEM);
+        for (Annotation annotation : annotations) {
+            allAnnotations.add(annotation.getBodyAsModel());
+        }
+        Draft draft = new Draft(current());
+        draft.loaded = true;
+        this.evoType = findEvoType(allAnnotations);
+        this.state = draft.build();
+        reached(LoadLevel.FULL);
+    }
+
+
+    /**
+     * Download the bodies of annotations, a few at a time.
+     * 
+     * @param annotations
+     *            annotations to load
+     * @param parallelism
+     *            the maximum number of annotation bodies downloaded at the same time
+     * @throws ROSRSException
+     *             could not download an annotation body
+     */
+    private static void loadBodies(Collection<Annotation> annotations, int parallelism)
+            throws ROSRSException {
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (final Annotation annotation : annotations) {
+            tasks.add(new Callable<Void>() {
+
+                @Override
+                public Void call()
+                        throws ROSRSException {
+                    annotation.load();
+                    return null;
+                }
+            });
+        }
+        for (Future<Void> future : Utils.invokeAll(tasks, parallelism)) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted when loading annotations", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof ROSRSException) {
+                    throw (ROSRSException) e.getCause();
+                }
+                throw Utils.unchecked(e);
+            }
+        }
+    }
+
+
+    /**
+     * Load and parse the manifest.
+     * 
+     * @throws ROSRSException
+     *             could not download the manifest
+     * @throws ROException
+     *             the manifest is incorrect
+     */
+    public synchronized void loadManifest()
+            throws ROSRSException, ROException {
+        LoadTrace trace = new LoadTrace(uri, "loadManifest");
+        boolean successful = false;
+        try {
+            loadManifest(trace);
+            successful = true;
+        } finally {
+            finished(trace, successful);
+        }
+    }
+
+
     /**
      * Load and parse the manifest.
      * 
+     * @param trace
+     *            where to record the phases
      * @throws ROSRSException
      *             could not download the manifest
      * @throws ROException
      *             the manifest is incorrect
      */
-    public void loadManifest()
+    private void loadManifest(LoadTrace trace)
             throws ROSRSException, ROException {
+        OntModel model = fetchManifest(trace);
+        trace.begin("extract");
+        this.creator = Person.create(model.getIndividual(uri.toString()).getPropertyValue(DCTerms.creator));
+        this.created = extractCreated(model);
+        this.aggregatingRO = extractIsAggregated(model);
+        Draft draft = new Draft(current());
+        addAll(draft, model, trace);
+        trace.begin("finish");
+        this.evoType = findEvoType(model);
+        ResearchObjectSnapshot next = draft.build();
+        reindex(next);
+        this.state = next;
+        this.manifestLoaded = true;
+        reached(LoadLevel.SUMMARY);
+    }
+
+
+    /**
+     * Download the manifest.
+     * 
+     * @param trace
+     *            where to record the download and parse phases
+     * @return the manifest model
+     * @throws ROSRSException
+     *             could not download the manifest
+     */
+    private OntModel fetchManifest(LoadTrace trace)
+            throws ROSRSException {
         OntModel model = ModelFactory.createOntologyModel(OntModelSpec.OWL_MEM);
-        ClientResponse response = rosrs.getResource(uri, "application/rdf+xml");
+        trace.begin("download");
+        ClientResponse response = rosrs.getResource(uri, "application/rdf+xml", "manifest");
+        trace.begin("parse");
         try {
             //HACK there's no way to get the URI after redirection, so we're using a fixed one which may change for different ROSR services
             model.read(response.getEntityInputStream(), uri.resolve(".ro/manifest.rdf").toString());
@@ -197,28 +530,8 @@ public class ResearchObject extends Thing implements Annotable {
                 LOG.warn("Failed to close the manifest input stream", e);
             }
         }
-        this.creator = Person.create(model.getIndividual(uri.toString()).getPropertyValue(DCTerms.creator));
-        this.created = extractCreated(model);
-        this.aggregatingRO = extractIsAggregated(model);
-        for (Resource resource : extractResources(model)) {
-            if (!this.resources.containsKey(resource.getUri())) {
-                this.resources.put(resource.getUri(), resource);
-            }
-        }
-        for (Folder folder : extractFolders(model)) {
-            if (!this.folders.containsKey(folder.getUri())) {
-                this.folders.put(folder.getUri(), folder);
-            }
-        }
-        for (Annotation annotation : extractAnnotations(model)) {
-            if (!this.annotations.containsValue(annotation)) {
-                for (URI target : annotation.getTargets()) {
-                    this.annotations.put(target, annotation);
-                }
-            }
-        }
-        this.evoType = findEvoType(model);
-        this.manifestLoaded = true;
+        trace.count("triples", model.size());
+        return model;
     }
 
 
@@ -230,11 +543,35 @@ public class ResearchObject extends Thing implements Annotable {
      * @throws ROException
      *             the manifest is incorrect
      */
+    public synchronized void load()
+            throws ROSRSException, ROException {
+        LoadTrace trace = new LoadTrace(uri, "load");
+        boolean successful = false;
+        try {
+            loadDataset(trace);
+            successful = true;
+        } finally {
+            finished(trace, successful);
+        }
+    }
+
+
+    /**
+     * Load the RO from the TriG dataset with the manifest, the annotation bodies and the resource maps.
+     * 
+     * @param trace
+     *            where to record the phases
+     * @throws ROSRSException
+     *             could not download the manifest
+     * @throws ROException
+     *             the manifest is incorrect
+     */
     @SuppressWarnings("deprecation")
-    public void load()
+    private void loadDataset(LoadTrace trace)
             throws ROSRSException, ROException {
         Dataset dataset = DatasetFactory.createMem();
-        ClientResponse response = rosrs.getResource(uri, RDFFormat.TRIG.getDefaultMIMEType());
+        trace.begin("download");
+        ClientResponse response = rosrs.getResource(uri, RDFFormat.TRIG.getDefaultMIMEType(), "dataset");
         MediaType mediaType = response.getType();
         Lang lang = null;
         if (mediaType != null) {
@@ -261,6 +598,7 @@ public class ResearchObject extends Thing implements Annotable {
         if (response.getClientResponseStatus().getFamily() != Family.SUCCESSFUL) {
             throw new ROException("Can't retrieve manifest, status " + response.getClientResponseStatus(), uri);
         }
+        trace.begin("parse");
         try {
             RDFDataMgr.read(dataset, response.getEntityInputStream(), base.toString(), lang);
         } finally {
@@ -270,6 +608,15 @@ public class ResearchObject extends Thing implements Annotable {
                 LOG.warn("Failed to close the manifest input stream", e);
             }
         }
+        long triples = dataset.getDefaultModel().size();
+        long graphs = 0;
+        for (Iterator<String> names = dataset.listNames(); names.hasNext();) {
+            triples += dataset.getNamedModel(names.next()).size();
+            graphs++;
+        }
+        trace.count("triples", triples);
+        trace.count("graphs", graphs);
+        trace.begin("copy");
         OntModel model = ModelFactory.createOntologyModel(OntModelSpec.OWL_MEM);
         model.add(dataset.getDefaultModel());
         // HACK: there's no way to get the URI after redirection, so we're using
@@ -279,53 +626,590 @@ public class ResearchObject extends Thing implements Annotable {
         if (namedModel != null) {
             model.add(namedModel);
         }
+        trace.count("manifestTriples", model.size());
 
         OntModel allAnnotations = ModelFactory.createOntologyModel(OntModelSpec.OWL_MEM);
 
-        this.creator = Person.create(model.getIndividual(uri.toString()).getPropertyValue(DCTerms.creator));
-        this.created = extractCreated(model);
-        this.aggregatingRO = extractIsAggregated(model);
-        for (Resource resource : extractResources(model)) {
-            if (!this.resources.containsKey(resource.getUri())) {
-                this.resources.put(resource.getUri(), resource);
+        trace.begin("extract");
+        Person newCreator = Person.create(model.getIndividual(uri.toString()).getPropertyValue(DCTerms.creator));
+        DateTime newCreated = extractCreated(model);
+        URI newAggregatingRO = extractIsAggregated(model);
+        Draft draft = new Draft(current());
+        addAll(draft, model, trace);
+        draft.loaded = true;
+        // folders are loaded using the new state, which is published only when all of them are ready
+        building = draft.build();
+        try {
+            //load all annotation bodies from the dataset
+            trace.begin("annotations");
+            for (Annotation annotation : building.getAnnotations(uri)) {
+                annotation.load(dataset.getNamedModel(annotation.getBody().toString()));
+                allAnnotations.add(dataset.getNamedModel(annotation.getBody().toString()));
+                trace.count("annotationBodies", 1);
             }
+            //load all folders from the dataset
+            trace.begin("folders");
+            List<Folder> missing = new ArrayList<>();
+            for (Folder folder : draft.folders.values()) {
+                if (!folder.isLoaded()) {
+                    if (dataset.containsNamedModel(folder.getResourceMap().toString())) {
+                        Model resourceMapModel = dataset.getNamedModel(folder.getResourceMap().toString());
+                        folder.load(resourceMapModel);
+                        trace.count("resourceMaps", 1);
+                    } else {
+                        LOG.warn("Trig dataset does not contain the folder resource map: "
+                                + folder.getResourceMap().toString());
+                        missing.add(folder);
+                    }
+                }
+            }
+            loadFolders(missing, ROSRService.DEFAULT_BULK_PARALLELISM);
+            trace.count("resourceMaps", missing.size());
+            trace.count("downloaded", missing.size());
+            trace.begin("roots");
+            draft.rootFolders = extractRootFolders(draft.folders.values());
+            draft.rootResources = extractRootResources(draft.folders.values(), draft.resources.values());
+            draft.allFolders = new ArrayList<>(draft.folders.values());
+            Collections.sort(draft.allFolders, new ResourceByPathComparator());
+        } finally {
+            building = null;
         }
+        trace.begin("finish");
+        this.creator = newCreator;
+        this.created = newCreated;
+        this.aggregatingRO = newAggregatingRO;
+        this.evoType = findEvoType(allAnnotations);
+        ResearchObjectSnapshot next = draft.build();
+        reindex(next);
+        this.state = next;
+        reached(LoadLevel.FULL);
+    }
+
+
+    /**
+     * Pick up the changes made in ROSRS since the RO was loaded. Only the manifest is downloaded, together with the
+     * resource maps of new or changed folders and the bodies of new or changed annotations that would be loaded by
+     * {@link #load()} or had been loaded before. If the RO hasn't been loaded, it is loaded entirely.
+     * 
+     * The resource maps of the other loaded folders and the other loaded annotation bodies are revalidated, because
+     * they can change without any change in the manifest. Those downloaded with an ETag are requested conditionally,
+     * so nothing is downloaded if they haven't changed.
+     * 
+     * @return the differences between the previous and the current snapshot
+     * @throws ROSRSException
+     *             could not download the manifest, a resource map or an annotation body
+     * @throws ROException
+     *             the manifest is incorrect
+     */
+    public synchronized ResearchObjectDiff refresh()
+            throws ROSRSException, ROException {
+        ResearchObjectSnapshot before = current();
+        if (!before.isLoaded()) {
+            load();
+            return new ResearchObjectDiff(before, state);
+        }
+        LoadTrace trace = new LoadTrace(uri, "refresh");
+        boolean successful = false;
+        try {
+            ResearchObjectDiff diff = refresh(before, trace);
+            successful = true;
+            return diff;
+        } finally {
+            finished(trace, successful);
+        }
+    }
+
+
+    /**
+     * Compare a loaded RO with the current manifest and load what has changed.
+     * 
+     * @param before
+     *            the current state
+     * @param trace
+     *            where to record the phases
+     * @return the differences between the previous and the current snapshot
+     * @throws ROSRSException
+     *             could not download the manifest, a resource map or an annotation body
+     * @throws ROException
+     *             the manifest is incorrect
+     */
+    private ResearchObjectDiff refresh(ResearchObjectSnapshot before, LoadTrace trace)
+            throws ROSRSException, ROException {
+        OntModel model = fetchManifest(trace);
+        trace.begin("extract");
+        Person newCreator = Person.create(model.getIndividual(uri.toString()).getPropertyValue(DCTerms.creator));
+        DateTime newCreated = extractCreated(model);
+        URI newAggregatingRO = extractIsAggregated(model);
+        Draft draft = new Draft(before);
+        draft.resources.clear();
+        for (Resource resource : extractResources(model)) {
+            draft.resources.put(resource.getUri(), unchanged(before.getResource(resource.getUri()), resource));
+        }
+        draft.folders.clear();
         for (Folder folder : extractFolders(model)) {
-            if (!this.folders.containsKey(folder.getUri())) {
-                this.folders.put(folder.getUri(), folder);
-            }
+            draft.folders.put(folder.getUri(), unchanged(before.getFolder(folder.getUri()), folder));
         }
+        Map<URI, Annotation> oldAnnotations = ResearchObjectDiff.byUri(before.getAllAnnotations().values());
+        draft.annotations.clear();
         for (Annotation annotation : extractAnnotations(model)) {
-            if (!this.annotations.containsValue(annotation)) {
-                for (URI target : annotation.getTargets()) {
-                    this.annotations.put(target, annotation);
+            Annotation kept = unchanged(oldAnnotations.get(annotation.getUri()), annotation);
+            for (URI target : kept.getTargets()) {
+                draft.annotations.put(target, kept);
+            }
+        }
+        trace.count("resources", draft.resources.size());
+        trace.count("folders", draft.folders.size());
+        trace.count("annotations", new HashSet<>(draft.annotations.values()).size());
+        building = draft.build();
+        try {
+            trace.begin("changes");
+            ResearchObjectDiff diff = new ResearchObjectDiff(before, building);
+            boolean roAnnotationsChanged = false;
+            for (Annotation annotation : Iterables.concat(diff.getAddedAnnotations(), diff.getChangedAnnotations(),
+                diff.getRemovedAnnotations())) {
+                roAnnotationsChanged = roAnnotationsChanged || annotation.getTargets().contains(uri);
+            }
+            List<Annotation> loadedAnnotations = new ArrayList<>();
+            for (Annotation annotation : new HashSet<>(draft.annotations.values())) {
+                if (annotation.isLoaded()) {
+                    loadedAnnotations.add(annotation);
+                }
+            }
+            List<Folder> loadedFolders = new ArrayList<>();
+            for (Folder folder : draft.folders.values()) {
+                if (folder.isLoaded()) {
+                    loadedFolders.add(folder);
                 }
             }
+            List<Annotation> newBodies = new ArrayList<>();
+            for (Annotation annotation : Iterables.concat(diff.getAddedAnnotations(), diff.getChangedAnnotations())) {
+                Annotation old = oldAnnotations.get(annotation.getUri());
+                if (annotation.getTargets().contains(uri) || old != null && old.isLoaded()) {
+                    newBodies.add(annotation);
+                }
+            }
+            loadBodies(newBodies, ROSRService.DEFAULT_BULK_PARALLELISM);
+            trace.count("annotationBodies", newBodies.size());
+            List<Folder> newFolders = new ArrayList<>();
+            Iterables.addAll(newFolders, Iterables.concat(diff.getAddedFolders(), diff.getChangedFolders()));
+            loadFolders(newFolders, ROSRService.DEFAULT_BULK_PARALLELISM);
+            trace.count("resourceMaps", newFolders.size());
+            trace.begin("revalidate");
+            Set<Annotation> changedBodies = reloadChangedAnnotations(loadedAnnotations,
+                ROSRService.DEFAULT_BULK_PARALLELISM);
+            Set<Folder> changedContents = reloadChangedFolders(loadedFolders, ROSRService.DEFAULT_BULK_PARALLELISM);
+            trace.count("revalidated", loadedAnnotations.size() + loadedFolders.size());
+            for (Annotation annotation : changedBodies) {
+                roAnnotationsChanged = roAnnotationsChanged || annotation.getTargets().contains(uri);
+            }
+            if (!diff.getAddedResources().isEmpty() || !diff.getRemovedResources().isEmpty()
+                    || !diff.getChangedResources().isEmpty() || !diff.getAddedFolders().isEmpty()
+                    || !diff.getRemovedFolders().isEmpty() || !diff.getChangedFolders().isEmpty()) {
+                for (Folder folder : draft.folders.values()) {
+                    if (folder.isLoaded() && !diff.getAddedFolders().contains(folder)
+                            && !diff.getChangedFolders().contains(folder)) {
+                        folder.resolveEntries();
+                    }
+                }
+            }
+            trace.begin("roots");
+            draft.rootFolders = extractRootFolders(draft.folders.values());
+            draft.rootResources = extractRootResources(draft.folders.values(), draft.resources.values());
+            draft.allFolders = new ArrayList<>(draft.folders.values());
+            Collections.sort(draft.allFolders, new ResourceByPathComparator());
+            trace.begin("finish");
+            if (roAnnotationsChanged) {
+                OntModel allAnnotations = ModelFactory.createOntologyModel(OntModelSpec.OWL_MEM);
+                for (Annotation annotation : draft.annotations.get(uri)) {
+                    if (annotation.isLoaded()) {
+                        allAnnotations.add(annotation.getBodyAsModel());
+                    }
+                }
+                this.evoType = findEvoType(allAnnotations);
+            }
+            this.creator = newCreator;
+            this.created = newCreated;
+            this.aggregatingRO = newAggregatingRO;
+            ResearchObjectSnapshot next = draft.build();
+            reindex(next);
+            this.state = next;
+            return new ResearchObjectDiff(before, state, changedContents, changedBodies);
+        } finally {
+            building = null;
         }
-        this.loaded = true;
-        //load all annotation bodies from the dataset
-        for (Annotation annotation : this.getAnnotations()) {
-            annotation.load(dataset.getNamedModel(annotation.getBody().toString()));
-            allAnnotations.add(dataset.getNamedModel(annotation.getBody().toString()));
+    }
+
+
+    /**
+     * Download again the annotation bodies that have changed, at the same time.
+     * 
+     * @param annotations
+     *            annotations with loaded bodies
+     * @param parallelism
+     *            the maximum number of annotation bodies downloaded at the same time
+     * @return the annotations whose bodies have changed
+     * @throws ROSRSException
+     *             could not download an annotation body
+     */
+    private static Set<Annotation> reloadChangedAnnotations(List<Annotation> annotations, int parallelism)
+            throws ROSRSException {
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (final Annotation annotation : annotations) {
+            tasks.add(new Callable<Boolean>() {
+
+                @Override
+                public Boolean call()
+                        throws ROSRSException {
+                    return annotation.reloadIfModified();
+                }
+            });
         }
-        this.evoType = findEvoType(allAnnotations);
-        //load all folders from the dataset
-        for (Folder folder : folders.values()) {
-            if (!folder.isLoaded()) {
-                if (dataset.containsNamedModel(folder.getResourceMap().toString())) {
-                    Model resourceMapModel = dataset.getNamedModel(folder.getResourceMap().toString());
-                    folder.load(resourceMapModel);
+        List<Future<Boolean>> results = Utils.invokeAll(tasks, parallelism);
+        Set<Annotation> changed = new HashSet<>();
+        for (int i = 0; i < annotations.size(); i++) {
+            if (result(results.get(i), "annotations")) {
+                changed.add(annotations.get(i));
+            }
+        }
+        return changed;
+    }
+
+
+    /**
+     * Download again the resource maps of folders that have changed, at the same time, and load the folders in this
+     * thread, so that they see the state of the RO that is being built.
+     * 
+     * @param folders
+     *            loaded folders
+     * @param parallelism
+     *            the maximum number of resource maps downloaded at the same time
+     * @return the folders whose entries have changed
+     * @throws ROSRSException
+     *             could not download a resource map
+     */
+    private static Set<Folder> reloadChangedFolders(List<Folder> folders, int parallelism)
+            throws ROSRSException {
+        List<Callable<Folder.ResourceMap>> tasks = new ArrayList<>();
+        for (final Folder folder : folders) {
+            tasks.add(new Callable<Folder.ResourceMap>() {
+
+                @Override
+                public Folder.ResourceMap call()
+                        throws ROSRSException {
+                    return folder.fetchResourceMap(folder.getResourceMapEtag());
+                }
+            });
+        }
+        List<Future<Folder.ResourceMap>> models = Utils.invokeAll(tasks, parallelism);
+        Set<Folder> changed = new HashSet<>();
+        for (int i = 0; i < folders.size(); i++) {
+            Folder.ResourceMap map = result(models.get(i), "folders");
+            if (map != null) {
+                Folder folder = folders.get(i);
+                Map<URI, FolderEntry> old = folder.getFolderEntries();
+                folder.load(map);
+                if (!old.equals(folder.getFolderEntries())) {
+                    changed.add(folder);
+                }
+            }
+        }
+        return changed;
+    }
+
+
+    /**
+     * Wait for a download to finish.
+     * 
+     * @param future
+     *            the download
+     * @param what
+     *            what is being downloaded, for the error message
+     * @param <T>
+     *            the result type
+     * @return the result
+     * @throws ROSRSException
+     *             the download failed
+     */
+    private static <T> T result(Future<T> future, String what)
+            throws ROSRSException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted when loading " + what, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ROSRSException) {
+                throw (ROSRSException) e.getCause();
+            }
+            throw Utils.unchecked(e);
+        }
+    }
+
+
+    /**
+     * Send HEAD requests to all aggregated resources (excluding folders) at the same time, to find out which of them
+     * are available and what their sizes, content types and ETags are. Resources that have no size in the manifest
+     * take it from the Content-Length headers, and keep it when a refresh finds them described in the same way.
+     * 
+     * @param parallelism
+     *            the maximum number of requests sent at the same time
+     * @return probe results by resource URI
+     */
+    public Map<URI, ResourceProbe> probeResources(int parallelism) {
+        Map<URI, Resource> resources = getResources();
+        Map<URI, ResourceProbe> probes = rosrs.probeResources(resources.keySet(), parallelism);
+        for (ResourceProbe probe : probes.values()) {
+            Resource resource = resources.get(probe.getUri());
+            if (resource.getManifestSize() < 0 && probe.isAvailable() && probe.getSize() >= 0) {
+                resource.setProbedSize(probe.getSize());
+            }
+        }
+        return probes;
+    }
+
+
+    /**
+     * Load the complete folder hierarchy. The resource maps are downloaded breadth-first, starting from the root
+     * folders, with all folders of one level downloaded at the same time. Folders that aren't reachable from the root
+     * folders are loaded as well. Folders that have already been loaded are not downloaded again, and no folder is
+     * visited twice, so the crawl finishes even if the hierarchy has cycles.
+     * 
+     * @param parallelism
+     *            the maximum number of resource maps downloaded at the same time
+     * @return the folders that are their own (direct or indirect) subfolders, empty if there are no cycles
+     * @throws ROSRSException
+     *             could not download the manifest or a resource map
+     * @throws ROException
+     *             the manifest is incorrect
+     */
+    public synchronized Set<Folder> loadFolderTree(int parallelism)
+            throws ROSRSException, ROException {
+        LoadTrace trace = new LoadTrace(uri, "loadFolderTree");
+        boolean successful = false;
+        try {
+            Set<Folder> cycles = loadFolderTree(parallelism, trace);
+            successful = true;
+            return cycles;
+        } finally {
+            finished(trace, successful);
+        }
+    }
+
+
+    /**
+     * Load the folder hierarchy level by level.
+     * 
+     * @param parallelism
+     *            the maximum number of resource maps downloaded at the same time
+     * @param trace
+     *            where to record the phases
+     * @return the folders that are their own (direct or indirect) subfolders, empty if there are no cycles
+     * @throws ROSRSException
+     *             could not download the manifest or a resource map
+     * @throws ROException
+     *             the manifest is incorrect
+     */
+    private Set<Folder> loadFolderTree(int parallelism, LoadTrace trace)
+            throws ROSRSException, ROException {
+        if (!isLoaded() && !manifestLoaded) {
+            loadManifest(trace);
+        }
+        trace.begin("folders");
+        Map<URI, Folder> all = getFolders();
+        Set<URI> visited = new HashSet<>();
+        List<Folder> level = new ArrayList<>();
+        for (Folder folder : all.values()) {
+            if (folder.isRootFolder() && visited.add(folder.getUri())) {
+                level.add(folder);
+            }
+        }
+        while (!level.isEmpty() || visited.size() < all.size()) {
+            if (level.isEmpty()) {
+                for (Folder folder : all.values()) {
+                    if (visited.add(folder.getUri())) {
+                        level.add(folder);
+                    }
+                }
+            }
+            List<Folder> notLoaded = new ArrayList<>();
+            for (Folder folder : level) {
+                if (!folder.isLoaded()) {
+                    notLoaded.add(folder);
+                }
+            }
+            loadFolders(notLoaded, parallelism);
+            trace.count("levels", 1);
+            trace.count("resourceMaps", notLoaded.size());
+            List<Folder> next = new ArrayList<>();
+            for (Folder folder : level) {
+                for (Folder subfolder : folder.getSubfolders()) {
+                    if (visited.add(subfolder.getUri())) {
+                        next.add(subfolder);
+                    }
+                }
+            }
+            level = next;
+        }
+        trace.begin("roots");
+        Draft draft = new Draft(current());
+        draft.rootFolders = extractRootFolders(draft.folders.values());
+        draft.rootResources = extractRootResources(draft.folders.values(), draft.resources.values());
+        draft.allFolders = new ArrayList<>(draft.folders.values());
+        Collections.sort(draft.allFolders, new ResourceByPathComparator());
+        trace.begin("finish");
+        ResearchObjectSnapshot next = draft.build();
+        reindex(next);
+        this.state = next;
+        reached(LoadLevel.STRUCTURE);
+        Set<Folder> cycles = findFolderCycles(all.values());
+        if (!cycles.isEmpty()) {
+            LOG.warn("Folders that are their own subfolders: " + cycles);
+        }
+        return cycles;
+    }
+
+
+    /**
+     * Download the resource maps of folders at the same time and load the folders in this thread, so that they see
+     * the state of the RO that is being built.
+     * 
+     * @param folders
+     *            folders to load
+     * @param parallelism
+     *            the maximum number of resource maps downloaded at the same time
+     * @throws ROSRSException
+     *             could not download a resource map
+     */
+    private void loadFolders(List<Folder> folders, int parallelism)
+            throws ROSRSException {
+        List<Callable<Folder.ResourceMap>> tasks = new ArrayList<>();
+        for (final Folder folder : folders) {
+            tasks.add(new Callable<Folder.ResourceMap>() {
+
+                @Override
+                public Folder.ResourceMap call()
+                        throws ROSRSException {
+                    return folder.fetchResourceMap(null);
+                }
+            });
+        }
+        List<Future<Folder.ResourceMap>> models = Utils.invokeAll(tasks, parallelism);
+        for (int i = 0; i < folders.size(); i++) {
+            try {
+                folders.get(i).load(models.get(i).get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted when loading folders", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof ROSRSException) {
+                    throw (ROSRSException) e.getCause();
+                }
+                throw Utils.unchecked(e);
+            }
+        }
+    }
+
+
+    /**
+     * Find the folders that are reachable from their own subfolders.
+     * 
+     * @param folders
+     *            loaded folders
+     * @return folders that are in a cycle in the folder hierarchy
+     */
+    private static Set<Folder> findFolderCycles(Collection<Folder> folders) {
+        Set<Folder> cycles = new HashSet<>();
+        Set<URI> done = new HashSet<>();
+        Set<URI> onPath = new HashSet<>();
+        for (Folder start : folders) {
+            if (done.contains(start.getUri())) {
+                continue;
+            }
+            Deque<Folder> path = new ArrayDeque<>();
+            Deque<Iterator<Folder>> children = new ArrayDeque<>();
+            path.push(start);
+            children.push(start.getSubfolders().iterator());
+            onPath.add(start.getUri());
+            while (!path.isEmpty()) {
+                if (children.peek().hasNext()) {
+                    Folder child = children.peek().next();
+                    if (onPath.contains(child.getUri())) {
+                        // all folders on the path from the child down to here are in the cycle
+                        for (Folder folder : path) {
+                            cycles.add(folder);
+                            if (folder.getUri().equals(child.getUri())) {
+                                break;
+                            }
+                        }
+                    } else if (!done.contains(child.getUri()) && child.isLoaded()) {
+                        path.push(child);
+                        children.push(child.getSubfolders().iterator());
+                        onPath.add(child.getUri());
+                    }
                 } else {
-                    LOG.warn("Trig dataset does not contain the folder resource map: "
-                            + folder.getResourceMap().toString());
-                    folder.load();
+                    Folder finished = path.pop();
+                    children.pop();
+                    onPath.remove(finished.getUri());
+                    done.add(finished.getUri());
+                }
+            }
+        }
+        return cycles;
+    }
+
+
+    /**
+     * Keep the loaded version of a resource, folder or annotation if the manifest describes it in the same way.
+     * 
+     * @param old
+     *            the version in memory, may be null
+     * @param current
+     *            the version found in the manifest
+     * @param <T>
+     *            resource, folder or annotation
+     * @return the version to keep
+     */
+    private static <T extends Thing> T unchanged(T old, T current) {
+        return old != null && ResearchObjectDiff.same(old, current) ? old : current;
+    }
+
+
+    /**
+     * Add the resources, folders and annotations found in the manifest, unless they are already there.
+     * 
+     * @param draft
+     *            the state being built
+     * @param model
+     *            manifest model
+     * @param trace
+     *            where to count what has been found
+     */
+    private void addAll(Draft draft, OntModel model, LoadTrace trace) {
+        Set<Resource> resources = extractResources(model);
+        for (Resource resource : resources) {
+            if (!draft.resources.containsKey(resource.getUri())) {
+                draft.resources.put(resource.getUri(), resource);
+            }
+        }
+        Set<Folder> folders = extractFolders(model);
+        for (Folder folder : folders) {
+            if (!draft.folders.containsKey(folder.getUri())) {
+                draft.folders.put(folder.getUri(), folder);
+            }
+        }
+        Set<Annotation> annotations = extractAnnotations(model);
+        // one query for each kind and one for each resource and folder
+        trace.count("queries", 3 + resources.size() + folders.size());
+        trace.count("resources", resources.size());
+        trace.count("folders", folders.size());
+        trace.count("annotations", annotations.size());
+        for (Annotation annotation : annotations) {
+            if (!draft.annotations.containsValue(annotation)) {
+                for (URI target : annotation.getTargets()) {
+                    draft.annotations.put(target, annotation);
                 }
             }
         }
-        this.rootFolders = extractRootFolders(folders.values());
-        this.rootResources = extractRootResources(folders.values(), resources.values());
-        this.allFolders = new ArrayList<>(folders.values());
-        Collections.sort(allFolders, new ResourceByPathComparator());
     }
 
 
@@ -409,20 +1293,24 @@ public class ResearchObject extends Thing implements Annotable {
      * @throws ROSRSException
      *             unexpected server response
      */
-    public void delete()
+    public synchronized void delete()
             throws ROSRSException {
         this.rosrs.deleteResearchObject(uri);
-        this.loaded = false;
-        this.resources.clear();
-        this.folders.clear();
-        this.annotations.clear();
+        this.pathIndex.replace(Collections.<String, Resource> emptyMap());
+        this.state = ResearchObjectSnapshot.empty(uri);
         this.created = null;
         this.creator = null;
+        this.loadLevel = LoadLevel.NONE;
     }
 
 
+    /**
+     * Return the aggregated resources, excluding folders. The map is an unmodifiable point-in-time view.
+     * 
+     * @return resources by URI
+     */
     public Map<URI, Resource> getResources() {
-        return resources;
+        return current().getResources();
     }
 
 
@@ -438,8 +1326,13 @@ public class ResearchObject extends Thing implements Annotable {
     }
 
 
+    /**
+     * Return the aggregated folders. The map is an unmodifiable point-in-time view.
+     * 
+     * @return folders by URI
+     */
     public Map<URI, Folder> getFolders() {
-        return folders;
+        return current().getFolders();
     }
 
 
@@ -449,10 +1342,7 @@ public class ResearchObject extends Thing implements Annotable {
      * @return a list of resources sorted by name
      */
     public List<Resource> getResourcesWithoutFolders() {
-        if (!isLoaded()) {
-            return Collections.emptyList();
-        }
-        return rootResources;
+        return current().getResourcesWithoutFolders();
     }
 
 
@@ -462,10 +1352,7 @@ public class ResearchObject extends Thing implements Annotable {
      * @return a list of folders sorted by name
      */
     public List<Folder> getAllFolders() {
-        if (!isLoaded()) {
-            return Collections.emptyList();
-        }
-        return allFolders;
+        return current().getAllFolders();
     }
 
 
@@ -475,10 +1362,7 @@ public class ResearchObject extends Thing implements Annotable {
      * @return a list of folders sorted by name
      */
     public List<Folder> getRootFolders() {
-        if (!isLoaded()) {
-            return Collections.emptyList();
-        }
-        return rootFolders;
+        return current().getRootFolders();
     }
 
 
@@ -490,12 +1374,18 @@ public class ResearchObject extends Thing implements Annotable {
      * @return folder instance or null
      */
     public Folder getFolder(URI folderURI) {
-        return folders.get(folderURI);
+        return getFolders().get(folderURI);
     }
 
 
+    /**
+     * Return the aggregated annotations, grouped by the annotated resources. The multimap is an unmodifiable
+     * point-in-time view.
+     * 
+     * @return annotations by target URI
+     */
     public Multimap<URI, Annotation> getAllAnnotations() {
-        return annotations;
+        return current().getAllAnnotations();
     }
 
 
@@ -675,8 +1565,8 @@ public class ResearchObject extends Thing implements Annotable {
      * @return a multivalued map of annotations, with bodies not loaded
      */
     private Set<Annotation> extractAnnotations(OntModel model) {
-        Set<Annotation> annotations2 = new HashSet<>();
-        Map<URI, Annotation> annotationsByUri = new HashMap<>();
+        Map<URI, QuerySolution> firstSolutions = new HashMap<>();
+        Map<URI, Set<URI>> targetsByUri = new HashMap<>();
         String queryString = String
                 .format(
                     "PREFIX ore: <%s> PREFIX dcterms: <%s> PREFIX ao: <%s> PREFIX ro: <%s> PREFIX foaf: <%s> SELECT ?annotation ?body ?target ?created ?creator ?creatorName WHERE { <%s> ore:aggregates ?annotation . ?annotation a ro:AggregatedAnnotation ; ao:body ?body ; ro:annotatesAggregatedResource ?target . OPTIONAL { ?annotation dcterms:creator ?creator . OPTIONAL { ?creator foaf:name ?creatorName . } } OPTIONAL { ?annotation dcterms:created ?created . } }",
@@ -692,28 +1582,30 @@ public class ResearchObject extends Thing implements Annotable {
                 URI aURI = URI.create(a.asResource().getURI());
                 RDFNode t = solution.get("target");
                 URI tURI = URI.create(t.asResource().getURI());
-                Annotation annotation;
-                if (annotationsByUri.containsKey(aURI)) {
-                    annotation = annotationsByUri.get(aURI);
-                    annotation.getTargets().add(tURI);
-                } else {
-                    RDFNode b = solution.get("body");
-                    RDFNode creatorNode = solution.get("creator");
-                    RDFNode creatorNameNode = solution.get("creatorName");
-                    Person resCreator = Person.create(creatorNode, creatorNameNode);
-                    RDFNode createdNode = solution.get("created");
-                    DateTime resCreated = createdNode != null && createdNode.isLiteral() ? DateTime.parse(createdNode
-                            .asLiteral().getString()) : null;
-                    annotation = new Annotation(this, aURI, URI.create(b.asResource().getURI()),
-                            Collections.singleton(tURI), resCreator, resCreated);
-                    annotationsByUri.put(annotation.getUri(), annotation);
+                // all targets are collected first, annotations are never changed once created
+                if (!targetsByUri.containsKey(aURI)) {
+                    firstSolutions.put(aURI, solution);
+                    targetsByUri.put(aURI, new HashSet<URI>());
                 }
-                annotations2.add(annotation);
+                targetsByUri.get(aURI).add(tURI);
             }
         } finally {
             qe.close();
         }
 
+        Set<Annotation> annotations2 = new HashSet<>();
+        for (Map.Entry<URI, QuerySolution> entry : firstSolutions.entrySet()) {
+            QuerySolution solution = entry.getValue();
+            RDFNode b = solution.get("body");
+            RDFNode creatorNode = solution.get("creator");
+            RDFNode creatorNameNode = solution.get("creatorName");
+            Person resCreator = Person.create(creatorNode, creatorNameNode);
+            RDFNode createdNode = solution.get("created");
+            DateTime resCreated = createdNode != null && createdNode.isLiteral() ? DateTime.parse(createdNode
+                    .asLiteral().getString()) : null;
+            annotations2.add(new Annotation(this, entry.getKey(), URI.create(b.asResource().getURI()), targetsByUri
+                    .get(entry.getKey()), resCreator, resCreated));
+        }
         return annotations2;
     }
 
@@ -733,26 +1625,32 @@ public class ResearchObject extends Thing implements Annotable {
      * @throws ROException
      *             the manifest is incorrect
      */
-    public Resource aggregate(String path, InputStream content, String contentType)
+    public synchronized Resource aggregate(String path, InputStream content, String contentType)
             throws ROSRSException, ROException {
         Resource resource = Resource.create(this, path, content, contentType);
-        if (!loaded) {
+        if (!isLoaded()) {
             load();
         }
-        this.resources.put(resource.getUri(), resource);
-        this.rootResources.add(resource);
-        Collections.sort(rootResources, new ResourceByNameComparator());
+        Draft draft = new Draft(current());
+        draft.resources.put(resource.getUri(), resource);
+        draft.rootResources.add(resource);
+        Collections.sort(draft.rootResources, new ResourceByNameComparator());
+        pathIndex.put(resource.getPath(), resource);
+        this.state = draft.build();
         return resource;
     }
-    public Resource aggregate(String path, InputStream content, String contentType, long sizeRes)
+    public synchronized Resource aggregate(String path, InputStream content, String contentType, long sizeRes)
             throws ROSRSException, ROException {
         Resource resource = Resource.create(this, path, content, contentType,sizeRes);
-        if (!loaded) {
+        if (!isLoaded()) {
             load();
         }
-        this.resources.put(resource.getUri(), resource);
-        this.rootResources.add(resource);
-        Collections.sort(rootResources, new ResourceByNameComparator());
+        Draft draft = new Draft(current());
+        draft.resources.put(resource.getUri(), resource);
+        draft.rootResources.add(resource);
+        Collections.sort(draft.rootResources, new ResourceByNameComparator());
+        pathIndex.put(resource.getPath(), resource);
+        this.state = draft.build();
         return resource;
     }
 
@@ -768,15 +1666,18 @@ public class ResearchObject extends Thing implements Annotable {
      * @throws ROException
      *             the manifest is incorrect
      */
-    public Resource aggregate(URI uri)
+    public synchronized Resource aggregate(URI uri)
             throws ROSRSException, ROException {
         Resource resource = Resource.create(this, uri);
-        if (!loaded) {
+        if (!isLoaded()) {
             load();
         }
-        this.resources.put(resource.getUri(), resource);
-        this.rootResources.add(resource);
-        Collections.sort(rootResources, new ResourceByNameComparator());
+        Draft draft = new Draft(current());
+        draft.resources.put(resource.getUri(), resource);
+        draft.rootResources.add(resource);
+        Collections.sort(draft.rootResources, new ResourceByNameComparator());
+        pathIndex.put(resource.getPath(), resource);
+        this.state = draft.build();
         return resource;
     }
 
@@ -792,17 +1693,20 @@ public class ResearchObject extends Thing implements Annotable {
      * @throws ROException
      *             the manifest is incorrect
      */
-    public Folder createFolder(String path)
+    public synchronized Folder createFolder(String path)
             throws ROSRSException, ROException {
         Folder folder = Folder.create(this, path);
-        if (!loaded) {
+        if (!isLoaded()) {
             load();
         }
-        this.folders.put(folder.getUri(), folder);
-        this.rootFolders.add(folder);
-        Collections.sort(rootFolders, new ResourceByPathComparator());
-        this.allFolders.add(folder);
-        Collections.sort(allFolders, new ResourceByPathComparator());
+        Draft draft = new Draft(current());
+        draft.folders.put(folder.getUri(), folder);
+        draft.rootFolders.add(folder);
+        Collections.sort(draft.rootFolders, new ResourceByPathComparator());
+        draft.allFolders.add(folder);
+        Collections.sort(draft.allFolders, new ResourceByPathComparator());
+        pathIndex.put(folder.getPath(), folder);
+        this.state = draft.build();
         //FIXME seems that the manifest needs to be reloaded to fetch creator/created/rootfolder
         return folder;
     }
@@ -814,9 +1718,35 @@ public class ResearchObject extends Thing implements Annotable {
      * @param entry
      *            the new folder entry
      */
-    public void addFolderEntry(FolderEntry entry) {
-        this.rootResources.remove(entry.getResource());
-        this.rootFolders.remove(entry.getResource());
+    public synchronized void addFolderEntry(FolderEntry entry) {
+        addFolderEntries(Collections.singletonList(entry));
+    }
+
+
+    /**
+     * Update the RO after folder entries have been created, so that their resources are no longer root resources.
+     * 
+     * @param entries
+     *            the new folder entries
+     */
+    public synchronized void addFolderEntries(Collection<FolderEntry> entries) {
+        Set<Resource> inFolders = new HashSet<>();
+        for (FolderEntry entry : entries) {
+            if (entry.getResource() != null) {
+                inFolders.add(entry.getResource());
+            }
+        }
+        Draft draft = new Draft(current());
+        draft.rootResources.removeAll(inFolders);
+        draft.rootFolders.removeAll(inFolders);
+        ResearchObjectSnapshot next = draft.build();
+        for (FolderEntry entry : entries) {
+            String entryPath = getEntryPath(next, entry);
+            if (entryPath != null && entry.getResource() != null) {
+                pathIndex.put(entryPath, entry.getResource());
+            }
+        }
+        this.state = next;
     }
 
 
@@ -837,7 +1767,7 @@ public class ResearchObject extends Thing implements Annotable {
      * @throws ROException
      *             the manifest is incorrect
      */
-    public Annotation annotate(Annotable target, String path, InputStream content, String contentType)
+    public synchronized Annotation annotate(Annotable target, String path, InputStream content, String contentType)
             throws ROSRSException, ROException {
         ClientResponse response = getRosrs().addAnnotation(uri, Collections.singleton(target.getUri()), path, content,
             contentType);
@@ -853,11 +1783,16 @@ public class ResearchObject extends Thing implements Annotable {
         //FIXME because of the RO API 6, the annotation proxy URI is unknown
         Annotation annotation = Annotation.readFromModel(this, resourceUri, targetUri, null, response.getLocation(),
             model);
-        if (!loaded) {
+        if (!isLoaded()) {
             load();
         }
-        this.annotations.put(target.getUri(), annotation);
-        this.resources.remove(body.getUri());
+        Draft draft = new Draft(current());
+        draft.annotations.put(target.getUri(), annotation);
+        Resource removedBody = draft.resources.remove(body.getUri());
+        if (removedBody != null) {
+            pathIndex.removeAll(removedBody);
+        }
+        this.state = draft.build();
         return annotation;
     }
 
@@ -883,20 +1818,51 @@ public class ResearchObject extends Thing implements Annotable {
     }
 
 
+    /**
+     * Delete many annotations and their bodies concurrently, and remove the deleted ones from this research object.
+     * 
+     * @param annotationsToDelete
+     *            annotations to delete
+     * @param parallelism
+     *            the maximum number of concurrent requests
+     * @return the annotations that could not be deleted with the cause, an empty map if all were deleted
+     * @see ROSRService#deleteAnnotationsAndBodies(Collection, int)
+     */
+    public Map<Annotation, ROSRSException> deleteAnnotations(Collection<Annotation> annotationsToDelete,
+            int parallelism) {
+        Map<URI, Annotation> annotationsByUri = new LinkedHashMap<>();
+        for (Annotation annotation : annotationsToDelete) {
+            annotationsByUri.put(annotation.getUri(), annotation);
+        }
+        Map<URI, ROSRSException> failures = rosrs.deleteAnnotationsAndBodies(annotationsByUri.keySet(), parallelism);
+        Map<Annotation, ROSRSException> result = new HashMap<>();
+        List<Annotation> deleted = new ArrayList<>();
+        for (Annotation annotation : annotationsByUri.values()) {
+            if (failures.containsKey(annotation.getUri())) {
+                result.put(annotation, failures.get(annotation.getUri()));
+            } else {
+                deleted.add(annotation);
+            }
+        }
+        removeAnnotations(deleted);
+        return result;
+    }
+
+
     /**
      * Remove references to the resource and the annotations about it.
      * 
      * @param resource
      *            resource to delete
      */
-    void removeResource(Resource resource) {
-        if (loaded) {
-            this.resources.remove(resource.getUri());
-            this.rootResources.remove(resource);
-            for (Annotation annotation : this.annotations.get(resource.getUri())) {
-                annotation.getTargets().remove(resource.getUri());
-            }
-            this.annotations.removeAll(resource.getUri());
+    synchronized void removeResource(Resource resource) {
+        if (isLoaded()) {
+            Draft draft = new Draft(current());
+            draft.resources.remove(resource.getUri());
+            draft.rootResources.remove(resource);
+            draft.removeTarget(resource.getUri());
+            pathIndex.removeAll(resource);
+            this.state = draft.build();
         }
     }
 
@@ -909,18 +1875,25 @@ public class ResearchObject extends Thing implements Annotable {
      * @throws ROSRSException
      *             unexpected response when recalculating the root folders
      */
-    void removeFolder(Folder folder)
+    synchronized void removeFolder(Folder folder)
             throws ROSRSException {
-        if (loaded) {
-            this.folders.remove(folder.getUri());
-            allFolders.remove(folder);
-            rootFolders.remove(folder);
-            this.rootResources = extractRootResources(folders.values(), resources.values());
-            this.rootFolders = extractRootFolders(folders.values());
-            for (Annotation annotation : this.annotations.get(folder.getUri())) {
-                annotation.getTargets().remove(folder.getUri());
+        if (isLoaded()) {
+            Draft draft = new Draft(current());
+            draft.folders.remove(folder.getUri());
+            draft.allFolders.remove(folder);
+            draft.rootFolders.remove(folder);
+            Collection<FolderEntry> entries = folder.isLoaded() ? folder.getFolderEntries().values() : Collections
+                    .<FolderEntry> emptyList();
+            for (FolderEntry entry : entries) {
+                addToRootsIfInNoFolder(draft, entry.getResource());
+            }
+            draft.removeTarget(folder.getUri());
+            ResearchObjectSnapshot next = draft.build();
+            pathIndex.removeAll(folder);
+            for (FolderEntry entry : entries) {
+                unindex(next, entry);
             }
-            this.annotations.removeAll(folder.getUri());
+            this.state = next;
         }
     }
 
@@ -933,10 +1906,66 @@ public class ResearchObject extends Thing implements Annotable {
      * @throws ROSRSException
      *             unexpected response when recalculating the root folders
      */
-    void removeFolderEntry(FolderEntry entry)
+    synchronized void removeFolderEntry(FolderEntry entry)
             throws ROSRSException {
-        this.rootResources = extractRootResources(folders.values(), resources.values());
-        this.rootFolders = extractRootFolders(folders.values());
+        Draft draft = new Draft(current());
+        addToRootsIfInNoFolder(draft, entry.getResource());
+        ResearchObjectSnapshot next = draft.build();
+        unindex(next, entry);
+        this.state = next;
+    }
+
+
+    /**
+     * Make a resource or a folder a root one, after it has been removed from a folder, unless it is still in another
+     * folder.
+     * 
+     * @param draft
+     *            the RO being changed
+     * @param resource
+     *            the resource or folder, or null if it isn't aggregated
+     * @throws ROSRSException
+     *             when a folder can't be loaded
+     */
+    private static void addToRootsIfInNoFolder(Draft draft, Resource resource)
+            throws ROSRSException {
+        if (resource == null) {
+            return;
+        }
+        for (Folder folder : draft.folders.values()) {
+            if (!folder.isLoaded()) {
+                folder.load();
+            }
+            if (folder.getFolderEntryByResource(resource.getUri()) != null) {
+                return;
+            }
+        }
+        if (draft.folders.containsKey(resource.getUri())) {
+            if (!draft.rootFolders.contains(resource)) {
+                draft.rootFolders.add((Folder) resource);
+                Collections.sort(draft.rootFolders, new ResourceByPathComparator());
+            }
+        } else if (draft.resources.containsKey(resource.getUri()) && !draft.rootResources.contains(resource)) {
+            draft.rootResources.add(resource);
+            Collections.sort(draft.rootResources, new ResourceByNameComparator());
+        }
+    }
+
+
+    /**
+     * Remove the path of a folder entry from the path index, unless it is the path of the resource itself.
+     * 
+     * @param current
+     *            the snapshot without the folder entry, about to be published
+     * @param entry
+     *            the removed folder entry
+     */
+    private void unindex(ResearchObjectSnapshot current, FolderEntry entry) {
+        String entryPath = getEntryPath(current, entry);
+        Resource resource = entry.getResource();
+        if (entryPath != null && resource != null && !entryPath.equals(resource.getPath())) {
+            pathIndex.remove(entryPath, resource);
+        }
     }
 
 
@@ -946,17 +1975,31 @@ public class ResearchObject extends Thing implements Annotable {
      * @param annotation
      *            the annotation
      */
-    void removeAnnotation(Annotation annotation) {
-        for (URI target : annotation.getTargets()) {
-            annotations.get(target).remove(annotation);
-        }
+    synchronized void removeAnnotation(Annotation annotation) {
+        removeAnnotations(Collections.singletonList(annotation));
+    }
+
 
+    /**
+     * Remove references to many annotations at once, publishing the change once.
+     * 
+     * @param annotationsToRemove
+     *            the annotations
+     */
+    synchronized void removeAnnotations(Collection<Annotation> annotationsToRemove) {
+        Draft draft = new Draft(current());
+        for (Annotation annotation : annotationsToRemove) {
+            for (URI target : annotation.getTargets()) {
+                draft.annotations.remove(target, annotation);
+            }
+        }
+        this.state = draft.build();
     }
 
 
     @Override
     public Collection<Annotation> getAnnotations() {
-        return getAllAnnotations() != null ? getAllAnnotations().get(uri) : Collections.<Annotation> emptyList();
+        return getAllAnnotations().get(uri);
     }
 
 
@@ -997,7 +2040,7 @@ public class ResearchObject extends Thing implements Annotable {
     /**
      * Get the ontology model with the evolution information.
      */
-    public void loadEvolutionInformation() {
+    public synchronized void loadEvolutionInformation() {
         OntModel model = ModelFactory.createOntologyModel(OntModelSpec.OWL_LITE_MEM);
         try (InputStream in = roevo.getEvolutionInformationInputStream(uri)) {
             model.read(in, null, "TURTLE");
@@ -1018,18 +2061,22 @@ public class ResearchObject extends Thing implements Annotable {
         if (liveR != null && liveR.isURIResource()) {
             liveRO = new ResearchObject(URI.create(liveR.getURI()), rosrs);
         }
+        Set<URI> newArchives = new HashSet<>(archives);
         Set<RDFNode> archivesR = thisRO.listPropertyValues(ROEVO.hasArchive).toSet();
         for (RDFNode node : archivesR) {
             if (node.isURIResource()) {
-                archives.add(URI.create(node.asResource().getURI()));
+                newArchives.add(URI.create(node.asResource().getURI()));
             }
         }
+        archives = Collections.unmodifiableSet(newArchives);
+        Set<URI> newSnapshots = new HashSet<>(snapshots);
         Set<RDFNode> snapshotsR = thisRO.listPropertyValues(ROEVO.hasSnapshot).toSet();
         for (RDFNode node : snapshotsR) {
             if (node.isURIResource()) {
-                snapshots.add(URI.create(node.asResource().getURI()));
+                newSnapshots.add(URI.create(node.asResource().getURI()));
             }
         }
+        snapshots = Collections.unmodifiableSet(newSnapshots);
         com.hp.hpl.jena.rdf.model.Resource previousR = thisRO.getPropertyResourceValue(PROV.wasRevisionOf);
         previousSnapshot = null;
         if (previousR != null && previousR.isURIResource()) {
@@ -1100,7 +2147,6 @@ public class ResearchObject extends Thing implements Annotable {
         Annotation annotation = this.annotate(null,
             Annotation.wrapAnnotationBody(Collections.singletonList(new Statement(this.getUri(), property, value))),
             RDFFormat.RDFXML.getDefaultMIMEType());
-        this.annotations.put(uri, annotation);
         return new AnnotationTriple(annotation, this, property, value, false);
     }
 
@@ -1139,4 +2185,82 @@ public class ResearchObject extends Thing implements Annotable {
         Collections.sort(list, new AnnotationTripleByPredicateLocalNameComparator());
         return list;
     }
+
+
+    /**
+     * A mutable copy of a {@link ResearchObjectSnapshot}, used by the thread changing the research object.
+     */
+    private static final class Draft {
+
+        /** research object URI. */
+        private final URI uri;
+
+        /** has the entire RO been loaded from ROSRS. */
+        private boolean loaded;
+
+        /** aggregated ro:Resources, excluding ro:Folders. */
+        private final Map<URI, Resource> resources;
+
+        /** aggregated ro:Folders. */
+        private final Map<URI, Folder> folders;
+
+        /** aggregated annotations, grouped based on ao:annotatesResource. */
+        private final SetMultimap<URI, Annotation> annotations;
+
+        /** root folders of the RO, sorted by name. */
+        private List<Folder> rootFolders;
+
+        /** all folders of the RO, sorted by name. */
+        private List<Folder> allFolders;
+
+        /** resources not in any folder. */
+        private List<Resource> rootResources;
+
+
+        /**
+         * Constructor.
+         * 
+         * @param original
+         *            the snapshot to copy
+         */
+        private Draft(ResearchObjectSnapshot original) {
+            this.uri = original.getUri();
+            this.loaded = original.isLoaded();
+            this.resources = new HashMap<>(original.getResources());
+            this.folders = new HashMap<>(original.getFolders());
+            this.annotations = HashMultimap.create(original.getAllAnnotations());
+            this.rootFolders = new ArrayList<>(original.getRootFolders());
+            this.allFolders = new ArrayList<>(original.getAllFolders());
+            this.rootResources = new ArrayList<>(original.getResourcesWithoutFolders());
+        }
+
+
+        /**
+         * Remove the annotations about a resource. The annotations that are about other resources too are replaced
+         * with copies that don't annotate the resource, since the originals are shared with the published snapshot.
+         * 
+         * @param target
+         *            the resource URI
+         */
+        void removeTarget(URI target) {
+            for (Annotation annotation : annotations.removeAll(target)) {
+                Annotation copy = annotation.withoutTarget(target);
+                for (URI other : copy.getTargets()) {
+                    annotations.remove(other, annotation);
+                    annotations.put(other, copy);
+                }
+            }
+        }
+
+
+        /**
+         * Create a snapshot with the contents of this draft.
+         * 
+         * @return a new snapshot
+         */
+        ResearchObjectSnapshot build() {
+            return new ResearchObjectSnapshot(uri, loaded, resources, folders, annotations, rootFolders, allFolders,
+                    rootResources);
+        }
+    }
 }
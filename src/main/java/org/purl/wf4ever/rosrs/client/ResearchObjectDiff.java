@@ -0,0 +1,272 @@
+package org.purl.wf4ever.rosrs.client;
+
+import java.io.Serializable;
+import java.net.URI;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * The differences between two snapshots of a research object, as found when refreshing it.
+ *
+ * Changed resources, folders and annotations are the ones with the same URI but a different description in the
+ * manifest, the sets contain their new versions. Folders and annotations described in the same way can still have new
+ * folder entries or annotation bodies, these are reported separately.
+ *
+ * @author piotrekhol
+ *
+ */
+public final class ResearchObjectDiff implements Serializable {
+
+    /** id. */
+    private static final long serialVersionUID = -2937401744287129064L;
+
+    /** resources aggregated only in the new snapshot. */
+    private final Set<Resource> addedResources;
+
+    /** resources aggregated only in the old snapshot. */
+    private final Set<Resource> removedResources;
+
+    /** resources described differently in the new snapshot. */
+    private final Set<Resource> changedResources;
+
+    /** folders aggregated only in the new snapshot. */
+    private final Set<Folder> addedFolders;
+
+    /** folders aggregated only in the old snapshot. */
+    private final Set<Folder> removedFolders;
+
+    /** folders described differently in the new snapshot. */
+    private final Set<Folder> changedFolders;
+
+    /** annotations aggregated only in the new snapshot. */
+    private final Set<Annotation> addedAnnotations;
+
+    /** annotations aggregated only in the old snapshot. */
+    private final Set<Annotation> removedAnnotations;
+
+    /** annotations described differently in the new snapshot. */
+    private final Set<Annotation> changedAnnotations;
+
+    /** folders described in the same way, with different folder entries. */
+    private final Set<Folder> changedFolderContents;
+
+    /** annotations described in the same way, with different bodies. */
+    private final Set<Annotation> changedAnnotationBodies;
+
+
+    /**
+     * Constructor.
+     *
+     * @param before
+     *            the old snapshot
+     * @param after
+     *            the new snapshot
+     */
+    ResearchObjectDiff(ResearchObjectSnapshot before, ResearchObjectSnapshot after) {
+        this(before, after, Collections.<Folder> emptySet(), Collections.<Annotation> emptySet());
+    }
+
+
+    /**
+     * Constructor.
+     *
+     * @param before
+     *            the old snapshot
+     * @param after
+     *            the new snapshot
+     * @param changedFolderContents
+     *            folders described in the same way, with different folder entries
+     * @param changedAnnotationBodies
+     *            annotations described in the same way, with different bodies
+     */
+    ResearchObjectDiff(ResearchObjectSnapshot before, ResearchObjectSnapshot after,
+            Set<Folder> changedFolderContents, Set<Annotation> changedAnnotationBodies) {
+        this.changedFolderContents = ImmutableSet.copyOf(changedFolderContents);
+        this.changedAnnotationBodies = ImmutableSet.copyOf(changedAnnotationBodies);
+        ImmutableSet.Builder<Resource> added = ImmutableSet.builder();
+        ImmutableSet.Builder<Resource> removed = ImmutableSet.builder();
+        ImmutableSet.Builder<Resource> changed = ImmutableSet.builder();
+        compare(before.getResources(), after.getResources(), added, removed, changed);
+        this.addedResources = added.build();
+        this.removedResources = removed.build();
+        this.changedResources = changed.build();
+
+        ImmutableSet.Builder<Folder> addedF = ImmutableSet.builder();
+        ImmutableSet.Builder<Folder> removedF = ImmutableSet.builder();
+        ImmutableSet.Builder<Folder> changedF = ImmutableSet.builder();
+        compare(before.getFolders(), after.getFolders(), addedF, removedF, changedF);
+        this.addedFolders = addedF.build();
+        this.removedFolders = removedF.build();
+        this.changedFolders = changedF.build();
+
+        ImmutableSet.Builder<Annotation> addedA = ImmutableSet.builder();
+        ImmutableSet.Builder<Annotation> removedA = ImmutableSet.builder();
+        ImmutableSet.Builder<Annotation> changedA = ImmutableSet.builder();
+        compare(byUri(before.getAllAnnotations().values()), byUri(after.getAllAnnotations().values()), addedA,
+            removedA, changedA);
+        this.addedAnnotations = addedA.build();
+        this.removedAnnotations = removedA.build();
+        this.changedAnnotations = changedA.build();
+    }
+
+
+    /**
+     * Compare two versions of a URI-indexed collection.
+     *
+     * @param before
+     *            old version
+     * @param after
+     *            new version
+     * @param added
+     *            values found only in the new version
+     * @param removed
+     *            values found only in the old version
+     * @param changed
+     *            new values that differ from the old ones
+     * @param <T>
+     *            resource, folder or annotation
+     */
+    private static <T extends Thing> void compare(Map<URI, T> before, Map<URI, T> after,
+            ImmutableSet.Builder<T> added, ImmutableSet.Builder<T> removed, ImmutableSet.Builder<T> changed) {
+        for (Map.Entry<URI, T> entry : after.entrySet()) {
+            T old = before.get(entry.getKey());
+            if (old == null) {
+                added.add(entry.getValue());
+            } else if (!same(old, entry.getValue())) {
+                changed.add(entry.getValue());
+            }
+        }
+        for (Map.Entry<URI, T> entry : before.entrySet()) {
+            if (!after.containsKey(entry.getKey())) {
+                removed.add(entry.getValue());
+            }
+        }
+    }
+
+
+    /**
+     * Check if two versions of a resource, folder or annotation are described in the same way. Equals ignores the
+     * size and the nested RO flag of resources and the targets of annotations, so these are compared separately.
+     *
+     * @param old
+     *            old version
+     * @param current
+     *            new version
+     * @return true if nothing has changed
+     */
+    static boolean same(Thing old, Thing current) {
+        if (!old.equals(current)) {
+            return false;
+        }
+        if (old instanceof Annotation) {
+            return ((Annotation) old).getTargets().equals(((Annotation) current).getTargets());
+        }
+        if (old instanceof Resource) {
+            Resource oldResource = (Resource) old;
+            Resource currentResource = (Resource) current;
+            return oldResource.getManifestSize() == currentResource.getManifestSize()
+                    && oldResource.isNestedRO() == currentResource.isNestedRO();
+        }
+        return true;
+    }
+
+
+    /**
+     * Index annotations by URI.
+     *
+     * @param annotations
+     *            annotations, possibly repeated
+     * @return annotations by URI
+     */
+    static Map<URI, Annotation> byUri(Collection<Annotation> annotations) {
+        Map<URI, Annotation> result = new HashMap<>();
+        for (Annotation annotation : annotations) {
+            result.put(annotation.getUri(), annotation);
+        }
+        return result;
+    }
+
+
+    /**
+     * Check if the snapshots are the same.
+     *
+     * @return true if nothing has been added, removed or changed
+     */
+    public boolean isEmpty() {
+        return addedResources.isEmpty() && removedResources.isEmpty() && changedResources.isEmpty()
+                && addedFolders.isEmpty() && removedFolders.isEmpty() && changedFolders.isEmpty()
+                && addedAnnotations.isEmpty() && removedAnnotations.isEmpty() && changedAnnotations.isEmpty()
+                && changedFolderContents.isEmpty() && changedAnnotationBodies.isEmpty();
+    }
+
+
+    public Set<Resource> getAddedResources() {
+        return addedResources;
+    }
+
+
+    public Set<Resource> getRemovedResources() {
+        return removedResources;
+    }
+
+
+    public Set<Resource> getChangedResources() {
+        return changedResources;
+    }
+
+
+    public Set<Folder> getAddedFolders() {
+        return addedFolders;
+    }
+
+
+    public Set<Folder> getRemovedFolders() {
+        return removedFolders;
+    }
+
+
+    public Set<Folder> getChangedFolders() {
+        return changedFolders;
+    }
+
+
+    public Set<Annotation> getAddedAnnotations() {
+        return addedAnnotations;
+    }
+
+
+    public Set<Annotation> getRemovedAnnotations() {
+        return removedAnnotations;
+    }
+
+
+    public Set<Annotation> getChangedAnnotations() {
+        return changedAnnotations;
+    }
+
+
+    public Set<Folder> getChangedFolderContents() {
+        return changedFolderContents;
+    }
+
+
+    public Set<Annotation> getChangedAnnotationBodies() {
+        return changedAnnotationBodies;
+    }
+
+
+    @Override
+    public String toString() {
+        return String.format(
+            "resources +%d -%d ~%d, folders +%d -%d ~%d (%d with new entries), annotations +%d -%d ~%d (%d with new "
+                    + "bodies)", addedResources.size(), removedResources.size(), changedResources.size(),
+            addedFolders.size(), removedFolders.size(), changedFolders.size(), changedFolderContents.size(),
+            addedAnnotations.size(), removedAnnotations.size(), changedAnnotations.size(),
+            changedAnnotationBodies.size());
+    }
+}
@@ -0,0 +1,382 @@
+package org.purl.wf4ever.rosrs.client;
+
+import java.io.Serializable;
+import java.net.URI;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+
+import org.purl.wf4ever.rosrs.client.exception.ObjectNotLoadedException;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Multimap;
+
+/**
+ * A point-in-time view of the resources, folders and annotations of a research object.
+ *
+ * A snapshot never changes, so it can be shared between threads and cached without locking. The research object
+ * publishes a new snapshot after each change, the old ones stay as they were.
+ *
+ * Besides the resources, folders and annotations, a snapshot captures the contents of the loaded folders and the
+ * loaded annotation bodies as they were when it was published, so that they agree with its root folders and root
+ * resources. The {@link Folder} and {@link Annotation} objects themselves are shared with later snapshots and always
+ * return their latest contents and bodies; to read the ones of a snapshot, use {@link #getFolderEntries(Folder)},
+ * {@link #getStatements(Annotation)} and the other methods of the snapshot that take a folder or an annotation.
+ *
+ * @author piotrekhol
+ *
+ */
+public final class ResearchObjectSnapshot implements Serializable {
+
+    /** id. */
+    private static final long serialVersionUID = 4541520954393618225L;
+
+    /** research object URI. */
+    private final URI uri;
+
+    /** has the entire RO been loaded from ROSRS. */
+    private final boolean loaded;
+
+    /** aggregated ro:Resources, excluding ro:Folders. */
+    private final ImmutableMap<URI, Resource> resources;
+
+    /** aggregated ro:Folders. */
+    private final ImmutableMap<URI, Folder> folders;
+
+    /** aggregated annotations, grouped based on ao:annotatesResource. */
+    private final ImmutableSetMultimap<URI, Annotation> annotations;
+
+    /** root folders of the RO, sorted by path. */
+    private final ImmutableList<Folder> rootFolders;
+
+    /** all folders of the RO, sorted by path. */
+    private final ImmutableList<Folder> allFolders;
+
+    /** resources not in any folder, sorted by name. */
+    private final ImmutableList<Resource> rootResources;
+
+    /** contents of the loaded folders, by folder URI. */
+    private final ImmutableMap<URI, Folder.Contents> folderContents;
+
+    /** loaded annotation bodies, by annotation URI. */
+    private final ImmutableMap<URI, Annotation.Body> annotationBodies;
+
+
+    /**
+     * Constructor. Captures the current contents of the loaded folders and the loaded annotation bodies.
+     *
+     * @param uri
+     *            research object URI
+     * @param loaded
+     *            has the entire RO been loaded
+     * @param resources
+     *            aggregated resources, excluding folders
+     * @param folders
+     *            aggregated folders
+     * @param annotations
+     *            annotations grouped by target
+     * @param rootFolders
+     *            root folders sorted by path
+     * @param allFolders
+     *            all folders sorted by path
+     * @param rootResources
+     *            resources not in any folder sorted by name
+     */
+    ResearchObjectSnapshot(URI uri, boolean loaded, Map<URI, Resource> resources, Map<URI, Folder> folders,
+            Multimap<URI, Annotation> annotations, List<Folder> rootFolders, List<Folder> allFolders,
+            List<Resource> rootResources) {
+        this.uri = uri;
+        this.loaded = loaded;
+        this.resources = ImmutableMap.copyOf(resources);
+        this.folders = ImmutableMap.copyOf(folders);
+        this.annotations = ImmutableSetMultimap.copyOf(annotations);
+        this.rootFolders = ImmutableList.copyOf(rootFolders);
+        this.allFolders = ImmutableList.copyOf(allFolders);
+        this.rootResources = ImmutableList.copyOf(rootResources);
+        ImmutableMap.Builder<URI, Folder.Contents> contents = ImmutableMap.builder();
+        for (Folder folder : this.folders.values()) {
+            Folder.Contents loadedContents = folder.getLoadedContents();
+            if (loadedContents != null) {
+                contents.put(folder.getUri(), loadedContents);
+            }
+        }
+        this.folderContents = contents.build();
+        Map<URI, Annotation.Body> bodies = new HashMap<>();
+        for (Annotation annotation : this.annotations.values()) {
+            Annotation.Body loadedBody = annotation.getLoadedBody();
+            if (loadedBody != null) {
+                bodies.put(annotation.getUri(), loadedBody);
+            }
+        }
+        this.annotationBodies = ImmutableMap.copyOf(bodies);
+    }
+
+
+    /**
+     * Create a snapshot of a research object that hasn't been loaded.
+     *
+     * @param uri
+     *            research object URI
+     * @return an empty snapshot
+     */
+    static ResearchObjectSnapshot empty(URI uri) {
+        return new ResearchObjectSnapshot(uri, false, Collections.<URI, Resource> emptyMap(),
+                Collections.<URI, Folder> emptyMap(), ImmutableSetMultimap.<URI, Annotation> of(),
+                Collections.<Folder> emptyList(), Collections.<Folder> emptyList(), Collections.<Resource> emptyList());
+    }
+
+
+    public URI getUri() {
+        return uri;
+    }
+
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+
+    public Map<URI, Resource> getResources() {
+        return resources;
+    }
+
+
+    public Map<URI, Folder> getFolders() {
+        return folders;
+    }
+
+
+    public Multimap<URI, Annotation> getAllAnnotations() {
+        return annotations;
+    }
+
+
+    /**
+     * Return a resource aggregated by the RO.
+     *
+     * @param resourceUri
+     *            resource URI
+     * @return the resource or null if not aggregated
+     */
+    public Resource getResource(URI resourceUri) {
+        return resources.get(resourceUri);
+    }
+
+
+    /**
+     * Return a folder aggregated by the RO.
+     *
+     * @param folderUri
+     *            folder URI
+     * @return the folder or null if not aggregated
+     */
+    public Folder getFolder(URI folderUri) {
+        return folders.get(folderUri);
+    }
+
+
+    /**
+     * Return the annotations of a resource, folder or the RO itself.
+     *
+     * @param target
+     *            annotated resource URI
+     * @return annotations, empty if there are none
+     */
+    public Collection<Annotation> getAnnotations(URI target) {
+        return annotations.get(target);
+    }
+
+
+    /**
+     * Return the root folders, sorted by path. They are calculated from the folder contents, so the list is empty
+     * until the folders have been loaded, i.e. until the RO reaches {@link LoadLevel#STRUCTURE}, even if the manifest
+     * has been loaded.
+     *
+     * @return root folders
+     */
+    public List<Folder> getRootFolders() {
+        return rootFolders;
+    }
+
+
+    /**
+     * Return all folders, sorted by path. The list is filled when the RO reaches {@link LoadLevel#STRUCTURE}; before
+     * that it is empty, even if the manifest has been loaded, and the folders can be found using {@link #getFolders()}.
+     *
+     * @return all folders
+     */
+    public List<Folder> getAllFolders() {
+        return allFolders;
+    }
+
+
+    /**
+     * Return the resources that aren't in any folder, sorted by name. They are calculated from the folder contents, so
+     * the list is empty until the folders have been loaded, i.e. until the RO reaches {@link LoadLevel#STRUCTURE},
+     * even if the manifest has been loaded.
+     *
+     * @return resources without folders
+     */
+    public List<Resource> getResourcesWithoutFolders() {
+        return rootResources;
+    }
+
+
+    /**
+     * Check if a folder had been loaded when the snapshot was published.
+     *
+     * @param folder
+     *            a folder of this snapshot
+     * @return true if the snapshot has the folder contents
+     */
+    public boolean isLoaded(Folder folder) {
+        return folderContents.containsKey(folder.getUri());
+    }
+
+
+    /**
+     * Return the entries of a folder as they were when the snapshot was published.
+     *
+     * @param folder
+     *            a folder of this snapshot
+     * @return folder entries by URI
+     * @throws ObjectNotLoadedException
+     *             the folder hadn't been loaded
+     */
+    public Map<URI, FolderEntry> getFolderEntries(Folder folder)
+            throws ObjectNotLoadedException {
+        return contentsOf(folder).getEntries();
+    }
+
+
+    /**
+     * Return the named entries of a folder, sorted by name, as they were when the snapshot was published.
+     *
+     * @param folder
+     *            a folder of this snapshot
+     * @return the named folder entries by name
+     * @throws ObjectNotLoadedException
+     *             the folder hadn't been loaded
+     */
+    public SortedMap<String, FolderEntry> getFolderEntriesByName(Folder folder)
+            throws ObjectNotLoadedException {
+        return contentsOf(folder).getEntriesByName();
+    }
+
+
+    /**
+     * Return the resources (not folders) in a folder, sorted by name, as they were when the snapshot was published.
+     *
+     * @param folder
+     *            a folder of this snapshot
+     * @return resources in the folder
+     * @throws ObjectNotLoadedException
+     *             the folder hadn't been loaded
+     */
+    public List<Resource> getResources(Folder folder)
+            throws ObjectNotLoadedException {
+        return contentsOf(folder).getResources();
+    }
+
+
+    /**
+     * Return the subfolders of a folder, sorted by name, as they were when the snapshot was published.
+     *
+     * @param folder
+     *            a folder of this snapshot
+     * @return subfolders
+     * @throws ObjectNotLoadedException
+     *             the folder hadn't been loaded
+     */
+    public List<Folder> getSubfolders(Folder folder)
+            throws ObjectNotLoadedException {
+        return contentsOf(folder).getSubfolders();
+    }
+
+
+    /**
+     * Check if the body of an annotation had been loaded when the snapshot was published.
+     *
+     * @param annotation
+     *            an annotation of this snapshot
+     * @return true if the snapshot has the annotation body
+     */
+    public boolean isLoaded(Annotation annotation) {
+        return annotationBodies.containsKey(annotation.getUri());
+    }
+
+
+    /**
+     * Return the statements in the body of an annotation as they were when the snapshot was published.
+     *
+     * @param annotation
+     *            an annotation of this snapshot
+     * @return statements in the annotation body
+     * @throws ObjectNotLoadedException
+     *             the annotation body hadn't been loaded
+     */
+    public Set<Statement> getStatements(Annotation annotation)
+            throws ObjectNotLoadedException {
+        return bodyOf(annotation).getStatements();
+    }
+
+
+    /**
+     * Return the body of an annotation, serialized as RDF/XML, as it was when the snapshot was published.
+     *
+     * @param annotation
+     *            an annotation of this snapshot
+     * @return the serialized body
+     * @throws ObjectNotLoadedException
+     *             the annotation body hadn't been loaded
+     */
+    public String getBodySerializedAsString(Annotation annotation)
+            throws ObjectNotLoadedException {
+        return bodyOf(annotation).getSerialized();
+    }
+
+
+    /**
+     * Find the captured contents of a folder.
+     *
+     * @param folder
+     *            the folder
+     * @return the contents
+     * @throws ObjectNotLoadedException
+     *             the folder hadn't been loaded
+     */
+    private Folder.Contents contentsOf(Folder folder)
+            throws ObjectNotLoadedException {
+        Folder.Contents contents = folderContents.get(folder.getUri());
+        if (contents == null) {
+            throw new ObjectNotLoadedException("the folder hadn't been loaded in this snapshot: " + folder.getUri());
+        }
+        return contents;
+    }
+
+
+    /**
+     * Find the captured body of an annotation.
+     *
+     * @param annotation
+     *            the annotation
+     * @return the body
+     * @throws ObjectNotLoadedException
+     *             the annotation body hadn't been loaded
+     */
+    private Annotation.Body bodyOf(Annotation annotation)
+            throws ObjectNotLoadedException {
+        Annotation.Body body = annotationBodies.get(annotation.getUri());
+        if (body == null) {
+            throw new ObjectNotLoadedException("the annotation hadn't been loaded in this snapshot: "
+                    + annotation.getUri());
+        }
+        return body;
+    }
+}
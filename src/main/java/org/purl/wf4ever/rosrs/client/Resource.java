@@ -47,11 +47,14 @@ public class Resource extends Thing implements Annotable {
     /** URI of the proxy. */
     protected final URI proxyUri;
 
-    /** Resource size in bytes. */
-    protected long size = -1;
+    /** Resource size in bytes, as described in the manifest. */
+    protected volatile long size = -1;
+
+    /** Resource size in bytes, from the Content-Length of a HEAD request, used if the manifest has none. */
+    private volatile long probedSize = -1;
 
     /** Is this resource a nested RO? */
-    boolean nestedRO = false;
+    volatile boolean nestedRO = false;
 
 
     /**
@@ -220,7 +223,7 @@ public class Resource extends Thing implements Annotable {
 
 
     public long getSize() {
-        return size;
+        return size >= 0 ? size : probedSize;
     }
 
 
@@ -229,6 +232,28 @@ public class Resource extends Thing implements Annotable {
     }
 
 
+    /**
+     * Resource size as described in the manifest, ignoring the probed size.
+     * 
+     * @return the size in bytes or -1 if unknown
+     */
+    long getManifestSize() {
+        return size;
+    }
+
+
+    /**
+     * Remember the size found by probing the resource. Safe to call on a resource that other threads can see, and
+     * kept when a refresh finds the resource described in the same way.
+     * 
+     * @param probedSize
+     *            the size in bytes
+     */
+    void setProbedSize(long probedSize) {
+        this.probedSize = probedSize;
+    }
+
+
     /**
      * Resource size nicely formatted.
      * 
@@ -371,7 +396,6 @@ public class Resource extends Thing implements Annotable {
         Annotation annotation = this.annotate(null,
             Annotation.wrapAnnotationBody(Collections.singletonList(new Statement(this.getUri(), property, value))),
             RDFFormat.RDFXML.getDefaultMIMEType());
-        this.researchObject.getAllAnnotations().put(uri, annotation);
         return new AnnotationTriple(annotation, this, property, value, false);
     }
 
@@ -0,0 +1,92 @@
+package org.purl.wf4ever.rosrs.client;
+
+import java.net.URI;
+
+/**
+ * The result of a HEAD request sent to a resource, telling whether it is available and what its size and type are,
+ * without downloading it.
+ *
+ * @author piotrekhol
+ *
+ */
+public final class ResourceProbe {
+
+    /** Resource URI. */
+    private final URI uri;
+
+    /** Response status or -1 if there was no response. */
+    private final int status;
+
+    /** Content length in bytes or -1 if unknown. */
+    private final long size;
+
+    /** Content type or null. */
+    private final String contentType;
+
+    /** Entity tag or null. */
+    private final String etag;
+
+
+    /**
+     * Constructor.
+     *
+     * @param uri
+     *            resource URI
+     * @param status
+     *            response status or -1 if there was no response
+     * @param size
+     *            content length in bytes or -1 if unknown
+     * @param contentType
+     *            content type or null
+     * @param etag
+     *            entity tag or null
+     */
+    public ResourceProbe(URI uri, int status, long size, String contentType, String etag) {
+        this.uri = uri;
+        this.status = status;
+        this.size = size;
+        this.contentType = contentType;
+        this.etag = etag;
+    }
+
+
+    public URI getUri() {
+        return uri;
+    }
+
+
+    public int getStatus() {
+        return status;
+    }
+
+
+    public long getSize() {
+        return size;
+    }
+
+
+    public String getContentType() {
+        return contentType;
+    }
+
+
+    public String getEtag() {
+        return etag;
+    }
+
+
+    /**
+     * Check if the resource can be downloaded.
+     *
+     * @return true if the response status was 2xx
+     */
+    public boolean isAvailable() {
+        return status >= 200 && status < 300;
+    }
+
+
+    @Override
+    public String toString() {
+        return uri + " " + status + " " + contentType + " " + size;
+    }
+}
@@ -1,16 +1,22 @@
 package org.purl.wf4ever.rosrs.client;
 
+import java.io.StringWriter;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.Logger;
 
-import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Multimap;
+import com.hp.hpl.jena.rdf.model.Model;
 
 /**
  * Utility methods.
@@ -33,87 +39,232 @@ public final class Utils {
 
 
     /**
-     * Helper function returns list of delimited values in a string, where delimiters in quotes are protected.
+     * Parse the Link headers of a response (RFC 8288) in a single pass, without regular expressions. Commas and
+     * semicolons inside the target URI or inside quoted parameter values don't separate links or parameters, and quoted
+     * pairs in quoted values are unescaped. A rel parameter with several relation types separated by spaces adds the
+     * target for each of them, and only the first rel parameter of a link is used, as required by the RFC. Links
+     * without a rel parameter or with a target that is not a valid URI are skipped, as are malformed parts of a header.
+     * 
+     * @param values
+     *            header values, may be null
+     * @return Multimap, key is rel, values are URIs in the order of the links
+     */
+    public static Multimap<String, URI> getLinkHeaders(List<String> values) {
+        Multimap<String, URI> result = ArrayListMultimap.create(4, 1);
+        if (values != null) {
+            for (String value : values) {
+                if (value != null) {
+                    parseLinks(value, result);
+                }
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * Parse the links in one Link header value.
      * 
      * @param text
-     *            text to search
-     * @param sep
-     *            separator
-     * @param lq
-     *            left quote
-     * @param rq
-     *            right quote
-     * @return list of values
+     *            the header value
+     * @param result
+     *            Multimap to which the links are added
      */
-    private static List<String> split(String text, char sep, char lq, char rq) {
-        List<String> result = new ArrayList<>();
+    private static void parseLinks(String text, Multimap<String, URI> result) {
+        int length = text.length();
         int cursor = 0;
-        int begseg = cursor;
-        while (cursor < text.length()) {
-            if (text.charAt(cursor) == lq) {
-                // Skip quoted or bracketed string
-                char eq = rq; // End quote/bracket character
-                cursor++;
-                while (cursor < text.length() && text.charAt(cursor) != eq) {
-                    if (text.substring(cursor).startsWith("\\")) {
-                        cursor++;
-                        // skip '\' quoted-pair
-                    }
+        while (cursor < length) {
+            cursor = skipWhitespace(text, cursor);
+            if (cursor >= length) {
+                return;
+            }
+            if (text.charAt(cursor) != '<') {
+                cursor = skipLink(text, cursor);
+                continue;
+            }
+            int end = text.indexOf('>', cursor + 1);
+            if (end < 0) {
+                return;
+            }
+            int targetStart = skipWhitespace(text, cursor + 1);
+            int targetEnd = end;
+            while (targetEnd > targetStart && isWhitespace(text.charAt(targetEnd - 1))) {
+                targetEnd--;
+            }
+            cursor = end + 1;
+            String rel = null;
+            boolean relFound = false;
+            while (true) {
+                cursor = skipWhitespace(text, cursor);
+                if (cursor >= length) {
+                    break;
+                }
+                char c = text.charAt(cursor);
+                if (c == ',') {
                     cursor++;
+                    break;
                 }
-                if (cursor < text.length()) {
-                    cursor++; // Skip closing quote/bracket
+                if (c != ';') {
+                    cursor = skipLink(text, cursor);
+                    break;
+                }
+                cursor = skipWhitespace(text, cursor + 1);
+                int nameStart = cursor;
+                while (cursor < length && isTokenChar(text.charAt(cursor))) {
+                    cursor++;
+                }
+                int nameEnd = cursor;
+                cursor = skipWhitespace(text, cursor);
+                String parameter = null;
+                if (cursor < length && text.charAt(cursor) == '=') {
+                    cursor = skipWhitespace(text, cursor + 1);
+                    if (cursor < length && text.charAt(cursor) == '"') {
+                        StringBuilder unescaped = null;
+                        int valueStart = ++cursor;
+                        while (cursor < length && text.charAt(cursor) != '"') {
+                            if (text.charAt(cursor) == '\\' && cursor + 1 < length) {
+                                if (unescaped == null) {
+                                    unescaped = new StringBuilder(text.length() - valueStart);
+                                    unescaped.append(text, valueStart, cursor);
+                                }
+                                unescaped.append(text.charAt(cursor + 1));
+                                cursor += 2;
+                            } else {
+                                if (unescaped != null) {
+                                    unescaped.append(text.charAt(cursor));
+                                }
+                                cursor++;
+                            }
+                        }
+                        parameter = unescaped != null ? unescaped.toString() : text.substring(valueStart, cursor);
+                        if (cursor < length) {
+                            cursor++;
+                        }
+                    } else {
+                        int valueStart = cursor;
+                        while (cursor < length && text.charAt(cursor) != ';' && text.charAt(cursor) != ','
+                                && !isWhitespace(text.charAt(cursor))) {
+                            cursor++;
+                        }
+                        parameter = text.substring(valueStart, cursor);
+                    }
+                }
+                if (!relFound && nameEnd - nameStart == 3 && text.regionMatches(true, nameStart, "rel", 0, 3)) {
+                    relFound = true;
+                    rel = parameter;
                 }
-            } else if (text.charAt(cursor) == sep) {
-                result.add(text.substring(begseg, cursor));
-                cursor++;
-                begseg = cursor;
-            } else {
-                cursor++;
+            }
+            if (rel != null) {
+                addLinks(result, text.substring(targetStart, targetEnd), rel);
             }
         }
-        // append final segment
-        result.add(text.substring(begseg, cursor));
-        return result;
     }
 
 
     /**
-     * Return a link header value for a given rel.
+     * Add a link target for each relation type of a rel parameter.
      * 
-     * Copied from RO manager ROSRS_Session.
+     * @param result
+     *            Multimap to which the links are added
+     * @param target
+     *            the target URI
+     * @param rel
+     *            relation types separated by whitespace
+     */
+    private static void addLinks(Multimap<String, URI> result, String target, String rel) {
+        URI uri;
+        try {
+            uri = new URI(target);
+        } catch (URISyntaxException e) {
+            LOGGER.debug("A link header has an invalid URI", e);
+            return;
+        }
+        int length = rel.length();
+        int cursor = skipWhitespace(rel, 0);
+        while (cursor < length) {
+            int end = cursor;
+            while (end < length && !isWhitespace(rel.charAt(end))) {
+                end++;
+            }
+            String type = cursor == 0 && end == length ? rel : rel.substring(cursor, end);
+            if (!result.containsEntry(type, uri)) {
+                result.put(type, uri);
+            }
+            cursor = skipWhitespace(rel, end);
+        }
+    }
+
+
+    /**
+     * Skip a malformed link, up to and including the next comma that is not inside angle brackets or quotes.
      * 
-     * @param values
-     *            header values
-     * @return Multimap, key is rel, values are URIs
+     * @param text
+     *            the header value
+     * @param cursor
+     *            position in the malformed link
+     * @return position after the comma or the length of the text
      */
-    public static Multimap<String, URI> getLinkHeaders(List<String> values) {
-        Multimap<String, URI> result = HashMultimap.<String, URI> create();
-        Pattern uriPattern = Pattern.compile("\\s*<([^>]*)>\\s*");
-        Pattern relPattern = Pattern.compile("\\s*rel\\s*=\\s*\"?(.*?)\"?\\s*$");
-        for (String value : values) {
-            String[] lines = value.split(",");
-            for (String line : lines) {
-                List<String> parts = split(line, ';', '<', '>');
-                Matcher m = uriPattern.matcher(parts.get(0));
-                if (m.matches()) {
-                    String link = m.group(1);
-                    try {
-                        URI linkUri = new URI(link);
-                        for (int i = 1; i < parts.size(); i++) {
-                            Matcher m2 = relPattern.matcher(parts.get(i));
-                            if (m2.matches()) {
-                                String linkRel = m2.group(1);
-                                result.put(linkRel, linkUri);
-                            }
-                        }
-                    } catch (URISyntaxException e) {
-                        LOGGER.debug("A link header has an invalid URI", e);
-                    }
+    private static int skipLink(String text, int cursor) {
+        int length = text.length();
+        while (cursor < length) {
+            char c = text.charAt(cursor);
+            if (c == ',') {
+                return cursor + 1;
+            } else if (c == '<') {
+                int end = text.indexOf('>', cursor + 1);
+                cursor = end < 0 ? length : end + 1;
+            } else if (c == '"') {
+                cursor++;
+                while (cursor < length && text.charAt(cursor) != '"') {
+                    cursor += text.charAt(cursor) == '\\' ? 2 : 1;
                 }
+                cursor++;
+            } else {
+                cursor++;
             }
         }
-        return result;
+        return length;
+    }
+
+
+    /**
+     * Skip spaces and tabs.
+     * 
+     * @param text
+     *            text
+     * @param cursor
+     *            start position
+     * @return position of the first character that is not a space or tab, or the length of the text
+     */
+    private static int skipWhitespace(String text, int cursor) {
+        while (cursor < text.length() && isWhitespace(text.charAt(cursor))) {
+            cursor++;
+        }
+        return cursor;
+    }
+
+
+    /**
+     * Check if a character is optional whitespace in a header.
+     * 
+     * @param c
+     *            character
+     * @return true for a space or a tab
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t';
+    }
+
+
+    /**
+     * Check if a character can be a part of a parameter name (an RFC 7230 token).
+     * 
+     * @param c
+     *            character
+     * @return true for token characters
+     */
+    private static boolean isTokenChar(char c) {
+        return c > ' ' && c < 127 && "()<>@,;:\\\"/[]?={}".indexOf(c) < 0;
     }
 
 
@@ -148,4 +299,64 @@ public final class Utils {
         }
     }
 
+
+    /**
+     * Serialize a model as RDF/XML. This is costly for big models, so when it is done for logging, the logging level
+     * should be checked first.
+     * 
+     * @param model
+     *            the model
+     * @return the model in RDF/XML
+     */
+    public static String toRdfXml(Model model) {
+        StringWriter writer = new StringWriter();
+        model.write(writer, "RDF/XML");
+        return writer.toString();
+    }
+
+
+    /**
+     * Run the tasks using no more than a given number of threads and wait until all of them are finished.
+     * 
+     * @param tasks
+     *            tasks to run
+     * @param parallelism
+     *            the maximum number of tasks running at the same time
+     * @param <T>
+     *            result type
+     * @return futures holding the results, in the same order as the tasks
+     */
+    public static <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks, int parallelism) {
+        if (tasks.isEmpty()) {
+            return Collections.emptyList();
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, tasks.size())));
+        try {
+            return executor.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted when waiting for the tasks", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+
+    /**
+     * Unwrap the cause of a failed task, so that it can be rethrown as an unchecked exception.
+     * 
+     * @param e
+     *            the exception thrown by {@link Future#get()}
+     * @return the unchecked cause or a runtime exception wrapping the checked cause
+     */
+    public static RuntimeException unchecked(ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+            return (RuntimeException) e.getCause();
+        }
+        if (e.getCause() instanceof Error) {
+            throw (Error) e.getCause();
+        }
+        return new IllegalStateException(e.getCause());
+    }
+
 }
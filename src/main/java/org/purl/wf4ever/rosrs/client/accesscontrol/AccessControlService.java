@@ -11,6 +11,7 @@ import javax.ws.rs.core.UriBuilder;
 
 import org.apache.log4j.Logger;
 import org.purl.wf4ever.rosrs.client.evo.ROEVOService;
+import org.purl.wf4ever.rosrs.client.resilience.ResilientClientFactory;
 
 import com.damnhandy.uri.template.UriTemplate;
 import com.hp.hpl.jena.rdf.model.Model;
@@ -74,7 +75,7 @@ public class AccessControlService implements Serializable {
 	 */
 	private Client getClient() {
 		if (client == null) {
-			client = Client.create();
+			client = ResilientClientFactory.createClient("accesscontrol");
 		}
 		return client;
 	}
@@ -0,0 +1,684 @@
+package org.purl.wf4ever.rosrs.client.cache;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.log4j.Logger;
+
+/**
+ * A persistent cache of HTTP response bodies, such as RO manifests, resource maps and annotation bodies, kept in a
+ * directory so that it survives restarts.
+ *
+ * Each entry is kept in one file, named after the hash of the resource URI, the requested MIME type and the
+ * credentials it has been requested with, so that a body downloaded by one user is never served to another one. The
+ * file has a short binary header with the URI, MIME type, hash of the credentials, ETag and response headers needed to
+ * parse the body, followed by the body as it was received. A body is written to the file while the caller reads it,
+ * so it is never kept in memory. Entries are read using memory-mapped files. When the total size of the entries
+ * exceeds the limit, the least recently used ones are deleted.
+ *
+ * @author piotrekhol
+ *
+ */
+public class DiskCache {
+
+    /** Logger. */
+    private static final Logger LOG = Logger.getLogger(DiskCache.class);
+
+    /** Default maximum size of the cache directory, 256MB. */
+    public static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024;
+
+    /** First bytes of every entry file, changed when the format changes. */
+    private static final int MAGIC = 0x524f4332;
+
+    /** Extension of the entry files. */
+    private static final String EXTENSION = ".entry";
+
+    /** Extension of the entry files being written. */
+    private static final String TMP_EXTENSION = ".tmp";
+
+    /** Cache directory. */
+    private final File directory;
+
+    /** Maximum total size of entries, in bytes. */
+    private final long maxSize;
+
+    /** Entry file sizes by key, in access order. */
+    private final LinkedHashMap<String, Long> sizes = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** Total size of entries, in bytes. */
+    private long size;
+
+
+    /**
+     * Constructor. The entries already in the directory are reused.
+     *
+     * @param directory
+     *            cache directory, created if it doesn't exist
+     * @param maxSize
+     *            maximum total size of entries, in bytes
+     * @throws IOException
+     *             the directory can't be created
+     */
+    public DiskCache(File directory, long maxSize)
+            throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create the cache directory " + directory);
+        }
+        this.directory = directory;
+        this.maxSize = maxSize;
+        File[] files = directory.listFiles();
+        Arrays.sort(files, new Comparator<File>() {
+
+            @Override
+            public int compare(File f1, File f2) {
+                return Long.compare(f1.lastModified(), f2.lastModified());
+            }
+        });
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(EXTENSION)) {
+                sizes.put(name.substring(0, name.length() - EXTENSION.length()), file.length());
+                size += file.length();
+            } else if (name.endsWith(TMP_EXTENSION) && !file.delete()) {
+                LOG.warn("Can't delete temporary file " + file);
+            }
+        }
+        evict();
+    }
+
+
+    /**
+     * Find a cached entry of a resource requested without credentials.
+     *
+     * @param uri
+     *            resource URI
+     * @param accept
+     *            requested MIME type or null
+     * @return the entry or null if not cached
+     */
+    public Entry get(URI uri, String accept) {
+        return get(uri, accept, null);
+    }
+
+
+    /**
+     * Find a cached entry.
+     *
+     * @param uri
+     *            resource URI
+     * @param accept
+     *            requested MIME type or null
+     * @param credentials
+     *            the Authorization header of the request or null
+     * @return the entry or null if not cached
+     */
+    public Entry get(URI uri, String accept, String credentials) {
+        String key = key(uri, accept, credentials);
+        synchronized (this) {
+            if (sizes.get(key) == null) {
+                return null;
+            }
+        }
+        File file = file(key);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            DataInputStream in = new DataInputStream(new ByteBufferInputStream(buffer));
+            if (in.readInt() != MAGIC || !in.readUTF().equals(uri.toString()) || !in.readUTF().equals(nonNull(accept))
+                    || !in.readUTF().equals(hash(credentials))) {
+                remove(key);
+                return null;
+            }
+            String etag = in.readUTF();
+            String contentType = in.readUTF();
+            String contentLocation = in.readUTF();
+            // the rest of the file is the body
+            ByteBuffer body = buffer.slice();
+            return new Entry(etag, emptyToNull(contentType), emptyToNull(contentLocation), body);
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Can't read cache entry " + file + ", removing it", e);
+            remove(key);
+            return null;
+        }
+    }
+
+
+    /**
+     * Add or replace an entry of a resource requested without credentials.
+     *
+     * @param uri
+     *            resource URI
+     * @param accept
+     *            requested MIME type or null
+     * @param etag
+     *            ETag returned by the server
+     * @param contentType
+     *            response content type or null
+     * @param contentLocation
+     *            response content location or null
+     * @param body
+     *            response body
+     */
+    public void put(URI uri, String accept, String etag, String contentType, String contentLocation, byte[] body) {
+        try (InputStream in = put(uri, accept, null, etag, contentType, contentLocation, new ByteArrayInputStream(
+                body))) {
+            IOUtils.copy(in, NullOutputStream.NULL_OUTPUT_STREAM);
+        } catch (IOException e) {
+            LOG.warn("Can't write cache entry for " + uri, e);
+        }
+    }
+
+
+    /**
+     * Add or replace an entry with a response body that is being received. The body is written to the cache while it
+     * is read from the returned stream, and the entry is added when the stream has been read to the end. If the stream
+     * is closed earlier, nothing is cached.
+     *
+     * @param uri
+     *            resource URI
+     * @param accept
+     *            requested MIME type or null
+     * @param credentials
+     *            the Authorization header of the request or null
+     * @param etag
+     *            ETag returned by the server
+     * @param contentType
+     *            response content type or null
+     * @param contentLocation
+     *            response content location or null
+     * @param body
+     *            response body
+     * @return a stream to read the response body from instead of the original one
+     */
+    public InputStream put(URI uri, String accept, String credentials, String etag, String contentType,
+            String contentLocation, InputStream body) {
+        String key = key(uri, accept, credentials);
+        File tmp = null;
+        try {
+            tmp = File.createTempFile(key, TMP_EXTENSION, directory);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeUTF(uri.toString());
+                out.writeUTF(nonNull(accept));
+                out.writeUTF(hash(credentials));
+                out.writeUTF(etag);
+                out.writeUTF(nonNull(contentType));
+                out.writeUTF(nonNull(contentLocation));
+            } catch (IOException e) {
+                out.close();
+                throw e;
+            }
+            return new CachingInputStream(body, uri, key, tmp, out);
+        } catch (IOException e) {
+            LOG.warn("Can't write cache entry for " + uri, e);
+            if (tmp != null && !tmp.delete() && tmp.exists()) {
+                LOG.warn("Can't delete temporary file " + tmp);
+            }
+            return body;
+        }
+    }
+
+
+    /**
+     * Add an entry that has been written to a temporary file.
+     *
+     * @param key
+     *            entry key
+     * @param tmp
+     *            the temporary file
+     * @throws IOException
+     *             the file can't be moved
+     */
+    private synchronized void store(String key, File tmp)
+            throws IOException {
+        File file = file(key);
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Long old = sizes.put(key, file.length());
+        size += file.length() - (old != null ? old : 0);
+        evict();
+    }
+
+
+    /**
+     * Remove an entry of a resource requested without credentials.
+     *
+     * @param uri
+     *            resource URI
+     * @param accept
+     *            requested MIME type or null
+     */
+    public void remove(URI uri, String accept) {
+        remove(uri, accept, null);
+    }
+
+
+    /**
+     * Remove an entry.
+     *
+     * @param uri
+     *            resource URI
+     * @param accept
+     *            requested MIME type or null
+     * @param credentials
+     *            the Authorization header of the request or null
+     */
+    public void remove(URI uri, String accept, String credentials) {
+        remove(key(uri, accept, credentials));
+    }
+
+
+    /**
+     * Remove all entries.
+     */
+    public synchronized void clear() {
+        for (String key : new ArrayList<>(sizes.keySet())) {
+            remove(key);
+        }
+    }
+
+
+    /**
+     * Return the total size of the entries.
+     *
+     * @return size in bytes
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+
+    /**
+     * Return the number of entries.
+     *
+     * @return number of entries
+     */
+    public synchronized int getEntryCount() {
+        return sizes.size();
+    }
+
+
+    /**
+     * Remove an entry and its file.
+     *
+     * @param key
+     *            entry key
+     */
+    private synchronized void remove(String key) {
+        Long old = sizes.remove(key);
+        if (old != null) {
+            size -= old;
+        }
+        File file = file(key);
+        if (!file.delete() && file.exists()) {
+            LOG.warn("Can't delete cache entry " + file);
+        }
+    }
+
+
+    /**
+     * Delete the least recently used entries until the cache is not larger than the limit.
+     */
+    private synchronized void evict() {
+        List<String> evicted = new ArrayList<>();
+        long remaining = size;
+        for (Iterator<Map.Entry<String, Long>> it = sizes.entrySet().iterator(); it.hasNext() && remaining > maxSize;) {
+            Map.Entry<String, Long> entry = it.next();
+            evicted.add(entry.getKey());
+            remaining -= entry.getValue();
+        }
+        for (String key : evicted) {
+            remove(key);
+        }
+    }
+
+
+    /**
+     * Calculate the entry key.
+     *
+     * @param uri
+     *            resource URI
+     * @param accept
+     *            requested MIME type or null
+     * @param credentials
+     *            the Authorization header of the request or null
+     * @return a key that can be used as a file name
+     */
+    private static String key(URI uri, String accept, String credentials) {
+        return DigestUtils.sha1Hex(uri.toString() + "\n" + nonNull(accept) + "\n" + hash(credentials));
+    }
+
+
+    /**
+     * Hash the credentials, so that they are not written to the disk.
+     *
+     * @param credentials
+     *            the Authorization header of a request or null
+     * @return the hash or an empty string if there are no credentials
+     */
+    private static String hash(String credentials) {
+        return credentials != null ? DigestUtils.sha256Hex(credentials) : "";
+    }
+
+
+    /**
+     * Return the file of an entry.
+     *
+     * @param key
+     *            entry key
+     * @return entry file
+     */
+    private File file(String key) {
+        return new File(directory, key + EXTENSION);
+    }
+
+
+    /**
+     * Replace null with an empty string.
+     *
+     * @param value
+     *            a string or null
+     * @return the string or an empty string
+     */
+    private static String nonNull(String value) {
+        return value != null ? value : "";
+    }
+
+
+    /**
+     * Replace an empty string with null.
+     *
+     * @param value
+     *            a string
+     * @return the string or null if it was empty
+     */
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+
+    /**
+     * A cached response.
+     *
+     * @author piotrekhol
+     *
+     */
+    public static class Entry {
+
+        /** ETag returned by the server. */
+        private final String etag;
+
+        /** Response content type. */
+        private final String contentType;
+
+        /** Response content location. */
+        private final String contentLocation;
+
+        /** Response body, read-only. */
+        private final ByteBuffer body;
+
+
+        /**
+         * Constructor.
+         *
+         * @param etag
+         *            ETag returned by the server
+         * @param contentType
+         *            response content type or null
+         * @param contentLocation
+         *            response content location or null
+         * @param body
+         *            response body
+         */
+        Entry(String etag, String contentType, String contentLocation, ByteBuffer body) {
+            this.etag = etag;
+            this.contentType = contentType;
+            this.contentLocation = contentLocation;
+            this.body = body;
+        }
+
+
+        public String getEtag() {
+            return etag;
+        }
+
+
+        public String getContentType() {
+            return contentType;
+        }
+
+
+        public String getContentLocation() {
+            return contentLocation;
+        }
+
+
+        /**
+         * Return a new input stream with the response body.
+         *
+         * @return an input stream reading from the mapped entry file
+         */
+        public InputStream getBody() {
+            return new ByteBufferInputStream(body.duplicate());
+        }
+    }
+
+
+    /**
+     * An input stream writing what is read to a new entry file, and adding the entry when the end is reached.
+     *
+     * @author piotrekhol
+     *
+     */
+    private class CachingInputStream extends FilterInputStream {
+
+        /** Resource URI. */
+        private final URI uri;
+
+        /** Entry key. */
+        private final String key;
+
+        /** The file being written. */
+        private final File tmp;
+
+        /** Output to the file, null when the entry has been added or abandoned. */
+        private DataOutputStream out;
+
+
+        /**
+         * Constructor.
+         *
+         * @param in
+         *            response body
+         * @param uri
+         *            resource URI
+         * @param key
+         *            entry key
+         * @param tmp
+         *            the file being written
+         * @param out
+         *            output to the file, with the header written
+         */
+        CachingInputStream(InputStream in, URI uri, String key, File tmp, DataOutputStream out) {
+            super(in);
+            this.uri = uri;
+            this.key = key;
+            this.tmp = tmp;
+            this.out = out;
+        }
+
+
+        @Override
+        public int read()
+                throws IOException {
+            int b = super.read();
+            if (b < 0) {
+                commit();
+            } else if (out != null) {
+                try {
+                    out.write(b);
+                } catch (IOException e) {
+                    abandon(e);
+                }
+            }
+            return b;
+        }
+
+
+        @Override
+        public int read(byte[] b, int off, int len)
+                throws IOException {
+            int n = super.read(b, off, len);
+            if (n < 0) {
+                commit();
+            } else if (out != null) {
+                try {
+                    out.write(b, off, n);
+                } catch (IOException e) {
+                    abandon(e);
+                }
+            }
+            return n;
+        }
+
+
+        @Override
+        public long skip(long n)
+                throws IOException {
+            // skipped bytes aren't written, so the entry would be incomplete
+            abandon(null);
+            return super.skip(n);
+        }
+
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+
+        @Override
+        public void close()
+                throws IOException {
+            try {
+                super.close();
+            } finally {
+                abandon(null);
+            }
+        }
+
+
+        /**
+         * Add the entry after the whole body has been written.
+         */
+        private void commit() {
+            if (out == null) {
+                return;
+            }
+            try {
+                out.close();
+                out = null;
+                store(key, tmp);
+            } catch (IOException e) {
+                abandon(e);
+            }
+        }
+
+
+        /**
+         * Stop writing the entry and delete the file, unless the entry has been added.
+         *
+         * @param e
+         *            the reason or null if the body hasn't been read to the end
+         */
+        private void abandon(IOException e) {
+            if (e != null) {
+                LOG.warn("Can't write cache entry for " + uri, e);
+            }
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException closing) {
+                    LOG.warn("Can't close cache entry for " + uri, closing);
+                }
+                out = null;
+            }
+            if (!tmp.delete() && tmp.exists()) {
+                LOG.warn("Can't delete temporary file " + tmp);
+            }
+        }
+    }
+
+
+    /**
+     * An input stream reading from a byte buffer.
+     *
+     * @author piotrekhol
+     *
+     */
+    private static class ByteBufferInputStream extends InputStream {
+
+        /** The buffer. */
+        private final ByteBuffer buffer;
+
+
+        /**
+         * Constructor.
+         *
+         * @param buffer
+         *            the buffer, its position is moved when reading
+         */
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.purl.wf4ever.rosrs.client.cache;
+
+import javax.ws.rs.core.HttpHeaders;
+
+import org.apache.http.HttpStatus;
+import org.apache.log4j.Logger;
+
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.filter.ClientFilter;
+
+/**
+ * A client filter that keeps the bodies of GET responses with an ETag in a {@link DiskCache}. When an entry is cached,
+ * the request is made conditional and a 304 Not Modified response is replaced with the cached body, so the body is
+ * downloaded and stored only once, even across restarts.
+ *
+ * Entries are kept separately for every Authorization header, so a body is only served to the user who has downloaded
+ * it. The body of a 200 OK response is written to the cache while the caller reads it. An entry is removed only when
+ * the resource is gone (404 Not Found or 410 Gone); temporary errors such as 401 or 5xx leave it in place.
+ *
+ * @author piotrekhol
+ *
+ */
+public class DiskCacheFilter extends ClientFilter {
+
+    /** Logger. */
+    private static final Logger LOG = Logger.getLogger(DiskCacheFilter.class);
+
+    /** The cache. */
+    private final DiskCache cache;
+
+
+    /**
+     * Constructor.
+     *
+     * @param cache
+     *            the cache
+     */
+    public DiskCacheFilter(DiskCache cache) {
+        this.cache = cache;
+    }
+
+
+    @Override
+    public ClientResponse handle(ClientRequest request)
+            throws ClientHandlerException {
+        if (!"GET".equals(request.getMethod())) {
+            return getNext().handle(request);
+        }
+        Object acceptHeader = request.getHeaders().getFirst(HttpHeaders.ACCEPT);
+        String accept = acceptHeader != null ? ClientRequest.getHeaderValue(acceptHeader) : null;
+        Object authorizationHeader = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        String credentials = authorizationHeader != null ? ClientRequest.getHeaderValue(authorizationHeader) : null;
+        // a caller revalidating its own copy gets the 304 response as it is
+        boolean conditional = request.getHeaders().containsKey(HttpHeaders.IF_NONE_MATCH);
+        DiskCache.Entry cached = conditional ? null : cache.get(request.getURI(), accept, credentials);
+        if (cached != null) {
+            request.getHeaders().putSingle(HttpHeaders.IF_NONE_MATCH, cached.getEtag());
+        }
+        ClientResponse response = getNext().handle(request);
+        if (cached != null && response.getStatus() == HttpStatus.SC_NOT_MODIFIED) {
+            LOG.debug("Not modified, using the cached body of " + request.getURI());
+            response.close();
+            response.setStatus(HttpStatus.SC_OK);
+            putHeader(response, HttpHeaders.CONTENT_TYPE, cached.getContentType());
+            putHeader(response, HttpHeaders.CONTENT_LOCATION, cached.getContentLocation());
+            putHeader(response, HttpHeaders.ETAG, cached.getEtag());
+            response.setEntityInputStream(cached.getBody());
+            return response;
+        }
+        String etag = response.getHeaders().getFirst(HttpHeaders.ETAG);
+        if (response.getStatus() == HttpStatus.SC_OK && etag != null) {
+            response.setEntityInputStream(cache.put(request.getURI(), accept, credentials, etag, response.getHeaders()
+                    .getFirst(HttpHeaders.CONTENT_TYPE), response.getHeaders().getFirst(HttpHeaders.CONTENT_LOCATION),
+                response.getEntityInputStream()));
+        } else if (cached != null
+                && (response.getStatus() == HttpStatus.SC_NOT_FOUND || response.getStatus() == HttpStatus.SC_GONE)) {
+            cache.remove(request.getURI(), accept, credentials);
+        }
+        return response;
+    }
+
+
+    /**
+     * Set or remove a response header.
+     *
+     * @param response
+     *            the response
+     * @param name
+     *            header name
+     * @param value
+     *            header value or null to remove it
+     */
+    private static void putHeader(ClientResponse response, String name, String value) {
+        // the value lists received from the connection are unmodifiable, so they are replaced instead of cleared
+        response.getHeaders().remove(name);
+        if (value != null) {
+            response.getHeaders().add(name, value);
+        }
+    }
+}
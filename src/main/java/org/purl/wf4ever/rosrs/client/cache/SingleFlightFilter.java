@@ -0,0 +1,353 @@
+package org.purl.wf4ever.rosrs.client.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.filter.ClientFilter;
+import com.sun.jersey.core.header.InBoundHeaders;
+import com.sun.jersey.spi.MessageBodyWorkers;
+
+/**
+ * A client filter that sends concurrent identical GET requests only once. A GET is identical to another one in
+ * progress if it has the same URI and the same headers, in particular Accept and Authorization. The first request is
+ * sent and the others wait for its response. If any requests have been waiting, the response body is read into memory
+ * and every caller gets its own copy, which can be read and closed independently. If no request has been waiting,
+ * the response is returned as it is.
+ *
+ * Jersey links a filter to the client it is added to, so each client needs its own filter, but the filters of many
+ * clients can share their {@link Flights}, so that identical requests sent by different clients are coalesced too.
+ *
+ * @author piotrekhol
+ *
+ */
+public class SingleFlightFilter extends ClientFilter {
+
+    /** Logger. */
+    private static final Logger LOG = Logger.getLogger(SingleFlightFilter.class);
+
+    /** Requests in progress, possibly shared with other filters. */
+    private final Flights flights;
+
+
+    /**
+     * Constructor of a filter with its own requests in progress.
+     */
+    public SingleFlightFilter() {
+        this(new Flights());
+    }
+
+
+    /**
+     * Constructor.
+     *
+     * @param flights
+     *            requests in progress, possibly shared with other filters
+     */
+    public SingleFlightFilter(Flights flights) {
+        this.flights = flights;
+    }
+
+
+    public Flights getFlights() {
+        return flights;
+    }
+
+
+    /**
+     * Get the number of requests that haven't been sent because an identical one was in progress.
+     *
+     * @return the number of requests sharing a response
+     */
+    public long getCoalesced() {
+        return flights.getCoalesced();
+    }
+
+
+    @Override
+    public ClientResponse handle(ClientRequest request)
+            throws ClientHandlerException {
+        if (!"GET".equals(request.getMethod()) || request.getEntity() != null) {
+            return getNext().handle(request);
+        }
+        String key = key(request);
+        while (true) {
+            Flight flight = new Flight();
+            Flight existing = flights.inProgress.putIfAbsent(key, flight);
+            if (existing == null) {
+                return lead(key, flight, request);
+            }
+            if (existing.join()) {
+                flights.coalesced.incrementAndGet();
+                LOG.debug("Waiting for the response to an identical request to " + request.getURI());
+                return existing.await(workers(request));
+            }
+            // the response has just arrived, remove the flight in case the leader hasn't done it yet
+            flights.inProgress.remove(key, existing);
+        }
+    }
+
+
+    /**
+     * Send a request and share its response with the requests that have joined it.
+     *
+     * @param key
+     *            request key
+     * @param flight
+     *            the shared request
+     * @param request
+     *            the request
+     * @return the response
+     */
+    private ClientResponse lead(String key, Flight flight, ClientRequest request) {
+        SharedResponse shared = null;
+        RuntimeException failure = null;
+        try {
+            ClientResponse response = getNext().handle(request);
+            flights.inProgress.remove(key, flight);
+            if (flight.land() == 0) {
+                return response;
+            }
+            shared = new SharedResponse(response);
+            return shared.copy(workers(request));
+        } catch (RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            flights.inProgress.remove(key, flight);
+            flight.land();
+            flight.complete(shared, failure);
+        }
+    }
+
+
+    /**
+     * Get the readers of response bodies of the client sending a request.
+     *
+     * @param request
+     *            the request
+     * @return the message body workers of the client
+     */
+    private static MessageBodyWorkers workers(ClientRequest request) {
+        return ((Client) request.getProperties().get(Client.class.getName())).getMessageBodyWorkers();
+    }
+
+
+    /**
+     * Create the key of a request.
+     *
+     * @param request
+     *            a GET request
+     * @return the URI and the headers sorted by name
+     */
+    private static String key(ClientRequest request) {
+        Map<String, List<Object>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        headers.putAll(request.getHeaders());
+        StringBuilder key = new StringBuilder(request.getURI().toString());
+        for (Map.Entry<String, List<Object>> header : headers.entrySet()) {
+            key.append('\n').append(header.getKey().toLowerCase());
+            for (Object value : header.getValue()) {
+                key.append('\t').append(ClientRequest.getHeaderValue(value));
+            }
+        }
+        return key.toString();
+    }
+
+
+    /**
+     * The requests in progress of one or more filters.
+     *
+     * @author piotrekhol
+     *
+     */
+    public static final class Flights {
+
+        /** Requests in progress by key. */
+        private final ConcurrentMap<String, Flight> inProgress = new ConcurrentHashMap<>();
+
+        /** Number of requests that have used the response of another one. */
+        private final AtomicLong coalesced = new AtomicLong();
+
+
+        /**
+         * Get the number of requests that haven't been sent because an identical one was in progress.
+         *
+         * @return the number of requests sharing a response
+         */
+        public long getCoalesced() {
+            return coalesced.get();
+        }
+    }
+
+
+    /**
+     * A request in progress and the requests waiting for its response.
+     *
+     * @author piotrekhol
+     *
+     */
+    private static final class Flight {
+
+        /** Released when the response is ready. */
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        /** Number of waiting requests. */
+        private int followers;
+
+        /** Has the response arrived, after which no more requests can join. */
+        private boolean landed;
+
+        /** The response, if received. */
+        private volatile SharedResponse response;
+
+        /** The failure, if the request failed. */
+        private volatile RuntimeException failure;
+
+
+        /**
+         * Wait for the response of this request.
+         *
+         * @return true if joined, false if the response has arrived already
+         */
+        synchronized boolean join() {
+            if (landed) {
+                return false;
+            }
+            followers++;
+            return true;
+        }
+
+
+        /**
+         * Stop accepting new requests.
+         *
+         * @return the number of waiting requests
+         */
+        synchronized int land() {
+            landed = true;
+            return followers;
+        }
+
+
+        /**
+         * Wake up the waiting requests.
+         *
+         * @param sharedResponse
+         *            the response or null
+         * @param exception
+         *            the failure or null
+         */
+        void complete(SharedResponse sharedResponse, RuntimeException exception) {
+            this.response = sharedResponse;
+            this.failure = exception;
+            done.countDown();
+        }
+
+
+        /**
+         * Wait for the response.
+         *
+         * @param workers
+         *            readers of the response body
+         * @return a copy of the response
+         */
+        ClientResponse await(MessageBodyWorkers workers) {
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ClientHandlerException("Interrupted when waiting for an identical request", e);
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            if (response == null) {
+                throw new ClientHandlerException("The identical request has failed");
+            }
+            return response.copy(workers);
+        }
+    }
+
+
+    /**
+     * A response read into memory.
+     *
+     * @author piotrekhol
+     *
+     */
+    private static final class SharedResponse {
+
+        /** Response status. */
+        private final int status;
+
+        /** Response headers. */
+        private final InBoundHeaders headers;
+
+        /** Response body. */
+        private final byte[] body;
+
+
+        /**
+         * Constructor, reads and closes the response.
+         *
+         * @param response
+         *            the response
+         */
+        SharedResponse(ClientResponse response) {
+            this.status = response.getStatus();
+            this.headers = copy(response.getHeaders());
+            InputStream in = response.getEntityInputStream();
+            try {
+                this.body = in != null ? IOUtils.toByteArray(in) : new byte[0];
+            } catch (IOException e) {
+                throw new ClientHandlerException("Can't read the response", e);
+            } finally {
+                IOUtils.closeQuietly(in);
+                response.close();
+            }
+        }
+
+
+        /**
+         * Create a copy of the response for one caller.
+         *
+         * @param workers
+         *            readers of the response body
+         * @return a new response with the same status, headers and body
+         */
+        ClientResponse copy(MessageBodyWorkers workers) {
+            return new ClientResponse(status, copy(headers), new ByteArrayInputStream(body), workers);
+        }
+
+
+        /**
+         * Copy headers, so that a caller modifying them doesn't affect the others.
+         *
+         * @param source
+         *            headers
+         * @return a copy
+         */
+        private static InBoundHeaders copy(Map<String, List<String>> source) {
+            InBoundHeaders copy = new InBoundHeaders();
+            for (Map.Entry<String, List<String>> header : source.entrySet()) {
+                copy.put(header.getKey(), new ArrayList<>(header.getValue()));
+            }
+            return copy;
+        }
+    }
+}
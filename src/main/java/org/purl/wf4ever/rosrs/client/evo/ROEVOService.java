@@ -8,6 +8,7 @@ import javax.ws.rs.core.MediaType;
 
 import org.apache.log4j.Logger;
 import org.openrdf.rio.RDFFormat;
+import org.purl.wf4ever.rosrs.client.resilience.ResilientClientFactory;
 
 import com.damnhandy.uri.template.UriTemplate;
 import com.hp.hpl.jena.rdf.model.Model;
@@ -120,7 +121,7 @@ public class ROEVOService implements Serializable {
      */
     private Client getClient() {
         if (client == null) {
-            client = Client.create();
+            client = ResilientClientFactory.createClient("roevo");
         }
         return client;
     }
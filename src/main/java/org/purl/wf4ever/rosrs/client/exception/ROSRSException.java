@@ -53,6 +53,21 @@ public class ROSRSException extends Exception {
     }
 
 
+    /**
+     * Constructor for requests that got no response.
+     * 
+     * @param message
+     *            Context message
+     * @param cause
+     *            why there was no response, i.e. a connection failure
+     */
+    public ROSRSException(String message, Throwable cause) {
+        super(message, cause);
+        this.status = -1;
+        this.reason = null;
+    }
+
+
     public int getStatus() {
         return status;
     }
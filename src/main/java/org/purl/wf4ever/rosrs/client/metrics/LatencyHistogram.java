@@ -0,0 +1,104 @@
+package org.purl.wf4ever.rosrs.client.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of durations with buckets growing in powers of 2, so that recording is a few atomic increments and the
+ * percentiles are accurate to a factor of 2.
+ *
+ * @author piotrekhol
+ *
+ */
+public class LatencyHistogram {
+
+    /** Number of buckets, bucket i holds durations below 2^i nanoseconds. */
+    private static final int BUCKETS = 64;
+
+    /** Number of durations in each bucket. */
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    /** Number of durations. */
+    private final AtomicLong count = new AtomicLong();
+
+    /** Sum of durations in nanoseconds. */
+    private final AtomicLong total = new AtomicLong();
+
+    /** Longest duration in nanoseconds. */
+    private final AtomicLong max = new AtomicLong();
+
+
+    /**
+     * Record a duration.
+     *
+     * @param nanos
+     *            duration in nanoseconds
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets.incrementAndGet(Math.min(BUCKETS - 1, BUCKETS - Long.numberOfLeadingZeros(value)));
+        count.incrementAndGet();
+        total.addAndGet(value);
+        long previous = max.get();
+        while (value > previous && !max.compareAndSet(previous, value)) {
+            previous = max.get();
+        }
+    }
+
+
+    public long getCount() {
+        return count.get();
+    }
+
+
+    public long getTotal() {
+        return total.get();
+    }
+
+
+    public long getMax() {
+        return max.get();
+    }
+
+
+    /**
+     * Get the mean duration.
+     *
+     * @return mean duration in nanoseconds, 0 if nothing has been recorded
+     */
+    public long getMean() {
+        long n = count.get();
+        return n > 0 ? total.get() / n : 0;
+    }
+
+
+    /**
+     * Estimate a percentile.
+     *
+     * @param percentile
+     *            a number between 0 and 100, for example 99
+     * @return the upper bound in nanoseconds of the bucket containing the percentile, 0 if nothing has been recorded
+     */
+    public long getPercentile(double percentile) {
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(n * Math.min(100, Math.max(0, percentile)) / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank && seen > 0) {
+                return Math.min(max.get(), i < BUCKETS - 1 ? (1L << i) - 1 : Long.MAX_VALUE);
+            }
+        }
+        return max.get();
+    }
+
+
+    @Override
+    public String toString() {
+        return "count=" + getCount() + ", mean=" + getMean() / 1000000 + "ms, p50=" + getPercentile(50) / 1000000
+                + "ms, p99=" + getPercentile(99) / 1000000 + "ms, max=" + getMax() / 1000000 + "ms";
+    }
+}
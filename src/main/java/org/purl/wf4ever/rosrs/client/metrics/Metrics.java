@@ -0,0 +1,79 @@
+package org.purl.wf4ever.rosrs.client.metrics;
+
+/**
+ * The metrics recorder used by all service clients. There is none by default, and then measuring costs a single
+ * check.
+ *
+ * @author piotrekhol
+ *
+ */
+public final class Metrics {
+
+    /** The recorder or null if disabled. */
+    private static volatile MetricsRecorder recorder;
+
+
+    /**
+     * Private constructor.
+     */
+    private Metrics() {
+        //nope
+    }
+
+
+    public static MetricsRecorder getRecorder() {
+        return recorder;
+    }
+
+
+    /**
+     * Start or stop recording metrics.
+     *
+     * @param recorder
+     *            the recorder or null to stop recording
+     */
+    public static void setRecorder(MetricsRecorder recorder) {
+        Metrics.recorder = recorder;
+    }
+
+
+    public static boolean isEnabled() {
+        return recorder != null;
+    }
+
+
+    /**
+     * Record the start of an operation that doesn't go through a {@link MetricsFilter}.
+     *
+     * @param operation
+     *            operation name
+     * @return the start time to pass to {@link #finish(String, long, int)}, 0 if disabled
+     */
+    public static long start(String operation) {
+        MetricsRecorder current = recorder;
+        if (current == null) {
+            return 0;
+        }
+        current.started(operation);
+        return System.nanoTime();
+    }
+
+
+    /**
+     * Record the end of an operation started with {@link #start(String)}.
+     *
+     * @param operation
+     *            operation name
+     * @param start
+     *            the value returned by {@link #start(String)}
+     * @param status
+     *            HTTP status or -1 if the operation failed
+     */
+    public static void finish(String operation, long start, int status) {
+        MetricsRecorder current = recorder;
+        if (current == null || start == 0) {
+            return;
+        }
+        current.finished(operation, status, System.nanoTime() - start, -1);
+    }
+}
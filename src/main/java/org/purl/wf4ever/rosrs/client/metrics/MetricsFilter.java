@@ -0,0 +1,276 @@
+package org.purl.wf4ever.rosrs.client.metrics;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.sun.jersey.api.client.AbstractClientRequestAdapter;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientRequestAdapter;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.WebResource;
+import com.sun.jersey.api.client.filter.ClientFilter;
+
+/**
+ * A client filter passing the latency, status and body sizes of every request to the {@link Metrics} recorder. The
+ * operation is the service name followed by the logical operation the caller has tagged the request with, such as
+ * manifest, or by the HTTP method if the request hasn't been tagged. When there is no recorder, requests are passed on
+ * unchanged.
+ *
+ * @author piotrekhol
+ *
+ */
+public class MetricsFilter extends ClientFilter {
+
+    /** Request property with the logical operation, such as manifest or resourceMap. */
+    public static final String OPERATION = MetricsFilter.class.getName() + ".operation";
+
+    /** Service name, such as rosrs. */
+    private final String service;
+
+
+    /**
+     * Constructor.
+     *
+     * @param service
+     *            service name used in operation names
+     */
+    public MetricsFilter(String service) {
+        this.service = service;
+    }
+
+
+    @Override
+    public ClientResponse handle(ClientRequest request)
+            throws ClientHandlerException {
+        MetricsRecorder recorder = Metrics.getRecorder();
+        if (recorder == null) {
+            return getNext().handle(request);
+        }
+        Object tag = request.getProperties().get(OPERATION);
+        String operation = service + " " + (tag != null ? tag : request.getMethod());
+        CountingAdapter adapter = null;
+        if (request.getEntity() != null) {
+            adapter = new CountingAdapter(request.getAdapter());
+            request.setAdapter(adapter);
+        }
+        recorder.started(operation);
+        long start = System.nanoTime();
+        ClientResponse response;
+        try {
+            response = getNext().handle(request);
+        } catch (RuntimeException | Error e) {
+            recorder.finished(operation, -1, System.nanoTime() - start, adapter != null ? adapter.getCount() : 0);
+            throw e;
+        }
+        recorder.finished(operation, response.getStatus(), System.nanoTime() - start,
+            adapter != null ? adapter.getCount() : 0);
+        if (response.getEntityInputStream() != null) {
+            response.setEntityInputStream(new CountingInputStream(response.getEntityInputStream(), recorder,
+                    operation));
+        }
+        return response;
+    }
+
+
+    /**
+     * Tag the requests made using a web resource with a logical operation, so that they are recorded separately from
+     * other requests with the same HTTP method.
+     *
+     * @param resource
+     *            the web resource
+     * @param operation
+     *            operation name, such as manifest, or null to use the HTTP method
+     * @return the web resource
+     */
+    public static WebResource tag(WebResource resource, String operation) {
+        if (operation != null) {
+            resource.setProperty(OPERATION, operation);
+        }
+        return resource;
+    }
+
+
+    /**
+     * Counts the bytes of a request body.
+     *
+     * @author piotrekhol
+     *
+     */
+    private static final class CountingAdapter extends AbstractClientRequestAdapter {
+
+        /** The stream, once the body is written. */
+        private CountingOutputStream out;
+
+
+        /**
+         * Constructor.
+         *
+         * @param adapter
+         *            the adapter of the request
+         */
+        CountingAdapter(ClientRequestAdapter adapter) {
+            super(adapter);
+        }
+
+
+        @Override
+        public OutputStream adapt(ClientRequest request, OutputStream stream)
+                throws IOException {
+            out = new CountingOutputStream(getAdapter().adapt(request, stream));
+            return out;
+        }
+
+
+        /**
+         * Get the size of the body.
+         *
+         * @return the number of bytes written, -1 if the body hasn't been written
+         */
+        long getCount() {
+            return out != null ? out.count : -1;
+        }
+    }
+
+
+    /**
+     * Counts the bytes written.
+     *
+     * @author piotrekhol
+     *
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        /** Bytes written. */
+        private long count;
+
+
+        /**
+         * Constructor.
+         *
+         * @param out
+         *            the stream
+         */
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+
+        @Override
+        public void write(int b)
+                throws IOException {
+            out.write(b);
+            count++;
+        }
+
+
+        @Override
+        public void write(byte[] b, int off, int len)
+                throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+
+    /**
+     * Counts the bytes read and reports them at the end of the body or when it is closed.
+     *
+     * @author piotrekhol
+     *
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+
+        /** Where to report. */
+        private final MetricsRecorder recorder;
+
+        /** Operation name. */
+        private final String operation;
+
+        /** Bytes read. */
+        private long count;
+
+        /** Has the count been reported. */
+        private boolean reported;
+
+
+        /**
+         * Constructor.
+         *
+         * @param in
+         *            the body
+         * @param recorder
+         *            where to report
+         * @param operation
+         *            operation name
+         */
+        CountingInputStream(InputStream in, MetricsRecorder recorder, String operation) {
+            super(in);
+            this.recorder = recorder;
+            this.operation = operation;
+        }
+
+
+        @Override
+        public int read()
+                throws IOException {
+            int b = in.read();
+            if (b < 0) {
+                report();
+            } else {
+                count++;
+            }
+            return b;
+        }
+
+
+        @Override
+        public int read(byte[] b, int off, int len)
+                throws IOException {
+            int n = in.read(b, off, len);
+            if (n < 0) {
+                report();
+            } else {
+                count += n;
+            }
+            return n;
+        }
+
+
+        @Override
+        public long skip(long n)
+                throws IOException {
+            long skipped = in.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+
+        @Override
+        public void close()
+                throws IOException {
+            report();
+            in.close();
+        }
+
+
+        /**
+         * Report the count once.
+         */
+        private void report() {
+            if (!reported) {
+                reported = true;
+                recorder.received(operation, count);
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.purl.wf4ever.rosrs.client.metrics;
+
+/**
+ * Receives measurements of the requests sent by the service clients, for example to publish them in a monitoring
+ * system. Implementations must be thread safe and fast, since they are called on the request threads.
+ *
+ * Operations are named after the service and the logical operation the request has been tagged with, for example
+ * "rosrs manifest", "rosrs dataset", "rosrs list" or "rosrs upload". Requests that haven't been tagged are named
+ * after the HTTP method instead, for example "roevo GET". Searches are named after the search server, for example
+ * "solr search".
+ *
+ * @author piotrekhol
+ *
+ */
+public interface MetricsRecorder {
+
+    /**
+     * A request has been sent.
+     *
+     * @param operation
+     *            operation name
+     */
+    void started(String operation);
+
+
+    /**
+     * A response has been received or the request has failed. Called once for every call to {@link #started(String)}.
+     *
+     * @param operation
+     *            operation name
+     * @param status
+     *            HTTP status or -1 if there was no response
+     * @param nanos
+     *            time from sending the request until receiving the response headers, in nanoseconds
+     * @param bytesOut
+     *            size of the request body in bytes, 0 if there was none or -1 if unknown
+     */
+    void finished(String operation, int status, long nanos, long bytesOut);
+
+
+    /**
+     * A response body has been read to the end or closed.
+     *
+     * @param operation
+     *            operation name
+     * @param bytesIn
+     *            number of bytes read
+     */
+    void received(String operation, long bytesIn);
+}
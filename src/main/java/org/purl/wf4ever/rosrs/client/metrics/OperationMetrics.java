@@ -0,0 +1,139 @@
+package org.purl.wf4ever.rosrs.client.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics of one operation collected by {@link SimpleMetricsRecorder}.
+ *
+ * @author piotrekhol
+ *
+ */
+public class OperationMetrics {
+
+    /** Operation name. */
+    private final String operation;
+
+    /** Requests sent and not finished yet. */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /** Time until the response headers. */
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    /** Number of responses by status, -1 for failed requests. */
+    private final ConcurrentMap<Integer, AtomicLong> statuses = new ConcurrentHashMap<>();
+
+    /** Request body bytes. */
+    private final AtomicLong bytesOut = new AtomicLong();
+
+    /** Response body bytes. */
+    private final AtomicLong bytesIn = new AtomicLong();
+
+
+    /**
+     * Constructor.
+     *
+     * @param operation
+     *            operation name
+     */
+    public OperationMetrics(String operation) {
+        this.operation = operation;
+    }
+
+
+    public String getOperation() {
+        return operation;
+    }
+
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+
+    /**
+     * Get the number of responses by status.
+     *
+     * @return a snapshot of the counters, sorted by status, -1 meaning no response
+     */
+    public Map<Integer, Long> getStatuses() {
+        Map<Integer, Long> result = new TreeMap<>();
+        for (Map.Entry<Integer, AtomicLong> entry : statuses.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().get());
+        }
+        return result;
+    }
+
+
+    public long getBytesOut() {
+        return bytesOut.get();
+    }
+
+
+    public long getBytesIn() {
+        return bytesIn.get();
+    }
+
+
+    /**
+     * Record the start of a request.
+     */
+    void started() {
+        inFlight.incrementAndGet();
+    }
+
+
+    /**
+     * Record the end of a request.
+     *
+     * @param status
+     *            HTTP status or -1
+     * @param nanos
+     *            duration
+     * @param bytes
+     *            request body size or -1 if unknown
+     */
+    void finished(int status, long nanos, long bytes) {
+        inFlight.decrementAndGet();
+        latency.record(nanos);
+        AtomicLong counter = statuses.get(status);
+        if (counter == null) {
+            AtomicLong created = new AtomicLong();
+            counter = statuses.putIfAbsent(status, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        counter.incrementAndGet();
+        if (bytes > 0) {
+            bytesOut.addAndGet(bytes);
+        }
+    }
+
+
+    /**
+     * Record a response body.
+     *
+     * @param bytes
+     *            response body size
+     */
+    void received(long bytes) {
+        bytesIn.addAndGet(bytes);
+    }
+
+
+    @Override
+    public String toString() {
+        return operation + ": inFlight=" + getInFlight() + ", statuses=" + getStatuses() + ", bytesOut=" + getBytesOut()
+                + ", bytesIn=" + getBytesIn() + ", " + latency;
+    }
+}
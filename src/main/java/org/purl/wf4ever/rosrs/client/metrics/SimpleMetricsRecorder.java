@@ -0,0 +1,68 @@
+package org.purl.wf4ever.rosrs.client.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A recorder keeping the metrics of every operation in memory, to be read by the application, for example on a status
+ * page or periodically into a log.
+ *
+ * @author piotrekhol
+ *
+ */
+public class SimpleMetricsRecorder implements MetricsRecorder {
+
+    /** Metrics by operation. */
+    private final ConcurrentMap<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+
+
+    /**
+     * Get the metrics of all operations.
+     *
+     * @return metrics by operation name, sorted by name
+     */
+    public Map<String, OperationMetrics> getOperations() {
+        return Collections.unmodifiableMap(new TreeMap<>(operations));
+    }
+
+
+    /**
+     * Get the metrics of one operation.
+     *
+     * @param operation
+     *            operation name
+     * @return the metrics, created if necessary
+     */
+    public OperationMetrics getOperation(String operation) {
+        OperationMetrics metrics = operations.get(operation);
+        if (metrics == null) {
+            OperationMetrics created = new OperationMetrics(operation);
+            metrics = operations.putIfAbsent(operation, created);
+            if (metrics == null) {
+                metrics = created;
+            }
+        }
+        return metrics;
+    }
+
+
+    @Override
+    public void started(String operation) {
+        getOperation(operation).started();
+    }
+
+
+    @Override
+    public void finished(String operation, int status, long nanos, long bytesOut) {
+        getOperation(operation).finished(status, nanos, bytesOut);
+    }
+
+
+    @Override
+    public void received(String operation, long bytesIn) {
+        getOperation(operation).received(bytesIn);
+    }
+}
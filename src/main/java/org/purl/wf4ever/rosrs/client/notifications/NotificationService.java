@@ -16,6 +16,7 @@ import org.joda.time.DateTimeZone;
 import org.joda.time.format.ISODateTimeFormat;
 import org.purl.wf4ever.rosrs.client.evo.ROEVOService;
 import org.purl.wf4ever.rosrs.client.exception.NotificationsException;
+import org.purl.wf4ever.rosrs.client.resilience.ResilientClientFactory;
 
 import pl.psnc.dl.wf4ever.vocabulary.ORE;
 
@@ -85,7 +86,7 @@ public class NotificationService implements Serializable {
 	 */
 	private Client getClient() {
 		if (client == null) {
-			client = Client.create();
+			client = ResilientClientFactory.createClient("notifications");
 		}
 		return client;
 	}
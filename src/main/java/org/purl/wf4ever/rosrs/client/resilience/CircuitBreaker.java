@@ -0,0 +1,127 @@
+package org.purl.wf4ever.rosrs.client.resilience;
+
+/**
+ * The circuit breaker of one host. After a number of consecutive failures the circuit opens and requests to the host
+ * are rejected without being sent. When the open duration passes, one trial request is let through; the circuit closes
+ * if it succeeds and opens again if it fails.
+ *
+ * @author piotrekhol
+ *
+ */
+public class CircuitBreaker {
+
+    /**
+     * Circuit state.
+     *
+     * @author piotrekhol
+     *
+     */
+    public enum State {
+        /** Requests are sent. */
+        CLOSED,
+        /** Requests are rejected. */
+        OPEN,
+        /** One trial request is being sent. */
+        HALF_OPEN
+    }
+
+
+    /** Host and port. */
+    private final String host;
+
+    /** Current state. */
+    private State state = State.CLOSED;
+
+    /** Number of failures since the last success. */
+    private int consecutiveFailures;
+
+    /** When the circuit opened, in milliseconds. */
+    private long openedAt;
+
+
+    /**
+     * Constructor.
+     *
+     * @param host
+     *            host and port
+     */
+    public CircuitBreaker(String host) {
+        this.host = host;
+    }
+
+
+    public String getHost() {
+        return host;
+    }
+
+
+    public synchronized State getState() {
+        return state;
+    }
+
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+
+    /**
+     * Check if a request can be sent, letting one trial request through if the circuit has been open long enough.
+     *
+     * @param now
+     *            current time in milliseconds
+     * @param policy
+     *            settings
+     * @return true if the request can be sent, false if it should be rejected
+     */
+    public synchronized boolean allowRequest(long now, ResiliencePolicy policy) {
+        switch (state) {
+            case OPEN:
+                if (now - openedAt >= policy.getOpenDuration()) {
+                    state = State.HALF_OPEN;
+                    return true;
+                }
+                return false;
+            case HALF_OPEN:
+                return false;
+            default:
+                return true;
+        }
+    }
+
+
+    /**
+     * Record a successful request, closing the circuit.
+     */
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+
+
+    /**
+     * Record a failed request.
+     *
+     * @param now
+     *            current time in milliseconds
+     * @param policy
+     *            settings
+     * @return true if the circuit has opened because of this failure
+     */
+    public synchronized boolean onFailure(long now, ResiliencePolicy policy) {
+        consecutiveFailures++;
+        int threshold = policy.getFailureThreshold();
+        if (state == State.HALF_OPEN || (state == State.CLOSED && threshold > 0 && consecutiveFailures >= threshold)) {
+            state = State.OPEN;
+            openedAt = now;
+            return true;
+        }
+        return false;
+    }
+
+
+    @Override
+    public synchronized String toString() {
+        return host + " " + state + " (" + consecutiveFailures + " failures)";
+    }
+}
@@ -0,0 +1,36 @@
+package org.purl.wf4ever.rosrs.client.resilience;
+
+import com.sun.jersey.api.client.ClientHandlerException;
+
+/**
+ * A request has been rejected without being sent because the circuit of its host is open. It is a
+ * {@link ClientHandlerException}, like the exceptions thrown when the host can't be reached.
+ *
+ * @author piotrekhol
+ *
+ */
+public class CircuitOpenException extends ClientHandlerException {
+
+    /** id. */
+    private static final long serialVersionUID = 6408021633473468105L;
+
+    /** Host and port. */
+    private final String host;
+
+
+    /**
+     * Constructor.
+     *
+     * @param host
+     *            host and port
+     */
+    public CircuitOpenException(String host) {
+        super("Circuit open for " + host + ", request rejected");
+        this.host = host;
+    }
+
+
+    public String getHost() {
+        return host;
+    }
+}
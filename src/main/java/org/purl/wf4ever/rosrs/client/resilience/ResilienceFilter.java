@@ -0,0 +1,230 @@
+package org.purl.wf4ever.rosrs.client.resilience;
+
+import java.io.ByteArrayInputStream;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.log4j.Logger;
+import org.purl.wf4ever.rosrs.client.metrics.MetricsFilter;
+
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.config.ClientConfig;
+import com.sun.jersey.api.client.filter.ClientFilter;
+
+/**
+ * A client filter that protects the application from slow and failing RODL hosts.
+ *
+ * <ul>
+ * <li>Every request gets the connect and read timeouts of the policy, the read timeout depending on the logical
+ * operation the request has been tagged with.</li>
+ * <li>Requests that fail with an I/O error or a transient status, such as 503, are sent again after a random delay
+ * that grows with every retry. Only idempotent requests are retried, and only if their entity can be sent again; other
+ * requests are retried only if the connection has been refused, i.e. they haven't reached the host.</li>
+ * <li>Every host has a {@link CircuitBreaker}. When the circuit is open the requests are rejected at once with a
+ * {@link CircuitOpenException}.</li>
+ * </ul>
+ *
+ * A response with a transient status is returned to the caller if it can't be retried any more, so that the caller
+ * handles it as before. A filter can be added to one client only, but the filters of many clients can share a
+ * {@link ResilienceState}, see {@link ResilientClientFactory}.
+ *
+ * @author piotrekhol
+ *
+ */
+public class ResilienceFilter extends ClientFilter {
+
+    /** Logger. */
+    private static final Logger LOG = Logger.getLogger(ResilienceFilter.class);
+
+    /** Settings, circuit breakers and counters, possibly shared with other filters. */
+    private final ResilienceState state;
+
+
+    /**
+     * Constructor of a filter with its own state.
+     *
+     * @param policy
+     *            settings
+     */
+    public ResilienceFilter(ResiliencePolicy policy) {
+        this(new ResilienceState(policy));
+    }
+
+
+    /**
+     * Constructor.
+     *
+     * @param state
+     *            settings, circuit breakers and counters, possibly shared with other filters
+     */
+    public ResilienceFilter(ResilienceState state) {
+        this.state = state;
+    }
+
+
+    public ResilienceState getState() {
+        return state;
+    }
+
+
+    public ResiliencePolicy getPolicy() {
+        return state.getPolicy();
+    }
+
+
+    public void setPolicy(ResiliencePolicy policy) {
+        state.setPolicy(policy);
+    }
+
+
+    public ResilienceMetrics getMetrics() {
+        return state.getMetrics();
+    }
+
+
+    /**
+     * Get the circuit breakers of all hosts that have been called.
+     *
+     * @return circuit breakers by host and port
+     */
+    public Map<String, CircuitBreaker> getCircuitBreakers() {
+        return state.getCircuitBreakers();
+    }
+
+
+    /**
+     * Get the circuit breaker of a host.
+     *
+     * @param uri
+     *            any URI of the host
+     * @return the circuit breaker, created if necessary
+     */
+    public CircuitBreaker getCircuitBreaker(URI uri) {
+        return state.getCircuitBreaker(uri);
+    }
+
+
+    @Override
+    public ClientResponse handle(ClientRequest request)
+            throws ClientHandlerException {
+        ResiliencePolicy currentPolicy = state.getPolicy();
+        ResilienceMetrics metrics = state.getMetrics();
+        CircuitBreaker breaker = getCircuitBreaker(request.getURI());
+        String method = request.getMethod();
+        request.getProperties().put(ClientConfig.PROPERTY_CONNECT_TIMEOUT, currentPolicy.getConnectTimeout());
+        Object operation = request.getProperties().get(MetricsFilter.OPERATION);
+        request.getProperties().put(ClientConfig.PROPERTY_READ_TIMEOUT,
+            currentPolicy.getReadTimeout(operation != null ? operation.toString() : null));
+        boolean idempotent = currentPolicy.isIdempotent(method);
+        metrics.request();
+        for (int retry = 0;; retry++) {
+            if (!breaker.allowRequest(System.currentTimeMillis(), currentPolicy)) {
+                metrics.rejection();
+                throw new CircuitOpenException(breaker.getHost());
+            }
+            metrics.attempt();
+            boolean canRetry = retry < currentPolicy.getMaxRetries();
+            ClientResponse response;
+            try {
+                response = getNext().handle(request);
+            } catch (ClientHandlerException e) {
+                if (e.getCause() instanceof SocketTimeoutException) {
+                    metrics.timeout();
+                }
+                failed(breaker, currentPolicy);
+                boolean refused = e.getCause() instanceof ConnectException;
+                if (canRetry && (idempotent || refused) && rewind(request)) {
+                    LOG.debug("Retrying " + method + " " + request.getURI() + " after " + e.getMessage());
+                    backoff(retry, currentPolicy);
+                    continue;
+                }
+                metrics.failure();
+                throw e;
+            } catch (RuntimeException | Error e) {
+                // an unexpected failure is recorded too, or a half-open circuit would wait for the trial forever
+                failed(breaker, currentPolicy);
+                metrics.failure();
+                throw e;
+            }
+            if (!currentPolicy.isRetryableStatus(response.getStatus())) {
+                breaker.onSuccess();
+                return response;
+            }
+            failed(breaker, currentPolicy);
+            if (canRetry && idempotent && rewind(request)) {
+                LOG.debug("Retrying " + method + " " + request.getURI() + " after " + response.getStatus());
+                response.close();
+                backoff(retry, currentPolicy);
+                continue;
+            }
+            metrics.failure();
+            return response;
+        }
+    }
+
+
+    /**
+     * Record a failed attempt.
+     *
+     * @param breaker
+     *            circuit breaker of the host
+     * @param currentPolicy
+     *            settings
+     */
+    private void failed(CircuitBreaker breaker, ResiliencePolicy currentPolicy) {
+        if (breaker.onFailure(System.currentTimeMillis(), currentPolicy)) {
+            state.getMetrics().circuitOpened();
+            LOG.warn("Circuit opened for " + breaker.getHost());
+        }
+    }
+
+
+    /**
+     * Prepare the request entity to be sent again.
+     *
+     * @param request
+     *            the request
+     * @return true if the entity can be sent again
+     */
+    private static boolean rewind(ClientRequest request) {
+        Object entity = request.getEntity();
+        if (entity == null || entity instanceof String || entity instanceof byte[]) {
+            return true;
+        }
+        if (entity instanceof ByteArrayInputStream) {
+            ((ByteArrayInputStream) entity).reset();
+            return true;
+        }
+        return false;
+    }
+
+
+    /**
+     * Wait before a retry and count it.
+     *
+     * @param retry
+     *            retry number, starting with 0
+     * @param currentPolicy
+     *            settings
+     * @throws ClientHandlerException
+     *             the thread has been interrupted
+     */
+    private void backoff(int retry, ResiliencePolicy currentPolicy)
+            throws ClientHandlerException {
+        state.getMetrics().retry();
+        long delay = currentPolicy.getBackoff(retry, ThreadLocalRandom.current().nextDouble());
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ClientHandlerException("Interrupted when waiting to retry", e);
+            }
+        }
+    }
+}
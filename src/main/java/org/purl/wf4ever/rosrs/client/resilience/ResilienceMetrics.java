@@ -0,0 +1,110 @@
+package org.purl.wf4ever.rosrs.client.resilience;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of a {@link ResilienceFilter}, safe to read at any time.
+ *
+ * @author piotrekhol
+ *
+ */
+public class ResilienceMetrics {
+
+    /** Requests passed to the filter. */
+    private final AtomicLong requests = new AtomicLong();
+
+    /** Attempts sent, including retries. */
+    private final AtomicLong attempts = new AtomicLong();
+
+    /** Retries. */
+    private final AtomicLong retries = new AtomicLong();
+
+    /** Attempts that timed out. */
+    private final AtomicLong timeouts = new AtomicLong();
+
+    /** Requests that failed after the last attempt. */
+    private final AtomicLong failures = new AtomicLong();
+
+    /** Requests rejected because a circuit was open. */
+    private final AtomicLong rejections = new AtomicLong();
+
+    /** Number of times a circuit opened. */
+    private final AtomicLong circuitsOpened = new AtomicLong();
+
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+
+    public long getAttempts() {
+        return attempts.get();
+    }
+
+
+    public long getRetries() {
+        return retries.get();
+    }
+
+
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+
+    public long getRejections() {
+        return rejections.get();
+    }
+
+
+    public long getCircuitsOpened() {
+        return circuitsOpened.get();
+    }
+
+
+    void request() {
+        requests.incrementAndGet();
+    }
+
+
+    void attempt() {
+        attempts.incrementAndGet();
+    }
+
+
+    void retry() {
+        retries.incrementAndGet();
+    }
+
+
+    void timeout() {
+        timeouts.incrementAndGet();
+    }
+
+
+    void failure() {
+        failures.incrementAndGet();
+    }
+
+
+    void rejection() {
+        rejections.incrementAndGet();
+    }
+
+
+    void circuitOpened() {
+        circuitsOpened.incrementAndGet();
+    }
+
+
+    @Override
+    public String toString() {
+        return "requests=" + requests + ", attempts=" + attempts + ", retries=" + retries + ", timeouts=" + timeouts
+                + ", failures=" + failures + ", rejections=" + rejections + ", circuitsOpened=" + circuitsOpened;
+    }
+}
@@ -0,0 +1,253 @@
+package org.purl.wf4ever.rosrs.client.resilience;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.purl.wf4ever.rosrs.client.metrics.MetricsFilter;
+
+/**
+ * Timeouts, retries and circuit breaker settings used by {@link ResilienceFilter}. The defaults are conservative: a
+ * few retries of idempotent requests on 502, 503 and 504 responses and on I/O errors, and a circuit that opens only
+ * after many consecutive failures. Read timeouts can be set for the logical operations that requests are tagged with
+ * (see {@link MetricsFilter#tag(com.sun.jersey.api.client.WebResource, String)}); uploads have no read timeout by
+ * default. The settings can be changed at any time and apply to the next requests, and {@link #disabled()} turns all
+ * of them off.
+ *
+ * @author piotrekhol
+ *
+ */
+public class ResiliencePolicy {
+
+    /** HTTP methods that can be sent again without changing the result. */
+    private static final Set<String> IDEMPOTENT_METHODS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+        "GET", "HEAD", "PUT", "DELETE", "OPTIONS")));
+
+    /** Default connect timeout, 10s. */
+    public static final int DEFAULT_CONNECT_TIMEOUT = 10000;
+
+    /** Default read timeout, 60s. */
+    public static final int DEFAULT_READ_TIMEOUT = 60000;
+
+    /** Logical operation of requests uploading resource content, which have no read timeout by default. */
+    public static final String UPLOAD_OPERATION = "upload";
+
+    /** Default number of retries after the first attempt. */
+    public static final int DEFAULT_MAX_RETRIES = 3;
+
+    /** Default delay before the first retry, 100ms. */
+    public static final long DEFAULT_BASE_BACKOFF = 100;
+
+    /** Default upper limit of the delay between retries, 5s. */
+    public static final long DEFAULT_MAX_BACKOFF = 5000;
+
+    /** Default number of consecutive failures after which the circuit of a host opens. */
+    public static final int DEFAULT_FAILURE_THRESHOLD = 20;
+
+    /** Default time for which an open circuit rejects requests, 30s. */
+    public static final long DEFAULT_OPEN_DURATION = 30000;
+
+    /** Connect timeout in milliseconds, 0 for none. */
+    private volatile int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+
+    /** Read timeout in milliseconds used for operations without their own, 0 for none. */
+    private volatile int readTimeout = DEFAULT_READ_TIMEOUT;
+
+    /** Read timeouts of specific logical operations. */
+    private final Map<String, Integer> readTimeouts = new ConcurrentHashMap<>();
+
+    /** Number of retries after the first attempt. */
+    private volatile int maxRetries = DEFAULT_MAX_RETRIES;
+
+    /** Delay before the first retry in milliseconds, doubled with every retry. */
+    private volatile long baseBackoff = DEFAULT_BASE_BACKOFF;
+
+    /** Upper limit of the delay between retries in milliseconds. */
+    private volatile long maxBackoff = DEFAULT_MAX_BACKOFF;
+
+    /** Response statuses that are transient and can be retried. */
+    private volatile Set<Integer> retryableStatuses = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(502,
+        503, 504)));
+
+    /** Number of consecutive failures after which the circuit of a host opens, 0 to never open it. */
+    private volatile int failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+
+    /** Time in milliseconds for which an open circuit rejects requests before letting a trial request through. */
+    private volatile long openDuration = DEFAULT_OPEN_DURATION;
+
+
+    /**
+     * Constructor of a policy with the default settings.
+     */
+    public ResiliencePolicy() {
+        readTimeouts.put(UPLOAD_OPERATION, 0);
+    }
+
+
+    /**
+     * Create a policy that changes nothing: no timeouts, no retries and a circuit that never opens.
+     *
+     * @return a new policy
+     */
+    public static ResiliencePolicy disabled() {
+        ResiliencePolicy policy = new ResiliencePolicy();
+        policy.setConnectTimeout(0);
+        policy.setReadTimeout(0);
+        policy.setMaxRetries(0);
+        policy.setFailureThreshold(0);
+        return policy;
+    }
+
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+
+    public void setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+
+    /**
+     * Get the read timeout of a logical operation.
+     *
+     * @param operation
+     *            the operation a request has been tagged with, such as manifest, or null if it hasn't been tagged
+     * @return the read timeout in milliseconds, 0 for none
+     */
+    public int getReadTimeout(String operation) {
+        Integer timeout = operation != null ? readTimeouts.get(operation) : null;
+        return timeout != null ? timeout : readTimeout;
+    }
+
+
+    /**
+     * Set the read timeout of a logical operation, for example a shorter one for listing research objects.
+     *
+     * @param operation
+     *            the operation requests are tagged with, such as list or {@link #UPLOAD_OPERATION}
+     * @param timeout
+     *            the read timeout in milliseconds, 0 for none
+     */
+    public void setReadTimeout(String operation, int timeout) {
+        readTimeouts.put(operation, timeout);
+    }
+
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+
+    public long getBaseBackoff() {
+        return baseBackoff;
+    }
+
+
+    public void setBaseBackoff(long baseBackoff) {
+        this.baseBackoff = baseBackoff;
+    }
+
+
+    public long getMaxBackoff() {
+        return maxBackoff;
+    }
+
+
+    public void setMaxBackoff(long maxBackoff) {
+        this.maxBackoff = maxBackoff;
+    }
+
+
+    public Set<Integer> getRetryableStatuses() {
+        return retryableStatuses;
+    }
+
+
+    public void setRetryableStatuses(Set<Integer> retryableStatuses) {
+        this.retryableStatuses = Collections.unmodifiableSet(new HashSet<>(retryableStatuses));
+    }
+
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+
+    public void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
+
+
+    public long getOpenDuration() {
+        return openDuration;
+    }
+
+
+    public void setOpenDuration(long openDuration) {
+        this.openDuration = openDuration;
+    }
+
+
+    /**
+     * Check if requests using an HTTP method can be sent again after a response has been lost.
+     *
+     * @param method
+     *            HTTP method
+     * @return true for GET, HEAD, PUT, DELETE and OPTIONS
+     */
+    public boolean isIdempotent(String method) {
+        return IDEMPOTENT_METHODS.contains(method.toUpperCase(Locale.ENGLISH));
+    }
+
+
+    /**
+     * Check if a response status means a transient failure.
+     *
+     * @param status
+     *            response status
+     * @return true if the request can be retried and counts as a failure of the host
+     */
+    public boolean isRetryableStatus(int status) {
+        return retryableStatuses.contains(status);
+    }
+
+
+    /**
+     * Calculate the delay before a retry, a random value between 0 and the exponential backoff so that clients that
+     * failed at the same time don't retry at the same time.
+     *
+     * @param retry
+     *            retry number, starting with 0
+     * @param random
+     *            a random number between 0 (inclusive) and 1 (exclusive)
+     * @return delay in milliseconds
+     */
+    public long getBackoff(int retry, double random) {
+        long limit = maxBackoff;
+        if (retry < 31) {
+            limit = Math.min(maxBackoff, baseBackoff << retry);
+        }
+        return (long) (random * Math.max(0, limit));
+    }
+}
@@ -0,0 +1,84 @@
+package org.purl.wf4ever.rosrs.client.resilience;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The settings, circuit breakers and metrics of {@link ResilienceFilter}s. Jersey links every filter to the client it
+ * has been added to, so each client needs its own filter, but the filters of many clients can share one state, so
+ * that a host is treated in the same way whichever client calls it.
+ *
+ * @author piotrekhol
+ *
+ */
+public class ResilienceState {
+
+    /** Settings. */
+    private volatile ResiliencePolicy policy;
+
+    /** Circuit breakers by host and port. */
+    private final ConcurrentMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    /** Counters. */
+    private final ResilienceMetrics metrics = new ResilienceMetrics();
+
+
+    /**
+     * Constructor.
+     *
+     * @param policy
+     *            settings
+     */
+    public ResilienceState(ResiliencePolicy policy) {
+        this.policy = policy;
+    }
+
+
+    public ResiliencePolicy getPolicy() {
+        return policy;
+    }
+
+
+    public void setPolicy(ResiliencePolicy policy) {
+        this.policy = policy;
+    }
+
+
+    public ResilienceMetrics getMetrics() {
+        return metrics;
+    }
+
+
+    /**
+     * Get the circuit breakers of all hosts that have been called.
+     *
+     * @return circuit breakers by host and port
+     */
+    public Map<String, CircuitBreaker> getCircuitBreakers() {
+        return Collections.unmodifiableMap(breakers);
+    }
+
+
+    /**
+     * Get the circuit breaker of a host.
+     *
+     * @param uri
+     *            any URI of the host
+     * @return the circuit breaker, created if necessary
+     */
+    public CircuitBreaker getCircuitBreaker(URI uri) {
+        String host = uri.getHost() + ":" + uri.getPort();
+        CircuitBreaker breaker = breakers.get(host);
+        if (breaker == null) {
+            CircuitBreaker created = new CircuitBreaker(host);
+            breaker = breakers.putIfAbsent(host, created);
+            if (breaker == null) {
+                breaker = created;
+            }
+        }
+        return breaker;
+    }
+}
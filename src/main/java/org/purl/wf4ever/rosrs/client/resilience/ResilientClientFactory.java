@@ -0,0 +1,83 @@
+package org.purl.wf4ever.rosrs.client.resilience;
+
+import org.purl.wf4ever.rosrs.client.cache.SingleFlightFilter;
+import org.purl.wf4ever.rosrs.client.metrics.MetricsFilter;
+
+import com.sun.jersey.api.client.Client;
+
+/**
+ * Creates the HTTP clients of all RODL services. Every client has its own {@link ResilienceFilter}, because Jersey
+ * links a filter to the client it is added to, but the filters share one {@link ResilienceState}, so that the state of
+ * a host, its circuit breaker and the metrics are the same whichever service calls it. In the same way, the
+ * {@link SingleFlightFilter}s of the clients share their requests in progress, so that identical GET requests sent at
+ * the same time by different services are sent only once. Requests of different users, i.e. with different
+ * Authorization headers, are never shared. Every client also has a {@link MetricsFilter} named after its service.
+ *
+ * @author piotrekhol
+ *
+ */
+public final class ResilientClientFactory {
+
+    /** The settings, circuit breakers and metrics shared by all clients. */
+    private static final ResilienceState STATE = new ResilienceState(new ResiliencePolicy());
+
+    /** The requests in progress shared by the request coalescing filters of all clients. */
+    private static final SingleFlightFilter.Flights FLIGHTS = new SingleFlightFilter.Flights();
+
+
+    /**
+     * Private constructor.
+     */
+    private ResilientClientFactory() {
+        //nope
+    }
+
+
+    /**
+     * Create a new HTTP client. Filters added to it later are called before the shared filters, so that for example
+     * a cache doesn't count as a request to the host.
+     *
+     * @param service
+     *            service name used in metrics, such as rosrs
+     * @return an HTTP client
+     */
+    public static Client createClient(String service) {
+        Client client = Client.create();
+        client.addFilter(new ResilienceFilter(STATE));
+        client.addFilter(new SingleFlightFilter(FLIGHTS));
+        client.addFilter(new MetricsFilter(service));
+        return client;
+    }
+
+
+    /**
+     * Get the state shared by the resilience filters of all clients, for its metrics and circuit breakers.
+     *
+     * @return the shared state
+     */
+    public static ResilienceState getState() {
+        return STATE;
+    }
+
+
+    /**
+     * Get the requests in progress shared by the request coalescing filters of all clients, for their statistics.
+     *
+     * @return the shared requests in progress
+     */
+    public static SingleFlightFilter.Flights getFlights() {
+        return FLIGHTS;
+    }
+
+
+    /**
+     * Change the settings of all clients. Use {@link ResiliencePolicy#disabled()} to send the requests without
+     * timeouts, retries or circuit breakers.
+     *
+     * @param policy
+     *            new settings
+     */
+    public static void setPolicy(ResiliencePolicy policy) {
+        STATE.setPolicy(policy);
+    }
+}
@@ -0,0 +1,498 @@
+package org.purl.wf4ever.rosrs.client.search;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.purl.wf4ever.rosrs.client.exception.SearchException;
+import org.purl.wf4ever.rosrs.client.search.dataclasses.SearchResult;
+import org.purl.wf4ever.rosrs.client.search.utils.SolrQueryBuilder;
+
+/**
+ * A search server that keeps the results of recent searches of another one, such as {@link SolrSearchServer} or
+ * {@link SparqlSearchServer}, so that popular searches are not sent again.
+ * 
+ * Searches are the same if their queries differ only in whitespace, if their sort fields are the same and in the same
+ * order, and if they ask for the same page, a missing offset meaning 0. A result is fresh for a while after it has
+ * been received and then stale for another while. A stale result is returned at once and refreshed in the background.
+ * Older results are searched for again. When many callers miss the same search at the same time, it is sent once and
+ * they all wait for its result. The least recently used results are removed when the cache is full.
+ * 
+ * Every caller gets its own copy of a cached result, so its lists can be changed. The found ROs and facets in them are
+ * shared by all callers and should only be read.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public class CachingSearchServer implements SearchServer, Closeable {
+
+    /** Logger. */
+    private static final Logger LOG = Logger.getLogger(CachingSearchServer.class);
+
+    /** Default maximum number of cached results. */
+    public static final int DEFAULT_MAX_SIZE = 1000;
+
+    /** Default time for which a result is fresh, in milliseconds. */
+    public static final long DEFAULT_TTL = 60 * 1000;
+
+    /** Default time for which a result is stale after it's no longer fresh, in milliseconds. */
+    public static final long DEFAULT_STALE_TTL = 5 * 60 * 1000;
+
+    /** The search server queried on a miss. */
+    private final SearchServer server;
+
+    /** Time for which a result is fresh, in milliseconds. */
+    private final long ttl;
+
+    /** Time for which a result is stale after it's no longer fresh, in milliseconds. */
+    private final long staleTtl;
+
+    /** Cached results by search key, in access order. */
+    private final Map<String, CachedResult> entries;
+
+    /** Keys of the results being refreshed. */
+    private final Set<String> refreshing = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /** Searches sent after a miss, by search key, shared by the callers missing the same search. */
+    private final ConcurrentMap<String, FutureTask<SearchResult>> loading = new ConcurrentHashMap<>();
+
+    /** Counters. */
+    private final SearchCacheMetrics metrics = new SearchCacheMetrics();
+
+    /** Runs the refreshes, null until needed if owned by this server. */
+    private Executor executor;
+
+    /** Was the executor created by this server. */
+    private final boolean ownExecutor;
+
+
+    /**
+     * Constructor with the default size and times.
+     * 
+     * @param server
+     *            the search server queried on a miss
+     */
+    public CachingSearchServer(SearchServer server) {
+        this(server, DEFAULT_MAX_SIZE, DEFAULT_TTL, DEFAULT_STALE_TTL);
+    }
+
+
+    /**
+     * Constructor. Stale results are refreshed by a thread of this server, stopped when it's closed.
+     * 
+     * @param server
+     *            the search server queried on a miss
+     * @param maxSize
+     *            maximum number of cached results
+     * @param ttl
+     *            time for which a result is fresh, in milliseconds
+     * @param staleTtl
+     *            time for which a result is stale after it's no longer fresh, in milliseconds, 0 to always wait for
+     *            the search server
+     */
+    public CachingSearchServer(SearchServer server, int maxSize, long ttl, long staleTtl) {
+        this(server, maxSize, ttl, staleTtl, null, true);
+    }
+
+
+    /**
+     * Constructor.
+     * 
+     * @param server
+     *            the search server queried on a miss
+     * @param maxSize
+     *            maximum number of cached results
+     * @param ttl
+     *            time for which a result is fresh, in milliseconds
+     * @param staleTtl
+     *            time for which a result is stale after it's no longer fresh, in milliseconds, 0 to always wait for
+     *            the search server
+     * @param executor
+     *            runs the refreshes of stale results. It is not shut down when this server is closed.
+     */
+    public CachingSearchServer(SearchServer server, int maxSize, long ttl, long staleTtl, Executor executor) {
+        this(server, maxSize, ttl, staleTtl, executor, false);
+    }
+
+
+    /**
+     * Constructor.
+     * 
+     * @param server
+     *            the search server queried on a miss
+     * @param maxSize
+     *            maximum number of cached results
+     * @param ttl
+     *            time for which a result is fresh, in milliseconds
+     * @param staleTtl
+     *            time for which a result is stale after it's no longer fresh, in milliseconds
+     * @param executor
+     *            runs the refreshes of stale results or null to create it when needed
+     * @param ownExecutor
+     *            was the executor created by this server
+     */
+    private CachingSearchServer(SearchServer server, final int maxSize, long ttl, long staleTtl, Executor executor,
+            boolean ownExecutor) {
+        this.server = server;
+        this.ttl = ttl;
+        this.staleTtl = staleTtl;
+        this.executor = executor;
+        this.ownExecutor = ownExecutor;
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<String, CachedResult>(16, 0.75f, true) {
+
+            /** id. */
+            private static final long serialVersionUID = -4436218474563713208L;
+
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+                if (size() > maxSize) {
+                    metrics.eviction();
+                    return true;
+                }
+                return false;
+            }
+        });
+    }
+
+
+    public SearchServer getServer() {
+        return server;
+    }
+
+
+    public SearchCacheMetrics getMetrics() {
+        return metrics;
+    }
+
+
+    /**
+     * Get the number of cached results, fresh or stale.
+     * 
+     * @return the number of cached results
+     */
+    public int size() {
+        return entries.size();
+    }
+
+
+    /**
+     * Remove all cached results, for example after an RO has been created or deleted.
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+
+    @Override
+    public boolean supportsPagination() {
+        return server.supportsPagination();
+    }
+
+
+    @Override
+    public SearchResult search(final String query)
+            throws SearchException {
+        return search("all\n" + SolrQueryBuilder.normalizeWhitespace(query), new Search() {
+
+            @Override
+            public SearchResult run()
+                    throws SearchException {
+                return server.search(query);
+            }
+        });
+    }
+
+
+    @Override
+    public SearchResult search(final String query, final Integer offset, final Integer limit,
+            final Map<String, SortOrder> sortFields)
+            throws SearchException {
+        return search(key(query, offset, limit, sortFields), new Search() {
+
+            @Override
+            public SearchResult run()
+                    throws SearchException {
+                return server.search(query, offset, limit, sortFields);
+            }
+        });
+    }
+
+
+    /**
+     * Stop the thread refreshing stale results if it has been created by this server. The cached results can still be
+     * used but stale results are no longer refreshed in the background.
+     */
+    @Override
+    public synchronized void close() {
+        if (ownExecutor && executor != null) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+
+
+    /**
+     * Get the current time. Overridden in tests.
+     * 
+     * @return the current time in milliseconds
+     */
+    long now() {
+        return System.currentTimeMillis();
+    }
+
+
+    /**
+     * Create the cache key of a search with pagination.
+     * 
+     * @param query
+     *            the query
+     * @param offset
+     *            how many first results to skip or null
+     * @param limit
+     *            the maximum number of results or null
+     * @param sortFields
+     *            sort fields in order or null
+     * @return a key that is the same for the same searches
+     */
+    String key(String query, Integer offset, Integer limit, Map<String, SortOrder> sortFields) {
+        StringBuilder key = new StringBuilder("page\n");
+        key.append(SolrQueryBuilder.normalizeWhitespace(query)).append('\n');
+        if (server.supportsPagination()) {
+            key.append(offset != null ? offset.intValue() : 0).append(' ').append(limit != null ? limit : "");
+        }
+        key.append('\n');
+        if (sortFields != null) {
+            for (Map.Entry<String, SortOrder> field : sortFields.entrySet()) {
+                key.append(field.getKey().trim()).append(' ').append(field.getValue()).append(',');
+            }
+        }
+        return key.toString();
+    }
+
+
+    /**
+     * Return a cached result or search for it. If the same search has already been sent after a miss, wait for its
+     * result instead of sending it again.
+     * 
+     * @param key
+     *            search key
+     * @param search
+     *            the search to run on a miss
+     * @return the result
+     * @throws SearchException
+     *             the search failed
+     */
+    private SearchResult search(final String key, final Search search)
+            throws SearchException {
+        final long now = now();
+        CachedResult entry = entries.get(key);
+        if (entry != null) {
+            long age = now - entry.received;
+            if (age < ttl) {
+                metrics.hit();
+                return new SearchResult(entry.result);
+            }
+            if (age < ttl + staleTtl && refresh(key, search)) {
+                metrics.staleHit();
+                return new SearchResult(entry.result);
+            }
+        }
+        FutureTask<SearchResult> load = new FutureTask<>(new Callable<SearchResult>() {
+
+            @Override
+            public SearchResult call()
+                    throws SearchException {
+                SearchResult result = search.run();
+                if (result != null) {
+                    entries.put(key, new CachedResult(result, now));
+                }
+                return result;
+            }
+        });
+        FutureTask<SearchResult> inFlight = loading.putIfAbsent(key, load);
+        if (inFlight == null) {
+            metrics.miss();
+            try {
+                load.run();
+            } finally {
+                loading.remove(key, load);
+            }
+            inFlight = load;
+        } else {
+            metrics.sharedMiss();
+        }
+        SearchResult result = await(inFlight);
+        return result != null ? new SearchResult(result) : null;
+    }
+
+
+    /**
+     * Wait for a search sent after a miss.
+     * 
+     * @param load
+     *            the search
+     * @return the result
+     * @throws SearchException
+     *             the search failed or the thread has been interrupted
+     */
+    private static SearchResult await(FutureTask<SearchResult> load)
+            throws SearchException {
+        try {
+            return load.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SearchException("Interrupted when waiting for the search result", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SearchException) {
+                throw (SearchException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new SearchException("The search failed", e);
+        }
+    }
+
+
+    /**
+     * Refresh a stale result in the background, unless it's being refreshed already.
+     * 
+     * @param key
+     *            search key
+     * @param search
+     *            the search
+     * @return true if the result is being refreshed, false if it can't be
+     */
+    private boolean refresh(final String key, final Search search) {
+        if (!refreshing.add(key)) {
+            return true;
+        }
+        try {
+            getExecutor().execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        long start = now();
+                        SearchResult result = search.run();
+                        if (result != null) {
+                            entries.put(key, new CachedResult(result, start));
+                        }
+                        metrics.refresh();
+                    } catch (SearchException | RuntimeException e) {
+                        metrics.refreshFailure();
+                        LOG.warn("Failed to refresh the search result for " + key.replace('\n', ' '), e);
+                    } finally {
+                        refreshing.remove(key);
+                    }
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(key);
+            LOG.debug("Can't refresh the search result in the background", e);
+            return false;
+        }
+    }
+
+
+    /**
+     * Get the executor running the refreshes, creating it if necessary.
+     * 
+     * @return the executor
+     */
+    private synchronized Executor getExecutor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(new RefreshThreadFactory());
+        }
+        return executor;
+    }
+
+
+    /**
+     * A search sent to the search server.
+     * 
+     * @author piotrekhol
+     * 
+     */
+    private interface Search {
+
+        /**
+         * Send the search.
+         * 
+         * @return the result
+         * @throws SearchException
+         *             the search failed
+         */
+        SearchResult run()
+                throws SearchException;
+    }
+
+
+    /**
+     * A cached result.
+     * 
+     * @author piotrekhol
+     * 
+     */
+    private static final class CachedResult {
+
+        /** The result. */
+        private final SearchResult result;
+
+        /** When the search was sent, in milliseconds. */
+        private final long received;
+
+
+        /**
+         * Constructor.
+         * 
+         * @param result
+         *            the result
+         * @param received
+         *            when the search was sent, in milliseconds
+         */
+        private CachedResult(SearchResult result, long received) {
+            this.result = result;
+            this.received = received;
+        }
+    }
+
+
+    /**
+     * Creates daemon threads with recognizable names, so that a forgotten server doesn't stop the JVM from exiting.
+     * 
+     * @author piotrekhol
+     * 
+     */
+    private static final class RefreshThreadFactory implements ThreadFactory {
+
+        /** Number of threads created by all servers. */
+        private static final AtomicInteger COUNT = new AtomicInteger();
+
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "search-cache-refresh-" + COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.purl.wf4ever.rosrs.client.search;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.solr.client.solrj.response.FacetField;
+import org.apache.solr.client.solrj.response.RangeFacet;
+import org.purl.wf4ever.rosrs.client.search.utils.SolrQueryBuilder;
+
+/**
+ * Facet counts recently returned by Solr, so that paging through the results of a query doesn't make Solr count the
+ * facets again. The counts are kept for a short time, after which they are computed again to include the ROs that have
+ * changed. The least recently used counts are removed when the cache is full.
+ * 
+ * @author piotrekhol
+ * 
+ */
+class FacetCache {
+
+    /** Cached counts by query. */
+    private final Map<String, Counts> entries;
+
+    /** How long the counts are valid, in milliseconds. */
+    private final long ttl;
+
+
+    /**
+     * Constructor.
+     * 
+     * @param maxSize
+     *            the maximum number of queries for which the counts are kept
+     * @param ttl
+     *            how long the counts are valid, in milliseconds
+     */
+    FacetCache(final int maxSize, long ttl) {
+        this.ttl = ttl;
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<String, Counts>(16, 0.75f, true) {
+
+            /** id. */
+            private static final long serialVersionUID = 2744217405812806218L;
+
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Counts> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+
+    /**
+     * Create the cache key of a query.
+     * 
+     * @param queryString
+     *            Solr query
+     * @param facets
+     *            the facets computed
+     * @return a key that is the same for queries that differ only in whitespace
+     */
+    static String key(String queryString, SolrFacets facets) {
+        return SolrQueryBuilder.normalizeWhitespace(queryString) + "\n" + facets.getKey();
+    }
+
+
+    /**
+     * Get the counts if they are still valid.
+     * 
+     * @param key
+     *            the cache key
+     * @return the counts or null
+     */
+    Counts get(String key) {
+        Counts entry = entries.get(key);
+        if (entry != null && System.currentTimeMillis() - entry.created > ttl) {
+            entries.remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+
+    /**
+     * Keep the counts returned by Solr.
+     * 
+     * @param key
+     *            the cache key
+     * @param fields
+     *            the field facets or null
+     * @param ranges
+     *            the range facets or null
+     */
+    void put(String key, List<FacetField> fields, List<RangeFacet> ranges) {
+        entries.put(key, new Counts(fields, ranges));
+    }
+
+
+    /**
+     * Facet counts of one query. The facets returned by Solr are not modified, so they can be shared by many search
+     * results.
+     * 
+     * @author piotrekhol
+     * 
+     */
+    static final class Counts {
+
+        /** Field facets. */
+        private final List<FacetField> fields;
+
+        /** Range facets. */
+        private final List<RangeFacet> ranges;
+
+        /** When the counts have been computed. */
+        private final long created = System.currentTimeMillis();
+
+
+        /**
+         * Constructor.
+         * 
+         * @param fields
+         *            field facets or null
+         * @param ranges
+         *            range facets or null
+         */
+        Counts(List<FacetField> fields, List<RangeFacet> ranges) {
+            this.fields = fields;
+            this.ranges = ranges;
+        }
+
+
+        public List<FacetField> getFields() {
+            return fields;
+        }
+
+
+        public List<RangeFacet> getRanges() {
+            return ranges;
+        }
+    }
+}
@@ -11,11 +11,13 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.http.HttpStatus;
 import org.apache.log4j.Logger;
 import org.jdom.Element;
 import org.joda.time.DateTime;
 import org.purl.wf4ever.rosrs.client.ResearchObject;
 import org.purl.wf4ever.rosrs.client.exception.SearchException;
+import org.purl.wf4ever.rosrs.client.metrics.Metrics;
 import org.purl.wf4ever.rosrs.client.search.dataclasses.FoundRO;
 import org.purl.wf4ever.rosrs.client.search.dataclasses.SearchResult;
 
@@ -40,6 +42,9 @@ public class OpenSearchSearchServer implements SearchServer {
     /** dLibra namespace. */
     private static final String DL_QUERY_NS = "http://dlibra.psnc.pl/opensearch/";
 
+    /** Operation name used in metrics. */
+    private static final String OPERATION = "opensearch search";
+
     /** date format for parsing the dates in search results. */
     public static final SimpleDateFormat SDF = new SimpleDateFormat("yyyy.MM.dd HH:mm:ss z");
 
@@ -90,11 +95,14 @@ public class OpenSearchSearchServer implements SearchServer {
 
         SyndFeedInput input = new SyndFeedInput();
         SyndFeed feed;
+        long start = Metrics.start(OPERATION);
         try {
             feed = input.build(new XmlReader(queryURI.toURL()));
         } catch (IllegalArgumentException | FeedException | IOException e1) {
+            Metrics.finish(OPERATION, start, -1);
             throw new SearchException("Error when loading the search results", e1);
         }
+        Metrics.finish(OPERATION, start, HttpStatus.SC_OK);
 
         List<SyndEntry> entries = feed.getEntries();
         List<FoundRO> ros = new ArrayList<>();
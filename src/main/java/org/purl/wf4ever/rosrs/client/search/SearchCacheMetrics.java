@@ -0,0 +1,123 @@
+package org.purl.wf4ever.rosrs.client.search;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of a {@link CachingSearchServer}, safe to read at any time.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public class SearchCacheMetrics {
+
+    /** Searches answered with a fresh cached result. */
+    private final AtomicLong hits = new AtomicLong();
+
+    /** Searches answered with a stale cached result while it was being refreshed. */
+    private final AtomicLong staleHits = new AtomicLong();
+
+    /** Searches sent to the search server. */
+    private final AtomicLong misses = new AtomicLong();
+
+    /** Missed searches that waited for the same search sent by another caller. */
+    private final AtomicLong sharedMisses = new AtomicLong();
+
+    /** Stale results refreshed in the background. */
+    private final AtomicLong refreshes = new AtomicLong();
+
+    /** Background refreshes that failed. */
+    private final AtomicLong refreshFailures = new AtomicLong();
+
+    /** Results removed because the cache was full. */
+    private final AtomicLong evictions = new AtomicLong();
+
+
+    public long getHits() {
+        return hits.get();
+    }
+
+
+    public long getStaleHits() {
+        return staleHits.get();
+    }
+
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+
+    public long getSharedMisses() {
+        return sharedMisses.get();
+    }
+
+
+    public long getRefreshes() {
+        return refreshes.get();
+    }
+
+
+    public long getRefreshFailures() {
+        return refreshFailures.get();
+    }
+
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+
+    /**
+     * Get the share of searches answered from the cache, including the stale results. Shared misses are not answered
+     * from the cache.
+     * 
+     * @return a number between 0 and 1, 0 if there have been no searches
+     */
+    public double getHitRate() {
+        long cached = hits.get() + staleHits.get();
+        long total = cached + misses.get() + sharedMisses.get();
+        return total == 0 ? 0 : (double) cached / total;
+    }
+
+
+    void hit() {
+        hits.incrementAndGet();
+    }
+
+
+    void staleHit() {
+        staleHits.incrementAndGet();
+    }
+
+
+    void miss() {
+        misses.incrementAndGet();
+    }
+
+
+    void sharedMiss() {
+        sharedMisses.incrementAndGet();
+    }
+
+
+    void refresh() {
+        refreshes.incrementAndGet();
+    }
+
+
+    void refreshFailure() {
+        refreshFailures.incrementAndGet();
+    }
+
+
+    void eviction() {
+        evictions.incrementAndGet();
+    }
+
+
+    @Override
+    public String toString() {
+        return "hits=" + hits + ", staleHits=" + staleHits + ", misses=" + misses + ", sharedMisses=" + sharedMisses
+                + ", refreshes=" + refreshes + ", refreshFailures=" + refreshFailures + ", evictions=" + evictions;
+    }
+}
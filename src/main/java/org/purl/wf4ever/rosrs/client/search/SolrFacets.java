@@ -0,0 +1,318 @@
+package org.purl.wf4ever.rosrs.client.search;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.response.FacetField;
+import org.apache.solr.client.solrj.response.RangeFacet;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.purl.wf4ever.rosrs.client.search.dataclasses.solr.CreatorFacetEntry;
+import org.purl.wf4ever.rosrs.client.search.dataclasses.solr.DateRangeFacetEntry;
+import org.purl.wf4ever.rosrs.client.search.dataclasses.solr.FacetEntry;
+import org.purl.wf4ever.rosrs.client.search.dataclasses.solr.RangeFacetEntry;
+
+/**
+ * The facets computed by a Solr search, in the order in which they are returned. Date ranges end at the beginning of
+ * the next month in UTC, so that the same query sends the same parameters for a whole month and its results can be
+ * cached.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public class SolrFacets implements Serializable {
+
+    /** id. */
+    private static final long serialVersionUID = 6094713880523839318L;
+
+    /** Kinds of facets. */
+    private enum Type {
+        /** Values of a field. */
+        FIELD,
+        /** Values of a field with creator names, not used for sorting. */
+        CREATOR,
+        /** Numeric ranges. */
+        RANGE,
+        /** Date ranges of whole months. */
+        DATE_RANGE
+    }
+
+
+    /** Facets in the order in which they are returned. */
+    private final List<Facet> facets = new ArrayList<>();
+
+
+    /**
+     * Create the facets displayed by the RODL portal: creators, RO status, number of annotations (0-100 by 10), number
+     * of resources (0-200 by 20) and the creation date in the last 2 years by 3 months.
+     * 
+     * @return new facets that can be modified
+     */
+    public static SolrFacets defaults() {
+        return new SolrFacets().addCreatorField("creator", "Creators").addField("evo_type", "RO status")
+                .addRange("annotations_size", "Number of annotations", 0, 100, 10)
+                .addRange("resources_size", "Number of resources", 0, 200, 20)
+                .addDateRange("created", "Creation date", 24, 3);
+    }
+
+
+    /**
+     * Add a facet with the values of a field.
+     * 
+     * @param field
+     *            field name
+     * @param name
+     *            human readable name
+     * @return this object
+     */
+    public SolrFacets addField(String field, String name) {
+        facets.add(new Facet(Type.FIELD, field, name, 0, 0, 0));
+        return this;
+    }
+
+
+    /**
+     * Add a facet with the names of creators, which can't be used for sorting.
+     * 
+     * @param field
+     *            field name
+     * @param name
+     *            human readable name
+     * @return this object
+     */
+    public SolrFacets addCreatorField(String field, String name) {
+        facets.add(new Facet(Type.CREATOR, field, name, 0, 0, 0));
+        return this;
+    }
+
+
+    /**
+     * Add a facet with numeric ranges.
+     * 
+     * @param field
+     *            field name
+     * @param name
+     *            human readable name
+     * @param start
+     *            start of the first range
+     * @param end
+     *            end of the last range, after which all values are counted together
+     * @param gap
+     *            size of each range
+     * @return this object
+     */
+    public SolrFacets addRange(String field, String name, int start, int end, int gap) {
+        facets.add(new Facet(Type.RANGE, field, name, start, end, gap));
+        return this;
+    }
+
+
+    /**
+     * Add a facet with date ranges of whole months, ending at the beginning of the next month.
+     * 
+     * @param field
+     *            field name
+     * @param name
+     *            human readable name
+     * @param months
+     *            number of months covered
+     * @param gap
+     *            number of months in each range
+     * @return this object
+     */
+    public SolrFacets addDateRange(String field, String name, int months, int gap) {
+        facets.add(new Facet(Type.DATE_RANGE, field, name, 0, months, gap));
+        return this;
+    }
+
+
+    public boolean isEmpty() {
+        return facets.isEmpty();
+    }
+
+
+    /**
+     * Add the facet parameters to a query.
+     * 
+     * @param query
+     *            the query
+     * @param now
+     *            current time, to which the date ranges are relative
+     */
+    void addTo(SolrQuery query, DateTime now) {
+        DateTime nextMonth = now.withZone(DateTimeZone.UTC).withDayOfMonth(1).withTimeAtStartOfDay().plusMonths(1);
+        for (Facet facet : facets) {
+            switch (facet.type) {
+                case FIELD:
+                case CREATOR:
+                    query.addFacetField(facet.field);
+                    break;
+                case RANGE:
+                    query.addNumericRangeFacet(facet.field, facet.start, facet.end, facet.gap);
+                    break;
+                case DATE_RANGE:
+                    query.addDateRangeFacet(facet.field, nextMonth.minusMonths(facet.end).toDate(),
+                        nextMonth.toDate(), "+" + facet.gap + "MONTH");
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+
+    /**
+     * Create the facets of a search result. Facets missing from the response are skipped.
+     * 
+     * @param fields
+     *            the field facets returned by Solr or null
+     * @param ranges
+     *            the range facets returned by Solr or null
+     * @param numFound
+     *            number of ROs found
+     * @return facets for the search result
+     */
+    List<FacetEntry> createEntries(List<FacetField> fields, List<RangeFacet> ranges, long numFound) {
+        List<FacetEntry> entries = new ArrayList<>(facets.size());
+        for (Facet facet : facets) {
+            switch (facet.type) {
+                case FIELD:
+                case CREATOR:
+                    FacetField field = findField(fields, facet.field);
+                    if (field != null) {
+                        entries.add(facet.type == Type.CREATOR ? new CreatorFacetEntry(field, facet.name, false)
+                                : new FacetEntry(field, facet.name));
+                    }
+                    break;
+                case RANGE:
+                case DATE_RANGE:
+                    RangeFacet<?, ?> range = findRange(ranges, facet.field);
+                    if (range != null) {
+                        entries.add(facet.type == Type.RANGE ? new RangeFacetEntry(range, facet.name, numFound)
+                                : new DateRangeFacetEntry(range, facet.name, facet.gap));
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return entries;
+    }
+
+
+    /**
+     * Find a field facet.
+     * 
+     * @param fields
+     *            field facets or null
+     * @param name
+     *            field name
+     * @return the facet or null
+     */
+    private static FacetField findField(List<FacetField> fields, String name) {
+        if (fields != null) {
+            for (FacetField field : fields) {
+                if (name.equals(field.getName())) {
+                    return field;
+                }
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * Find a range facet.
+     * 
+     * @param ranges
+     *            range facets or null
+     * @param name
+     *            field name
+     * @return the facet or null
+     */
+    private static RangeFacet<?, ?> findRange(List<RangeFacet> ranges, String name) {
+        if (ranges != null) {
+            for (RangeFacet<?, ?> range : ranges) {
+                if (name.equals(range.getName())) {
+                    return range;
+                }
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * A description of the facets used to tell apart cached facet counts.
+     * 
+     * @return a string that is the same for the same facets
+     */
+    String getKey() {
+        return facets.toString();
+    }
+
+
+    /**
+     * One facet.
+     * 
+     * @author piotrekhol
+     * 
+     */
+    private static final class Facet implements Serializable {
+
+        /** id. */
+        private static final long serialVersionUID = -2930713218539312624L;
+
+        /** Kind of facet. */
+        private final Type type;
+
+        /** Field name. */
+        private final String field;
+
+        /** Human readable name. */
+        private final String name;
+
+        /** Start of a numeric range. */
+        private final int start;
+
+        /** End of a numeric range or number of months of a date range. */
+        private final int end;
+
+        /** Size of each range, in months for date ranges. */
+        private final int gap;
+
+
+        /**
+         * Constructor.
+         * 
+         * @param type
+         *            kind of facet
+         * @param field
+         *            field name
+         * @param name
+         *            human readable name
+         * @param start
+         *            start of a numeric range
+         * @param end
+         *            end of a numeric range or number of months of a date range
+         * @param gap
+         *            size of each range
+         */
+        private Facet(Type type, String field, String name, int start, int end, int gap) {
+            this.type = type;
+            this.field = field;
+            this.name = name;
+            this.start = start;
+            this.end = end;
+            this.gap = gap;
+        }
+
+
+        @Override
+        public String toString() {
+            return type + " " + field + " " + start + " " + end + " " + gap;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package org.purl.wf4ever.rosrs.client.search;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.log4j.Logger;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrQuery.ORDER;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.client.solrj.util.ClientUtils;
+import org.apache.solr.common.SolrDocumentList;
+import org.purl.wf4ever.rosrs.client.exception.SearchException;
+import org.purl.wf4ever.rosrs.client.search.dataclasses.FoundRO;
+
+/**
+ * An iterator over all ROs found by a Solr query, sorted by their URIs and downloaded one page at a time, so that the
+ * memory used doesn't depend on the number of results. Instead of skipping the previous results, which gets slower
+ * with every page, each page continues from where the previous one ended: with the cursor mark returned by Solr 4.7
+ * and later or, if the server doesn't return one, with a filter on the URIs greater than the last one.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public class SolrResultIterator implements Iterator<FoundRO> {
+
+    /** Logger. */
+    private static final Logger LOG = Logger.getLogger(SolrResultIterator.class);
+
+    /** Request parameter of the cursor mark. */
+    static final String CURSOR_MARK = "cursorMark";
+
+    /** Response field with the cursor mark of the next page. */
+    static final String NEXT_CURSOR_MARK = "nextCursorMark";
+
+    /** The cursor mark of the first page. */
+    static final String FIRST_CURSOR_MARK = "*";
+
+    /** The search server. */
+    private final SolrSearchServer server;
+
+    /** Solr query. */
+    private final String queryString;
+
+    /** Number of ROs downloaded at a time. */
+    private final int pageSize;
+
+    /** Fields to return or null for all stored fields. */
+    private final Collection<String> fields;
+
+    /** The ROs of the current page that haven't been returned yet. */
+    private Iterator<FoundRO> page = Collections.<FoundRO> emptyList().iterator();
+
+    /** The cursor mark of the next page, null if the server doesn't support cursors. */
+    private String cursorMark = FIRST_CURSOR_MARK;
+
+    /** URI of the last RO downloaded. */
+    private String lastUri;
+
+    /** Have all pages been downloaded. */
+    private boolean exhausted;
+
+    /** Number of ROs found, -1 before the first page is downloaded. */
+    private long numFound = -1;
+
+
+    /**
+     * Constructor.
+     * 
+     * @param server
+     *            the search server
+     * @param queryString
+     *            Solr query
+     * @param pageSize
+     *            number of ROs downloaded at a time
+     * @param fields
+     *            fields to return or null for all stored fields
+     */
+    SolrResultIterator(SolrSearchServer server, String queryString, int pageSize, Collection<String> fields) {
+        this.server = server;
+        this.queryString = queryString;
+        this.pageSize = Math.max(1, pageSize);
+        this.fields = fields;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @throws IllegalStateException
+     *             the next page can't be downloaded, caused by a {@link SearchException}
+     */
+    @Override
+    public boolean hasNext() {
+        while (!page.hasNext()) {
+            if (exhausted) {
+                return false;
+            }
+            try {
+                nextPage();
+            } catch (SearchException e) {
+                exhausted = true;
+                throw new IllegalStateException("Can't download the next page of search results", e);
+            }
+        }
+        return true;
+    }
+
+
+    @Override
+    public FoundRO next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.next();
+    }
+
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Search results are read-only");
+    }
+
+
+    /**
+     * Get the number of ROs found, downloading the first page if necessary.
+     * 
+     * @return the number of ROs found
+     * @throws IllegalStateException
+     *             the first page can't be downloaded
+     */
+    public long getNumFound() {
+        if (numFound < 0) {
+            hasNext();
+        }
+        return numFound;
+    }
+
+
+    /**
+     * Download the next page.
+     * 
+     * @throws SearchException
+     *             the query failed
+     */
+    private void nextPage()
+            throws SearchException {
+        SolrQuery query = new SolrQuery(queryString);
+        SolrSearchServer.setFields(query, fields);
+        query.setRows(pageSize);
+        query.addSortField(SolrSearchServer.FIELD_RO_URI, ORDER.asc);
+        if (cursorMark != null) {
+            query.set(CURSOR_MARK, cursorMark);
+        } else if (lastUri != null) {
+            query.addFilterQuery(SolrSearchServer.FIELD_RO_URI + ":{" + ClientUtils.escapeQueryChars(lastUri)
+                    + " TO *]");
+        }
+        QueryResponse response = server.query(query);
+        SolrDocumentList documents = response.getResults();
+        if (numFound < 0) {
+            numFound = documents.getNumFound();
+        }
+        exhausted = documents.size() < pageSize;
+        if (cursorMark != null) {
+            Object next = response.getResponse().get(NEXT_CURSOR_MARK);
+            if (next == null) {
+                LOG.debug("Solr doesn't support cursors, paging by URI ranges");
+                cursorMark = null;
+            } else {
+                exhausted |= cursorMark.equals(next.toString());
+                cursorMark = next.toString();
+            }
+        }
+        if (!documents.isEmpty()) {
+            lastUri = documents.get(documents.size() - 1).getFieldValue(SolrSearchServer.FIELD_RO_URI).toString();
+        }
+        page = SolrSearchServer.getROsList(documents).iterator();
+    }
+}
@@ -3,10 +3,16 @@ package org.purl.wf4ever.rosrs.client.search;
 import java.io.Serializable;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import org.apache.http.HttpStatus;
 import org.apache.log4j.Logger;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrQuery.ORDER;
@@ -16,14 +22,11 @@ import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
 import org.joda.time.DateTime;
-import org.purl.wf4ever.rosrs.client.ResearchObject;
 import org.purl.wf4ever.rosrs.client.exception.SearchException;
+import org.purl.wf4ever.rosrs.client.metrics.Metrics;
 import org.purl.wf4ever.rosrs.client.search.dataclasses.FoundRO;
 import org.purl.wf4ever.rosrs.client.search.dataclasses.SearchResult;
-import org.purl.wf4ever.rosrs.client.search.dataclasses.solr.CreatorFacetEntry;
-import org.purl.wf4ever.rosrs.client.search.dataclasses.solr.DateRangeFacetEntry;
 import org.purl.wf4ever.rosrs.client.search.dataclasses.solr.FacetEntry;
-import org.purl.wf4ever.rosrs.client.search.dataclasses.solr.RangeFacetEntry;
 
 /**
  * An implementation connecting to the Solr instance in RODL. Note that the response schema is hardcoded.
@@ -36,8 +39,39 @@ public class SolrSearchServer implements SearchServer, Serializable {
     /** id. */
     private static final long serialVersionUID = -276599078305951556L;
 
-    /** Field for the RO URI in the response from Solr. */
-    private static final String FIELD_RO_URI = "ro_uri";
+    /** Operation name used in metrics. */
+    private static final String OPERATION = "solr search";
+
+    /** Field for the RO URI in the response from Solr, its unique key. */
+    static final String FIELD_RO_URI = "ro_uri";
+
+    /** Field for the creation date. */
+    private static final String FIELD_CREATED = "created";
+
+    /** Field for the creators. */
+    private static final String FIELD_CREATOR = "creator";
+
+    /** Field for the number of resources. */
+    private static final String FIELD_RESOURCES_SIZE = "resources_size";
+
+    /** Field for the number of annotations. */
+    private static final String FIELD_ANNOTATIONS_SIZE = "annotations_size";
+
+    /** Field for the evolution type. */
+    private static final String FIELD_EVO_TYPE = "evo_type";
+
+    /** Pseudo-field for the search score. */
+    private static final String FIELD_SCORE = "score";
+
+    /** The fields of {@link FoundRO}, returned when the caller doesn't select the fields. */
+    public static final List<String> DEFAULT_FIELDS = Collections.unmodifiableList(Arrays.asList(FIELD_RO_URI,
+        FIELD_CREATED, FIELD_CREATOR, FIELD_RESOURCES_SIZE, FIELD_ANNOTATIONS_SIZE, FIELD_EVO_TYPE));
+
+    /** Default maximum number of queries for which the facet counts are cached. */
+    public static final int DEFAULT_FACET_CACHE_SIZE = 100;
+
+    /** Default time for which the facet counts are cached, in milliseconds. */
+    public static final long DEFAULT_FACET_CACHE_TTL = 60 * 1000;
 
     /** Solr instance. */
     private transient HttpSolrServer server;
@@ -45,6 +79,18 @@ public class SolrSearchServer implements SearchServer, Serializable {
     /** Solr server URI, necessary for reinitializing the instance. */
     private URI solrUri;
 
+    /** Facets computed by {@link #search(String, Integer, Integer, Map)}, null for none. */
+    private SolrFacets defaultFacets = SolrFacets.defaults();
+
+    /** Maximum number of queries for which the facet counts are cached, 0 to disable the cache. */
+    private int facetCacheSize = DEFAULT_FACET_CACHE_SIZE;
+
+    /** Time for which the facet counts are cached, in milliseconds. */
+    private long facetCacheTtl = DEFAULT_FACET_CACHE_TTL;
+
+    /** Recent facet counts. */
+    private transient FacetCache facetCache;
+
     /** Logger. */
     @SuppressWarnings("unused")
     private static final Logger LOG = Logger.getLogger(SolrSearchServer.class);
@@ -74,35 +120,220 @@ public class SolrSearchServer implements SearchServer, Serializable {
     }
 
 
+    /**
+     * Get the facet cache, creating it if necessary.
+     * 
+     * @return the facet cache or null if disabled
+     */
+    private synchronized FacetCache getFacetCache() {
+        if (facetCache == null && facetCacheSize > 0) {
+            facetCache = new FacetCache(facetCacheSize, facetCacheTtl);
+        }
+        return facetCache;
+    }
+
+
+    public SolrFacets getDefaultFacets() {
+        return defaultFacets;
+    }
+
+
+    /**
+     * Set the facets computed by {@link #search(String, Integer, Integer, Map)} and {@link #search(String)}. By
+     * default these are {@link SolrFacets#defaults()}.
+     * 
+     * @param defaultFacets
+     *            the facets or null to compute none
+     */
+    public void setDefaultFacets(SolrFacets defaultFacets) {
+        this.defaultFacets = defaultFacets;
+    }
+
+
+    /**
+     * Set the size of the facet cache, which removes the cached counts.
+     * 
+     * @param facetCacheSize
+     *            the maximum number of queries for which the facet counts are cached, 0 to disable the cache
+     */
+    public synchronized void setFacetCacheSize(int facetCacheSize) {
+        this.facetCacheSize = facetCacheSize;
+        this.facetCache = null;
+    }
+
+
+    /**
+     * Set for how long the facet counts are cached, which removes the cached counts.
+     * 
+     * @param facetCacheTtl
+     *            time in milliseconds
+     */
+    public synchronized void setFacetCacheTtl(long facetCacheTtl) {
+        this.facetCacheTtl = facetCacheTtl;
+        this.facetCache = null;
+    }
+
+
     @Override
     public boolean supportsPagination() {
         return true;
     }
 
 
+    /**
+     * {@inheritDoc}
+     * 
+     * The facets are those set with {@link #setDefaultFacets(SolrFacets)}.
+     */
     @Override
     public SearchResult search(String queryString, Integer offset, Integer limit, Map<String, SortOrder> sortFields)
             throws SearchException {
-        try {
-            SolrQuery query = new SolrQuery(queryString);
-            if (offset != null) {
-                query.setStart(offset);
-            }
-            if (limit != null) {
-                query.setRows(limit);
-            }
-            if (sortFields != null) {
-                for (String key : sortFields.keySet()) {
-                    ORDER order = sortFields.get(key) == SortOrder.DESC ? ORDER.desc : ORDER.asc;
-                    query.addSortField(key, order);
-                }
+        return search(queryString, offset, limit, sortFields, DEFAULT_FIELDS, defaultFacets);
+    }
+
+
+    /**
+     * Search, returning only the selected fields of each RO found, so that Solr doesn't send the stored fields that
+     * won't be displayed. The fields of {@link FoundRO} that haven't been selected are null. The RO URI is always
+     * returned and the score is returned only if selected.
+     * 
+     * @param queryString
+     *            Solr query
+     * @param offset
+     *            index of the first result or null
+     * @param limit
+     *            maximum number of results or null
+     * @param sortFields
+     *            sort order or null
+     * @param fields
+     *            the fields to return, for example {@link #DEFAULT_FIELDS}, or null for all stored fields
+     * @return the search result, without facets
+     * @throws SearchException
+     *             the search failed
+     */
+    public SearchResult search(String queryString, Integer offset, Integer limit, Map<String, SortOrder> sortFields,
+            Collection<String> fields)
+            throws SearchException {
+        return search(queryString, offset, limit, sortFields, fields, null);
+    }
+
+
+    /**
+     * Search, returning only the selected fields and computing only the selected facets. Counting the facets is the
+     * most expensive part of a query, so the counts are cached for a short time and not computed again when paging
+     * through the results of the same query.
+     * 
+     * @param queryString
+     *            Solr query
+     * @param offset
+     *            index of the first result or null
+     * @param limit
+     *            maximum number of results or null
+     * @param sortFields
+     *            sort order or null
+     * @param fields
+     *            the fields to return, for example {@link #DEFAULT_FIELDS}, or null for all stored fields
+     * @param facets
+     *            the facets to compute, for example {@link SolrFacets#defaults()}, or null for none
+     * @return the search result
+     * @throws SearchException
+     *             the search failed
+     */
+    public SearchResult search(String queryString, Integer offset, Integer limit, Map<String, SortOrder> sortFields,
+            Collection<String> fields, SolrFacets facets)
+            throws SearchException {
+        SolrQuery query = new SolrQuery(queryString);
+        setFields(query, fields);
+        if (offset != null) {
+            query.setStart(offset);
+        }
+        if (limit != null) {
+            query.setRows(limit);
+        }
+        if (sortFields != null) {
+            for (String key : sortFields.keySet()) {
+                ORDER order = sortFields.get(key) == SortOrder.DESC ? ORDER.desc : ORDER.asc;
+                query.addSortField(key, order);
             }
-            addFacetFields(query);
-            QueryResponse response = getServer().query(query);
-            return prepareSearchResult(response);
+        }
+        if (facets == null || facets.isEmpty()) {
+            return prepareSearchResult(query(query), null, null);
+        }
+        FacetCache cache = getFacetCache();
+        String key = FacetCache.key(queryString, facets);
+        FacetCache.Counts cached = cache != null ? cache.get(key) : null;
+        if (cached != null) {
+            return prepareSearchResult(query(query), facets, cached);
+        }
+        facets.addTo(query, DateTime.now());
+        QueryResponse response = query(query);
+        if (cache != null) {
+            cache.put(key, response.getFacetFields(), response.getFacetRanges());
+        }
+        return prepareSearchResult(response, facets, new FacetCache.Counts(response.getFacetFields(),
+                response.getFacetRanges()));
+    }
 
+
+    /**
+     * Iterate over all ROs found, in the order of their URIs, downloading one page at a time. Deep pages cost as much
+     * as the first one, since they use the cursorMark of Solr 4.7 and later, or a range filter on the RO URI if the
+     * server doesn't return the next cursor mark. Facets are not computed.
+     * 
+     * @param queryString
+     *            Solr query
+     * @param pageSize
+     *            number of ROs downloaded at a time
+     * @param fields
+     *            the fields to return, for example {@link #DEFAULT_FIELDS}, or null for all stored fields
+     * @return an iterator over the ROs found
+     */
+    public SolrResultIterator iterate(String queryString, int pageSize, Collection<String> fields) {
+        return new SolrResultIterator(this, queryString, pageSize, fields);
+    }
+
+
+    /**
+     * Send a query to Solr.
+     * 
+     * @param query
+     *            the query
+     * @return the response
+     * @throws SearchException
+     *             the query failed
+     */
+    QueryResponse query(SolrQuery query)
+            throws SearchException {
+        long start = Metrics.start(OPERATION);
+        QueryResponse response;
+        try {
+            response = getServer().query(query);
         } catch (SolrServerException e) {
+            Metrics.finish(OPERATION, start, -1);
             throw new SearchException("Exception when performing a Solr query", e);
+        } catch (RuntimeException e) {
+            Metrics.finish(OPERATION, start, -1);
+            throw e;
+        }
+        Metrics.finish(OPERATION, start, HttpStatus.SC_OK);
+        return response;
+    }
+
+
+    /**
+     * Select the fields returned by a query.
+     * 
+     * @param query
+     *            the query
+     * @param fields
+     *            the fields to return or null for all stored fields
+     */
+    static void setFields(SolrQuery query, Collection<String> fields) {
+        if (fields != null) {
+            Set<String> selected = new LinkedHashSet<>();
+            selected.add(FIELD_RO_URI);
+            selected.addAll(fields);
+            query.setFields(selected.toArray(new String[selected.size()]));
         }
     }
 
@@ -115,18 +346,16 @@ public class SolrSearchServer implements SearchServer, Serializable {
 
 
     /**
-     * Add new facet field.
+     * Pull up solr query results with the default facets. Package-private so that the mapping can be benchmarked
+     * without a Solr server.
      * 
-     * @param query
-     *            query
+     * @param response
+     *            solr response
+     * @return SearchResult
      */
-    //TODO maybe read from solr.configuration.properties or something like this?
-    private void addFacetFields(SolrQuery query) {
-        query.addFacetField("evo_type");
-        query.addFacetField("creator");
-        query.addNumericRangeFacet("annotations_size", 0, 100, 10);
-        query.addNumericRangeFacet("resources_size", 0, 200, 20);
-        query.addDateRangeFacet("created", DateTime.now().minusYears(2).toDate(), DateTime.now().toDate(), "+3MONTH");
+    SearchResult prepareSearchResult(QueryResponse response) {
+        return prepareSearchResult(response, SolrFacets.defaults(),
+            new FacetCache.Counts(response.getFacetFields(), response.getFacetRanges()));
     }
 
 
@@ -135,46 +364,62 @@ public class SolrSearchServer implements SearchServer, Serializable {
      * 
      * @param response
      *            solr response
+     * @param facets
+     *            the facets computed or null
+     * @param counts
+     *            the facet counts, returned in the response or cached, or null
      * @return SearchResult
      */
-    //TODO the same maybe read from solr.configuration.properties or something like this?
-    //TODO maybe intervals should be calculated dynamically if they are not configurable? 
-    private SearchResult prepareSearchResult(QueryResponse response) {
+    private SearchResult prepareSearchResult(QueryResponse response, SolrFacets facets, FacetCache.Counts counts) {
         SearchResult result = new SearchResult();
-        result.setNumFound(response.getResults().getNumFound());
         SolrDocumentList results = response.getResults();
-        List<FoundRO> searchResults = getROsList(results);
-        result.addFacet(new CreatorFacetEntry(response.getFacetField("creator"), "Creators", false));
-        result.addFacet(new FacetEntry(response.getFacetField("evo_type"), "RO status"));
-        result.addFacet(new RangeFacetEntry(response.getFacetRanges().get(0), "Number of annotations", result
-                .getNumFound()));
-        result.addFacet(new RangeFacetEntry(response.getFacetRanges().get(1), "Number of resources", result
-                .getNumFound()));
-        result.addFacet(new DateRangeFacetEntry(response.getFacetRanges().get(2), "Creation date"));
-        result.setROsList(searchResults);
+        result.setNumFound(results.getNumFound());
+        if (facets != null) {
+            for (FacetEntry facet : facets.createEntries(counts.getFields(), counts.getRanges(),
+                result.getNumFound())) {
+                result.addFacet(facet);
+            }
+        }
+        result.setROsList(getROsList(results));
         return result;
     }
 
 
     /**
-     * Get ROs list from solr document.
+     * Get ROs list from solr document. The ROs are not created until they are requested from the hits.
      * 
      * @param list
      *            list of solr documents
      * @return list of found ROs
      */
-    private List<FoundRO> getROsList(SolrDocumentList list) {
-        List<FoundRO> searchResults = new ArrayList<>();
+    static List<FoundRO> getROsList(SolrDocumentList list) {
+        List<FoundRO> searchResults = new ArrayList<>(list.size());
         for (SolrDocument document : list) {
-            URI researchObjectUri = URI.create(document.getFieldValue(FIELD_RO_URI).toString());
-            ResearchObject researchObject = new ResearchObject(researchObjectUri, null);
-            DateTime created = new DateTime((Date) document.get("created"));
+            Object researchObjectUri = document.getFieldValue(FIELD_RO_URI);
+            if (researchObjectUri == null) {
+                continue;
+            }
+            Object score = document.getFieldValue(FIELD_SCORE);
             @SuppressWarnings("unchecked")
-            List<String> creators = (List<String>) document.get("creator");
-            FoundRO foundRO = new FoundRO(researchObject, -1, (int) document.get("resources_size"),
-                    (int) document.get("annotations_size"), (String) document.get("evo_type"), created, creators);
-            searchResults.add(foundRO);
+            List<String> creators = (List<String>) document.getFieldValue(FIELD_CREATOR);
+            searchResults.add(new FoundRO(URI.create(researchObjectUri.toString()),
+                    score instanceof Number ? ((Number) score).doubleValue() : -1, toInteger(document
+                            .getFieldValue(FIELD_RESOURCES_SIZE)), toInteger(document
+                            .getFieldValue(FIELD_ANNOTATIONS_SIZE)), (String) document.getFieldValue(FIELD_EVO_TYPE),
+                    (Date) document.getFieldValue(FIELD_CREATED), creators));
         }
         return searchResults;
     }
+
+
+    /**
+     * Convert a numeric field value.
+     * 
+     * @param value
+     *            the field value or null
+     * @return the value as an integer or null
+     */
+    private static Integer toInteger(Object value) {
+        return value instanceof Number ? Integer.valueOf(((Number) value).intValue()) : null;
+    }
 }
@@ -10,12 +10,14 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpStatus;
 import org.apache.log4j.Logger;
 import org.joda.time.DateTime;
 import org.joda.time.format.ISODateTimeFormat;
 import org.purl.wf4ever.rosrs.client.Person;
 import org.purl.wf4ever.rosrs.client.ResearchObject;
 import org.purl.wf4ever.rosrs.client.exception.SearchException;
+import org.purl.wf4ever.rosrs.client.metrics.Metrics;
 import org.purl.wf4ever.rosrs.client.search.dataclasses.FoundRO;
 import org.purl.wf4ever.rosrs.client.search.dataclasses.SearchResult;
 
@@ -35,6 +37,9 @@ public class SparqlSearchServer implements SearchServer {
     /** Logger. */
     private static final Logger LOG = Logger.getLogger(SparqlSearchServer.class);
 
+    /** Operation name used in metrics. */
+    private static final String OPERATION = "sparql search";
+
     /** date format for parsing the dates in search results. */
     public static final SimpleDateFormat SDF = new SimpleDateFormat("yyyy.MM.dd HH:mm:ss z");
 
@@ -79,7 +84,15 @@ public class SparqlSearchServer implements SearchServer {
             filter.append(String.format(SPARQL_FILTER, StringUtils.join(regex, "||")));
         }
         String queryS = String.format(SPARQL, filter.toString());
-        ResultSet results = QueryExecutionFactory.sparqlService(sparqlEndpointUri.toString(), queryS).execSelect();
+        long start = Metrics.start(OPERATION);
+        ResultSet results;
+        try {
+            results = QueryExecutionFactory.sparqlService(sparqlEndpointUri.toString(), queryS).execSelect();
+        } catch (RuntimeException e) {
+            Metrics.finish(OPERATION, start, -1);
+            throw e;
+        }
+        Metrics.finish(OPERATION, start, HttpStatus.SC_OK);
         while (results.hasNext()) {
             QuerySolution solution = results.next();
             if (solution.get("ro") == null) {
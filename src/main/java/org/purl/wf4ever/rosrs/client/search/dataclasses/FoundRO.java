@@ -4,13 +4,18 @@
 package org.purl.wf4ever.rosrs.client.search.dataclasses;
 
 import java.io.Serializable;
+import java.net.URI;
+import java.util.Date;
 import java.util.List;
 
 import org.joda.time.DateTime;
 import org.purl.wf4ever.rosrs.client.ResearchObject;
 
 /**
- * RODL search service result.
+ * RODL search service result. The {@link ResearchObject} and the creation date of a hit returned by Solr are created
+ * only when requested, since most hits are only rendered as a list. Hits can be shared by many threads, for example by
+ * {@link org.purl.wf4ever.rosrs.client.search.CachingSearchServer}, and are meant to be read only; the lazy fields
+ * are created safely, so that all readers get the same {@link ResearchObject}.
  * 
  * @author piotrhol
  * 
@@ -20,8 +25,11 @@ public class FoundRO implements Serializable {
     /** id. */
     private static final long serialVersionUID = -9046167750816266548L;
 
-    /** RO found. */
-    private final ResearchObject researchObject;
+    /** RO found, created when first requested if the hit was created with a URI. */
+    private volatile ResearchObject researchObject;
+
+    /** URI of the RO found. */
+    private final URI researchObjectUri;
 
     /** Number of resources in the RO. */
     private int resourceCount;
@@ -35,7 +43,9 @@ public class FoundRO implements Serializable {
     /** evo_Type field from solr index. */
     private String status;
     /** created field from solr index. */
-    private DateTime created;
+    private volatile DateTime created;
+    /** created field from solr index, before it's converted. */
+    private Date createdDate;
     /** creator field from solr index. */
     private List<String> creators;
 
@@ -61,6 +71,7 @@ public class FoundRO implements Serializable {
     public FoundRO(ResearchObject researchObject, double score, int numberOfResources, int numberOfAnnotations,
             String status, DateTime created, List<String> creators) {
         this.researchObject = researchObject;
+        this.researchObjectUri = researchObject != null ? researchObject.getUri() : null;
         this.score = score;
         this.numberOfResources = numberOfResources;
         this.numberOfAnnotations = numberOfAnnotations;
@@ -80,12 +91,64 @@ public class FoundRO implements Serializable {
      */
     public FoundRO(ResearchObject researchObject, double score) {
         this.researchObject = researchObject;
+        this.researchObjectUri = researchObject != null ? researchObject.getUri() : null;
+        this.score = score;
+    }
+
+
+    /**
+     * Constructor of a hit that creates the RO only when it's requested. The fields not returned by the search
+     * service are null.
+     * 
+     * @param researchObjectUri
+     *            RO URI
+     * @param score
+     *            search score or -1 if unknown
+     * @param numberOfResources
+     *            resources_size field from solr index
+     * @param numberOfAnnotations
+     *            annotations_size field from solr index
+     * @param status
+     *            evo_Type field from solr index
+     * @param created
+     *            created field from solr index
+     * @param creators
+     *            creator field from solr index
+     */
+    public FoundRO(URI researchObjectUri, double score, Integer numberOfResources, Integer numberOfAnnotations,
+            String status, Date created, List<String> creators) {
+        this.researchObjectUri = researchObjectUri;
         this.score = score;
+        this.numberOfResources = numberOfResources;
+        this.numberOfAnnotations = numberOfAnnotations;
+        this.status = status;
+        this.createdDate = created;
+        this.creators = creators;
     }
 
 
+    /**
+     * Get the RO found, creating it if necessary. The RO has no ROSRS client and is not loaded.
+     * 
+     * @return the RO
+     */
     public ResearchObject getResearchObject() {
-        return researchObject;
+        ResearchObject ro = researchObject;
+        if (ro == null && researchObjectUri != null) {
+            synchronized (this) {
+                ro = researchObject;
+                if (ro == null) {
+                    ro = new ResearchObject(researchObjectUri, null);
+                    researchObject = ro;
+                }
+            }
+        }
+        return ro;
+    }
+
+
+    public URI getResearchObjectUri() {
+        return researchObjectUri;
     }
 
 
@@ -119,8 +182,19 @@ public class FoundRO implements Serializable {
     }
 
 
+    /**
+     * Get the creation date, converting it if necessary.
+     * 
+     * @return the creation date or null if unknown
+     */
     public DateTime getCreated() {
-        return created;
+        DateTime result = created;
+        if (result == null && createdDate != null) {
+            // DateTime is immutable, so converting twice at the same time is harmless
+            result = new DateTime(createdDate);
+            created = result;
+        }
+        return result;
     }
 
 
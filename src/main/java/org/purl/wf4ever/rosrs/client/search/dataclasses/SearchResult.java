@@ -33,6 +33,19 @@ public class SearchResult implements Serializable {
     }
 
 
+    /**
+     * Copy constructor. The lists are copied, the facets and ROs in them are shared.
+     * 
+     * @param original
+     *            the result to copy
+     */
+    public SearchResult(SearchResult original) {
+        facetsList = new ArrayList<FacetEntry>(original.facetsList);
+        setROsList(new ArrayList<FoundRO>(original.rosList));
+        numFound = original.numFound;
+    }
+
+
     public List<FacetEntry> getFacetsList() {
         return facetsList;
     }
@@ -16,6 +16,9 @@ public class DateRangeFacetEntry extends FacetEntry {
     /** serialization. */
     private static final long serialVersionUID = 1L;
 
+    /** Number of months in each range. */
+    private final int months;
+
 
     /**
      * Constructor.
@@ -26,7 +29,23 @@ public class DateRangeFacetEntry extends FacetEntry {
      *            facet human-readable name
      */
     public DateRangeFacetEntry(RangeFacet<?, ?> rangeFacet, String name) {
+        this(rangeFacet, name, 3);
+    }
+
+
+    /**
+     * Constructor.
+     * 
+     * @param rangeFacet
+     *            facet field
+     * @param name
+     *            facet human-readable name
+     * @param months
+     *            number of months in each range, the gap of the facet
+     */
+    public DateRangeFacetEntry(RangeFacet<?, ?> rangeFacet, String name, int months) {
         super();
+        this.months = months;
         setDefault(true);
         this.fieldName = rangeFacet.getName();
         this.readableName = name;
@@ -63,7 +82,7 @@ public class DateRangeFacetEntry extends FacetEntry {
     private String calculateLabel(Count count) {
         DateTime timeBegin = new DateTime(count.getValue());
         DateTime timeEnd = new DateTime(count.getValue());
-        timeEnd = timeEnd.plusMonths(3);
+        timeEnd = timeEnd.plusMonths(months);
         return timeBegin.toString().substring(0, 7) + " - " + timeEnd.toString().substring(0, 7);
     }
 }
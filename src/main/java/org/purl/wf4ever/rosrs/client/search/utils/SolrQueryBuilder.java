@@ -40,4 +40,17 @@ public final class SolrQueryBuilder {
         }
         return sb.toString();
     }
+
+
+    /**
+     * Normalize the whitespace in a query, so that queries differing only in whitespace can be cached together.
+     * 
+     * @param queryString
+     *            the query or null
+     * @return the query without leading and trailing whitespace and with single spaces between the keywords, an empty
+     *         string if the query is null
+     */
+    public static String normalizeWhitespace(String queryString) {
+        return queryString != null ? queryString.trim().replaceAll("\\s+", " ") : "";
+    }
 }
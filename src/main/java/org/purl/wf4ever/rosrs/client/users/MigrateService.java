@@ -2,6 +2,8 @@ package org.purl.wf4ever.rosrs.client.users;
 
 import java.net.URI;
 
+import org.purl.wf4ever.rosrs.client.resilience.ResilientClientFactory;
+
 import com.sun.jersey.api.client.Client;
 
 /**
@@ -32,7 +34,7 @@ public final class MigrateService {
      * @return message from RODL
      */
     public static String updateUserURI(URI rodlURI, URI oldURI, URI newURI) {
-        Client client = Client.create();
+        Client client = ResilientClientFactory.createClient("users");
         return client.resource(rodlURI.toString()).path("userUpdate").type("text/plain")
                 .post(String.class, oldURI.toString() + "\r\n" + newURI.toString());
     }
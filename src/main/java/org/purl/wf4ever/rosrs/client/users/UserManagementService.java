@@ -8,7 +8,10 @@ import java.net.URISyntaxException;
 import java.util.List;
 
 import org.apache.commons.codec.binary.Base64;
+import org.apache.log4j.Logger;
+import org.purl.wf4ever.rosrs.client.Utils;
 import org.purl.wf4ever.rosrs.client.exception.ROSRSException;
+import org.purl.wf4ever.rosrs.client.resilience.ResilientClientFactory;
 
 import pl.psnc.dl.wf4ever.vocabulary.FOAF;
 
@@ -33,6 +36,9 @@ public final class UserManagementService implements Serializable {
     /** id. */
     private static final long serialVersionUID = -1552015553276990744L;
 
+    /** Logger. */
+    private static final Logger LOG = Logger.getLogger(UserManagementService.class);
+
     /** RODL URI. */
     private URI rodlURI;
 
@@ -64,7 +70,7 @@ public final class UserManagementService implements Serializable {
      */
     private Client getClient() {
         if (client == null) {
-            client = Client.create();
+            client = ResilientClientFactory.createClient("users");
         }
         return client;
     }
@@ -244,7 +250,9 @@ public final class UserManagementService implements Serializable {
             OntModel userModel = ModelFactory.createOntologyModel(OntModelSpec.OWL_LITE_MEM);
             userModel.read(data, null);
             ExtendedIterator<Individual> it = userModel.listIndividuals(FOAF.Agent);
-            userModel.write(System.out);
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Received the user description:\n" + Utils.toRdfXml(userModel));
+            }
             Individual userInd = it.next();
             if (userInd != null && userInd.hasProperty(FOAF.name)) {
                 URI userURI = new URI(userInd.getURI());
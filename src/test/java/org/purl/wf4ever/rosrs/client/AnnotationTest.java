@@ -2,7 +2,9 @@ package org.purl.wf4ever.rosrs.client;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
 import static com.github.tomakehurst.wiremock.client.WireMock.delete;
+import static com.github.tomakehurst.wiremock.client.WireMock.deleteRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.head;
 import static com.github.tomakehurst.wiremock.client.WireMock.post;
 import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
@@ -14,7 +16,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.util.Collections;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.io.IOUtils;
@@ -30,6 +34,7 @@ import org.purl.wf4ever.rosrs.client.exception.ROSRSException;
 
 import pl.psnc.dl.wf4ever.vocabulary.ORE;
 
+import com.github.tomakehurst.wiremock.http.Fault;
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
 import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.rdf.model.ModelFactory;
@@ -141,6 +146,66 @@ public class AnnotationTest extends BaseTest {
     }
 
 
+    /**
+     * Delete many annotations at once, deleting a body shared by two annotations only once.
+     * 
+     * @throws ROSRSException
+     *             unexpected server response
+     */
+    @Test
+    public final void testDeleteAnnotations()
+            throws ROSRSException {
+        URI ann2 = MOCK_RO.resolve(".ro/annotations/2");
+        URI ann3 = MOCK_RO.resolve(".ro/annotations/3");
+        URI body2 = MOCK_RO.resolve("body2.rdf");
+        stubFor(head(urlEqualTo("/ann")).willReturn(
+            aResponse().withStatus(303).withHeader("Location", MOCK_BODY.toString())));
+        stubFor(head(urlEqualTo("/ro1/.ro/annotations/2")).willReturn(
+            aResponse().withStatus(303).withHeader("Location", MOCK_BODY.toString())));
+        stubFor(head(urlEqualTo("/ro1/.ro/annotations/3")).willReturn(
+            aResponse().withStatus(303).withHeader("Location", body2.toString())));
+        stubFor(delete(urlEqualTo("/ro1/.ro/annotations/2")).willReturn(aResponse().withStatus(204)));
+        stubFor(delete(urlEqualTo("/ro1/.ro/annotations/3")).willReturn(aResponse().withStatus(500)));
+        stubFor(delete(urlEqualTo("/ro1/body.rdf")).willReturn(aResponse().withStatus(204)));
+        stubFor(delete(urlEqualTo("/ro1/body2.rdf")).willReturn(aResponse().withStatus(204)));
+
+        Map<URI, ROSRSException> failures = rosrs.deleteAnnotationsAndBodies(
+            Arrays.asList(MOCK_ANNOTATION, ann2, ann3), 2);
+
+        Assert.assertEquals(Collections.singleton(ann3), failures.keySet());
+        Assert.assertEquals(500, failures.get(ann3).getStatus());
+        verify(1, deleteRequestedFor(urlEqualTo("/ann")));
+        verify(1, deleteRequestedFor(urlEqualTo("/ro1/.ro/annotations/2")));
+        verify(1, deleteRequestedFor(urlEqualTo("/ro1/body.rdf")));
+        verify(0, deleteRequestedFor(urlEqualTo("/ro1/body2.rdf")));
+    }
+
+
+    /**
+     * An annotation that gets no response is reported and the bodies of the other annotations are still deleted.
+     */
+    @Test
+    public final void testDeleteAnnotationsWithoutResponse() {
+        URI ann2 = MOCK_RO.resolve(".ro/annotations/2");
+        URI ann3 = MOCK_RO.resolve(".ro/annotations/3");
+        URI body2 = MOCK_RO.resolve("body2.rdf");
+        stubFor(head(urlEqualTo("/ro1/.ro/annotations/2")).willReturn(
+            aResponse().withStatus(303).withHeader("Location", MOCK_BODY.toString())));
+        stubFor(head(urlEqualTo("/ro1/.ro/annotations/3")).willReturn(
+            aResponse().withStatus(303).withHeader("Location", body2.toString())));
+        stubFor(delete(urlEqualTo("/ro1/.ro/annotations/2")).willReturn(aResponse().withStatus(204)));
+        stubFor(delete(urlEqualTo("/ro1/.ro/annotations/3")).willReturn(aResponse().withFault(Fault.EMPTY_RESPONSE)));
+        stubFor(delete(urlEqualTo("/ro1/body.rdf")).willReturn(aResponse().withStatus(204)));
+
+        Map<URI, ROSRSException> failures = rosrs.deleteAnnotationsAndBodies(Arrays.asList(ann2, ann3), 2);
+
+        Assert.assertEquals(Collections.singleton(ann3), failures.keySet());
+        Assert.assertEquals(-1, failures.get(ann3).getStatus());
+        verify(1, deleteRequestedFor(urlEqualTo("/ro1/body.rdf")));
+        verify(0, deleteRequestedFor(urlEqualTo("/ro1/body2.rdf")));
+    }
+
+
     /**
      * Load an annotation body over HTTP.
      * 
@@ -283,4 +348,34 @@ public class AnnotationTest extends BaseTest {
                 null, null);
         annotation.getStatements();
     }
+
+
+    /**
+     * Editing the statements replaces the body as a whole, so that the statements and the serialized body of one
+     * version are never mixed with another.
+     */
+    @Test
+    public final void shouldReplaceBodyWhenEditing() {
+        Set<Statement> before = an1.getStatements();
+        String serializedBefore = an1.getBodySerializedAsString();
+        Statement added = new Statement(MOCK_TARGET, URI.create("http://purl.org/dc/terms/title"), "Added");
+        an1.addStatement(added);
+
+        Assert.assertFalse(before.contains(added));
+        Assert.assertTrue(an1.getStatements().contains(added));
+        Assert.assertNotEquals(serializedBefore, an1.getBodySerializedAsString());
+
+        an1.removeStatement(added);
+        Assert.assertFalse(an1.getStatements().contains(added));
+        Assert.assertEquals(before, an1.getStatements());
+    }
+
+
+    /**
+     * The statements can only be changed through the annotation.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public final void shouldNotModifyStatementsInPlace() {
+        an1.getStatements().clear();
+    }
 }
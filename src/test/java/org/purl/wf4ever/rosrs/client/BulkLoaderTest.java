@@ -0,0 +1,192 @@
+package org.purl.wf4ever.rosrs.client;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.purl.wf4ever.rosrs.client.exception.ROSRSException;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+
+/**
+ * Test loading many research objects at once.
+ *
+ * @author piotrekhol
+ *
+ */
+public class BulkLoaderTest {
+
+    /** Logger. */
+    private static final Logger LOG = Logger.getLogger(BulkLoaderTest.class);
+
+    /** A test HTTP mock server. */
+    @Rule
+    public final WireMockRule wireMockRule = new WireMockRule(8089);
+
+    /** ROSRS URI. */
+    private static final URI ROSRS = URI.create("http://localhost:8089/bulk/");
+
+    /** The test manifest, with the RO URI to replace. */
+    private static final String MANIFEST_RO = "http://localhost:8089/ro1/";
+
+
+    /**
+     * All research objects should be loaded, sharing the persons, and the failures should be reported.
+     *
+     * @throws IOException
+     *             can't read the test manifest
+     */
+    @Test(timeout = 60000)
+    public final void shouldLoadManyResearchObjects()
+            throws IOException {
+        int count = 100;
+        List<URI> uris = stubResearchObjects(count, 0);
+        URI missing = ROSRS.resolve("missing/");
+        stubFor(get(urlEqualTo("/bulk/missing/")).willReturn(aResponse().withStatus(404)));
+        uris.add(missing);
+
+        long start = System.currentTimeMillis();
+        List<BulkLoader.Result> results;
+        try (BulkLoader loader = new BulkLoader(new ROSRService(ROSRS, null), 8)) {
+            results = loader.load(uris).getAll();
+        }
+        long time = System.currentTimeMillis() - start;
+        LOG.info("Loaded " + count + " research objects in " + time + " ms, "
+                + (count * 1000 / Math.max(1, time)) + " per second");
+
+        Assert.assertEquals(count + 1, results.size());
+        Set<URI> loaded = new HashSet<>();
+        Set<Person> creators = new HashSet<>();
+        for (BulkLoader.Result result : results) {
+            if (result.getUri().equals(missing)) {
+                Assert.assertFalse(result.isSuccessful());
+                Assert.assertTrue(result.getException() instanceof ROSRSException);
+                Assert.assertNull(result.getResearchObject());
+            } else {
+                Assert.assertTrue(result.isSuccessful());
+                ResearchObject researchObject = result.getResearchObject();
+                Assert.assertTrue(researchObject.isLoaded());
+                Assert.assertEquals(result.getUri(), researchObject.getUri());
+                Assert.assertEquals(3, researchObject.getResources().size());
+                loaded.add(researchObject.getUri());
+                creators.add(researchObject.getAuthor());
+            }
+        }
+        Assert.assertEquals(count, loaded.size());
+        Assert.assertEquals(1, creators.size());
+        Person creator = creators.iterator().next();
+        for (BulkLoader.Result result : results) {
+            if (result.isSuccessful()) {
+                Assert.assertSame(creator, result.getResearchObject().getAuthor());
+            }
+        }
+    }
+
+
+    /**
+     * No research objects should be loaded after the loading is cancelled.
+     *
+     * @throws IOException
+     *             can't read the test manifest
+     */
+    @Test(timeout = 60000)
+    public final void shouldCancel()
+            throws IOException {
+        List<URI> uris = stubResearchObjects(10, 200);
+        try (BulkLoader loader = new BulkLoader(new ROSRService(ROSRS, null), 1)) {
+            BulkLoader.Loading loading = loader.load(uris);
+            Assert.assertTrue(loading.next().isSuccessful());
+            loading.cancel();
+            Assert.assertTrue(loading.isCancelled());
+            Assert.assertFalse(loading.hasNext());
+        }
+        verify(getRequestedFor(urlEqualTo("/bulk/ro0/")));
+        verify(0, getRequestedFor(urlEqualTo("/bulk/ro9/")));
+        verify(0, getRequestedFor(urlMatching("/bulk/ro[3-9]/")));
+    }
+
+
+    /**
+     * Closing the loader should wake up a thread waiting for the next research object instead of leaving it blocked.
+     *
+     * @throws Exception
+     *             can't read the test manifest or the waiting thread failed
+     */
+    @Test(timeout = 60000)
+    public final void shouldStopWaitingWhenClosed()
+            throws Exception {
+        List<URI> uris = stubResearchObjects(10, 1000);
+        BulkLoader loader = new BulkLoader(new ROSRService(ROSRS, null), 1);
+        final BulkLoader.Loading loading = loader.load(uris);
+        FutureTask<Boolean> consumer = new FutureTask<>(new Callable<Boolean>() {
+
+            @Override
+            public Boolean call() {
+                try {
+                    while (loading.hasNext()) {
+                        loading.next();
+                    }
+                } catch (NoSuchElementException e) {
+                    LOG.debug("Cancelled while waiting", e);
+                }
+                return true;
+            }
+        });
+        new Thread(consumer).start();
+        Thread.sleep(200);
+        loader.close();
+        Assert.assertTrue(consumer.get());
+        Assert.assertTrue(loading.isCancelled());
+        Assert.assertFalse(loading.hasNext());
+    }
+
+
+    /**
+     * Serve synthetic manifests, copies of the test manifest with different RO URIs.
+     *
+     * @param count
+     *            number of research objects
+     * @param delay
+     *            response delay in ms
+     * @return the research object URIs
+     * @throws IOException
+     *             can't read the test manifest
+     */
+    private List<URI> stubResearchObjects(int count, int delay)
+            throws IOException {
+        String manifest;
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream("ro1/.ro/manifest.trig")) {
+            manifest = IOUtils.toString(in, "UTF-8");
+        }
+        List<URI> uris = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            URI uri = ROSRS.resolve("ro" + i + "/");
+            stubFor(get(urlEqualTo(uri.getPath())).withHeader("Accept", equalTo("application/x-trig")).willReturn(
+                aResponse().withStatus(200).withHeader("Content-Type", "application/x-trig").withFixedDelay(delay)
+                        .withBody(manifest.replace(MANIFEST_RO, uri.toString()))));
+            uris.add(uri);
+        }
+        return uris;
+    }
+}
@@ -4,6 +4,7 @@ import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
 import static com.github.tomakehurst.wiremock.client.WireMock.delete;
 import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.matching;
 import static com.github.tomakehurst.wiremock.client.WireMock.post;
 import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
@@ -15,13 +16,17 @@ import static com.github.tomakehurst.wiremock.client.WireMock.verify;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.UriBuilder;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.junit.Assert;
@@ -32,9 +37,13 @@ import org.purl.wf4ever.rosrs.client.exception.ROException;
 import org.purl.wf4ever.rosrs.client.exception.ROSRSException;
 
 import pl.psnc.dl.wf4ever.vocabulary.ORE;
+import pl.psnc.dl.wf4ever.vocabulary.RO;
 
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
 import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.vocabulary.RDF;
 
 /**
  * Test the {@link Folder} methods.
@@ -44,6 +53,9 @@ import com.github.tomakehurst.wiremock.stubbing.Scenario;
  */
 public class FolderTest extends BaseTest {
 
+    /** Logger. */
+    private static final Logger LOG = Logger.getLogger(FolderTest.class);
+
     /** A test HTTP mock server. */
     @Rule
     public static final WireMockRule WIREMOCK_RULE = new WireMockRule(8089); // No-args constructor defaults to port 8080
@@ -378,4 +390,143 @@ public class FolderTest extends BaseTest {
         ex.add(new FolderEntry(fol1, entry3, MOCK_FOLDER.resolve("folder2/"), "folder2"));
         Assert.assertEquals(ex, new HashSet<FolderEntry>(fol1.getFolderEntries().values()));
     }
+
+
+    /**
+     * Test that the whole folder hierarchy is loaded when only the manifest has been loaded.
+     * 
+     * @throws ROSRSException
+     *             unexpected server response
+     * @throws ROException
+     *             invalid remote manifest
+     */
+    @Test
+    public final void testLoadFolderTree()
+            throws ROSRSException, ROException {
+        ResearchObject ro = new ResearchObject(MOCK_RO, rosrs);
+        ro.loadManifest();
+        Folder folder1 = ro.getFolder(MOCK_RO.resolve("folder1/"));
+        Folder folder2 = ro.getFolder(MOCK_RO.resolve("folder1/folder2/"));
+        Assert.assertFalse(folder1.isLoaded());
+
+        Assert.assertTrue(ro.loadFolderTree(4).isEmpty());
+
+        Assert.assertTrue(folder1.isLoaded());
+        Assert.assertTrue(folder2.isLoaded());
+        Assert.assertEquals(Collections.singletonList(folder2), folder1.getSubfolders());
+        Assert.assertEquals(2, folder1.getResources().size());
+    }
+
+
+    /**
+     * Test that a folder that is its own subfolder is reported and loaded once.
+     * 
+     * @throws ROSRSException
+     *             unexpected server response
+     * @throws ROException
+     *             invalid remote manifest
+     */
+    @Test
+    public final void testLoadFolderTreeWithCycle()
+            throws ROSRSException, ROException {
+        String folder1 = MOCK_RO.resolve("folder1/").toString();
+        String folder2 = MOCK_RO.resolve("folder1/folder2/").toString();
+        stubFor(get(urlEqualTo("/ro1/folder2.rdf")).willReturn(
+            aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/rdf+xml")
+                    .withBody(
+                        "<rdf:RDF xmlns:rdf=\"http://www.w3.org/1999/02/22-rdf-syntax-ns#\" "
+                                + "xmlns:ro=\"http://purl.org/wf4ever/ro#\" "
+                                + "xmlns:ore=\"http://www.openarchives.org/ore/terms/\">"
+                                + "<rdf:Description rdf:about=\"" + folder2 + "#entry1\">"
+                                + "<ore:proxyIn rdf:resource=\"" + folder2 + "\"/>"
+                                + "<ore:proxyFor rdf:resource=\"" + folder1 + "\"/>"
+                                + "<rdf:type rdf:resource=\"http://purl.org/wf4ever/ro#FolderEntry\"/>"
+                                + "</rdf:Description>" + "<rdf:Description rdf:about=\"" + folder2 + "\">"
+                                + "<ore:aggregates rdf:resource=\"" + folder1 + "\"/>" + "</rdf:Description>"
+                                + "</rdf:RDF>")));
+        ResearchObject ro = new ResearchObject(MOCK_RO, rosrs);
+        ro.loadManifest();
+
+        Set<Folder> cycles = ro.loadFolderTree(4);
+
+        Set<Folder> ex = new HashSet<>();
+        ex.add(ro.getFolder(URI.create(folder1)));
+        ex.add(ro.getFolder(URI.create(folder2)));
+        Assert.assertEquals(ex, cycles);
+        verify(1, getRequestedFor(urlEqualTo("/ro1/folder1.rdf")));
+    }
+
+
+    /**
+     * Test that many entries can be added at once and that the entries that fail don't stop the others.
+     */
+    @Test
+    public final void testAddEntries() {
+        Folder folder2 = ro1.getFolder(MOCK_RO.resolve("folder1/folder2/"));
+        Resource res1 = ro1.getResource(MOCK_RESOURCE);
+        Resource res3 = ro1.getResource(MOCK_RO.resolve("res3"));
+        stubFor(post(urlEqualTo("/ro1/folder1/folder2/")).willReturn(aResponse().withStatus(500)));
+        stubFor(post(urlEqualTo("/ro1/folder1/folder2/")).withRequestBody(matching(".*/ro1/res3.*")).willReturn(
+            aResponse().withStatus(201).withHeader("Location", MOCK_RO.resolve("folder1/folder2/entry3").toString())
+                    .withHeader("Link", "<" + res3.getUri() + ">; rel=\"" + ORE.proxyFor.getURI() + "\"")));
+
+        Map<Resource, String> entries = new LinkedHashMap<>();
+        entries.put(res1, "res1.txt");
+        entries.put(res3, "res3");
+        BatchResult<Resource, FolderEntry> result = folder2.addEntries(entries, 2);
+
+        Assert.assertFalse(result.isSuccessful());
+        Assert.assertEquals(Collections.singleton(res1), result.getFailures().keySet());
+        Assert.assertEquals(500, result.getFailures().get(res1).getStatus());
+        FolderEntry entry = result.getResults().get(res3);
+        Assert.assertEquals(MOCK_RO.resolve("folder1/folder2/entry3"), entry.getUri());
+        Assert.assertEquals("res3", entry.getName());
+        Assert.assertTrue(folder2.getFolderEntries().containsValue(entry));
+        Assert.assertTrue(folder2.getResources().contains(res3));
+        Assert.assertFalse(folder2.getResources().contains(res1));
+        Assert.assertTrue(ro1.getResourcesWithoutFolders().isEmpty());
+        Assert.assertEquals(res3, ro1.getPathIndex().get("folder1/folder2/res3"));
+        verify(postRequestedFor(urlEqualTo("/ro1/folder1/folder2/")).withRequestBody(
+            matching(".*<ro:entryName>res3</ro:entryName>.*")));
+    }
+
+
+    /**
+     * Test that a folder with 100k entries is loaded and indexed quickly.
+     */
+    @Test(timeout = 60000)
+    public final void testLoadBigFolder() {
+        int size = 100000;
+        URI bigUri = MOCK_RO.resolve("big/");
+        Resource res3 = ro1.getResource(MOCK_RO.resolve("res3"));
+        Model model = ModelFactory.createDefaultModel();
+        com.hp.hpl.jena.rdf.model.Resource folderNode = model.createResource(bigUri.toString());
+        for (int i = 0; i <= size; i++) {
+            URI resourceUri = i < size ? bigUri.resolve("res" + i) : res3.getUri();
+            com.hp.hpl.jena.rdf.model.Resource resourceNode = model.createResource(resourceUri.toString());
+            folderNode.addProperty(model.createProperty(ORE.NAMESPACE, "aggregates"), resourceNode);
+            model.createResource(bigUri.resolve("entries/" + i).toString())
+                    .addProperty(RDF.type, model.createResource(RO.NAMESPACE + "FolderEntry"))
+                    .addProperty(model.createProperty(ORE.NAMESPACE, "proxyIn"), folderNode)
+                    .addProperty(ORE.proxyFor, resourceNode)
+                    .addProperty(model.createProperty(RO.NAMESPACE, "entryName"), i < size ? "res" + i : "zzz");
+        }
+        Folder big = new Folder(ro1, bigUri, null, bigUri.resolve("big.rdf"), null, null, false);
+
+        long start = System.currentTimeMillis();
+        big.load(model);
+        LOG.info("Loaded a folder with " + size + " entries in " + (System.currentTimeMillis() - start) + " ms");
+
+        Assert.assertEquals(size + 1, big.getFolderEntries().size());
+        Assert.assertEquals(size + 1, big.getFolderEntriesByName().size());
+        Assert.assertEquals("res0", big.getFolderEntriesByName().firstKey());
+        Assert.assertEquals("zzz", big.getFolderEntriesByName().lastKey());
+        Assert.assertEquals(bigUri.resolve("res99999"), big.getFolderEntryByName("res99999").getResourceUri());
+        Assert.assertEquals(bigUri.resolve("entries/" + size), big.getFolderEntryByResource(res3.getUri()).getUri());
+        Assert.assertEquals(res3.getUri(), big.getFolderEntryByName("zzz").getResourceUri());
+        Assert.assertNull(big.getFolderEntryByName("res" + size));
+        Assert.assertEquals(Collections.singletonList(res3), big.getResources());
+    }
 }
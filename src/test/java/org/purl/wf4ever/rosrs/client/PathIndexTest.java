@@ -0,0 +1,141 @@
+package org.purl.wf4ever.rosrs.client;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.purl.wf4ever.rosrs.client.exception.ROException;
+import org.purl.wf4ever.rosrs.client.exception.ROSRSException;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+
+/**
+ * Test the {@link PathIndex} of a research object.
+ *
+ * @author piotrekhol
+ *
+ */
+public class PathIndexTest extends BaseTest {
+
+    /** A test HTTP mock server. */
+    @Rule
+    public static final WireMockRule WIREMOCK_RULE = new WireMockRule(8089);
+
+
+    /**
+     * Resources, folders and named folder entries should be found by their exact paths.
+     */
+    @Test
+    public final void shouldFindExactPaths() {
+        PathIndex index = ro1.getPathIndex();
+        Assert.assertEquals(ro1.getResource(MOCK_RESOURCE), index.get("res1.txt"));
+        Assert.assertEquals(ro1.getFolder(MOCK_RO.resolve("folder1/")), index.get("folder1/"));
+        Assert.assertEquals(ro1.getFolder(MOCK_RO.resolve("folder1/folder2/")), index.get("folder1/folder2/"));
+        Assert.assertEquals(ro1.getResource(MOCK_RO.resolve("res2")), index.get("folder1/res2"));
+        Assert.assertNull(index.get("folder1"));
+        Assert.assertNull(index.get("res4"));
+    }
+
+
+    /**
+     * All paths with a prefix should be found, sorted.
+     */
+    @Test
+    public final void shouldFindPrefixes() {
+        PathIndex index = ro1.getPathIndex();
+        Assert.assertEquals(Arrays.asList("folder1/", "folder1/folder2/", "folder1/res1.txt", "folder1/res2"),
+            Arrays.asList(index.getByPrefix("folder1/").keySet().toArray()));
+        Assert.assertEquals(Arrays.asList("res1.txt", "res2", "res3"),
+            Arrays.asList(index.getByPrefix("res").keySet().toArray()));
+        Assert.assertTrue(index.getByPrefix("x").isEmpty());
+        Assert.assertEquals(index.size(), index.getByPrefix("").size());
+    }
+
+
+    /**
+     * Paths continuing with the greatest character after the prefix should be found too.
+     */
+    @Test
+    public final void shouldFindPrefixesEndingWithMaxCharacter() {
+        PathIndex index = new PathIndex();
+        Resource res1 = ro1.getResource(MOCK_RESOURCE);
+        Resource res2 = ro1.getResource(MOCK_RO.resolve("res2"));
+        index.put("a" + Character.MAX_VALUE, res1);
+        index.put("a" + Character.MAX_VALUE + "b", res2);
+        index.put("a" + Character.MAX_VALUE + Character.MAX_VALUE + "c", res2);
+        index.put("b", res2);
+        Assert.assertEquals(Arrays.asList("a" + Character.MAX_VALUE, "a" + Character.MAX_VALUE + "b",
+            "a" + Character.MAX_VALUE + Character.MAX_VALUE + "c"),
+            Arrays.asList(index.getByPrefix("a" + Character.MAX_VALUE).keySet().toArray()));
+        Assert.assertEquals(3, index.getByPrefix("a").size());
+    }
+
+
+    /**
+     * Removing a resource should remove only the paths that still lead to it.
+     */
+    @Test
+    public final void shouldRemoveAllPathsOfResource() {
+        PathIndex index = new PathIndex();
+        Resource res1 = ro1.getResource(MOCK_RESOURCE);
+        Resource res2 = ro1.getResource(MOCK_RO.resolve("res2"));
+        index.put("res1.txt", res1);
+        index.put("folder1/res1.txt", res1);
+        index.put("folder1/renamed", res1);
+        index.put("folder1/renamed", res2);
+        index.removeAll(res1);
+        Assert.assertNull(index.get("res1.txt"));
+        Assert.assertNull(index.get("folder1/res1.txt"));
+        Assert.assertEquals(res2, index.get("folder1/renamed"));
+        index.remove("folder1/renamed", res1);
+        Assert.assertEquals(res2, index.get("folder1/renamed"));
+        index.remove("folder1/renamed", res2);
+        Assert.assertEquals(0, index.size());
+    }
+
+
+    /**
+     * Glob patterns should match within and across folders.
+     */
+    @Test
+    public final void shouldFindGlobs() {
+        PathIndex index = ro1.getPathIndex();
+        Assert.assertEquals(Arrays.asList("folder1/res1.txt", "folder1/res2"),
+            Arrays.asList(index.getByGlob("folder1/res*").keySet().toArray()));
+        Assert.assertEquals(Arrays.asList("folder1/res1.txt", "res1.txt"),
+            Arrays.asList(index.getByGlob("**.txt").keySet().toArray()));
+        Assert.assertEquals(Collections.singletonList("res1.txt"),
+            Arrays.asList(index.getByGlob("*.txt").keySet().toArray()));
+        Assert.assertEquals(Arrays.asList("res2", "res3"), Arrays.asList(index.getByGlob("res?").keySet().toArray()));
+        Assert.assertEquals(Collections.singletonList("res3"), Arrays.asList(index.getByGlob("res3").keySet().toArray()));
+    }
+
+
+    /**
+     * The index should follow the changes of the RO.
+     *
+     * @throws ROSRSException
+     *             unexpected response from the server
+     * @throws ROException
+     *             incorrect manifest
+     */
+    @Test
+    public final void shouldFollowChanges()
+            throws ROSRSException, ROException {
+        PathIndex index = ro1.getPathIndex();
+        Resource res3 = ro1.getResource(MOCK_RO.resolve("res3"));
+        ro1.removeResource(res3);
+        Assert.assertNull(index.get("res3"));
+
+        Resource res1 = ro1.getResource(MOCK_RESOURCE);
+        ro1.removeResource(res1);
+        Assert.assertNull(index.get("res1.txt"));
+        Assert.assertNull(index.get("folder1/res1.txt"));
+
+        Resource aggregated = ro1.aggregate("res1.txt", new ByteArrayInputStream(new byte[0]), "text/plain");
+        Assert.assertEquals(aggregated, index.get("res1.txt"));
+    }
+}
@@ -0,0 +1,115 @@
+package org.purl.wf4ever.rosrs.client;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.purl.wf4ever.rosrs.client.exception.ROSRSException;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+
+/**
+ * Test reading the list of research objects.
+ *
+ * @author piotrekhol
+ *
+ */
+public class ROListIteratorTest {
+
+    /** A test HTTP mock server. */
+    @Rule
+    public final WireMockRule wireMockRule = new WireMockRule(8089);
+
+    /** ROSRS. */
+    private ROSRService rosrs;
+
+
+    /**
+     * Return a list of 3 ROs, with empty lines.
+     */
+    @Before
+    public void setUp() {
+        stubFor(get(urlEqualTo("/rosrs/")).willReturn(
+            aResponse().withStatus(200).withHeader("Content-Type", "text/plain")
+                    .withBody("http://localhost:8089/rosrs/ro1/\r\n\r\nhttp://localhost:8089/rosrs/ro2/\n"
+                            + "http://localhost:8089/rosrs/ro3/\n\n")));
+        rosrs = new ROSRService(URI.create("http://localhost:8089/rosrs/"), null);
+    }
+
+
+    /**
+     * All RO URIs should be returned, skipping empty lines.
+     *
+     * @throws ROSRSException
+     *             unexpected response from the server
+     * @throws URISyntaxException
+     *             incorrect URIs in the list
+     */
+    @Test
+    public final void shouldReadAllUris()
+            throws ROSRSException, URISyntaxException {
+        List<URI> ex = Arrays.asList(URI.create("http://localhost:8089/rosrs/ro1/"),
+            URI.create("http://localhost:8089/rosrs/ro2/"), URI.create("http://localhost:8089/rosrs/ro3/"));
+        List<URI> uris = new ArrayList<>();
+        ROListIterator it = rosrs.iterateROList(true, Long.MAX_VALUE);
+        while (it.hasNext()) {
+            uris.add(it.next());
+        }
+        Assert.assertEquals(ex, uris);
+        Assert.assertFalse(it.hasNext());
+        Assert.assertEquals(ex, rosrs.getROList(true));
+    }
+
+
+    /**
+     * The iteration should stop at the limit or when the iterator is closed.
+     *
+     * @throws ROSRSException
+     *             unexpected response from the server
+     */
+    @Test
+    public final void shouldStopEarly()
+            throws ROSRSException {
+        try (ROListIterator it = rosrs.iterateROList(true, 2)) {
+            Assert.assertEquals(URI.create("http://localhost:8089/rosrs/ro1/"), it.next());
+            Assert.assertEquals(URI.create("http://localhost:8089/rosrs/ro2/"), it.next());
+            Assert.assertFalse(it.hasNext());
+        }
+        ROListIterator it = rosrs.iterateROList(true, Long.MAX_VALUE);
+        Assert.assertEquals(URI.create("http://localhost:8089/rosrs/ro1/"), it.next());
+        it.close();
+        Assert.assertFalse(it.hasNext());
+        try {
+            it.next();
+            Assert.fail("A closed iterator shouldn't return URIs");
+        } catch (NoSuchElementException e) {
+            // expected
+        }
+    }
+
+
+    /**
+     * An error response should be reported before iterating.
+     *
+     * @throws ROSRSException
+     *             expected
+     */
+    @Test(expected = ROSRSException.class)
+    public final void shouldReportErrors()
+            throws ROSRSException {
+        stubFor(get(urlEqualTo("/rosrs/")).willReturn(aResponse().withStatus(500)));
+        rosrs.iterateROList(true, Long.MAX_VALUE);
+    }
+}
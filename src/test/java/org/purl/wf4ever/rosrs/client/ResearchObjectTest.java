@@ -1,9 +1,16 @@
 package org.purl.wf4ever.rosrs.client;
 
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.delete;
 import static com.github.tomakehurst.wiremock.client.WireMock.deleteRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
 import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.head;
+import static com.github.tomakehurst.wiremock.client.WireMock.headRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.matching;
 import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
 import static com.github.tomakehurst.wiremock.client.WireMock.verify;
@@ -17,13 +24,22 @@ import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 
+import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.hamcrest.Matchers;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
@@ -37,6 +53,7 @@ import org.purl.wf4ever.rosrs.client.exception.ROSRSException;
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.Ordering;
 import com.hp.hpl.jena.vocabulary.DCTerms;
 import com.hp.hpl.jena.vocabulary.RDF;
 import com.hp.hpl.jena.vocabulary.RDFS;
@@ -309,4 +326,530 @@ public class ResearchObjectTest extends BaseTest {
 
         verify(postRequestedFor(urlEqualTo("/ro1/")).withRequestBody(matching(".*RO comment 3.*")));
     }
+
+
+    /**
+     * Readers should never see a partially updated RO, nor fail, while another thread is removing and adding its
+     * resources, folders and annotations.
+     * 
+     * @throws InterruptedException
+     *             interrupted when waiting for the threads
+     * @throws ROSRSException
+     *             unexpected response from the server
+     * @throws ROException
+     *             incorrect manifest
+     */
+    @Test
+    public final void shouldReadConsistentlyDuringChanges()
+            throws InterruptedException, ROSRSException, ROException {
+        final int readers = 4;
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        final CountDownLatch start = new CountDownLatch(1);
+        final ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        final Ordering<Resource> byName = Ordering.from(new ResourceByNameComparator());
+        final Ordering<Resource> byPath = Ordering.from(new ResourceByPathComparator());
+        List<Resource> resources = new ArrayList<>(ro1.getResources().values());
+        List<Folder> folders = new ArrayList<>(ro1.getFolders().values());
+        List<Annotation> annotations = new ArrayList<>(ro1.getAllAnnotations().values());
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < readers; i++) {
+            threads.add(new Thread() {
+
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        while (writing.get()) {
+                            ResearchObjectSnapshot snapshot = ro1.getSnapshot();
+                            for (Map.Entry<URI, Resource> entry : snapshot.getResources().entrySet()) {
+                                Assert.assertEquals(entry.getKey(), entry.getValue().getUri());
+                            }
+                            List<Resource> root = snapshot.getResourcesWithoutFolders();
+                            Assert.assertTrue(byName.isOrdered(root));
+                            Assert.assertEquals(root.size(), new HashSet<>(root).size());
+                            Assert.assertTrue(snapshot.getResources().values().containsAll(root));
+                            Assert.assertTrue(byPath.isOrdered(snapshot.getRootFolders()));
+                            Assert.assertTrue(snapshot.getFolders().values().containsAll(snapshot.getRootFolders()));
+                            Assert.assertEquals(new HashSet<>(snapshot.getFolders().values()),
+                                new HashSet<>(snapshot.getAllFolders()));
+                            for (Map.Entry<URI, Annotation> entry : snapshot.getAllAnnotations().entries()) {
+                                Assert.assertTrue(entry.getValue().getTargets().contains(entry.getKey()));
+                                for (URI target : entry.getValue().getTargets()) {
+                                    Assert.assertTrue(snapshot.getAllAnnotations().containsEntry(target,
+                                        entry.getValue()));
+                                }
+                            }
+                        }
+                    } catch (Throwable e) {
+                        errors.add(e);
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        try {
+            for (int round = 0; round < 20; round++) {
+                for (int i = 0; i < Math.max(resources.size(), folders.size()); i++) {
+                    if (i < resources.size()) {
+                        ro1.removeResource(resources.get(i));
+                    }
+                    if (i < folders.size()) {
+                        ro1.removeFolder(folders.get(i));
+                    }
+                }
+                for (Annotation annotation : annotations) {
+                    ro1.removeAnnotation(annotation);
+                }
+                // adds back everything that has been removed
+                ro1.load();
+            }
+        } finally {
+            writing.set(false);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+        Assert.assertTrue(errors.toString(), errors.isEmpty());
+        Assert.assertEquals(resources.size(), ro1.getResources().size());
+        Assert.assertEquals(folders.size(), ro1.getFolders().size());
+    }
+
+
+    /**
+     * Deleted annotations should be removed from the RO, the ones that couldn't be deleted should stay.
+     */
+    @Test
+    public final void shouldRemoveDeletedAnnotations() {
+        stubFor(head(urlMatching("/ro1/\\.ro/annotations/.*")).willReturn(
+            aResponse().withStatus(303).withHeader("Location", MOCK_BODY.toString())));
+        stubFor(delete(urlMatching("/ro1/\\.ro/annotations/.*")).willReturn(aResponse().withStatus(204)));
+        stubFor(delete(urlEqualTo("/ro1/.ro/annotations/3")).willReturn(aResponse().withStatus(500)));
+        stubFor(delete(urlEqualTo("/ro1/body.rdf")).willReturn(aResponse().withStatus(204)));
+        Set<Annotation> annotations = new HashSet<>(ro1.getAllAnnotations().values());
+        Annotation failing = null;
+        for (Annotation annotation : annotations) {
+            if (annotation.getUri().equals(MOCK_RO.resolve(".ro/annotations/3"))) {
+                failing = annotation;
+            }
+        }
+        Assert.assertNotNull(failing);
+
+        Map<Annotation, ROSRSException> failures = ro1.deleteAnnotations(annotations, 2);
+
+        Assert.assertEquals(Collections.singleton(failing), failures.keySet());
+        Assert.assertEquals(Collections.singleton(failing), new HashSet<>(ro1.getAllAnnotations().values()));
+    }
+
+
+    /**
+     * A snapshot should not change when the RO is changed.
+     */
+    @Test
+    public final void shouldKeepTheSnapshotUnchanged() {
+        ResearchObjectSnapshot snapshot = ro1.getSnapshot();
+        Assert.assertTrue(snapshot.isLoaded());
+        Assert.assertEquals(ro1.getResources(), snapshot.getResources());
+        Assert.assertEquals(ro1.getResourcesWithoutFolders(), snapshot.getResourcesWithoutFolders());
+        Assert.assertEquals(ro1.getRootFolders(), snapshot.getRootFolders());
+        Assert.assertEquals(ro1.getAllFolders(), snapshot.getAllFolders());
+        Assert.assertSame(snapshot, ro1.getSnapshot());
+
+        Resource res3 = ro1.getResource(MOCK_RO.resolve("res3"));
+        ro1.removeResource(res3);
+
+        Assert.assertEquals(res3, snapshot.getResource(res3.getUri()));
+        Assert.assertTrue(snapshot.getResourcesWithoutFolders().contains(res3));
+        Assert.assertNull(ro1.getSnapshot().getResource(res3.getUri()));
+        Assert.assertFalse(ro1.getSnapshot().getResourcesWithoutFolders().contains(res3));
+        Assert.assertEquals(snapshot.getFolders(), ro1.getSnapshot().getFolders());
+    }
+
+
+    /**
+     * A snapshot should keep the folder contents and the annotation bodies it was published with.
+     * 
+     * @throws ROSRSException
+     *             unexpected response when recalculating the root folders
+     */
+    @Test
+    public final void shouldKeepFolderContentsAndBodiesInSnapshot()
+            throws ROSRSException {
+        ResearchObjectSnapshot snapshot = ro1.getSnapshot();
+        Folder folder = ro1.getFolder(MOCK_RO.resolve("folder1/"));
+        Assert.assertTrue(snapshot.isLoaded(folder));
+        FolderEntry entry = folder.getFolderEntries().values().iterator().next();
+        folder.removeFolderEntry(entry);
+        ro1.removeFolderEntry(entry);
+
+        Assert.assertTrue(snapshot.getFolderEntries(folder).containsKey(entry.getUri()));
+        Assert.assertFalse(folder.getFolderEntries().containsKey(entry.getUri()));
+        Assert.assertFalse(ro1.getSnapshot().getFolderEntries(folder).containsKey(entry.getUri()));
+
+        Annotation annotation = ro1.getAnnotations().iterator().next();
+        Assert.assertTrue(snapshot.isLoaded(annotation));
+        Statement added = new Statement(MOCK_RO, RDFS_COMMENT, "Added after the snapshot");
+        annotation.addStatement(added);
+        Assert.assertTrue(annotation.getStatements().contains(added));
+        Assert.assertFalse(snapshot.getStatements(annotation).contains(added));
+    }
+
+
+    /**
+     * Refreshing an RO that hasn't changed should keep everything that has been loaded.
+     * 
+     * @throws ROSRSException
+     *             unexpected response from the server
+     * @throws ROException
+     *             incorrect manifest
+     */
+    @Test
+    public final void shouldRefreshWithoutChanges()
+            throws ROSRSException, ROException {
+        ResearchObjectSnapshot before = ro1.getSnapshot();
+        ResearchObjectDiff diff = ro1.refresh();
+        Assert.assertTrue(diff.toString(), diff.isEmpty());
+        ResearchObjectSnapshot after = ro1.getSnapshot();
+        Assert.assertSame(before.getResource(MOCK_RESOURCE), after.getResource(MOCK_RESOURCE));
+        Assert.assertSame(before.getFolder(MOCK_RO.resolve("folder1/")), after.getFolder(MOCK_RO.resolve("folder1/")));
+        Assert.assertEquals(before.getAllAnnotations(), after.getAllAnnotations());
+        Assert.assertEquals(before.getResourcesWithoutFolders(), after.getResourcesWithoutFolders());
+    }
+
+
+    /**
+     * Refreshing an RO should report and apply the changes in the manifest.
+     * 
+     * @throws ROSRSException
+     *             unexpected response from the server
+     * @throws ROException
+     *             incorrect manifest
+     * @throws IOException
+     *             can't read the test manifest
+     */
+    @Test
+    public final void shouldRefreshChanges()
+            throws ROSRSException, ROException, IOException {
+        String manifest = IOUtils.toString(getClass().getClassLoader().getResourceAsStream("ro1/.ro/manifest.rdf"));
+        manifest = manifest.replace("<ore:aggregates rdf:resource=\"../res3\"/>", "").replace(
+            "<ao:body rdf:resource=\"../body3.rdf\"/>",
+            "<ao:body rdf:resource=\"../body3.rdf\"/><ro:annotatesAggregatedResource rdf:resource=\"../res2\"/>");
+        stubFor(get(urlEqualTo("/ro1/.ro/manifest.rdf")).willReturn(
+            aResponse().withStatus(200).withHeader("Content-Type", "application/rdf+xml").withBody(manifest)));
+        Resource res1 = ro1.getResource(MOCK_RESOURCE);
+
+        ResearchObjectDiff diff = ro1.refresh();
+
+        Assert.assertEquals(Collections.singleton(MOCK_RO.resolve("res3")), uris(diff.getRemovedResources()));
+        Assert.assertEquals(Collections.singleton(MOCK_RO.resolve(".ro/annotations/4")),
+            uris(diff.getChangedAnnotations()));
+        Assert.assertTrue(diff.getAddedResources().isEmpty());
+        Assert.assertTrue(diff.getAddedAnnotations().isEmpty());
+        Assert.assertTrue(diff.getRemovedAnnotations().isEmpty());
+        Assert.assertTrue(diff.getAddedFolders().isEmpty());
+        Assert.assertTrue(diff.getChangedFolders().isEmpty());
+        Assert.assertSame(res1, ro1.getResource(MOCK_RESOURCE));
+        Assert.assertNull(ro1.getResource(MOCK_RO.resolve("res3")));
+        Assert.assertTrue(ro1.getResourcesWithoutFolders().isEmpty());
+        Assert.assertEquals(2, ro1.getAllAnnotations().get(MOCK_RO.resolve("res2")).size());
+    }
+
+
+    /**
+     * Refreshing an RO should pick up an entry added to a folder whose description in the manifest is the same, and
+     * revalidate the resource map with its ETag afterwards.
+     * 
+     * @throws ROSRSException
+     *             unexpected response from the server
+     * @throws ROException
+     *             incorrect manifest
+     * @throws IOException
+     *             can't read the test resource map
+     */
+    @Test
+    public final void shouldRefreshFolderContents()
+            throws ROSRSException, ROException, IOException {
+        URI folderUri = MOCK_RO.resolve("folder1/");
+        URI res3 = MOCK_RO.resolve("res3");
+        String resourceMap = IOUtils.toString(getClass().getClassLoader().getResourceAsStream("ro1/folder1.rdf"));
+        resourceMap = resourceMap.replace(
+            "<ore:aggregates rdf:resource=\"http://localhost:8089/ro1/res2\"/>",
+            "<ore:aggregates rdf:resource=\"http://localhost:8089/ro1/res2\"/>"
+                    + "<ore:aggregates rdf:resource=\"http://localhost:8089/ro1/res3\"/>").replace(
+            "</rdf:RDF>",
+            "<rdf:Description rdf:about=\"http://localhost:8089/ro1/folder1/#entry4\">"
+                    + "<ore:proxyIn rdf:resource=\"http://localhost:8089/ro1/folder1/\"/>"
+                    + "<ore:proxyFor rdf:resource=\"http://localhost:8089/ro1/res3\"/>"
+                    + "<ro:entryName>res3</ro:entryName>"
+                    + "<rdf:type rdf:resource=\"http://purl.org/wf4ever/ro#FolderEntry\"/>"
+                    + "</rdf:Description></rdf:RDF>");
+        stubFor(get(urlEqualTo("/ro1/folder1.rdf")).willReturn(
+            aResponse().withStatus(200).withHeader("Content-Type", "application/rdf+xml").withHeader("ETag", "\"v2\"")
+                    .withBody(resourceMap)));
+        Folder folder = ro1.getFolder(folderUri);
+        Assert.assertTrue(uris(ro1.getResourcesWithoutFolders()).contains(res3));
+
+        ResearchObjectDiff diff = ro1.refresh();
+
+        Assert.assertEquals(Collections.singleton(folderUri), uris(diff.getChangedFolderContents()));
+        Assert.assertTrue(diff.getChangedFolders().isEmpty());
+        Assert.assertTrue(diff.getRemovedResources().isEmpty());
+        Assert.assertTrue(diff.getChangedAnnotationBodies().isEmpty());
+        Assert.assertSame(folder, ro1.getFolder(folderUri));
+        Assert.assertNotNull(folder.getFolderEntryByResource(res3));
+        Assert.assertTrue(uris(folder.getResources()).contains(res3));
+        Assert.assertFalse(uris(ro1.getResourcesWithoutFolders()).contains(res3));
+
+        stubFor(get(urlEqualTo("/ro1/folder1.rdf")).withHeader("If-None-Match", equalTo("\"v2\"")).willReturn(
+            aResponse().withStatus(304)));
+        diff = ro1.refresh();
+
+        Assert.assertTrue(diff.toString(), diff.isEmpty());
+        Assert.assertNotNull(folder.getFolderEntryByResource(res3));
+        verify(getRequestedFor(urlEqualTo("/ro1/folder1.rdf")).withHeader("If-None-Match", equalTo("\"v2\"")));
+    }
+
+
+    /**
+     * Each load level should download only what the lower levels haven't and end with the same RO as {@link #load()}.
+     * 
+     * @throws ROSRSException
+     *             unexpected response from the server
+     * @throws ROException
+     *             incorrect manifest
+     */
+    @Test
+    public final void shouldLoadLevelByLevel()
+            throws ROSRSException, ROException {
+        ResearchObject ro = new ResearchObject(MOCK_RO, rosrs);
+        Assert.assertEquals(LoadLevel.NONE, ro.getLoadLevel());
+
+        ro.load(LoadLevel.SUMMARY);
+        Assert.assertEquals(LoadLevel.SUMMARY, ro.getLoadLevel());
+        Assert.assertFalse(ro.isLoaded());
+        Assert.assertEquals(ro1.getAuthor(), ro.getAuthor());
+        Assert.assertEquals(ro1.getCreated(), ro.getCreated());
+        Assert.assertEquals(ro1.getResources().keySet(), ro.getResources().keySet());
+        Assert.assertEquals(ro1.getFolders().keySet(), ro.getFolders().keySet());
+        Assert.assertFalse(ro.getFolder(MOCK_RO.resolve("folder1/")).isLoaded());
+        verify(0, getRequestedFor(urlEqualTo("/ro1/folder1.rdf")));
+
+        ro.load(LoadLevel.STRUCTURE);
+        Assert.assertEquals(LoadLevel.STRUCTURE, ro.getLoadLevel());
+        Assert.assertFalse(ro.isLoaded());
+        Assert.assertEquals(uris(ro1.getResourcesWithoutFolders()), uris(ro.getResourcesWithoutFolders()));
+        Assert.assertEquals(uris(ro1.getRootFolders()), uris(ro.getRootFolders()));
+        Assert.assertEquals(uris(ro1.getAllFolders()), uris(ro.getAllFolders()));
+        verify(0, getRequestedFor(urlEqualTo("/ro1/body.rdf")));
+
+        ro.load(LoadLevel.SUMMARY);
+        ro.load(LoadLevel.FULL);
+        Assert.assertEquals(LoadLevel.FULL, ro.getLoadLevel());
+        Assert.assertTrue(ro.isLoaded());
+        Assert.assertEquals(ro1.getEvoType(), ro.getEvoType());
+        Assert.assertEquals(uris(ro1.getAllAnnotations().values()), uris(ro.getAllAnnotations().values()));
+        Assert.assertEquals(uris(ro1.getAllFolders()), uris(ro.getAllFolders()));
+        Assert.assertEquals(uris(ro1.getResourcesWithoutFolders()), uris(ro.getResourcesWithoutFolders()));
+        Assert.assertEquals(uris(ro1.getRootFolders()), uris(ro.getRootFolders()));
+        verify(1, getRequestedFor(urlEqualTo("/ro1/.ro/manifest.rdf")));
+        verify(1, getRequestedFor(urlEqualTo("/ro1/folder1.rdf")));
+        verify(1, getRequestedFor(urlEqualTo("/ro1/body.rdf")));
+        // only ro1, loaded in the set up, used the TriG dataset
+        verify(1, getRequestedFor(urlEqualTo("/ro1/")).withHeader("Accept", equalTo("application/x-trig")));
+    }
+
+
+    /**
+     * Every load should be reported to the listeners with its phases and what has been loaded.
+     * 
+     * @throws ROSRSException
+     *             unexpected response from the server
+     * @throws ROException
+     *             incorrect manifest
+     */
+    @Test
+    public final void shouldTraceLoads()
+            throws ROSRSException, ROException {
+        final List<LoadTrace> traces = new ArrayList<>();
+        LoadListener listener = new LoadListener() {
+
+            @Override
+            public void loaded(LoadTrace trace) {
+                traces.add(trace);
+            }
+        };
+        ResearchObject.addLoadListener(listener);
+        try {
+            ResearchObject ro = new ResearchObject(MOCK_RO, rosrs);
+            ro.load();
+            ro.loadManifest();
+        } finally {
+            ResearchObject.removeLoadListener(listener);
+        }
+        Assert.assertEquals(2, traces.size());
+
+        LoadTrace load = traces.get(0);
+        Assert.assertEquals("load", load.getOperation());
+        Assert.assertEquals(MOCK_RO, load.getUri());
+        Assert.assertTrue(load.isSuccessful());
+        List<String> phases = new ArrayList<>();
+        for (LoadTrace.Phase phase : load.getPhases()) {
+            phases.add(phase.getName());
+        }
+        Assert.assertEquals(
+            Arrays.asList("download", "parse", "copy", "extract", "annotations", "folders", "roots", "finish"), phases);
+        Assert.assertTrue(load.getPhase("parse").getCount("triples") > 0);
+        Assert.assertEquals(load.getPhase("parse").getCount("triples"), load.getCount("triples"));
+        Assert.assertTrue(load.getPhase("copy").getCount("manifestTriples") > 0);
+        Assert.assertEquals(ro1.getResources().size(), load.getPhase("extract").getCount("resources"));
+        Assert.assertEquals(ro1.getFolders().size(), load.getPhase("extract").getCount("folders"));
+        Assert.assertEquals(3 + ro1.getResources().size() + ro1.getFolders().size(), load.getCount("queries"));
+        Assert.assertEquals(ro1.getAnnotations().size(), load.getPhase("annotations").getCount("annotationBodies"));
+        Assert.assertEquals(ro1.getFolders().size(), load.getCount("resourceMaps"));
+        Assert.assertEquals(new HashSet<>(ro1.getAllAnnotations().values()).size(), load.getCount("annotations"));
+        Assert.assertTrue(load.getTotalNanos() > 0);
+
+        LoadTrace manifest = traces.get(1);
+        Assert.assertEquals("loadManifest", manifest.getOperation());
+        Assert.assertNotNull(manifest.getPhase("download"));
+        Assert.assertNull(manifest.getPhase("copy"));
+    }
+
+
+    /**
+     * Loading level by level and loading the folder tree should be reported too.
+     * 
+     * @throws ROSRSException
+     *             unexpected response from the server
+     * @throws ROException
+     *             incorrect manifest
+     */
+    @Test
+    public final void shouldTraceLoadLevels()
+            throws ROSRSException, ROException {
+        final List<LoadTrace> traces = new ArrayList<>();
+        LoadListener listener = new LoadListener() {
+
+            @Override
+            public void loaded(LoadTrace trace) {
+                traces.add(trace);
+            }
+        };
+        ResearchObject.addLoadListener(listener);
+        try {
+            ResearchObject ro = new ResearchObject(MOCK_RO, rosrs);
+            ro.load(LoadLevel.STRUCTURE);
+            ro.load(LoadLevel.FULL);
+            new ResearchObject(MOCK_RO, rosrs).loadFolderTree(2);
+        } finally {
+            ResearchObject.removeLoadListener(listener);
+        }
+        Assert.assertEquals(3, traces.size());
+
+        LoadTrace structure = traces.get(0);
+        Assert.assertEquals("load(STRUCTURE)", structure.getOperation());
+        Assert.assertTrue(structure.isSuccessful());
+        Assert.assertNotNull(structure.getPhase("download"));
+        Assert.assertNotNull(structure.getPhase("roots"));
+        Assert.assertEquals(ro1.getFolders().size(), structure.getPhase("folders").getCount("resourceMaps"));
+        Assert.assertEquals(0, structure.getCount("annotationBodies"));
+
+        LoadTrace full = traces.get(1);
+        Assert.assertEquals("load(FULL)", full.getOperation());
+        Assert.assertNull(full.getPhase("download"));
+        Assert.assertEquals(ro1.getAnnotations().size(), full.getPhase("annotations").getCount("annotationBodies"));
+
+        LoadTrace tree = traces.get(2);
+        Assert.assertEquals("loadFolderTree", tree.getOperation());
+        Assert.assertNotNull(tree.getPhase("extract"));
+        Assert.assertEquals(ro1.getFolders().size(), tree.getCount("resourceMaps"));
+        Assert.assertTrue(tree.getCount("levels") > 0);
+    }
+
+
+    /**
+     * A failed load should be reported too.
+     */
+    @Test
+    public final void shouldTraceFailedLoads() {
+        final List<LoadTrace> traces = new ArrayList<>();
+        LoadListener listener = new LoadListener() {
+
+            @Override
+            public void loaded(LoadTrace trace) {
+                traces.add(trace);
+            }
+        };
+        ResearchObject.addLoadListener(listener);
+        try {
+            new ResearchObject(MOCK_RO.resolve("../missing/"), rosrs).load();
+            Assert.fail("The RO should not be loaded");
+        } catch (ROSRSException | ROException e) {
+            Assert.assertEquals(1, traces.size());
+            Assert.assertFalse(traces.get(0).isSuccessful());
+            Assert.assertEquals("download", traces.get(0).getPhases().get(0).getName());
+        } finally {
+            ResearchObject.removeLoadListener(listener);
+        }
+    }
+
+
+    /**
+     * The HEAD responses of all resources should be returned and the missing sizes should be set, also after a
+     * refresh.
+     * 
+     * @throws ROSRSException
+     *             unexpected response from the server
+     * @throws ROException
+     *             incorrect manifest
+     */
+    @Test
+    public final void shouldProbeResources()
+            throws ROSRSException, ROException {
+        stubFor(head(urlEqualTo("/ro1/res1.txt")).willReturn(
+            aResponse().withStatus(200).withHeader("Content-Type", "text/plain").withHeader("ETag", "\"v1\"")
+                    .withBody(StringUtils.repeat("x", 1234))));
+        stubFor(head(urlEqualTo("/ro1/res2")).willReturn(aResponse().withStatus(404)));
+        stubFor(head(urlEqualTo("/ro1/res3")).willReturn(
+            aResponse().withStatus(200).withHeader("Content-Type", "text/plain").withBody(StringUtils.repeat("y", 20))));
+        Resource res3 = ro1.getResource(MOCK_RO.resolve("res3"));
+        res3.setSize(10);
+
+        Map<URI, ResourceProbe> probes = ro1.probeResources(2);
+
+        Assert.assertEquals(ro1.getResources().keySet(), probes.keySet());
+        ResourceProbe res1Probe = probes.get(MOCK_RESOURCE);
+        Assert.assertTrue(res1Probe.isAvailable());
+        Assert.assertEquals(1234, res1Probe.getSize());
+        Assert.assertEquals("text/plain", res1Probe.getContentType());
+        Assert.assertEquals("\"v1\"", res1Probe.getEtag());
+        Assert.assertEquals(1234, ro1.getResource(MOCK_RESOURCE).getSize());
+        Assert.assertFalse(probes.get(MOCK_RO.resolve("res2")).isAvailable());
+        Assert.assertEquals(404, probes.get(MOCK_RO.resolve("res2")).getStatus());
+        Assert.assertEquals(-1, ro1.getResource(MOCK_RO.resolve("res2")).getSize());
+        Assert.assertEquals(20, probes.get(res3.getUri()).getSize());
+        Assert.assertEquals(10, res3.getSize());
+        verify(3, headRequestedFor(urlMatching("/ro1/res.*")));
+
+        ro1.refresh();
+        Assert.assertEquals(1234, ro1.getResource(MOCK_RESOURCE).getSize());
+    }
+
+
+    /**
+     * Collect the URIs of resources, folders or annotations.
+     * 
+     * @param things
+     *            resources, folders or annotations
+     * @return their URIs
+     */
+    private static Set<URI> uris(Collection<? extends Thing> things) {
+        Set<URI> result = new HashSet<>();
+        for (Thing thing : things) {
+            result.add(thing.getUri());
+        }
+        return result;
+    }
 }
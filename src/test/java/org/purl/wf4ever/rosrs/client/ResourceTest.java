@@ -290,4 +290,20 @@ public class ResourceTest extends BaseTest {
         assertThat(res1.getPath(), Matchers.equalTo("res1.txt"));
     }
 
+
+    /**
+     * A resource with a new size or nested RO flag in the manifest is a changed resource, even though equals ignores
+     * these.
+     */
+    @Test
+    public final void shouldCompareSizeAndNestedRO() {
+        Resource sized = new Resource(ro1, MOCK_RESOURCE, MOCK_RESOURCE_PROXY, PERSON_1, res1.getCreated(), 100);
+        Resource nested = new Resource(ro1, MOCK_RESOURCE, MOCK_RESOURCE_PROXY, PERSON_1, res1.getCreated());
+        nested.setNestedRO(true);
+        Resource same = new Resource(ro1, MOCK_RESOURCE, MOCK_RESOURCE_PROXY, PERSON_1, res1.getCreated());
+        Assert.assertTrue(ResearchObjectDiff.same(res1, same));
+        Assert.assertFalse(ResearchObjectDiff.same(res1, sized));
+        Assert.assertFalse(ResearchObjectDiff.same(res1, nested));
+    }
+
 }
@@ -0,0 +1,52 @@
+package org.purl.wf4ever.rosrs.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Check the production sources for code that shouldn't be there.
+ *
+ * @author piotrekhol
+ *
+ */
+public class SourceAuditTest {
+
+    /** Production sources, relative to the project directory. */
+    private static final File SOURCES = new File("src/main/java");
+
+    /** Writing to the standard output or error, which should go through the logger instead. */
+    private static final Pattern STANDARD_STREAMS = Pattern.compile("System\\s*\\.\\s*(out|err)\\b");
+
+
+    /**
+     * No production class should write to the standard output, in particular RDF models, which are big and written
+     * while holding the System.out lock.
+     *
+     * @throws IOException
+     *             can't read the sources
+     */
+    @Test
+    public final void shouldNotWriteToStandardStreams()
+            throws IOException {
+        Assert.assertTrue("Sources not found in " + SOURCES.getAbsolutePath(), SOURCES.isDirectory());
+        List<String> offending = new ArrayList<>();
+        Collection<File> files = FileUtils.listFiles(SOURCES, new String[] { "java" }, true);
+        for (File file : files) {
+            List<String> lines = FileUtils.readLines(file, "UTF-8");
+            for (int i = 0; i < lines.size(); i++) {
+                if (STANDARD_STREAMS.matcher(lines.get(i)).find()) {
+                    offending.add(file.getPath() + ":" + (i + 1) + ": " + lines.get(i).trim());
+                }
+            }
+        }
+        Assert.assertTrue("Use a logger instead of the standard streams:\n" + offending, offending.isEmpty());
+    }
+}
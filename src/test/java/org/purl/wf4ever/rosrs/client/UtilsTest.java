@@ -0,0 +1,197 @@
+package org.purl.wf4ever.rosrs.client;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Multimap;
+
+/**
+ * Test the {@link Utils} methods, in particular the Link header parser.
+ *
+ * @author piotrekhol
+ *
+ */
+public class UtilsTest {
+
+    /** ORE proxyFor. */
+    private static final String PROXY_FOR = "http://www.openarchives.org/ore/terms/proxyFor";
+
+    /** AO body. */
+    private static final String BODY = "http://purl.org/ao/body";
+
+    /** Characters used to build random header values. */
+    private static final String GARBAGE = "<>\";,=\\ \trelRL:/ab";
+
+    /** Characters allowed in the generated URIs, including commas and semicolons. */
+    private static final String URI_CHARS = "abcxyz019-._~,;=+!$&'()*";
+
+
+    /**
+     * Links in one header, separated by commas, and in separate headers should be parsed.
+     */
+    @Test
+    public final void shouldParseLinks() {
+        Multimap<String, URI> links = Utils.getLinkHeaders(Arrays.asList("<http://example.org/a>; rel=\"" + PROXY_FOR
+                + "\", <http://example.org/b>;rel=" + BODY, "<http://example.org/c> ; rel = \"" + PROXY_FOR + "\""));
+        Assert.assertEquals(Arrays.asList(URI.create("http://example.org/a"), URI.create("http://example.org/c")),
+            links.get(PROXY_FOR));
+        Assert.assertEquals(Collections.singletonList(URI.create("http://example.org/b")), links.get(BODY));
+        Assert.assertEquals(3, links.size());
+    }
+
+
+    /**
+     * Commas and semicolons in the target and in quoted values shouldn't split the links.
+     */
+    @Test
+    public final void shouldNotSplitInsideBracketsAndQuotes() {
+        Multimap<String, URI> links = Utils.getLinkHeaders(Collections
+                .singletonList("<http://example.org/a,b;c>; title=\"x, y; \\\"z\\\"\"; rel=\"" + BODY
+                        + "\", <http://example.org/d>; rel=\"" + PROXY_FOR + "\""));
+        Assert.assertEquals(Collections.singletonList(URI.create("http://example.org/a,b;c")), links.get(BODY));
+        Assert.assertEquals(Collections.singletonList(URI.create("http://example.org/d")), links.get(PROXY_FOR));
+    }
+
+
+    /**
+     * Several relation types in a rel parameter should all be added, only the first rel parameter should be used and
+     * the parameter name should be case-insensitive.
+     */
+    @Test
+    public final void shouldFollowRelParameterRules() {
+        Multimap<String, URI> links = Utils.getLinkHeaders(Collections.singletonList("<http://example.org/a>; REL=\""
+                + BODY + "  " + PROXY_FOR + "\"; rel=\"other\""));
+        Assert.assertEquals(Collections.singletonList(URI.create("http://example.org/a")), links.get(BODY));
+        Assert.assertEquals(Collections.singletonList(URI.create("http://example.org/a")), links.get(PROXY_FOR));
+        Assert.assertTrue(links.get("other").isEmpty());
+    }
+
+
+    /**
+     * Malformed links, links without rel and invalid URIs should be skipped without losing the other links.
+     */
+    @Test
+    public final void shouldSkipMalformedLinks() {
+        Multimap<String, URI> links = Utils.getLinkHeaders(Arrays.asList(
+            "garbage; rel=\"x\", <http://example.org/a>; rel=\"" + BODY + "\"",
+            "<http://example.org/no-rel>; title=\"t\", <not a uri>; rel=\"" + BODY + "\"", "<http://example.org/b",
+            "", null));
+        Assert.assertEquals(Collections.singletonList(URI.create("http://example.org/a")), links.get(BODY));
+        Assert.assertEquals(1, links.size());
+        Assert.assertTrue(Utils.getLinkHeaders(null).isEmpty());
+    }
+
+
+    /**
+     * Duplicate links should be returned once.
+     */
+    @Test
+    public final void shouldIgnoreDuplicates() {
+        String link = "<http://example.org/a>; rel=\"" + BODY + "\"";
+        Multimap<String, URI> links = Utils.getLinkHeaders(Arrays.asList(link + ", " + link, link));
+        Assert.assertEquals(1, links.size());
+    }
+
+
+    /**
+     * Randomly generated well-formed headers, with commas, semicolons and escaped quotes where they are allowed,
+     * should be parsed to the links they were generated from.
+     */
+    @Test
+    public final void shouldParseRandomWellFormedHeaders() {
+        Random random = new Random(8288);
+        for (int run = 0; run < 2000; run++) {
+            Multimap<String, URI> expected = ArrayListMultimap.create();
+            List<String> values = new ArrayList<>();
+            int headers = 1 + random.nextInt(3);
+            for (int h = 0; h < headers; h++) {
+                StringBuilder value = new StringBuilder();
+                int count = 1 + random.nextInt(4);
+                for (int l = 0; l < count; l++) {
+                    if (l > 0) {
+                        value.append(whitespace(random)).append(',').append(whitespace(random));
+                    }
+                    URI target = URI.create("http://example.org/" + randomString(random, URI_CHARS, 1 + random.nextInt(10)));
+                    String rel = random.nextBoolean() ? BODY : "http://example.org/rel/" + random.nextInt(3);
+                    value.append('<').append(target).append('>');
+                    int position = random.nextInt(3);
+                    for (int p = 0; p < 3; p++) {
+                        value.append(whitespace(random)).append(';').append(whitespace(random));
+                        if (p == position) {
+                            value.append("rel").append(whitespace(random)).append('=').append(whitespace(random))
+                                    .append('"').append(rel).append('"');
+                        } else {
+                            value.append("title=\"")
+                                    .append(randomString(random, ",;<>= \\\"x", random.nextInt(8)).replace("\\", "\\\\")
+                                            .replace("\"", "\\\"")).append('"');
+                        }
+                    }
+                    if (!expected.containsEntry(rel, target)) {
+                        expected.put(rel, target);
+                    }
+                }
+                values.add(value.toString());
+            }
+            Multimap<String, URI> links = Utils.getLinkHeaders(values);
+            Assert.assertEquals(values.toString(), expected.keySet(), links.keySet());
+            for (String rel : expected.keySet()) {
+                Assert.assertEquals(values.toString(), expected.get(rel), ImmutableList.copyOf(links.get(rel)));
+            }
+        }
+    }
+
+
+    /**
+     * Random text shouldn't make the parser fail or loop.
+     */
+    @Test(timeout = 10000)
+    public final void shouldSurviveRandomGarbage() {
+        Random random = new Random(7230);
+        for (int run = 0; run < 20000; run++) {
+            String value = randomString(random, GARBAGE, random.nextInt(40));
+            Multimap<String, URI> links = Utils.getLinkHeaders(Collections.singletonList(value));
+            Assert.assertNotNull(value, links);
+        }
+    }
+
+
+    /**
+     * Generate a random string.
+     *
+     * @param random
+     *            random generator
+     * @param alphabet
+     *            characters to use
+     * @param length
+     *            string length
+     * @return the string
+     */
+    private static String randomString(Random random, String alphabet, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return sb.toString();
+    }
+
+
+    /**
+     * Generate optional whitespace.
+     *
+     * @param random
+     *            random generator
+     * @return up to 2 spaces or tabs
+     */
+    private static String whitespace(Random random) {
+        return randomString(random, " \t", random.nextInt(3));
+    }
+}
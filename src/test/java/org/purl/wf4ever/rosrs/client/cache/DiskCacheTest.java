@@ -0,0 +1,229 @@
+package org.purl.wf4ever.rosrs.client.cache;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.purl.wf4ever.rosrs.client.ROSRService;
+import org.purl.wf4ever.rosrs.client.exception.ROSRSException;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientResponse;
+
+/**
+ * Test the persistent cache.
+ *
+ * @author piotrekhol
+ *
+ */
+public class DiskCacheTest {
+
+    /** A test HTTP mock server. */
+    @Rule
+    public final WireMockRule wireMockRule = new WireMockRule(8089);
+
+    /** Cache directory. */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /** A cached resource. */
+    private static final URI RESOURCE = URI.create("http://localhost:8089/ro1/body.rdf");
+
+    /** Body of the cached resource. */
+    private static final String BODY = "<rdf:RDF xmlns:rdf=\"http://www.w3.org/1999/02/22-rdf-syntax-ns#\"/>";
+
+
+    /**
+     * An entry should be found by URI and MIME type, also by a new cache using the same directory.
+     *
+     * @throws IOException
+     *             can't use the cache directory
+     */
+    @Test
+    public final void shouldStoreEntries()
+            throws IOException {
+        File dir = folder.newFolder("cache");
+        DiskCache cache = new DiskCache(dir, DiskCache.DEFAULT_MAX_SIZE);
+        Assert.assertNull(cache.get(RESOURCE, "application/rdf+xml"));
+        cache.put(RESOURCE, "application/rdf+xml", "\"v1\"", "application/rdf+xml", null, BODY.getBytes("UTF-8"));
+        Assert.assertNull(cache.get(RESOURCE, "application/x-trig"));
+
+        DiskCache.Entry entry = new DiskCache(dir, DiskCache.DEFAULT_MAX_SIZE).get(RESOURCE, "application/rdf+xml");
+        Assert.assertNotNull(entry);
+        Assert.assertEquals("\"v1\"", entry.getEtag());
+        Assert.assertEquals("application/rdf+xml", entry.getContentType());
+        Assert.assertNull(entry.getContentLocation());
+        Assert.assertEquals(BODY, IOUtils.toString(entry.getBody(), "UTF-8"));
+        Assert.assertEquals(BODY, IOUtils.toString(entry.getBody(), "UTF-8"));
+
+        cache.remove(RESOURCE, "application/rdf+xml");
+        Assert.assertNull(cache.get(RESOURCE, "application/rdf+xml"));
+        Assert.assertEquals(0, cache.getSize());
+    }
+
+
+    /**
+     * The least recently used entries should be deleted when the cache is full.
+     *
+     * @throws IOException
+     *             can't use the cache directory
+     */
+    @Test
+    public final void shouldEvictLeastRecentlyUsed()
+            throws IOException {
+        DiskCache cache = new DiskCache(folder.newFolder("cache"), 3000);
+        byte[] body = new byte[1000];
+        for (int i = 0; i < 3; i++) {
+            cache.put(RESOURCE.resolve("res" + i), null, "\"v1\"", null, null, body);
+        }
+        Assert.assertEquals(2, cache.getEntryCount());
+        Assert.assertNull(cache.get(RESOURCE.resolve("res0"), null));
+        Assert.assertNotNull(cache.get(RESOURCE.resolve("res1"), null));
+        cache.put(RESOURCE.resolve("res3"), null, "\"v1\"", null, null, body);
+        Assert.assertNotNull(cache.get(RESOURCE.resolve("res1"), null));
+        Assert.assertNull(cache.get(RESOURCE.resolve("res2"), null));
+        Assert.assertTrue(cache.getSize() <= 3000);
+    }
+
+
+    /**
+     * ROSRS should be asked only if the cached body has changed.
+     *
+     * @throws IOException
+     *             can't use the cache directory
+     * @throws ROSRSException
+     *             unexpected response from the server
+     */
+    @Test
+    public final void shouldRevalidateCachedResources()
+            throws IOException, ROSRSException {
+        stubFor(get(urlEqualTo("/ro1/body.rdf")).willReturn(
+            aResponse().withStatus(200).withHeader("Content-Type", "application/rdf+xml").withHeader("ETag", "\"v1\"")
+                    .withBody(BODY)));
+        stubFor(get(urlEqualTo("/ro1/body.rdf")).withHeader("If-None-Match", equalTo("\"v1\"")).willReturn(
+            aResponse().withStatus(304).withHeader("ETag", "\"v1\"")));
+        File dir = folder.newFolder("cache");
+        ROSRService rosrs = new ROSRService(URI.create("http://localhost:8089/"), null);
+        rosrs.setCache(new DiskCache(dir, DiskCache.DEFAULT_MAX_SIZE));
+        Assert.assertEquals(BODY, read(rosrs.getResource(RESOURCE, "application/rdf+xml")));
+        Assert.assertEquals(BODY, read(rosrs.getResource(RESOURCE, "application/rdf+xml")));
+
+        ROSRService restarted = new ROSRService(URI.create("http://localhost:8089/"), null);
+        restarted.setCache(new DiskCache(dir, DiskCache.DEFAULT_MAX_SIZE));
+        ClientResponse response = restarted.getResource(RESOURCE, "application/rdf+xml");
+        Assert.assertEquals("application/rdf+xml", response.getType().toString());
+        Assert.assertEquals(BODY, read(response));
+
+        verify(3, getRequestedFor(urlEqualTo("/ro1/body.rdf")));
+        verify(2, getRequestedFor(urlEqualTo("/ro1/body.rdf")).withHeader("If-None-Match", equalTo("\"v1\"")));
+    }
+
+
+    /**
+     * An entry should only be found with the credentials it has been downloaded with.
+     *
+     * @throws IOException
+     *             can't use the cache directory
+     */
+    @Test
+    public final void shouldSeparateCredentials()
+            throws IOException {
+        DiskCache cache = new DiskCache(folder.newFolder("cache"), DiskCache.DEFAULT_MAX_SIZE);
+        try (InputStream in = cache.put(RESOURCE, "application/rdf+xml", "Bearer alice", "\"v1\"", null, null,
+            new ByteArrayInputStream(BODY.getBytes("UTF-8")))) {
+            Assert.assertEquals(BODY, IOUtils.toString(in, "UTF-8"));
+        }
+        Assert.assertNotNull(cache.get(RESOURCE, "application/rdf+xml", "Bearer alice"));
+        Assert.assertNull(cache.get(RESOURCE, "application/rdf+xml", "Bearer bob"));
+        Assert.assertNull(cache.get(RESOURCE, "application/rdf+xml"));
+    }
+
+
+    /**
+     * A body that hasn't been read to the end should not be cached.
+     *
+     * @throws IOException
+     *             can't use the cache directory
+     */
+    @Test
+    public final void shouldCacheOnlyCompleteBodies()
+            throws IOException {
+        File dir = folder.newFolder("cache");
+        DiskCache cache = new DiskCache(dir, DiskCache.DEFAULT_MAX_SIZE);
+        try (InputStream in = cache.put(RESOURCE, "application/rdf+xml", null, "\"v1\"", null, null,
+            new ByteArrayInputStream(BODY.getBytes("UTF-8")))) {
+            Assert.assertEquals(10, in.read(new byte[10]));
+        }
+        Assert.assertNull(cache.get(RESOURCE, "application/rdf+xml"));
+        Assert.assertEquals(0, cache.getEntryCount());
+        Assert.assertEquals(0, dir.list().length);
+    }
+
+
+    /**
+     * A cached entry should be kept when the server fails temporarily, and removed when the resource is gone.
+     *
+     * @throws IOException
+     *             can't use the cache directory
+     */
+    @Test
+    public final void shouldRemoveOnlyGoneResources()
+            throws IOException {
+        stubFor(get(urlEqualTo("/ro1/body.rdf")).willReturn(
+            aResponse().withStatus(200).withHeader("Content-Type", "application/rdf+xml").withHeader("ETag", "\"v1\"")
+                    .withBody(BODY)));
+        DiskCache cache = new DiskCache(folder.newFolder("cache"), DiskCache.DEFAULT_MAX_SIZE);
+        Client client = Client.create();
+        client.addFilter(new DiskCacheFilter(cache));
+        ClientResponse response = client.resource(RESOURCE).accept("application/rdf+xml").get(ClientResponse.class);
+        Assert.assertEquals(BODY, read(response));
+        Assert.assertNotNull(cache.get(RESOURCE, "application/rdf+xml"));
+
+        stubFor(get(urlEqualTo("/ro1/body.rdf")).willReturn(aResponse().withStatus(503)));
+        response = client.resource(RESOURCE).accept("application/rdf+xml").get(ClientResponse.class);
+        Assert.assertEquals(503, response.getStatus());
+        response.close();
+        Assert.assertNotNull(cache.get(RESOURCE, "application/rdf+xml"));
+
+        stubFor(get(urlEqualTo("/ro1/body.rdf")).willReturn(aResponse().withStatus(404)));
+        response = client.resource(RESOURCE).accept("application/rdf+xml").get(ClientResponse.class);
+        Assert.assertEquals(404, response.getStatus());
+        response.close();
+        Assert.assertNull(cache.get(RESOURCE, "application/rdf+xml"));
+    }
+
+
+    /**
+     * Read the response body and close it.
+     *
+     * @param response
+     *            the response
+     * @return the body
+     * @throws IOException
+     *             can't read the body
+     */
+    private static String read(ClientResponse response)
+            throws IOException {
+        try {
+            return IOUtils.toString(response.getEntityInputStream(), "UTF-8");
+        } finally {
+            response.close();
+        }
+    }
+}
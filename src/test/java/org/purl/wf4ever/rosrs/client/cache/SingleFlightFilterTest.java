@@ -0,0 +1,194 @@
+package org.purl.wf4ever.rosrs.client.cache;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientResponse;
+
+/**
+ * Test sending concurrent identical requests once.
+ *
+ * @author piotrekhol
+ *
+ */
+public class SingleFlightFilterTest {
+
+    /** A test HTTP mock server. */
+    @Rule
+    public final WireMockRule wireMockRule = new WireMockRule(8089);
+
+    /** Test resource. */
+    private static final URI RESOURCE = URI.create("http://localhost:8089/manifest.rdf");
+
+    /** Number of concurrent requests. */
+    private static final int THREADS = 10;
+
+    /** The tested filter. */
+    private SingleFlightFilter filter;
+
+    /** A client using the filter. */
+    private Client client;
+
+    /** Threads sending the requests. */
+    private ExecutorService executor;
+
+
+    /**
+     * Return a slow response, so that the requests overlap.
+     */
+    @Before
+    public void setUp() {
+        stubFor(get(urlEqualTo("/manifest.rdf")).willReturn(
+            aResponse().withStatus(200).withHeader("Content-Type", "application/rdf+xml").withBody("<rdf/>")
+                    .withFixedDelay(1000)));
+        filter = new SingleFlightFilter();
+        client = Client.create();
+        client.addFilter(filter);
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+
+    /**
+     * Stop the threads.
+     */
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+
+    /**
+     * Concurrent identical requests should be sent once and every caller should read the whole body.
+     *
+     * @throws InterruptedException
+     *             interrupted when waiting for the responses
+     * @throws ExecutionException
+     *             a request failed
+     */
+    @Test
+    public final void shouldSendIdenticalRequestsOnce()
+            throws InterruptedException, ExecutionException {
+        List<Future<String>> bodies = sendAll("application/rdf+xml", "application/rdf+xml");
+        for (Future<String> body : bodies) {
+            Assert.assertEquals("<rdf/>", body.get());
+        }
+        verify(1, getRequestedFor(urlEqualTo("/manifest.rdf")));
+        Assert.assertEquals(THREADS - 1, filter.getCoalesced());
+    }
+
+
+    /**
+     * Requests with different Accept headers should be sent separately.
+     *
+     * @throws InterruptedException
+     *             interrupted when waiting for the responses
+     * @throws ExecutionException
+     *             a request failed
+     */
+    @Test
+    public final void shouldSeparateDifferentRequests()
+            throws InterruptedException, ExecutionException {
+        List<Future<String>> bodies = sendAll("application/rdf+xml", "text/turtle");
+        for (Future<String> body : bodies) {
+            Assert.assertEquals("<rdf/>", body.get());
+        }
+        verify(2, getRequestedFor(urlEqualTo("/manifest.rdf")));
+        Assert.assertEquals(THREADS - 2, filter.getCoalesced());
+    }
+
+
+    /**
+     * Identical requests sent by clients with filters sharing the requests in progress should be sent once.
+     *
+     * @throws InterruptedException
+     *             interrupted when waiting for the responses
+     * @throws ExecutionException
+     *             a request failed
+     */
+    @Test
+    public final void shouldSendIdenticalRequestsOfManyClientsOnce()
+            throws InterruptedException, ExecutionException {
+        Client other = Client.create();
+        other.addFilter(new SingleFlightFilter(filter.getFlights()));
+        List<Future<String>> bodies = sendAll(client, "application/rdf+xml", other, "application/rdf+xml");
+        for (Future<String> body : bodies) {
+            Assert.assertEquals("<rdf/>", body.get());
+        }
+        verify(1, getRequestedFor(urlEqualTo("/manifest.rdf")));
+        Assert.assertEquals(THREADS - 1, filter.getCoalesced());
+    }
+
+
+    /**
+     * Send the requests at the same time, half with one Accept header and half with the other.
+     *
+     * @param accept1
+     *            first Accept header
+     * @param accept2
+     *            second Accept header
+     * @return response bodies
+     * @throws InterruptedException
+     *             interrupted when waiting for the threads
+     */
+    private List<Future<String>> sendAll(String accept1, String accept2)
+            throws InterruptedException {
+        return sendAll(client, accept1, client, accept2);
+    }
+
+
+    /**
+     * Send the requests at the same time, half with one client and Accept header and half with the other.
+     *
+     * @param client1
+     *            first client
+     * @param accept1
+     *            first Accept header
+     * @param client2
+     *            second client
+     * @param accept2
+     *            second Accept header
+     * @return response bodies
+     * @throws InterruptedException
+     *             interrupted when waiting for the threads
+     */
+    private List<Future<String>> sendAll(Client client1, String accept1, Client client2, String accept2)
+            throws InterruptedException {
+        List<Callable<String>> tasks = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            final Client sender = i % 2 == 0 ? client1 : client2;
+            final String accept = i % 2 == 0 ? accept1 : accept2;
+            tasks.add(new Callable<String>() {
+
+                @Override
+                public String call() {
+                    ClientResponse response = sender.resource(RESOURCE).accept(accept).get(ClientResponse.class);
+                    Assert.assertEquals(200, response.getStatus());
+                    Assert.assertEquals("application/rdf+xml", response.getType().toString());
+                    return response.getEntity(String.class);
+                }
+            });
+        }
+        return executor.invokeAll(tasks);
+    }
+}
@@ -0,0 +1,148 @@
+package org.purl.wf4ever.rosrs.client.loadtest;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The throughput and latency of an operation run by the {@link LoadRunner}. All latencies are kept, so that the
+ * percentiles are exact.
+ *
+ * @author piotrekhol
+ *
+ */
+public class LoadResult {
+
+    /** Operation name. */
+    private final String name;
+
+    /** Number of threads. */
+    private final int threads;
+
+    /** Latencies of all operations, successful or not, in nanoseconds. */
+    private long[] latencies = new long[64];
+
+    /** Number of operations. */
+    private int operations;
+
+    /** Number of failed operations. */
+    private int errors;
+
+    /** Wall-clock time of the run in nanoseconds. */
+    private long elapsed;
+
+
+    /**
+     * Constructor.
+     *
+     * @param name
+     *            operation name
+     * @param threads
+     *            number of threads
+     */
+    LoadResult(String name, int threads) {
+        this.name = name;
+        this.threads = threads;
+    }
+
+
+    /**
+     * Record an operation.
+     *
+     * @param nanos
+     *            its latency
+     * @param successful
+     *            did it succeed
+     */
+    synchronized void record(long nanos, boolean successful) {
+        if (operations == latencies.length) {
+            latencies = Arrays.copyOf(latencies, operations * 2);
+        }
+        latencies[operations++] = nanos;
+        if (!successful) {
+            errors++;
+        }
+    }
+
+
+    synchronized void setElapsed(long elapsed) {
+        this.elapsed = elapsed;
+    }
+
+
+    public String getName() {
+        return name;
+    }
+
+
+    public synchronized int getOperations() {
+        return operations;
+    }
+
+
+    public synchronized int getErrors() {
+        return errors;
+    }
+
+
+    /**
+     * Get the number of operations per second.
+     *
+     * @return operations per second of wall-clock time
+     */
+    public synchronized double getThroughput() {
+        return elapsed > 0 ? operations * (double) TimeUnit.SECONDS.toNanos(1) / elapsed : 0;
+    }
+
+
+    /**
+     * Get a latency percentile (nearest rank).
+     *
+     * @param percentile
+     *            a number between 0 and 100, for example 99
+     * @return the latency in nanoseconds, 0 if nothing has been recorded
+     */
+    public synchronized long getPercentile(double percentile) {
+        if (operations == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(latencies, operations);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(operations * Math.min(100, Math.max(0, percentile)) / 100);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+
+    /**
+     * Get the mean latency.
+     *
+     * @return the mean in nanoseconds, 0 if nothing has been recorded
+     */
+    public synchronized long getMean() {
+        long total = 0;
+        for (int i = 0; i < operations; i++) {
+            total += latencies[i];
+        }
+        return operations > 0 ? total / operations : 0;
+    }
+
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%s: %d operations (%d failed) by %d threads in %d ms, %.1f/s, latency ms mean %.1f"
+                + " p50 %.1f p90 %.1f p99 %.1f max %.1f", name, operations, errors, threads,
+            TimeUnit.NANOSECONDS.toMillis(elapsed), getThroughput(), millis(getMean()), millis(getPercentile(50)),
+            millis(getPercentile(90)), millis(getPercentile(99)), millis(getPercentile(100)));
+    }
+
+
+    /**
+     * Convert nanoseconds to milliseconds.
+     *
+     * @param nanos
+     *            nanoseconds
+     * @return milliseconds
+     */
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
@@ -0,0 +1,114 @@
+package org.purl.wf4ever.rosrs.client.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Runs an operation a number of times from a number of threads and measures the throughput and latency.
+ *
+ * @author piotrekhol
+ *
+ */
+public class LoadRunner {
+
+    /** Logger. */
+    private static final Logger LOG = Logger.getLogger(LoadRunner.class);
+
+    /** Number of threads. */
+    private final int threads;
+
+    /** Number of operations run by all threads together. */
+    private final int operations;
+
+
+    /**
+     * An operation under test.
+     *
+     * @author piotrekhol
+     *
+     */
+    public interface Operation {
+
+        /**
+         * Run the operation once.
+         *
+         * @param iteration
+         *            number of the iteration, from 0, which can be used to choose the data
+         * @throws Exception
+         *             the operation failed
+         */
+        void run(int iteration)
+                throws Exception;
+    }
+
+
+    /**
+     * Constructor.
+     *
+     * @param threads
+     *            number of threads
+     * @param operations
+     *            number of operations run by all threads together
+     */
+    public LoadRunner(int threads, int operations) {
+        this.threads = Math.max(1, threads);
+        this.operations = operations;
+    }
+
+
+    /**
+     * Run the operation and wait until all iterations are finished.
+     *
+     * @param name
+     *            operation name used in the report
+     * @param operation
+     *            the operation
+     * @return the result
+     * @throws InterruptedException
+     *             interrupted while waiting for the threads
+     */
+    public LoadResult run(String name, final Operation operation)
+            throws InterruptedException {
+        final LoadResult result = new LoadResult(name, threads);
+        final AtomicInteger next = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int iteration = next.getAndIncrement(); iteration < operations; iteration = next
+                            .getAndIncrement()) {
+                        long begin = System.nanoTime();
+                        try {
+                            operation.run(iteration);
+                            result.record(System.nanoTime() - begin, true);
+                        } catch (Exception | AssertionError e) {
+                            LOG.warn("Operation failed", e);
+                            result.record(System.nanoTime() - begin, false);
+                        }
+                    }
+                }
+            }, "load-test-" + name + "-" + i);
+            workers.add(worker);
+            worker.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        result.setElapsed(System.nanoTime() - begin);
+        return result;
+    }
+}
@@ -0,0 +1,218 @@
+package org.purl.wf4ever.rosrs.client.loadtest;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.joda.time.DateTime;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.purl.wf4ever.rosrs.client.Folder;
+import org.purl.wf4ever.rosrs.client.ROSRService;
+import org.purl.wf4ever.rosrs.client.ResearchObject;
+import org.purl.wf4ever.rosrs.client.notifications.Notification;
+import org.purl.wf4ever.rosrs.client.notifications.NotificationService;
+import org.purl.wf4ever.rosrs.client.search.SearchServer;
+import org.purl.wf4ever.rosrs.client.search.SolrSearchServer;
+import org.purl.wf4ever.rosrs.client.search.dataclasses.SearchResult;
+
+/**
+ * Load tests of the clients against a local {@link RodlStub}. By default they are small enough to run with the other
+ * tests; bigger runs are configured with system properties, for example:
+ *
+ * <pre>
+ * mvn test -Dtest=RodlLoadTest -Dloadtest.threads=32 -Dloadtest.operations=2000 -Dloadtest.resources=1000 \
+ *     -Dloadtest.delay=50
+ * </pre>
+ *
+ * Properties: loadtest.port, loadtest.threads, loadtest.operations, loadtest.ros, loadtest.resources,
+ * loadtest.folders, loadtest.annotations, loadtest.triples, loadtest.results, loadtest.notifications and
+ * loadtest.delay (milliseconds added to every response). The throughput and latency percentiles are logged.
+ *
+ * @author piotrekhol
+ *
+ */
+public class RodlLoadTest {
+
+    /** Logger. */
+    private static final Logger LOG = Logger.getLogger(RodlLoadTest.class);
+
+    /** The RODL stub. */
+    private static RodlStub stub;
+
+    /** The runner. */
+    private static LoadRunner runner;
+
+
+    /**
+     * Start the stub.
+     *
+     * @throws Exception
+     *             the stub can't be started
+     */
+    @BeforeClass
+    public static void setUpBeforeClass()
+            throws Exception {
+        stub = new RodlStub(Integer.getInteger("loadtest.port", 8091));
+        stub.setResearchObjects(Integer.getInteger("loadtest.ros", 4));
+        stub.setResources(Integer.getInteger("loadtest.resources", 50));
+        stub.setFolders(Integer.getInteger("loadtest.folders", 5));
+        stub.setAnnotations(Integer.getInteger("loadtest.annotations", 10));
+        stub.setBodyTriples(Integer.getInteger("loadtest.triples", 5));
+        stub.setSearchResults(Integer.getInteger("loadtest.results", 20));
+        stub.setNotifications(Integer.getInteger("loadtest.notifications", 20));
+        stub.setDelay(Integer.getInteger("loadtest.delay", 0));
+        stub.start();
+        runner = new LoadRunner(Integer.getInteger("loadtest.threads", 4), Integer.getInteger("loadtest.operations",
+            40));
+    }
+
+
+    /**
+     * Stop the stub.
+     */
+    @AfterClass
+    public static void tearDownAfterClass() {
+        stub.stop();
+    }
+
+
+    /**
+     * Load whole research objects.
+     *
+     * @throws InterruptedException
+     *             interrupted while waiting
+     */
+    @Test
+    public final void loadResearchObjects()
+            throws InterruptedException {
+        final ROSRService rosrs = new ROSRService(stub.getRosrsUri(), null);
+        final List<URI> ros = stub.getResearchObjects();
+        report(runner.run("ResearchObject.load", new LoadRunner.Operation() {
+
+            @Override
+            public void run(int iteration)
+                    throws Exception {
+                ResearchObject researchObject = new ResearchObject(ros.get(iteration % ros.size()), rosrs);
+                researchObject.load();
+                Assert.assertEquals(stub.getResources(), researchObject.getResources().size());
+                Assert.assertEquals(stub.getAnnotations(), researchObject.getAllAnnotations().size());
+            }
+        }));
+    }
+
+
+    /**
+     * Load the manifests only.
+     *
+     * @throws InterruptedException
+     *             interrupted while waiting
+     */
+    @Test
+    public final void loadManifests()
+            throws InterruptedException {
+        final ROSRService rosrs = new ROSRService(stub.getRosrsUri(), null);
+        final List<URI> ros = stub.getResearchObjects();
+        report(runner.run("ResearchObject.loadManifest", new LoadRunner.Operation() {
+
+            @Override
+            public void run(int iteration)
+                    throws Exception {
+                ResearchObject researchObject = new ResearchObject(ros.get(iteration % ros.size()), rosrs);
+                researchObject.loadManifest();
+                Assert.assertEquals(stub.getFolders(), researchObject.getFolders().size());
+            }
+        }));
+    }
+
+
+    /**
+     * Download and read the resource maps of folders.
+     *
+     * @throws Exception
+     *             the manifests can't be loaded or interrupted while waiting
+     */
+    @Test
+    public final void loadFolders()
+            throws Exception {
+        ROSRService rosrs = new ROSRService(stub.getRosrsUri(), null);
+        final List<Folder> folders = new ArrayList<>();
+        for (URI uri : stub.getResearchObjects()) {
+            ResearchObject researchObject = new ResearchObject(uri, rosrs);
+            researchObject.loadManifest();
+            folders.addAll(researchObject.getFolders().values());
+        }
+        report(runner.run("Folder.load", new LoadRunner.Operation() {
+
+            @Override
+            public void run(int iteration)
+                    throws Exception {
+                Folder folder = folders.get(iteration % folders.size());
+                folder.load();
+                Assert.assertTrue(folder.isLoaded());
+            }
+        }));
+    }
+
+
+    /**
+     * Search with Solr.
+     *
+     * @throws InterruptedException
+     *             interrupted while waiting
+     */
+    @Test
+    public final void search()
+            throws InterruptedException {
+        final SearchServer server = new SolrSearchServer(stub.getSolrUri());
+        report(runner.run("SolrSearchServer.search", new LoadRunner.Operation() {
+
+            @Override
+            public void run(int iteration)
+                    throws Exception {
+                SearchResult result = server.search("query " + iteration, 0, stub.getSearchResults(), null);
+                Assert.assertEquals(stub.getSearchResults(), result.getROsList().size());
+            }
+        }));
+    }
+
+
+    /**
+     * Get the notifications about research objects.
+     *
+     * @throws InterruptedException
+     *             interrupted while waiting
+     */
+    @Test
+    public final void getNotifications()
+            throws InterruptedException {
+        final NotificationService service = new NotificationService(stub.getNotificationServiceUri(), null);
+        final List<URI> ros = stub.getResearchObjects();
+        final DateTime to = DateTime.now();
+        report(runner.run("NotificationService.getNotifications", new LoadRunner.Operation() {
+
+            @Override
+            public void run(int iteration)
+                    throws Exception {
+                List<Notification> notifications = service.getNotifications(ros.get(iteration % ros.size()),
+                    to.minusYears(10), to);
+                Assert.assertEquals(stub.getNotifications(), notifications.size());
+            }
+        }));
+    }
+
+
+    /**
+     * Log the result and check that all operations succeeded.
+     *
+     * @param result
+     *            the result of a run
+     */
+    private static void report(LoadResult result) {
+        LOG.info(result);
+        Assert.assertEquals(result.toString(), 0, result.getErrors());
+    }
+}
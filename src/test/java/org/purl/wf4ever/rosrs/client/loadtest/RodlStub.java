@@ -0,0 +1,427 @@
+package org.purl.wf4ever.rosrs.client.loadtest;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.util.JavaBinCodec;
+import org.apache.solr.common.util.NamedList;
+import org.joda.time.DateTime;
+import org.purl.wf4ever.rosrs.client.synthetic.SyntheticDataset;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.hp.hpl.jena.query.Dataset;
+import com.hp.hpl.jena.rdf.model.Model;
+
+/**
+ * A local HTTP server pretending to be RODL, for load tests. It serves generated research objects (as TriG datasets,
+ * RDF/XML manifests, resource maps and annotation bodies), Solr search results and notification feeds, of configurable
+ * sizes and with a configurable latency. The content is the same every time.
+ *
+ * @author piotrekhol
+ *
+ */
+public class RodlStub {
+
+    /** Creation date of everything. */
+    private static final DateTime CREATED = SyntheticDataset.CREATED;
+
+    /** UTF-8. */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** Server port. */
+    private final int port;
+
+    /** The server, null if not started. */
+    private WireMockServer server;
+
+    /** Number of research objects. */
+    private int researchObjects = 4;
+
+    /** Number of resources in each RO. */
+    private int resources = 50;
+
+    /** Number of folders in each RO. */
+    private int folders = 5;
+
+    /** Number of annotations in each RO. */
+    private int annotations = 10;
+
+    /** Number of triples in each annotation body. */
+    private int bodyTriples = 5;
+
+    /** Number of documents in a search result. */
+    private int searchResults = 20;
+
+    /** Number of notifications in a feed. */
+    private int notifications = 20;
+
+    /** Delay of every response, in milliseconds. */
+    private int delay = 0;
+
+
+    /**
+     * Constructor.
+     *
+     * @param port
+     *            port on which the server will listen
+     */
+    public RodlStub(int port) {
+        this.port = port;
+    }
+
+
+    /**
+     * Start the server and generate the content with the current settings.
+     *
+     * @throws IOException
+     *             the Solr response can't be serialized
+     */
+    public void start()
+            throws IOException {
+        server = new WireMockServer(port);
+        server.start();
+        WireMock wireMock = new WireMock("localhost", port);
+        for (URI ro : getResearchObjects()) {
+            stubResearchObject(wireMock, ro);
+        }
+        stubSearch(wireMock);
+        stubNotifications(wireMock);
+    }
+
+
+    /**
+     * Stop the server.
+     */
+    public void stop() {
+        if (server != null) {
+            server.stop();
+            server = null;
+        }
+    }
+
+
+    public URI getRosrsUri() {
+        return URI.create("http://localhost:" + port + "/ROs/");
+    }
+
+
+    public URI getSolrUri() {
+        return URI.create("http://localhost:" + port + "/solr/");
+    }
+
+
+    public URI getNotificationServiceUri() {
+        return URI.create("http://localhost:" + port + "/notifications/");
+    }
+
+
+    /**
+     * Get the URIs of the research objects served.
+     *
+     * @return RO URIs
+     */
+    public List<URI> getResearchObjects() {
+        List<URI> uris = new ArrayList<>();
+        for (int i = 0; i < researchObjects; i++) {
+            uris.add(getRosrsUri().resolve("ro" + i + "/"));
+        }
+        return uris;
+    }
+
+
+    public int getResources() {
+        return resources;
+    }
+
+
+    public void setResources(int resources) {
+        this.resources = resources;
+    }
+
+
+    public int getFolders() {
+        return folders;
+    }
+
+
+    public void setFolders(int folders) {
+        this.folders = Math.max(1, folders);
+    }
+
+
+    public int getAnnotations() {
+        return annotations;
+    }
+
+
+    public void setAnnotations(int annotations) {
+        this.annotations = annotations;
+    }
+
+
+    public void setBodyTriples(int bodyTriples) {
+        this.bodyTriples = Math.max(1, bodyTriples);
+    }
+
+
+    public void setResearchObjects(int researchObjects) {
+        this.researchObjects = Math.max(1, researchObjects);
+    }
+
+
+    public int getSearchResults() {
+        return searchResults;
+    }
+
+
+    public void setSearchResults(int searchResults) {
+        this.searchResults = searchResults;
+    }
+
+
+    public int getNotifications() {
+        return notifications;
+    }
+
+
+    public void setNotifications(int notifications) {
+        this.notifications = notifications;
+    }
+
+
+    public void setDelay(int delay) {
+        this.delay = delay;
+    }
+
+
+    /**
+     * Serve a research object: the TriG dataset, the RDF/XML manifest, the resource maps and the annotation bodies.
+     *
+     * @param wireMock
+     *            the server client
+     * @param ro
+     *            RO URI
+     */
+    private void stubResearchObject(WireMock wireMock, URI ro) {
+        Dataset dataset = SyntheticDataset.generate(ro, resources, folders, annotations, bodyTriples);
+        for (int f = 0; f < folders; f++) {
+            String map = SyntheticDataset.resourceMap(ro, f);
+            register(wireMock, relative(map), "application/rdf+xml", write(dataset.getNamedModel(map), "RDF/XML"));
+        }
+        for (int a = 0; a < annotations; a++) {
+            String body = SyntheticDataset.body(ro, a);
+            register(wireMock, relative(body), "application/rdf+xml", write(dataset.getNamedModel(body), "RDF/XML"));
+        }
+
+        String manifestUri = SyntheticDataset.manifest(ro);
+        ByteArrayOutputStream trig = new ByteArrayOutputStream();
+        RDFDataMgr.write(trig, dataset, Lang.TRIG);
+        wireMock.register(get(urlEqualTo(ro.getPath())).withHeader("Accept", equalTo("application/x-trig"))
+                .willReturn(response("application/x-trig", trig.toByteArray())));
+        wireMock.register(get(urlEqualTo(ro.getPath())).withHeader("Accept", equalTo("application/rdf+xml"))
+                .willReturn(aResponse().withStatus(303).withHeader("Location", manifestUri).withFixedDelay(delay)));
+        register(wireMock, relative(manifestUri), "application/rdf+xml",
+            write(dataset.getNamedModel(manifestUri), "RDF/XML"));
+    }
+
+
+    /**
+     * Serve Solr search results for any query, in the javabin format used by SolrJ.
+     *
+     * @param wireMock
+     *            the server client
+     * @throws IOException
+     *             the response can't be serialized
+     */
+    private void stubSearch(WireMock wireMock)
+            throws IOException {
+        SolrDocumentList list = new SolrDocumentList();
+        list.setNumFound(searchResults * 10L);
+        for (int i = 0; i < searchResults; i++) {
+            SolrDocument document = new SolrDocument();
+            document.setField("ro_uri", getRosrsUri().resolve("ro" + i + "/").toString());
+            document.setField("created", CREATED.plusDays(i).toDate());
+            document.setField("creator", Arrays.asList("User " + i % SyntheticDataset.USERS));
+            document.setField("resources_size", i % 200);
+            document.setField("annotations_size", i % 100);
+            document.setField("evo_type", i % 2 == 0 ? "LIVE" : "SNAPSHOT");
+            list.add(document);
+        }
+        NamedList<Object> evoTypes = new NamedList<>();
+        evoTypes.add("LIVE", searchResults * 5);
+        evoTypes.add("SNAPSHOT", searchResults * 5);
+        NamedList<Object> creators = new NamedList<>();
+        for (int u = 0; u < SyntheticDataset.USERS; u++) {
+            creators.add("User " + u, searchResults);
+        }
+        NamedList<Object> fields = new NamedList<>();
+        fields.add("evo_type", evoTypes);
+        fields.add("creator", creators);
+        NamedList<Object> createdCounts = new NamedList<>();
+        for (int i = 0; i < 8; i++) {
+            createdCounts.add(CREATED.plusMonths(3 * i).toString("yyyy-MM-dd'T'HH:mm:ss'Z'"), searchResults);
+        }
+        NamedList<Object> created = new NamedList<>();
+        created.add("counts", createdCounts);
+        created.add("gap", "+3MONTH");
+        created.add("start", CREATED.toDate());
+        created.add("end", CREATED.plusYears(2).toDate());
+        NamedList<Object> ranges = new NamedList<>();
+        ranges.add("annotations_size", numericRange(0, 100, 10));
+        ranges.add("resources_size", numericRange(0, 200, 20));
+        ranges.add("created", created);
+        NamedList<Object> facets = new NamedList<>();
+        facets.add("facet_queries", new NamedList<Object>());
+        facets.add("facet_fields", fields);
+        facets.add("facet_dates", new NamedList<Object>());
+        facets.add("facet_ranges", ranges);
+        NamedList<Object> body = new NamedList<>();
+        body.add("response", list);
+        body.add("facet_counts", facets);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new JavaBinCodec().marshal(body, out);
+        wireMock.register(get(urlMatching(getSolrUri().getPath() + "select.*")).willReturn(
+            response("application/octet-stream", out.toByteArray())));
+    }
+
+
+    /**
+     * Create a numeric range facet.
+     *
+     * @param start
+     *            range start
+     * @param end
+     *            range end
+     * @param gap
+     *            range gap
+     * @return the facet as returned by Solr
+     */
+    private NamedList<Object> numericRange(int start, int end, int gap) {
+        NamedList<Object> counts = new NamedList<>();
+        for (int value = start; value < end; value += gap) {
+            counts.add(Integer.toString(value), searchResults / 2);
+        }
+        NamedList<Object> range = new NamedList<>();
+        range.add("counts", counts);
+        range.add("gap", gap);
+        range.add("start", start);
+        range.add("end", end);
+        return range;
+    }
+
+
+    /**
+     * Serve the notification service description and a feed for any query.
+     *
+     * @param wireMock
+     *            the server client
+     */
+    private void stubNotifications(WireMock wireMock) {
+        String path = getNotificationServiceUri().getPath();
+        String description = "<rdf:RDF xmlns:rdf=\"http://www.w3.org/1999/02/22-rdf-syntax-ns#\""
+                + " xmlns:not=\"http://purl.org/ro/service/notification/\">\n"
+                + "  <rdf:Description rdf:about=\"\">\n"
+                + "    <not:notifications>notifications{?ro,from,to,source,limit}</not:notifications>\n"
+                + "  </rdf:Description>\n</rdf:RDF>\n";
+        register(wireMock, path, "application/rdf+xml", description.getBytes(UTF8));
+        StringBuilder feed = new StringBuilder();
+        feed.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n");
+        feed.append("<feed xmlns=\"http://www.w3.org/2005/Atom\">\n");
+        feed.append("  <title>Notifications</title>\n");
+        feed.append("  <id>").append(getNotificationServiceUri()).append("notifications</id>\n");
+        feed.append("  <updated>").append(CREATED).append("</updated>\n");
+        List<URI> ros = getResearchObjects();
+        for (int i = 0; i < notifications; i++) {
+            feed.append("  <entry>\n");
+            feed.append("    <title>Notification ").append(i).append("</title>\n");
+            feed.append("    <link href=\"").append(ros.get(i % ros.size()))
+                    .append("\" rel=\"http://www.openarchives.org/ore/terms/describes\" />\n");
+            feed.append("    <link href=\"http://localhost:").append(port)
+                    .append("/roevaluate/\" rel=\"http://purl.org/dc/terms/source\" />\n");
+            feed.append("    <id>urn:X-rodl:").append(i).append("</id>\n");
+            feed.append("    <published>").append(CREATED.plusHours(i)).append("</published>\n");
+            feed.append("    <content type=\"html\">&lt;p&gt;Notification ").append(i).append("&lt;/p&gt;</content>\n");
+            feed.append("  </entry>\n");
+        }
+        feed.append("</feed>\n");
+        wireMock.register(get(urlMatching(path + "notifications\\?.*")).willReturn(
+            response("application/atom+xml", feed.toString().getBytes(UTF8))));
+    }
+
+
+    /**
+     * Register a GET response.
+     *
+     * @param wireMock
+     *            the server client
+     * @param path
+     *            request path
+     * @param contentType
+     *            response content type
+     * @param body
+     *            response body
+     */
+    private void register(WireMock wireMock, String path, String contentType, byte[] body) {
+        wireMock.register(get(urlEqualTo(path)).willReturn(response(contentType, body)));
+    }
+
+
+    /**
+     * Create a 200 response delayed as configured.
+     *
+     * @param contentType
+     *            response content type
+     * @param body
+     *            response body
+     * @return the response definition
+     */
+    private ResponseDefinitionBuilder response(String contentType, byte[] body) {
+        return aResponse().withStatus(200).withHeader("Content-Type", contentType).withBody(body)
+                .withFixedDelay(delay);
+    }
+
+
+    /**
+     * Serialize a model.
+     *
+     * @param model
+     *            the model
+     * @param lang
+     *            Jena language name
+     * @return the serialized model
+     */
+    private static byte[] write(Model model, String lang) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        model.write(out, lang);
+        return out.toByteArray();
+    }
+
+
+    /**
+     * Get the path of a URI served by this server.
+     *
+     * @param uri
+     *            absolute URI
+     * @return the path
+     */
+    private static String relative(String uri) {
+        return URI.create(uri).getPath();
+    }
+}
@@ -0,0 +1,154 @@
+package org.purl.wf4ever.rosrs.client.metrics;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+
+import java.net.URI;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientResponse;
+
+/**
+ * Test recording the request metrics.
+ *
+ * @author piotrekhol
+ *
+ */
+public class MetricsFilterTest {
+
+    /** A test HTTP mock server. */
+    @Rule
+    public final WireMockRule wireMockRule = new WireMockRule(8089);
+
+    /** Test resource. */
+    private static final URI RESOURCE = URI.create("http://localhost:8089/resource");
+
+    /** The recorder. */
+    private SimpleMetricsRecorder recorder;
+
+    /** A client using the filter. */
+    private Client client;
+
+
+    /**
+     * Start recording.
+     */
+    @Before
+    public void setUp() {
+        stubFor(get(urlEqualTo("/resource")).willReturn(aResponse().withStatus(200).withBody("0123456789")));
+        stubFor(post(urlEqualTo("/resource")).willReturn(aResponse().withStatus(409)));
+        recorder = new SimpleMetricsRecorder();
+        Metrics.setRecorder(recorder);
+        client = Client.create();
+        client.addFilter(new MetricsFilter("test"));
+    }
+
+
+    /**
+     * Stop recording.
+     */
+    @After
+    public void tearDown() {
+        Metrics.setRecorder(null);
+    }
+
+
+    /**
+     * Latency, statuses and sizes should be recorded by operation.
+     */
+    @Test
+    public final void shouldRecordRequests() {
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals("0123456789", client.resource(RESOURCE).get(String.class));
+        }
+        ClientResponse response = client.resource(RESOURCE).post(ClientResponse.class, "abcde");
+        Assert.assertEquals(409, response.getStatus());
+        response.close();
+
+        OperationMetrics gets = recorder.getOperation("test GET");
+        Assert.assertEquals(0, gets.getInFlight());
+        Assert.assertEquals(3, gets.getLatency().getCount());
+        Assert.assertEquals(Long.valueOf(3), gets.getStatuses().get(200));
+        Assert.assertEquals(30, gets.getBytesIn());
+        Assert.assertEquals(0, gets.getBytesOut());
+
+        OperationMetrics posts = recorder.getOperation("test POST");
+        Assert.assertEquals(1, posts.getLatency().getCount());
+        Assert.assertEquals(Long.valueOf(1), posts.getStatuses().get(409));
+        Assert.assertEquals(5, posts.getBytesOut());
+        Assert.assertEquals(2, recorder.getOperations().size());
+    }
+
+
+    /**
+     * Tagged requests should be recorded by their logical operation, the others by the HTTP method.
+     */
+    @Test
+    public final void shouldRecordTaggedOperations() {
+        Assert.assertEquals("0123456789", MetricsFilter.tag(client.resource(RESOURCE), "manifest").get(String.class));
+        Assert.assertEquals("0123456789", client.resource(RESOURCE).get(String.class));
+
+        OperationMetrics manifests = recorder.getOperation("test manifest");
+        Assert.assertEquals(1, manifests.getLatency().getCount());
+        Assert.assertEquals(10, manifests.getBytesIn());
+        Assert.assertEquals(1, recorder.getOperation("test GET").getLatency().getCount());
+        Assert.assertEquals(2, recorder.getOperations().size());
+    }
+
+
+    /**
+     * Failed requests should be recorded with status -1.
+     */
+    @Test
+    public final void shouldRecordFailures() {
+        try {
+            client.resource("http://localhost:1/").get(String.class);
+            Assert.fail("The request should fail");
+        } catch (RuntimeException e) {
+            OperationMetrics gets = recorder.getOperation("test GET");
+            Assert.assertEquals(0, gets.getInFlight());
+            Assert.assertEquals(Long.valueOf(1), gets.getStatuses().get(-1));
+        }
+    }
+
+
+    /**
+     * Nothing should be recorded when there is no recorder.
+     */
+    @Test
+    public final void shouldNotRecordWhenDisabled() {
+        Metrics.setRecorder(null);
+        Assert.assertEquals("0123456789", client.resource(RESOURCE).get(String.class));
+        Assert.assertTrue(recorder.getOperations().isEmpty());
+        Assert.assertEquals(0, Metrics.start("test"));
+    }
+
+
+    /**
+     * Percentiles should be within a factor of 2.
+     */
+    @Test
+    public final void shouldEstimatePercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1000L);
+        }
+        Assert.assertEquals(100, histogram.getCount());
+        Assert.assertEquals(100000, histogram.getMax());
+        Assert.assertEquals(50500, histogram.getMean());
+        long median = histogram.getPercentile(50);
+        Assert.assertTrue("Median " + median, median >= 50000 && median < 100000);
+        Assert.assertEquals(100000, histogram.getPercentile(100));
+        Assert.assertEquals(0, new LatencyHistogram().getPercentile(99));
+    }
+}
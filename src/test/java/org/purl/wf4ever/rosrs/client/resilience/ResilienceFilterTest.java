@@ -0,0 +1,289 @@
+package org.purl.wf4ever.rosrs.client.resilience;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.purl.wf4ever.rosrs.client.metrics.MetricsFilter;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.filter.ClientFilter;
+
+/**
+ * Test the timeouts, retries and circuit breakers.
+ *
+ * @author piotrekhol
+ *
+ */
+public class ResilienceFilterTest {
+
+    /** A test HTTP mock server. */
+    @Rule
+    public final WireMockRule wireMockRule = new WireMockRule(8089);
+
+    /** Test resource. */
+    private static final URI RESOURCE = URI.create("http://localhost:8089/resource");
+
+    /** Settings, with short delays. */
+    private ResiliencePolicy policy;
+
+    /** The tested filter. */
+    private ResilienceFilter filter;
+
+    /** A client using the filter. */
+    private Client client;
+
+
+    /**
+     * Create a client with its own filter.
+     */
+    @Before
+    public void setUp() {
+        policy = new ResiliencePolicy();
+        policy.setBaseBackoff(1);
+        policy.setMaxBackoff(10);
+        filter = new ResilienceFilter(policy);
+        client = Client.create();
+        client.addFilter(filter);
+    }
+
+
+    /**
+     * A GET failing with 503 should be retried until it succeeds.
+     */
+    @Test
+    public final void shouldRetryTransientErrors() {
+        stubFor(get(urlEqualTo("/resource")).inScenario("retry").whenScenarioStateIs(Scenario.STARTED)
+                .willSetStateTo("failed once").willReturn(aResponse().withStatus(503)));
+        stubFor(get(urlEqualTo("/resource")).inScenario("retry").whenScenarioStateIs("failed once")
+                .willSetStateTo("failed twice").willReturn(aResponse().withStatus(503)));
+        stubFor(get(urlEqualTo("/resource")).inScenario("retry").whenScenarioStateIs("failed twice")
+                .willReturn(aResponse().withStatus(200).withBody("ok")));
+
+        ClientResponse response = client.resource(RESOURCE).get(ClientResponse.class);
+        Assert.assertEquals(200, response.getStatus());
+        Assert.assertEquals("ok", response.getEntity(String.class));
+        verify(3, getRequestedFor(urlEqualTo("/resource")));
+        Assert.assertEquals(1, filter.getMetrics().getRequests());
+        Assert.assertEquals(3, filter.getMetrics().getAttempts());
+        Assert.assertEquals(2, filter.getMetrics().getRetries());
+        Assert.assertEquals(0, filter.getMetrics().getFailures());
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, filter.getCircuitBreaker(RESOURCE).getState());
+    }
+
+
+    /**
+     * The last transient error should be returned to the caller.
+     */
+    @Test
+    public final void shouldReturnLastResponse() {
+        stubFor(get(urlEqualTo("/resource")).willReturn(aResponse().withStatus(503)));
+        policy.setMaxRetries(2);
+
+        ClientResponse response = client.resource(RESOURCE).get(ClientResponse.class);
+        Assert.assertEquals(503, response.getStatus());
+        verify(3, getRequestedFor(urlEqualTo("/resource")));
+        Assert.assertEquals(1, filter.getMetrics().getFailures());
+    }
+
+
+    /**
+     * A POST should not be sent twice.
+     */
+    @Test
+    public final void shouldNotRetryPost() {
+        stubFor(post(urlEqualTo("/resource")).willReturn(aResponse().withStatus(503)));
+
+        ClientResponse response = client.resource(RESOURCE).post(ClientResponse.class, "body");
+        Assert.assertEquals(503, response.getStatus());
+        verify(1, postRequestedFor(urlEqualTo("/resource")));
+        Assert.assertEquals(0, filter.getMetrics().getRetries());
+    }
+
+
+    /**
+     * A slow response should time out with the read timeout of its operation and the request should be retried.
+     */
+    @Test
+    public final void shouldTimeOut() {
+        stubFor(get(urlEqualTo("/resource")).willReturn(aResponse().withStatus(200).withFixedDelay(2000)));
+        policy.setReadTimeout("manifest", 200);
+        policy.setMaxRetries(1);
+
+        try {
+            MetricsFilter.tag(client.resource(RESOURCE), "manifest").get(ClientResponse.class);
+            Assert.fail("The request should time out");
+        } catch (ClientHandlerException e) {
+            Assert.assertEquals(2, filter.getMetrics().getTimeouts());
+            Assert.assertEquals(1, filter.getMetrics().getRetries());
+            Assert.assertEquals(1, filter.getMetrics().getFailures());
+        }
+    }
+
+
+    /**
+     * Uploads should not time out by default, and an untagged request should get the default read timeout.
+     */
+    @Test
+    public final void shouldNotTimeOutUploads() {
+        stubFor(post(urlEqualTo("/resource")).willReturn(aResponse().withStatus(201).withFixedDelay(500)));
+        policy.setReadTimeout(200);
+
+        ClientResponse response = MetricsFilter.tag(client.resource(RESOURCE), ResiliencePolicy.UPLOAD_OPERATION)
+                .post(ClientResponse.class, "body");
+        Assert.assertEquals(201, response.getStatus());
+        Assert.assertEquals(0, filter.getMetrics().getTimeouts());
+        Assert.assertEquals(200, policy.getReadTimeout(null));
+        Assert.assertEquals(0, ResiliencePolicy.disabled().getReadTimeout("manifest"));
+    }
+
+
+    /**
+     * After enough failures the requests should be rejected without being sent, until a trial request succeeds.
+     *
+     * @throws InterruptedException
+     *             interrupted when waiting for the circuit to half-open
+     */
+    @Test
+    public final void shouldOpenCircuit()
+            throws InterruptedException {
+        stubFor(get(urlEqualTo("/resource")).willReturn(aResponse().withStatus(503)));
+        policy.setMaxRetries(0);
+        policy.setFailureThreshold(3);
+        policy.setOpenDuration(200);
+
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(503, client.resource(RESOURCE).get(ClientResponse.class).getStatus());
+        }
+        Assert.assertEquals(CircuitBreaker.State.OPEN, filter.getCircuitBreaker(RESOURCE).getState());
+        try {
+            client.resource(RESOURCE).get(ClientResponse.class);
+            Assert.fail("The request should be rejected");
+        } catch (CircuitOpenException e) {
+            Assert.assertEquals("localhost:8089", e.getHost());
+        }
+        verify(3, getRequestedFor(urlEqualTo("/resource")));
+        Assert.assertEquals(1, filter.getMetrics().getRejections());
+        Assert.assertEquals(1, filter.getMetrics().getCircuitsOpened());
+
+        Thread.sleep(300);
+        stubFor(get(urlEqualTo("/resource")).willReturn(aResponse().withStatus(200)));
+        Assert.assertEquals(200, client.resource(RESOURCE).get(ClientResponse.class).getStatus());
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, filter.getCircuitBreaker(RESOURCE).getState());
+    }
+
+
+    /**
+     * A trial request failing with an unexpected exception should open the circuit again, instead of leaving it
+     * half-open with all requests rejected.
+     *
+     * @throws InterruptedException
+     *             interrupted when waiting for the circuit to half-open
+     */
+    @Test
+    public final void shouldRecordUnexpectedTrialFailure()
+            throws InterruptedException {
+        stubFor(get(urlEqualTo("/resource")).willReturn(aResponse().withStatus(200)));
+        policy.setMaxRetries(0);
+        policy.setFailureThreshold(1);
+        policy.setOpenDuration(200);
+        final AtomicBoolean broken = new AtomicBoolean(true);
+        Client failing = Client.create();
+        failing.addFilter(new ClientFilter() {
+
+            @Override
+            public ClientResponse handle(ClientRequest request) {
+                if (broken.get()) {
+                    throw new IllegalStateException("unexpected");
+                }
+                return getNext().handle(request);
+            }
+        });
+        failing.addFilter(filter);
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                failing.resource(RESOURCE).get(ClientResponse.class);
+                Assert.fail("The request should fail");
+            } catch (IllegalStateException e) {
+                Assert.assertEquals(CircuitBreaker.State.OPEN, filter.getCircuitBreaker(RESOURCE).getState());
+            }
+            Thread.sleep(300);
+        }
+        broken.set(false);
+        Assert.assertEquals(200, failing.resource(RESOURCE).get(ClientResponse.class).getStatus());
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, filter.getCircuitBreaker(RESOURCE).getState());
+    }
+
+
+    /**
+     * Clients with filters sharing a state should each send requests through their own chain of filters, and share the
+     * circuit breakers and metrics.
+     */
+    @Test
+    public final void shouldShareStateBetweenClients() {
+        stubFor(get(urlEqualTo("/resource")).willReturn(aResponse().withStatus(503)));
+        policy.setMaxRetries(0);
+        policy.setFailureThreshold(2);
+        policy.setOpenDuration(60000);
+        final AtomicInteger handled = new AtomicInteger();
+        Client first = Client.create();
+        first.addFilter(new ClientFilter() {
+
+            @Override
+            public ClientResponse handle(ClientRequest request) {
+                handled.incrementAndGet();
+                return getNext().handle(request);
+            }
+        });
+        first.addFilter(new ResilienceFilter(filter.getState()));
+        Client second = Client.create();
+        second.addFilter(new ResilienceFilter(filter.getState()));
+
+        Assert.assertEquals(503, first.resource(RESOURCE).get(ClientResponse.class).getStatus());
+        Assert.assertEquals(503, second.resource(RESOURCE).get(ClientResponse.class).getStatus());
+        Assert.assertEquals(1, handled.get());
+        Assert.assertEquals(CircuitBreaker.State.OPEN, filter.getCircuitBreaker(RESOURCE).getState());
+        try {
+            first.resource(RESOURCE).get(ClientResponse.class);
+            Assert.fail("The request should be rejected");
+        } catch (CircuitOpenException e) {
+            Assert.assertEquals(1, handled.get());
+        }
+        Assert.assertEquals(3, filter.getMetrics().getRequests());
+        Assert.assertEquals(1, filter.getMetrics().getRejections());
+    }
+
+
+    /**
+     * The delay should be random, growing with the retry number up to the limit.
+     */
+    @Test
+    public final void shouldLimitBackoff() {
+        policy.setBaseBackoff(100);
+        policy.setMaxBackoff(1000);
+        Assert.assertEquals(0, policy.getBackoff(0, 0));
+        Assert.assertEquals(50, policy.getBackoff(0, 0.5));
+        Assert.assertEquals(200, policy.getBackoff(2, 0.5));
+        Assert.assertEquals(500, policy.getBackoff(5, 0.5));
+        Assert.assertEquals(500, policy.getBackoff(100, 0.5));
+    }
+}
@@ -0,0 +1,395 @@
+package org.purl.wf4ever.rosrs.client.search;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.purl.wf4ever.rosrs.client.exception.SearchException;
+import org.purl.wf4ever.rosrs.client.search.dataclasses.FoundRO;
+import org.purl.wf4ever.rosrs.client.search.dataclasses.SearchResult;
+
+/**
+ * Test the {@link CachingSearchServer} against a fake search server and a fake clock.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public class CachingSearchServerTest {
+
+    /** Time for which results are fresh. */
+    private static final long TTL = 1000;
+
+    /** Time for which results are stale. */
+    private static final long STALE_TTL = 5000;
+
+    /** The fake search server. */
+    private FakeSearchServer fake;
+
+    /** The cache tested. */
+    private TimedCachingSearchServer cache;
+
+
+    /**
+     * Create a cache of 3 results refreshing them in the calling thread.
+     */
+    @Before
+    public void setUp() {
+        fake = new FakeSearchServer(true);
+        cache = new TimedCachingSearchServer(fake, 3);
+    }
+
+
+    /**
+     * Searches differing only in whitespace and missing defaults should share the result.
+     * 
+     * @throws SearchException
+     *             unexpected
+     */
+    @Test
+    public final void shouldNormalizeSearches()
+            throws SearchException {
+        SearchResult result = cache.search("workflow  music", null, 10, sort("created", "score"));
+        assertSameResult(result, cache.search(" workflow\tmusic ", 0, 10, sort("created", "score")));
+        Assert.assertEquals(1, fake.queries.size());
+
+        cache.search("workflow music", 10, 10, sort("created", "score"));
+        cache.search("workflow music", 0, 20, sort("created", "score"));
+        cache.search("workflow music", 0, 10, sort("score", "created"));
+        cache.search("workflow music");
+        Assert.assertEquals(5, fake.queries.size());
+        Assert.assertEquals(1, cache.getMetrics().getHits());
+        Assert.assertEquals(5, cache.getMetrics().getMisses());
+        Assert.assertEquals(1.0 / 6, cache.getMetrics().getHitRate(), 0.001);
+    }
+
+
+    /**
+     * Paging parameters should be ignored if the search server doesn't support them.
+     * 
+     * @throws SearchException
+     *             unexpected
+     */
+    @Test
+    public final void shouldIgnorePagingIfNotSupported()
+            throws SearchException {
+        fake = new FakeSearchServer(false);
+        cache = new TimedCachingSearchServer(fake, 3);
+        cache.search("workflow", 0, 10, null);
+        cache.search("workflow", 10, 10, null);
+        Assert.assertEquals(1, fake.queries.size());
+    }
+
+
+    /**
+     * Stale results should be returned while they are refreshed, and older ones searched for again.
+     * 
+     * @throws SearchException
+     *             unexpected
+     */
+    @Test
+    public final void shouldRefreshStaleResults()
+            throws SearchException {
+        SearchResult first = cache.search("workflow", 0, 10, null);
+        cache.time = TTL - 1;
+        assertSameResult(first, cache.search("workflow", 0, 10, null));
+        Assert.assertEquals(1, fake.queries.size());
+
+        cache.time = TTL;
+        assertSameResult(first, cache.search("workflow", 0, 10, null));
+        Assert.assertEquals(2, fake.queries.size());
+        SearchResult refreshed = cache.search("workflow", 0, 10, null);
+        assertNotSameResult(first, refreshed);
+        Assert.assertEquals(1, cache.getMetrics().getStaleHits());
+        Assert.assertEquals(1, cache.getMetrics().getRefreshes());
+
+        cache.time = 2 * TTL + STALE_TTL;
+        assertNotSameResult(refreshed, cache.search("workflow", 0, 10, null));
+        Assert.assertEquals(3, fake.queries.size());
+        Assert.assertEquals(2, cache.getMetrics().getMisses());
+    }
+
+
+    /**
+     * A failed refresh should keep the stale result.
+     * 
+     * @throws SearchException
+     *             unexpected
+     */
+    @Test
+    public final void shouldKeepStaleResultIfRefreshFails()
+            throws SearchException {
+        SearchResult first = cache.search("workflow", 0, 10, null);
+        fake.failing = true;
+        cache.time = TTL;
+        assertSameResult(first, cache.search("workflow", 0, 10, null));
+        assertSameResult(first, cache.search("workflow", 0, 10, null));
+        Assert.assertEquals(2, cache.getMetrics().getRefreshFailures());
+    }
+
+
+    /**
+     * The least recently used results should be removed when the cache is full.
+     * 
+     * @throws SearchException
+     *             unexpected
+     */
+    @Test
+    public final void shouldEvictLeastRecentlyUsed()
+            throws SearchException {
+        cache.search("a");
+        cache.search("b");
+        cache.search("c");
+        cache.search("a");
+        cache.search("d");
+        Assert.assertEquals(3, cache.size());
+        Assert.assertEquals(1, cache.getMetrics().getEvictions());
+        cache.search("a");
+        cache.search("b");
+        Assert.assertEquals(5, fake.queries.size());
+
+        cache.invalidateAll();
+        Assert.assertEquals(0, cache.size());
+    }
+
+
+    /**
+     * Every caller should get its own copy of a cached result, with the same found ROs.
+     * 
+     * @throws SearchException
+     *             unexpected
+     */
+    @Test
+    public final void shouldReturnCopies()
+            throws SearchException {
+        SearchResult first = cache.search("workflow", 0, 10, null);
+        FoundRO found = first.getROsList().get(0);
+        first.getROsList().clear();
+        first.setNumFound(0);
+        SearchResult second = cache.search("workflow", 0, 10, null);
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals(1, second.getROsList().size());
+        Assert.assertSame(found, second.getROsList().get(0));
+        Assert.assertEquals(1, second.getNumFound());
+        Assert.assertSame(found.getResearchObject(), second.getROsList().get(0).getResearchObject());
+    }
+
+
+    /**
+     * A missing query should be the same as an empty one.
+     * 
+     * @throws SearchException
+     *             unexpected
+     */
+    @Test
+    public final void shouldAcceptNullQueries()
+            throws SearchException {
+        SearchResult result = cache.search(null, 0, 10, null);
+        assertSameResult(result, cache.search("  ", 0, 10, null));
+        Assert.assertEquals(1, fake.queries.size());
+    }
+
+
+    /**
+     * Callers missing the same search at the same time should send it once and share its result.
+     * 
+     * @throws Exception
+     *             unexpected
+     */
+    @Test(timeout = 10000)
+    public final void shouldShareMisses()
+            throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger sent = new AtomicInteger();
+        final CachingSearchServer slow = new CachingSearchServer(new FakeSearchServer(true) {
+
+            @Override
+            public SearchResult search(String query, Integer offset, Integer limit, Map<String, SortOrder> sortFields)
+                    throws SearchException {
+                sent.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new SearchException("Interrupted", e);
+                }
+                return super.search(query, offset, limit, sortFields);
+            }
+        });
+        ExecutorService callers = Executors.newFixedThreadPool(5);
+        try {
+            List<Future<SearchResult>> results = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                results.add(callers.submit(new Callable<SearchResult>() {
+
+                    @Override
+                    public SearchResult call()
+                            throws SearchException {
+                        return slow.search("workflow", 0, 10, null);
+                    }
+                }));
+            }
+            Thread.sleep(200);
+            release.countDown();
+            SearchResult first = results.get(0).get();
+            for (Future<SearchResult> result : results) {
+                assertSameResult(first, result.get());
+            }
+            Assert.assertEquals(1, sent.get());
+            Assert.assertEquals(1, slow.getMetrics().getMisses());
+            Assert.assertEquals(5, slow.getMetrics().getMisses() + slow.getMetrics().getSharedMisses()
+                    + slow.getMetrics().getHits());
+        } finally {
+            callers.shutdownNow();
+            slow.close();
+        }
+    }
+
+
+    /**
+     * Check that two results are copies of the same cached result.
+     * 
+     * @param expected
+     *            the first result
+     * @param actual
+     *            the second result
+     */
+    private static void assertSameResult(SearchResult expected, SearchResult actual) {
+        Assert.assertSame(expected.getROsList().get(0), actual.getROsList().get(0));
+    }
+
+
+    /**
+     * Check that two results come from different searches.
+     * 
+     * @param unexpected
+     *            the first result
+     * @param actual
+     *            the second result
+     */
+    private static void assertNotSameResult(SearchResult unexpected, SearchResult actual) {
+        Assert.assertNotSame(unexpected.getROsList().get(0), actual.getROsList().get(0));
+    }
+
+
+    /**
+     * Create the sort fields in order.
+     * 
+     * @param fields
+     *            field names, sorted descending
+     * @return the sort fields
+     */
+    private static Map<String, SearchServer.SortOrder> sort(String... fields) {
+        Map<String, SearchServer.SortOrder> sort = new LinkedHashMap<>();
+        for (String field : fields) {
+            sort.put(field, SearchServer.SortOrder.DESC);
+        }
+        return sort;
+    }
+
+
+    /**
+     * A caching search server with a fake clock, refreshing the results in the calling thread.
+     * 
+     * @author piotrekhol
+     * 
+     */
+    private static class TimedCachingSearchServer extends CachingSearchServer {
+
+        /** Current time. */
+        private long time;
+
+
+        /**
+         * Constructor.
+         * 
+         * @param server
+         *            the search server
+         * @param maxSize
+         *            maximum number of cached results
+         */
+        public TimedCachingSearchServer(SearchServer server, int maxSize) {
+            super(server, maxSize, TTL, STALE_TTL, new Executor() {
+
+                @Override
+                public void execute(Runnable command) {
+                    command.run();
+                }
+            });
+        }
+
+
+        @Override
+        long now() {
+            return time;
+        }
+    }
+
+
+    /**
+     * A search server recording the queries and returning a new result with one RO for each.
+     * 
+     * @author piotrekhol
+     * 
+     */
+    private static class FakeSearchServer implements SearchServer {
+
+        /** Queries received. */
+        private final List<String> queries = new ArrayList<>();
+
+        /** Does it support pagination. */
+        private final boolean pagination;
+
+        /** Should the searches fail. */
+        private boolean failing;
+
+
+        /**
+         * Constructor.
+         * 
+         * @param pagination
+         *            does it support pagination
+         */
+        public FakeSearchServer(boolean pagination) {
+            this.pagination = pagination;
+        }
+
+
+        @Override
+        public SearchResult search(String query)
+                throws SearchException {
+            return search(query, null, null, null);
+        }
+
+
+        @Override
+        public boolean supportsPagination() {
+            return pagination;
+        }
+
+
+        @Override
+        public SearchResult search(String query, Integer offset, Integer limit, Map<String, SortOrder> sortFields)
+                throws SearchException {
+            if (failing) {
+                throw new SearchException("Search failed");
+            }
+            queries.add(query);
+            SearchResult result = new SearchResult();
+            URI ro = URI.create("http://example.org/ro" + queries.size() + "/");
+            result.getROsList().add(new FoundRO(ro, 1, null, null, null, null, null));
+            result.setNumFound(1);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package org.purl.wf4ever.rosrs.client.search;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.util.NamedList;
+import org.junit.Assert;
+import org.junit.Test;
+import org.purl.wf4ever.rosrs.client.search.dataclasses.FoundRO;
+
+/**
+ * Test the {@link SolrResultIterator} against a fake Solr server with and without cursor support.
+ * 
+ * @author piotrekhol
+ * 
+ */
+public class SolrResultIteratorTest {
+
+    /** Number of ROs in the fake index. */
+    private static final int SIZE = 25;
+
+
+    /**
+     * All ROs should be returned in order, each page continuing from the cursor mark.
+     */
+    @Test
+    public final void shouldPageWithCursors() {
+        FakeSolrSearchServer server = new FakeSolrSearchServer(true);
+        assertAllReturned(server.iterate("*:*", 10, SolrSearchServer.DEFAULT_FIELDS));
+        Assert.assertEquals(3, server.queries.size());
+        for (SolrQuery query : server.queries) {
+            Assert.assertNull(query.getStart());
+            Assert.assertNull(query.getFilterQueries());
+            Assert.assertNull(query.getFacetFields());
+            Assert.assertTrue(query.getFields().startsWith("ro_uri"));
+        }
+        Assert.assertEquals("*", server.queries.get(0).get(SolrResultIterator.CURSOR_MARK));
+        Assert.assertEquals(uri(9), server.queries.get(1).get(SolrResultIterator.CURSOR_MARK));
+    }
+
+
+    /**
+     * If Solr doesn't return cursor marks, the pages should continue after the last URI.
+     */
+    @Test
+    public final void shouldPageWithRangesWithoutCursors() {
+        FakeSolrSearchServer server = new FakeSolrSearchServer(false);
+        assertAllReturned(server.iterate("*:*", 10, null));
+        Assert.assertEquals(3, server.queries.size());
+        Assert.assertNull(server.queries.get(0).getFilterQueries());
+        Assert.assertNull(server.queries.get(1).get(SolrResultIterator.CURSOR_MARK));
+        Assert.assertEquals(1, server.queries.get(2).getFilterQueries().length);
+    }
+
+
+    /**
+     * A result set filling the last page exactly should end with an empty page.
+     */
+    @Test
+    public final void shouldStopAfterFullLastPage() {
+        FakeSolrSearchServer server = new FakeSolrSearchServer(true);
+        assertAllReturned(server.iterate("*:*", 5, null));
+        Assert.assertEquals(6, server.queries.size());
+        server = new FakeSolrSearchServer(false);
+        assertAllReturned(server.iterate("*:*", 5, null));
+        Assert.assertEquals(6, server.queries.size());
+    }
+
+
+    /**
+     * Check that the iterator returns all ROs in order.
+     * 
+     * @param iterator
+     *            the iterator
+     */
+    private static void assertAllReturned(SolrResultIterator iterator) {
+        Assert.assertEquals(SIZE, iterator.getNumFound());
+        List<URI> uris = new ArrayList<>();
+        while (iterator.hasNext()) {
+            FoundRO hit = iterator.next();
+            uris.add(hit.getResearchObjectUri());
+        }
+        Assert.assertEquals(SIZE, uris.size());
+        for (int i = 0; i < SIZE; i++) {
+            Assert.assertEquals(URI.create(uri(i)), uris.get(i));
+        }
+        Assert.assertFalse(iterator.hasNext());
+    }
+
+
+    /**
+     * RO URI in the fake index, sorted like the numbers.
+     * 
+     * @param i
+     *            RO number
+     * @return URI
+     */
+    private static String uri(int i) {
+        return String.format("http://example.org/ROs/ro%03d/", i);
+    }
+
+
+    /**
+     * A search server answering queries from an in-memory index sorted by URI.
+     * 
+     * @author piotrekhol
+     * 
+     */
+    private static class FakeSolrSearchServer extends SolrSearchServer {
+
+        /** id. */
+        private static final long serialVersionUID = 1L;
+
+        /** Does the server return cursor marks. */
+        private final boolean cursors;
+
+        /** Queries received. */
+        private final List<SolrQuery> queries = new ArrayList<>();
+
+
+        /**
+         * Constructor.
+         * 
+         * @param cursors
+         *            does the server return cursor marks
+         */
+        FakeSolrSearchServer(boolean cursors) {
+            super(URI.create("http://example.org/solr/"));
+            this.cursors = cursors;
+        }
+
+
+        @Override
+        QueryResponse query(SolrQuery query) {
+            queries.add(query.getCopy());
+            int from = 0;
+            String cursor = query.get(SolrResultIterator.CURSOR_MARK);
+            if (cursors && cursor != null && !cursor.equals(SolrResultIterator.FIRST_CURSOR_MARK)) {
+                from = Integer.parseInt(cursor.substring(cursor.length() - 4, cursor.length() - 1)) + 1;
+            }
+            if (query.getFilterQueries() != null) {
+                String filter = query.getFilterQueries()[0];
+                String last = filter.substring(filter.indexOf('{') + 1, filter.indexOf(" TO ")).replace("\\", "");
+                from = Integer.parseInt(last.substring(last.length() - 4, last.length() - 1)) + 1;
+            }
+            SolrDocumentList documents = new SolrDocumentList();
+            documents.setNumFound(SIZE);
+            for (int i = from; i < Math.min(SIZE, from + query.getRows()); i++) {
+                SolrDocument document = new SolrDocument();
+                document.setField(FIELD_RO_URI, uri(i));
+                documents.add(document);
+            }
+            NamedList<Object> body = new NamedList<>();
+            body.add("response", documents);
+            if (cursors) {
+                body.add(SolrResultIterator.NEXT_CURSOR_MARK, documents.isEmpty() ? cursor
+                        : documents.get(documents.size() - 1).getFieldValue(FIELD_RO_URI));
+            }
+            return new QueryResponse(body, null);
+        }
+    }
+}
@@ -1,10 +1,23 @@
 package org.purl.wf4ever.rosrs.client.search;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
 
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.util.NamedList;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.purl.wf4ever.rosrs.client.exception.SearchException;
+import org.purl.wf4ever.rosrs.client.search.dataclasses.FoundRO;
 import org.purl.wf4ever.rosrs.client.search.dataclasses.SearchResult;
 
 public class SolrSearchServerTest {
@@ -25,4 +38,196 @@ public class SolrSearchServerTest {
             throws SearchException {
         SearchResult result = server.search("test");
     }
+
+
+    /**
+     * Hits should be mapped from the fields returned, leaving the other ones null, and create the RO only when it's
+     * requested.
+     */
+    @Test
+    public void shouldMapSelectedFields() {
+        SolrDocumentList list = new SolrDocumentList();
+        list.setNumFound(2);
+        SolrDocument full = new SolrDocument();
+        full.setField("ro_uri", "http://example.org/ROs/ro1/");
+        full.setField("created", new Date(0));
+        full.setField("creator", Arrays.asList("Alice", "Bob"));
+        full.setField("resources_size", 3);
+        full.setField("annotations_size", 4L);
+        full.setField("evo_type", "LIVE");
+        full.setField("score", 1.5f);
+        list.add(full);
+        SolrDocument projected = new SolrDocument();
+        projected.setField("ro_uri", "http://example.org/ROs/ro2/");
+        list.add(projected);
+
+        SearchResult result = new SolrSearchServer(SERVER_URI).prepareSearchResult(createResponse(list));
+        Assert.assertEquals(2, result.getROsList().size());
+        FoundRO first = result.getROsList().get(0);
+        Assert.assertEquals(URI.create("http://example.org/ROs/ro1/"), first.getResearchObjectUri());
+        Assert.assertEquals(new DateTime(0), first.getCreated());
+        Assert.assertEquals(Arrays.asList("Alice", "Bob"), first.getCreators());
+        Assert.assertEquals(Integer.valueOf(3), first.getNumberOfResources());
+        Assert.assertEquals(Integer.valueOf(4), first.getNumberOfAnnotations());
+        Assert.assertEquals("LIVE", first.getStatus());
+        Assert.assertEquals(1.5, first.getScore(), 0.001);
+        Assert.assertSame(first.getResearchObject(), first.getResearchObject());
+        Assert.assertEquals(first.getResearchObjectUri(), first.getResearchObject().getUri());
+        FoundRO second = result.getROsList().get(1);
+        Assert.assertNull(second.getCreated());
+        Assert.assertNull(second.getNumberOfResources());
+        Assert.assertNull(second.getStatus());
+        Assert.assertEquals(-1, second.getScore(), 0.001);
+    }
+
+
+    /**
+     * Facets should be computed only if selected, and the legacy search method should compute the default ones.
+     * 
+     * @throws SearchException
+     *             unexpected
+     */
+    @Test
+    public void shouldRequestSelectedFacetsOnly()
+            throws SearchException {
+        FakeSolrSearchServer fake = new FakeSolrSearchServer();
+        SearchResult result = fake.search("test", 0, 10, null, SolrSearchServer.DEFAULT_FIELDS);
+        Assert.assertNull(fake.queries.get(0).getFacetFields());
+        Assert.assertNull(fake.queries.get(0).get("facet.range"));
+        Assert.assertTrue(result.getFacetsList().isEmpty());
+
+        result = fake.search("test", 0, 10, null, null, new SolrFacets().addField("evo_type", "RO status"));
+        Assert.assertArrayEquals(new String[] { "evo_type" }, fake.queries.get(1).getFacetFields());
+        Assert.assertNull(fake.queries.get(1).get("facet.range"));
+        Assert.assertEquals(1, result.getFacetsList().size());
+
+        result = fake.search("test", 0, 10, null);
+        Assert.assertEquals(2, fake.queries.get(2).getFacetFields().length);
+        Assert.assertEquals(3, fake.queries.get(2).getParams("facet.range").length);
+        Assert.assertEquals(5, result.getFacetsList().size());
+    }
+
+
+    /**
+     * Paging through the results of a query should not make Solr count the facets again.
+     * 
+     * @throws SearchException
+     *             unexpected
+     */
+    @Test
+    public void shouldCacheFacetCounts()
+            throws SearchException {
+        FakeSolrSearchServer fake = new FakeSolrSearchServer();
+        SearchResult first = fake.search("test  query", 0, 10, null);
+        SearchResult second = fake.search(" test query ", 10, 10, null);
+        Assert.assertNotNull(fake.queries.get(0).getFacetFields());
+        Assert.assertNull(fake.queries.get(1).getFacetFields());
+        Assert.assertNull(fake.queries.get(1).get("facet.range"));
+        Assert.assertEquals(first.getFacetsList().size(), second.getFacetsList().size());
+
+        fake.search("other query", 0, 10, null);
+        Assert.assertNotNull(fake.queries.get(2).getFacetFields());
+
+        fake.setFacetCacheSize(0);
+        fake.search("test query", 0, 10, null);
+        fake.search("test query", 10, 10, null);
+        Assert.assertNotNull(fake.queries.get(3).getFacetFields());
+        Assert.assertNotNull(fake.queries.get(4).getFacetFields());
+    }
+
+
+    /**
+     * Date ranges should cover whole months, so that they don't change during a month.
+     */
+    @Test
+    public void shouldAlignDateRangesToMonths() {
+        SolrFacets facets = new SolrFacets().addDateRange("created", "Creation date", 24, 3);
+        SolrQuery early = new SolrQuery("test");
+        facets.addTo(early, new DateTime(2013, 5, 1, 0, 30, DateTimeZone.UTC));
+        SolrQuery late = new SolrQuery("test");
+        facets.addTo(late, new DateTime(2013, 5, 31, 23, 59, DateTimeZone.UTC));
+        Assert.assertEquals("2011-06-01T00:00:00.000Z", early.get("f.created.facet.range.start"));
+        Assert.assertEquals("2013-06-01T00:00:00.000Z", early.get("f.created.facet.range.end"));
+        Assert.assertEquals("+3MONTH", early.get("f.created.facet.range.gap"));
+        Assert.assertEquals(early.toString(), late.toString());
+    }
+
+
+    /**
+     * Create a Solr response with the facets requested by the search server.
+     * 
+     * @param list
+     *            the documents
+     * @return the response
+     */
+    private static QueryResponse createResponse(SolrDocumentList list) {
+        NamedList<Object> fields = new NamedList<>();
+        fields.add("evo_type", new NamedList<Object>());
+        fields.add("creator", new NamedList<Object>());
+        NamedList<Object> ranges = new NamedList<>();
+        ranges.add("annotations_size", range(10, 0, 100));
+        ranges.add("resources_size", range(20, 0, 200));
+        ranges.add("created", range("+3MONTH", new Date(0), new Date()));
+        NamedList<Object> facets = new NamedList<>();
+        facets.add("facet_fields", fields);
+        facets.add("facet_ranges", ranges);
+        NamedList<Object> body = new NamedList<>();
+        body.add("response", list);
+        body.add("facet_counts", facets);
+        return new QueryResponse(body, null);
+    }
+
+
+    /**
+     * Create a range facet without counts.
+     * 
+     * @param gap
+     *            gap
+     * @param start
+     *            start
+     * @param end
+     *            end
+     * @return the facet as returned by Solr
+     */
+    private static NamedList<Object> range(Object gap, Object start, Object end) {
+        NamedList<Object> range = new NamedList<>();
+        range.add("counts", new NamedList<Object>());
+        range.add("gap", gap);
+        range.add("start", start);
+        range.add("end", end);
+        return range;
+    }
+
+
+    /**
+     * A search server that records the queries and returns an empty result with the default facets.
+     * 
+     * @author piotrekhol
+     * 
+     */
+    private static class FakeSolrSearchServer extends SolrSearchServer {
+
+        /** id. */
+        private static final long serialVersionUID = 1L;
+
+        /** Queries sent. */
+        private final List<SolrQuery> queries = new ArrayList<>();
+
+
+        /**
+         * Constructor.
+         */
+        public FakeSolrSearchServer() {
+            super(SERVER_URI);
+        }
+
+
+        @Override
+        QueryResponse query(SolrQuery query) {
+            queries.add(query.getCopy());
+            SolrDocumentList list = new SolrDocumentList();
+            list.setNumFound(0);
+            return createResponse(list);
+        }
+    }
 }
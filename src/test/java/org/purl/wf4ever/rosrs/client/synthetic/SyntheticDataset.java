@@ -0,0 +1,292 @@
+package org.purl.wf4ever.rosrs.client.synthetic;
+
+import java.net.URI;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+import com.hp.hpl.jena.query.Dataset;
+import com.hp.hpl.jena.query.DatasetFactory;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Property;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.vocabulary.DCTerms;
+import com.hp.hpl.jena.vocabulary.RDF;
+import com.hp.hpl.jena.vocabulary.RDFS;
+import com.hp.hpl.jena.vocabulary.XSD;
+
+/**
+ * Generates research objects of a given size, the same every time, in the form returned by RODL: a dataset with the
+ * manifest, the resource maps and the annotation bodies as named graphs. Used by the load tests and, through the test
+ * jar, by the benchmarks.
+ *
+ * Resource i is in folder i mod the number of folders, every folder is a root folder and every second annotation is
+ * about the RO, the others about resources.
+ *
+ * @author piotrekhol
+ *
+ */
+public final class SyntheticDataset {
+
+    /** RO namespace. */
+    private static final String RO = "http://purl.org/wf4ever/ro#";
+
+    /** ORE namespace. */
+    private static final String ORE = "http://www.openarchives.org/ore/terms/";
+
+    /** AO namespace. */
+    private static final String AO = "http://purl.org/ao/";
+
+    /** FOAF name. */
+    private static final String FOAF_NAME = "http://xmlns.com/foaf/0.1/name";
+
+    /** Creation date of everything. */
+    public static final DateTime CREATED = new DateTime(2013, 1, 1, 0, 0, DateTimeZone.UTC);
+
+    /** Number of users creating the resources. */
+    public static final int USERS = 10;
+
+
+    /**
+     * Constructor.
+     */
+    private SyntheticDataset() {
+        //nope
+    }
+
+
+    /**
+     * Generate a research object.
+     *
+     * @param ro
+     *            RO URI
+     * @param resources
+     *            number of resources
+     * @param folders
+     *            number of folders, at least 1
+     * @param annotations
+     *            number of annotations
+     * @param bodyTriples
+     *            number of triples in each annotation body, at least 1
+     * @return the manifest, resource maps and annotation bodies as named graphs
+     */
+    public static Dataset generate(URI ro, int resources, int folders, int annotations, int bodyTriples) {
+        Dataset dataset = DatasetFactory.createMem();
+        Model manifest = dataset.getNamedModel(manifest(ro));
+        Resource researchObject = manifest.createResource(ro.toString());
+        researchObject.addProperty(RDF.type, manifest.createResource(RO + "ResearchObject"));
+        researchObject.addProperty(RDF.type, manifest.createResource(ORE + "Aggregation"));
+        describe(researchObject, 0);
+        for (int u = 0; u < USERS; u++) {
+            manifest.createResource(user(u)).addProperty(manifest.createProperty(FOAF_NAME), "User " + u);
+        }
+        for (int i = 0; i < resources; i++) {
+            Resource resource = aggregate(researchObject, resource(ro, i), i, RO + "Resource");
+            resource.addProperty(manifest.createProperty(RO, "filesize"),
+                manifest.createTypedLiteral(Long.toString(1000 + i), XSD.xlong.getURI()));
+        }
+        for (int f = 0; f < folders; f++) {
+            Resource folder = aggregate(researchObject, folder(ro, f), f, RO + "Folder", RO + "Resource");
+            folder.addProperty(manifest.createProperty(ORE, "isDescribedBy"),
+                manifest.createResource(resourceMap(ro, f)));
+            researchObject.addProperty(manifest.createProperty(RO, "rootFolder"), folder);
+            dataset.addNamedModel(resourceMap(ro, f), createResourceMap(ro, f, resources, folders));
+        }
+        for (int a = 0; a < annotations; a++) {
+            Resource annotation = aggregate(researchObject, ro.resolve(".ro/annotations/" + a).toString(), a, RO
+                    + "AggregatedAnnotation");
+            String target = target(ro, a, resources);
+            annotation.addProperty(manifest.createProperty(AO, "body"), manifest.createResource(body(ro, a)));
+            annotation.addProperty(manifest.createProperty(RO, "annotatesAggregatedResource"),
+                manifest.createResource(target));
+            aggregate(researchObject, body(ro, a), a, ORE + "AggregatedResource");
+            Model body = ModelFactory.createDefaultModel();
+            Resource subject = body.createResource(target);
+            subject.addProperty(DCTerms.title, "Title " + a);
+            for (int t = 1; t < bodyTriples; t++) {
+                subject.addProperty(RDFS.comment, "Comment " + t + " of " + a);
+            }
+            dataset.addNamedModel(body(ro, a), body);
+        }
+        return dataset;
+    }
+
+
+    /**
+     * Create the resource map of a folder.
+     *
+     * @param ro
+     *            RO URI
+     * @param f
+     *            folder number
+     * @param resources
+     *            number of resources in the RO
+     * @param folders
+     *            number of folders in the RO
+     * @return the resource map
+     */
+    private static Model createResourceMap(URI ro, int f, int resources, int folders) {
+        Model map = ModelFactory.createDefaultModel();
+        Property aggregates = map.createProperty(ORE, "aggregates");
+        Property proxyFor = map.createProperty(ORE, "proxyFor");
+        Property proxyIn = map.createProperty(ORE, "proxyIn");
+        Resource folder = map.createResource(folder(ro, f));
+        folder.addProperty(RDF.type, map.createResource(RO + "Folder"));
+        folder.addProperty(RDF.type, map.createResource(ORE + "Aggregation"));
+        folder.addProperty(map.createProperty(ORE, "isAggregatedBy"), map.createResource(ro.toString()));
+        folder.addProperty(map.createProperty(ORE, "isDescribedBy"), map.createResource(resourceMap(ro, f)));
+        for (int i = f; i < resources; i += folders) {
+            Resource resource = map.createResource(resource(ro, i));
+            folder.addProperty(aggregates, resource);
+            Resource entry = map.createResource(folder(ro, f) + "#entry" + i);
+            entry.addProperty(RDF.type, map.createResource(RO + "FolderEntry"));
+            entry.addProperty(RDF.type, map.createResource(ORE + "Proxy"));
+            entry.addProperty(map.createProperty(RO, "entryName"), "res" + i + ".txt");
+            entry.addProperty(proxyFor, resource);
+            entry.addProperty(proxyIn, folder);
+        }
+        return map;
+    }
+
+
+    /**
+     * Add an aggregated resource with its proxy to the manifest.
+     *
+     * @param researchObject
+     *            the RO in the manifest
+     * @param uri
+     *            resource URI
+     * @param n
+     *            resource number, used for the proxy URI and to choose the creator
+     * @param types
+     *            resource classes
+     * @return the resource
+     */
+    private static Resource aggregate(Resource researchObject, String uri, int n, String... types) {
+        Model manifest = researchObject.getModel();
+        Resource resource = manifest.createResource(uri);
+        researchObject.addProperty(manifest.createProperty(ORE, "aggregates"), resource);
+        for (String type : types) {
+            resource.addProperty(RDF.type, manifest.createResource(type));
+        }
+        describe(resource, n);
+        Resource proxy = manifest.createResource(researchObject.getURI() + "proxies/" + Math.abs(uri.hashCode())
+                + "-" + n);
+        proxy.addProperty(RDF.type, manifest.createResource(ORE + "Proxy"));
+        proxy.addProperty(manifest.createProperty(ORE, "proxyFor"), resource);
+        proxy.addProperty(manifest.createProperty(ORE, "proxyIn"), researchObject);
+        return resource;
+    }
+
+
+    /**
+     * Add the creator and creation date.
+     *
+     * @param resource
+     *            the described resource
+     * @param n
+     *            resource number, used to choose the creator
+     */
+    private static void describe(Resource resource, int n) {
+        Model model = resource.getModel();
+        resource.addProperty(DCTerms.created, model.createTypedLiteral(CREATED.toString(), XSD.dateTime.getURI()));
+        resource.addProperty(DCTerms.creator, model.createResource(user(n % USERS)));
+    }
+
+
+    /**
+     * Manifest URI.
+     *
+     * @param ro
+     *            RO URI
+     * @return URI
+     */
+    public static String manifest(URI ro) {
+        return ro.resolve(".ro/manifest.rdf").toString();
+    }
+
+
+    /**
+     * User URI.
+     *
+     * @param u
+     *            user number
+     * @return URI
+     */
+    public static String user(int u) {
+        return "http://example.org/users/" + u;
+    }
+
+
+    /**
+     * Resource URI.
+     *
+     * @param ro
+     *            RO URI
+     * @param i
+     *            resource number
+     * @return URI
+     */
+    public static String resource(URI ro, int i) {
+        return ro.resolve("res" + i + ".txt").toString();
+    }
+
+
+    /**
+     * Folder URI.
+     *
+     * @param ro
+     *            RO URI
+     * @param f
+     *            folder number
+     * @return URI
+     */
+    public static String folder(URI ro, int f) {
+        return ro.resolve("folder" + f + "/").toString();
+    }
+
+
+    /**
+     * Resource map URI.
+     *
+     * @param ro
+     *            RO URI
+     * @param f
+     *            folder number
+     * @return URI
+     */
+    public static String resourceMap(URI ro, int f) {
+        return ro.resolve("folder" + f + ".rdf").toString();
+    }
+
+
+    /**
+     * Annotation body URI.
+     *
+     * @param ro
+     *            RO URI
+     * @param a
+     *            annotation number
+     * @return URI
+     */
+    public static String body(URI ro, int a) {
+        return ro.resolve(".ro/bodies/" + a + ".rdf").toString();
+    }
+
+
+    /**
+     * Annotation target, the RO for even annotations, a resource for odd ones.
+     *
+     * @param ro
+     *            RO URI
+     * @param a
+     *            annotation number
+     * @param resources
+     *            number of resources in the RO
+     * @return URI
+     */
+    public static String target(URI ro, int a, int resources) {
+        return a % 2 == 0 || resources == 0 ? ro.toString() : resource(ro, a % resources);
+    }
+}